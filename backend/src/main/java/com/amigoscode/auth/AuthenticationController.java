@@ -4,6 +4,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -26,4 +27,22 @@ public class AuthenticationController {
                 .header(HttpHeaders.AUTHORIZATION, response.token())
                 .body(response);
     }
+
+    // only reached with a valid access token, which the filter has checked
+    @PostMapping("logout")
+    public ResponseEntity<Void> logout(
+            @RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+            @RequestBody(required = false) RefreshTokenRequest request){
+        authenticationService.logout(authorization.substring("Bearer ".length()), request);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("refresh")
+    public ResponseEntity<?> refresh(
+            @RequestBody RefreshTokenRequest request){
+        RefreshTokenResponse response = authenticationService.refresh(request);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AUTHORIZATION, response.token())
+                .body(response);
+    }
 }
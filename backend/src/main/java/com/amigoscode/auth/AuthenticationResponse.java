@@ -4,5 +4,6 @@ import com.amigoscode.customer.CustomerDTO;
 
 public record AuthenticationResponse(
         String token,
+        String refreshToken,
         CustomerDTO customerDTO) {
 }
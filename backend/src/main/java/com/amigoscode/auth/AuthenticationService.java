@@ -4,6 +4,8 @@ import com.amigoscode.customer.Customer;
 import com.amigoscode.customer.CustomerDTO;
 import com.amigoscode.customer.CustomerDTOMapper;
 import com.amigoscode.jwt.JWTUtil;
+import com.amigoscode.jwt.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -15,13 +17,19 @@ public class AuthenticationService {
     private final AuthenticationManager authenticationManager;
     private final CustomerDTOMapper customerDTOMapper;
     private final JWTUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
 
     public AuthenticationService(
             AuthenticationManager authenticationManager,
-            CustomerDTOMapper customerDTOMapper, JWTUtil jwtUtil) {
+            CustomerDTOMapper customerDTOMapper, JWTUtil jwtUtil,
+            RefreshTokenService refreshTokenService,
+            TokenRevocationService tokenRevocationService) {
         this.authenticationManager = authenticationManager;
         this.customerDTOMapper = customerDTOMapper;
         this.jwtUtil = jwtUtil;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     public AuthenticationResponse login(AuthenticationRequest request) {
@@ -36,6 +44,29 @@ public class AuthenticationService {
         String token = jwtUtil.issueToken(
                 customerDTO.username(), customerDTO.roles()
         );
-        return new AuthenticationResponse(token, customerDTO);
+        String refreshToken = refreshTokenService.issue(principal.getId());
+        return new AuthenticationResponse(token, refreshToken, customerDTO);
+    }
+
+    public RefreshTokenResponse refresh(RefreshTokenRequest request) {
+        RefreshTokenService.RotatedRefreshToken rotated =
+                refreshTokenService.rotate(request.refreshToken());
+        // the current role, so a promotion or demotion applies from the next refresh
+        String token = jwtUtil.issueToken(rotated.email(), rotated.role().authority());
+        return new RefreshTokenResponse(token, rotated.refreshToken());
+    }
+
+    /**
+     * Revokes the access token and, when given, the refresh token family
+     * of the session.
+     */
+    public void logout(String accessToken, RefreshTokenRequest request) {
+        Claims claims = jwtUtil.getClaims(accessToken);
+        if (claims.getId() != null) {
+            tokenRevocationService.revoke(claims.getId(), claims.getExpiration().toInstant());
+        }
+        if (request != null) {
+            refreshTokenService.revoke(request.refreshToken());
+        }
     }
 }
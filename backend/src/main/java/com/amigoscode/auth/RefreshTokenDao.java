@@ -0,0 +1,109 @@
+package com.amigoscode.auth;
+
+import com.amigoscode.customer.Role;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Hashed refresh tokens (see V7 migration).
+ */
+@Repository
+public class RefreshTokenDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RefreshTokenDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertToken(String tokenHash, String familyId, Integer customerId, Instant expiresAt) {
+        var sql = """
+                INSERT INTO refresh_token(token_hash, family_id, customer_id, expires_at)
+                VALUES (?, ?, ?, ?)
+                """;
+        jdbcTemplate.update(sql, tokenHash, familyId, customerId, Timestamp.from(expiresAt));
+    }
+
+    /**
+     * Marks the token used, unless it already was or has expired. Only one
+     * of several requests presenting the same token gets the grant.
+     */
+    public Optional<RefreshTokenGrant> useToken(String tokenHash, Instant now) {
+        var sql = """
+                UPDATE refresh_token r
+                SET used_at = ?
+                FROM customer c
+                WHERE r.customer_id = c.id
+                AND r.token_hash = ?
+                AND r.used_at IS NULL
+                AND r.expires_at > ?
+                RETURNING r.family_id, r.customer_id, c.email, c.role
+                """;
+        return jdbcTemplate.query(sql,
+                        (rs, rowNum) -> new RefreshTokenGrant(
+                                rs.getString("family_id"),
+                                rs.getInt("customer_id"),
+                                rs.getString("email"),
+                                Role.valueOf(rs.getString("role"))),
+                        Timestamp.from(now), tokenHash, Timestamp.from(now))
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * The family of the token if it has been used before.
+     */
+    public Optional<String> selectUsedTokenFamily(String tokenHash) {
+        var sql = """
+                SELECT family_id
+                FROM refresh_token
+                WHERE token_hash = ?
+                AND used_at IS NOT NULL
+                """;
+        return jdbcTemplate.queryForList(sql, String.class, tokenHash)
+                .stream()
+                .findFirst();
+    }
+
+    public int deleteFamily(String familyId) {
+        var sql = """
+                DELETE FROM refresh_token
+                WHERE family_id = ?
+                """;
+        return jdbcTemplate.update(sql, familyId);
+    }
+
+    public int deleteFamilyOfToken(String tokenHash) {
+        var sql = """
+                DELETE FROM refresh_token
+                WHERE family_id = (
+                    SELECT family_id
+                    FROM refresh_token
+                    WHERE token_hash = ?
+                )
+                """;
+        return jdbcTemplate.update(sql, tokenHash);
+    }
+
+    /**
+     * Removes up to {@code limit} expired tokens. Used tokens are kept
+     * until then, so reuse can still be detected.
+     */
+    public int deleteExpiredTokens(Instant now, int limit) {
+        var sql = """
+                DELETE FROM refresh_token
+                WHERE token_hash IN (
+                    SELECT token_hash
+                    FROM refresh_token
+                    WHERE expires_at <= ?
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                """;
+        return jdbcTemplate.update(sql, Timestamp.from(now), limit);
+    }
+}
@@ -0,0 +1,14 @@
+package com.amigoscode.auth;
+
+import com.amigoscode.customer.Role;
+
+/**
+ * The customer a refresh token was issued to, returned when the token is
+ * used so the next one can be issued in the same family.
+ */
+public record RefreshTokenGrant(
+        String familyId,
+        Integer customerId,
+        String email,
+        Role role) {
+}
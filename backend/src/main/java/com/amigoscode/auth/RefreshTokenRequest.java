@@ -0,0 +1,6 @@
+package com.amigoscode.auth;
+
+public record RefreshTokenRequest(
+        String refreshToken
+) {
+}
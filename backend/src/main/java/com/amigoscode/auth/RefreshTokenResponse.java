@@ -0,0 +1,6 @@
+package com.amigoscode.auth;
+
+public record RefreshTokenResponse(
+        String token,
+        String refreshToken) {
+}
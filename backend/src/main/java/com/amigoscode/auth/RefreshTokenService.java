@@ -0,0 +1,124 @@
+package com.amigoscode.auth;
+
+import com.amigoscode.customer.Role;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Opaque refresh tokens with rotation. Each token can be used once and is
+ * replaced by a new one of the same family. A used token presented again
+ * means it was copied, so the whole family is revoked and both holders
+ * have to sign in again.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final int TOKEN_BYTES = 32;
+    private static final int EXPIRY_BATCH_SIZE = 1000;
+
+    private final RefreshTokenDao refreshTokenDao;
+    private final Duration ttl;
+    private final Clock clock;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Autowired
+    public RefreshTokenService(RefreshTokenDao refreshTokenDao,
+                               @Value("${jwt.refresh-token.ttl:14d}") Duration ttl) {
+        this(refreshTokenDao, ttl, Clock.systemUTC());
+    }
+
+    RefreshTokenService(RefreshTokenDao refreshTokenDao, Duration ttl, Clock clock) {
+        this.refreshTokenDao = refreshTokenDao;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts a new family, on login.
+     */
+    public String issue(Integer customerId) {
+        return issue(UUID.randomUUID().toString(), customerId);
+    }
+
+    /**
+     * Uses the token and returns its successor along with who it belongs to.
+     *
+     * @throws BadCredentialsException if the token is unknown, expired or
+     * was used before
+     */
+    public RotatedRefreshToken rotate(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+        String tokenHash = hash(refreshToken);
+        RefreshTokenGrant grant = refreshTokenDao.useToken(tokenHash, clock.instant())
+                .orElseThrow(() -> {
+                    refreshTokenDao.selectUsedTokenFamily(tokenHash).ifPresent(familyId -> {
+                        LOGGER.warn("Refresh token reused, revoking token family {}", familyId);
+                        refreshTokenDao.deleteFamily(familyId);
+                    });
+                    return new BadCredentialsException("Invalid refresh token");
+                });
+        return new RotatedRefreshToken(
+                issue(grant.familyId(), grant.customerId()),
+                grant.customerId(),
+                grant.email(),
+                grant.role());
+    }
+
+    /**
+     * Ends the session the token belongs to, on logout.
+     */
+    public void revoke(String refreshToken) {
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenDao.deleteFamilyOfToken(hash(refreshToken));
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${jwt.refresh-token.cleanup-interval:PT1H}",
+            fixedDelayString = "${jwt.refresh-token.cleanup-interval:PT1H}")
+    public void deleteExpiredTokens() {
+        int deleted;
+        do {
+            deleted = refreshTokenDao.deleteExpiredTokens(clock.instant(), EXPIRY_BATCH_SIZE);
+        } while (deleted == EXPIRY_BATCH_SIZE);
+    }
+
+    private String issue(String familyId, Integer customerId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenDao.insertToken(hash(refreshToken), familyId, customerId, clock.instant().plus(ttl));
+        return refreshToken;
+    }
+
+    // the token is random, so a plain hash is enough to keep a leaked table useless
+    static String hash(String refreshToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(refreshToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record RotatedRefreshToken(String refreshToken, Integer customerId, String email, Role role) {
+    }
+}
@@ -64,6 +64,12 @@ public class Customer implements UserDetails {
         )
         private String profileImageId;
 
+        @Column(
+                nullable = false
+        )
+        @Enumerated(EnumType.STRING)
+        private Role role = Role.USER;
+
         public Customer(){}
         public Customer(Integer id,
                         String name,
@@ -88,6 +94,17 @@ public class Customer implements UserDetails {
             this.profileImageId = profileImageId;
         }
 
+        public Customer(Integer id,
+                        String name,
+                        String email,
+                        String password, Integer age,
+                        Gender gender,
+                        String profileImageId,
+                        Role role) {
+            this(id, name, email, password, age, gender, profileImageId);
+            this.role = role;
+        }
+
 
     public Customer(String name,
                         String email,
@@ -148,9 +165,17 @@ public class Customer implements UserDetails {
             this.profileImageId = profileImageId;
         }
 
+        public Role getRole() {
+            return role;
+        }
+
+        public void setRole(Role role) {
+            this.role = role;
+        }
+
         @Override
         public Collection<? extends GrantedAuthority> getAuthorities() {
-            return List.of(new SimpleGrantedAuthority("ROLE_USER"));
+            return List.of(new SimpleGrantedAuthority(role.authority()));
         }
 
         @Override
@@ -188,12 +213,12 @@ public class Customer implements UserDetails {
             if (this == o) return true;
             if (o == null || getClass() != o.getClass()) return false;
             Customer customer = (Customer) o;
-            return Objects.equals(id, customer.id) && Objects.equals(name, customer.name) && Objects.equals(email, customer.email) && Objects.equals(age, customer.age) && gender == customer.gender && Objects.equals(password, customer.password) && Objects.equals(profileImageId, customer.profileImageId);
+            return Objects.equals(id, customer.id) && Objects.equals(name, customer.name) && Objects.equals(email, customer.email) && Objects.equals(age, customer.age) && gender == customer.gender && Objects.equals(password, customer.password) && Objects.equals(profileImageId, customer.profileImageId) && role == customer.role;
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(id, name, email, age, gender, password, profileImageId);
+            return Objects.hash(id, name, email, age, gender, password, profileImageId, role);
         }
 
         @Override
@@ -206,6 +231,7 @@ public class Customer implements UserDetails {
                     ", gender=" + gender +
                     ", password='" + password + '\'' +
                     ", profileImageId='" + profileImageId + '\'' +
+                    ", role=" + role +
                     '}';
         }
 }
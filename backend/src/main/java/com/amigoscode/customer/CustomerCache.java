@@ -0,0 +1,137 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.notify.PgNotificationHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Node local cache of customers looked up by username.
+ * Entries are evicted when the customer_changed trigger (see V3 migration)
+ * reports an update or delete on any node, and expire after the TTL.
+ * Entries are kept in load order, so the expired ones are always the
+ * eldest and are dropped as new entries come in.
+ */
+@Component
+public class CustomerCache implements PgNotificationHandler {
+
+    static final String CHANNEL = "customer_changed";
+
+    private record Entry(Customer customer, long loadedAtMillis) {}
+
+    // guarded by this
+    private final LinkedHashMap<String, Entry> byUsername = new LinkedHashMap<>();
+    private final Map<Integer, String> usernameById = new HashMap<>();
+    private long invalidations;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    public CustomerCache(@Value("${customer.cache.max-size:10000}") int maxSize,
+                         @Value("${customer.cache.ttl:5m}") Duration ttl) {
+        this(maxSize, ttl, Clock.systemUTC());
+    }
+
+    CustomerCache(int maxSize, Duration ttl, Clock clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    public Optional<Customer> getByUsername(String username,
+                                            Function<String, Optional<Customer>> loader) {
+        long invalidationsBeforeLoad;
+        synchronized (this) {
+            Entry entry = byUsername.get(username);
+            if (entry != null && !isExpired(entry, clock.millis())) {
+                return Optional.of(entry.customer());
+            }
+            invalidationsBeforeLoad = invalidations;
+        }
+
+        // an eviction racing with the load means the loaded row may already
+        // be stale, in which case it is returned but not cached
+        Optional<Customer> loaded = loader.apply(username);
+        loaded.ifPresent(customer -> {
+            synchronized (this) {
+                if (invalidations == invalidationsBeforeLoad) {
+                    put(username, customer);
+                }
+            }
+        });
+        return loaded;
+    }
+
+    public synchronized void evict(Integer customerId) {
+        invalidations++;
+        String username = usernameById.remove(customerId);
+        if (username != null) {
+            byUsername.remove(username);
+        }
+    }
+
+    public synchronized void clear() {
+        invalidations++;
+        byUsername.clear();
+        usernameById.clear();
+    }
+
+    synchronized int size() {
+        return byUsername.size();
+    }
+
+    private void put(String username, Customer customer) {
+        long now = clock.millis();
+        // removed first, so the entry moves to the end of the load order
+        remove(username);
+        byUsername.put(username, new Entry(customer, now));
+        usernameById.put(customer.getId(), username);
+
+        Iterator<Map.Entry<String, Entry>> eldest = byUsername.entrySet().iterator();
+        while (eldest.hasNext()) {
+            Map.Entry<String, Entry> next = eldest.next();
+            if (byUsername.size() <= maxSize && !isExpired(next.getValue(), now)) {
+                break;
+            }
+            eldest.remove();
+            usernameById.remove(next.getValue().customer().getId(), next.getKey());
+        }
+    }
+
+    private void remove(String username) {
+        Entry entry = byUsername.remove(username);
+        if (entry != null) {
+            usernameById.remove(entry.customer().getId(), username);
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.loadedAtMillis() >= ttlMillis;
+    }
+
+    @Override
+    public String channel() {
+        return CHANNEL;
+    }
+
+    @Override
+    public void onNotification(String payload) {
+        Arrays.stream(payload.split(","))
+                .map(Integer::valueOf)
+                .forEach(this::evict);
+    }
+
+    @Override
+    public void onListenerReset() {
+        clear();
+    }
+}
@@ -1,23 +1,60 @@
 package com.amigoscode.customer;
 
+import com.amigoscode.auth.AuthenticationResponse;
+import com.amigoscode.auth.RefreshTokenService;
+import com.amigoscode.exception.ResourceNotFoundException;
 import com.amigoscode.jwt.JWTUtil;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("api/v1/customers")
 public class CustomerController {
     private final CustomerService customerService;
+    private final ProfileImageUploadQueue profileImageUploadQueue;
+    private final ProfileImageUploadSessions profileImageUploadSessions;
+    private final ProfileImageImporter profileImageImporter;
     private JWTUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
+    private final int profileImageBatchConcurrency;
     public CustomerController(CustomerService customerService,
-                              JWTUtil jwtUtil) {
+                              ProfileImageUploadQueue profileImageUploadQueue,
+                              ProfileImageUploadSessions profileImageUploadSessions,
+                              ProfileImageImporter profileImageImporter,
+                              JWTUtil jwtUtil,
+                              RefreshTokenService refreshTokenService,
+                              @Value("${customer.profile-image.batch.concurrency:8}")
+                              int profileImageBatchConcurrency) {
         this.customerService = customerService;
+        this.profileImageUploadQueue = profileImageUploadQueue;
+        this.profileImageUploadSessions = profileImageUploadSessions;
+        this.profileImageImporter = profileImageImporter;
         this.jwtUtil = jwtUtil;
+        this.refreshTokenService = refreshTokenService;
+        this.profileImageBatchConcurrency = profileImageBatchConcurrency;
     }
 
     @GetMapping
@@ -33,9 +70,13 @@ public class CustomerController {
 
     @PostMapping
     public ResponseEntity<?> registerCustomer(@RequestBody CustomerRegistrationRequest request) {
-        customerService.addCustomer(request);
-        String jwtToken = jwtUtil.issueToken(request.email(), "ROLE_USER");
-        return ResponseEntity.ok().header(HttpHeaders.AUTHORIZATION, jwtToken).build();
+        CustomerDTO customerDTO = customerService.addCustomer(request);
+        String jwtToken = jwtUtil.issueToken(customerDTO.username(), customerDTO.roles());
+        // signed in as on login, so the session outlives the access token
+        String refreshToken = refreshTokenService.issue(customerDTO.id());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.AUTHORIZATION, jwtToken)
+                .body(new AuthenticationResponse(jwtToken, refreshToken, customerDTO));
     }
 
     @DeleteMapping("{customerId}")
@@ -53,19 +94,327 @@ public class CustomerController {
             value = "{customerId}/profile-image",
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE
     )
-    public void uploadCustomerProfileImage(
+    public CompletableFuture<ResponseEntity<ProfileImageUploadJob>> uploadCustomerProfileImage(
             @PathVariable("customerId") Integer customerId,
-            @RequestParam("file") MultipartFile file) {
-        customerService.uploadCustomerProfileImage(customerId, file);
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
+        if (!prefersRespondAsync(prefer)) {
+            return customerService.uploadCustomerProfileImageAsync(customerId, file)
+                    .thenApply(ignored -> ResponseEntity.ok().build());
+        }
+        ProfileImageUploadJob job = profileImageUploadQueue.submit(customerId, file);
+        return CompletableFuture.completedFuture(ResponseEntity
+                .accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/jobs/{jobId}")
+                        .buildAndExpand(job.id())
+                        .toUri())
+                .header("Preference-Applied", "respond-async")
+                .body(job));
     }
 
-    @GetMapping(
-            value = "{customerId}/profile-image",
-            produces = MediaType.IMAGE_JPEG_VALUE
-    )
-    public byte[] getCustomerProfileImage(
-            @PathVariable("customerId") Integer customerId) {
-        return customerService.getCustomerProfileImage(customerId);
+    @PostMapping("{customerId}/profile-image/upload-url")
+    public ProfileImageUploadUrl createCustomerProfileImageUploadUrl(
+            @PathVariable("customerId") Integer customerId,
+            @RequestBody ProfileImageUploadUrlRequest request) {
+        return customerService.createProfileImageUploadUrl(customerId, request);
+    }
+
+    @PostMapping("{customerId}/profile-image/confirm")
+    public void confirmCustomerProfileImageUpload(
+            @PathVariable("customerId") Integer customerId,
+            @RequestBody ProfileImageUploadConfirmation confirmation) {
+        customerService.confirmProfileImageUpload(customerId, confirmation);
+    }
+
+    @PostMapping("{customerId}/profile-image/uploads")
+    public ResponseEntity<ProfileImageUploadProgress> createCustomerProfileImageUploadSession(
+            @PathVariable("customerId") Integer customerId,
+            @RequestBody ProfileImageUploadUrlRequest request) {
+        ProfileImageUploadProgress progress =
+                profileImageUploadSessions.createSession(customerId, request);
+        return ResponseEntity
+                .created(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{uploadId}")
+                        .buildAndExpand(progress.uploadId())
+                        .toUri())
+                .body(progress);
+    }
+
+    @GetMapping("{customerId}/profile-image/uploads/{uploadId}")
+    public ProfileImageUploadProgress getCustomerProfileImageUploadSession(
+            @PathVariable("customerId") Integer customerId,
+            @PathVariable("uploadId") String uploadId) {
+        return profileImageUploadSessions.getProgress(customerId, uploadId);
+    }
+
+    /**
+     * One chunk of a resumable upload as the raw request body, placed by
+     * its Content-Range, e.g. "bytes 0-5242879/9437184".
+     */
+    @PutMapping("{customerId}/profile-image/uploads/{uploadId}")
+    public ProfileImageUploadProgress uploadCustomerProfileImageChunk(
+            @PathVariable("customerId") Integer customerId,
+            @PathVariable("uploadId") String uploadId,
+            @RequestHeader(HttpHeaders.CONTENT_RANGE) String contentRange,
+            InputStream inputStream) {
+        return profileImageUploadSessions.uploadChunk(
+                customerId, uploadId, contentRange, inputStream);
+    }
+
+    @PostMapping("{customerId}/profile-image/uploads/{uploadId}/complete")
+    public void completeCustomerProfileImageUploadSession(
+            @PathVariable("customerId") Integer customerId,
+            @PathVariable("uploadId") String uploadId) {
+        profileImageUploadSessions.completeSession(customerId, uploadId);
+    }
+
+    @GetMapping("{customerId}/profile-image/url")
+    public ProfileImageDownloadUrl getCustomerProfileImageUrl(
+            @PathVariable("customerId") Integer customerId,
+            @RequestParam(value = "size", defaultValue = "original") String size) {
+        return customerService.getCustomerProfileImageUrl(
+                customerId, ProfileImageSize.fromParameter(size));
+    }
+
+    @GetMapping("{customerId}/profile-image/jobs/{jobId}")
+    public ProfileImageUploadJob getCustomerProfileImageUploadJob(
+            @PathVariable("customerId") Integer customerId,
+            @PathVariable("jobId") UUID jobId) {
+        return profileImageUploadQueue.getJob(customerId, jobId);
+    }
+
+    @GetMapping("{customerId}/profile-image")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> getCustomerProfileImage(
+            @PathVariable("customerId") Integer customerId,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(value = "size", defaultValue = "original") String size) {
+        ProfileImageSize profileImageSize = ProfileImageSize.fromParameter(size);
+        // images not described yet are served without validators
+        ProfileImageMetadata metadata = customerService.getCustomerProfileImageMetadata(customerId)
+                .orElse(null);
+        String eTag = metadata != null ? metadata.eTag(profileImageSize) : null;
+        if (eTag != null && matchesAny(ifNoneMatch, eTag)) {
+            return CompletableFuture.completedFuture(notModified(metadata, eTag));
+        }
+        return customerService.getCustomerProfileImageAsync(
+                        customerId, singleRange(range), profileImageSize)
+                .thenApply(profileImage -> toResponse(profileImage, metadata, eTag));
+    }
+
+    /**
+     * Answered from the metadata table alone. Variants are re-encoded from
+     * the original, so only the original has a known Content-Length.
+     * Images not described yet are not found until the backfill reaches
+     * them.
+     */
+    @RequestMapping(value = "{customerId}/profile-image", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> headCustomerProfileImage(
+            @PathVariable("customerId") Integer customerId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(value = "size", defaultValue = "original") String size) {
+        ProfileImageSize profileImageSize = ProfileImageSize.fromParameter(size);
+        ProfileImageMetadata metadata = customerService.getCustomerProfileImageMetadata(customerId)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "customer with id [%s] profile image not found".formatted(customerId)));
+        String eTag = metadata.eTag(profileImageSize);
+        if (matchesAny(ifNoneMatch, eTag)) {
+            return notModified(metadata, eTag);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag(eTag)
+                .lastModified(metadata.createdAt());
+        if (profileImageSize == ProfileImageSize.ORIGINAL) {
+            response.contentType(metadata.contentType() != null
+                            ? MediaType.parseMediaType(metadata.contentType())
+                            : MediaType.IMAGE_JPEG)
+                    .contentLength(metadata.size());
+        }
+        return response.build();
+    }
+
+    /**
+     * Profile images of a page of customers as one multipart/mixed response,
+     * in the order asked for. Each part names its customer in
+     * Content-Location; customers without a profile image have no part.
+     */
+    @GetMapping("profile-images")
+    public ResponseEntity<StreamingResponseBody> getCustomerProfileImages(
+            @RequestParam("ids") List<Integer> customerIds,
+            @RequestParam(value = "size", defaultValue = "thumbnail") String size) {
+        ProfileImageSize profileImageSize = ProfileImageSize.fromParameter(size);
+        return toMultipartResponse(
+                customerService.getCustomerProfileImagesAsync(customerIds, profileImageSize),
+                size,
+                profileImageBatchConcurrency);
+    }
+
+    /**
+     * Admin only bulk import of a ZIP archive whose entries are named by
+     * customer id. The archive is the raw request body, so it is read as
+     * it arrives rather than buffered as a multipart upload.
+     */
+    @PostMapping(value = "profile-images/import", consumes = "application/zip")
+    public ProfileImageImportResult importCustomerProfileImages(InputStream archive) {
+        return profileImageImporter.importArchive(archive);
+    }
+
+    /**
+     * Writes each part as soon as its fetch completes, in order, so every
+     * image is read off its S3 stream before the next one is waited for.
+     * A fetch is only started once fewer than {@code concurrency} parts
+     * are ahead of it, so a large batch neither queues reads behind the
+     * S3 connection pool until they time out nor opens streams nobody
+     * reads yet.
+     */
+    private static ResponseEntity<StreamingResponseBody> toMultipartResponse(
+            Map<Integer, Supplier<CompletableFuture<CustomerProfileImage>>> profileImages,
+            String size,
+            int concurrency) {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        return ResponseEntity.ok()
+                .contentType(new MediaType("multipart", "mixed", Map.of("boundary", boundary)))
+                .body(outputStream -> {
+                    Iterator<Map.Entry<Integer, Supplier<CompletableFuture<CustomerProfileImage>>>> parts =
+                            profileImages.entrySet().iterator();
+                    Deque<Map.Entry<Integer, CompletableFuture<CustomerProfileImage>>> started =
+                            new ArrayDeque<>();
+                    try {
+                        while (true) {
+                            while (started.size() < concurrency && parts.hasNext()) {
+                                Map.Entry<Integer, Supplier<CompletableFuture<CustomerProfileImage>>> next =
+                                        parts.next();
+                                started.add(Map.entry(next.getKey(), next.getValue().get()));
+                            }
+                            Map.Entry<Integer, CompletableFuture<CustomerProfileImage>> part = started.poll();
+                            if (part == null) {
+                                break;
+                            }
+                            CustomerProfileImage profileImage = part.getValue().join();
+                            if (profileImage == null) {
+                                continue;
+                            }
+                            StringBuilder headers = new StringBuilder()
+                                    .append("--").append(boundary).append("\r\n")
+                                    .append(HttpHeaders.CONTENT_TYPE).append(": ")
+                                    .append(profileImage.contentType() != null
+                                            ? profileImage.contentType()
+                                            : MediaType.IMAGE_JPEG_VALUE)
+                                    .append("\r\n")
+                                    .append(HttpHeaders.CONTENT_LOCATION).append(": ")
+                                    .append("/api/v1/customers/%s/profile-image?size=%s"
+                                            .formatted(part.getKey(), size))
+                                    .append("\r\n");
+                            if (profileImage.contentLength() != null) {
+                                headers.append(HttpHeaders.CONTENT_LENGTH).append(": ")
+                                        .append(profileImage.contentLength())
+                                        .append("\r\n");
+                            }
+                            headers.append("\r\n");
+                            outputStream.write(headers.toString().getBytes(StandardCharsets.US_ASCII));
+                            copy(profileImage.content(), outputStream);
+                            outputStream.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+                        }
+                        outputStream.write("--%s--\r\n".formatted(boundary)
+                                .getBytes(StandardCharsets.US_ASCII));
+                    } finally {
+                        // started parts not reached when the client went away
+                        started.forEach(part -> part.getValue().thenAccept(profileImage -> {
+                            if (profileImage != null) {
+                                closeQuietly(profileImage.content());
+                            }
+                        }));
+                    }
+                });
+    }
+
+    private static <T> ResponseEntity<T> notModified(ProfileImageMetadata metadata, String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(eTag)
+                .lastModified(metadata.createdAt())
+                .build();
+    }
+
+    private static ResponseEntity<StreamingResponseBody> toResponse(
+            CustomerProfileImage profileImage,
+            ProfileImageMetadata metadata,
+            String eTag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity
+                .status(profileImage.contentRange() != null
+                        ? HttpStatus.PARTIAL_CONTENT
+                        : HttpStatus.OK)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(profileImage.contentType() != null
+                        ? MediaType.parseMediaType(profileImage.contentType())
+                        : MediaType.IMAGE_JPEG);
+        if (metadata != null) {
+            response.eTag(eTag)
+                    .lastModified(metadata.createdAt());
+        }
+        if (profileImage.contentRange() != null) {
+            response.header(HttpHeaders.CONTENT_RANGE, profileImage.contentRange());
+        }
+        if (profileImage.contentLength() != null) {
+            response.contentLength(profileImage.contentLength());
+        }
+        return response.body(outputStream -> copy(profileImage.content(), outputStream));
+    }
+
+    /**
+     * Clients opt in to queued processing with "Prefer: respond-async"
+     * (RFC 7240); everyone else keeps the synchronous upload.
+     */
+    private static boolean prefersRespondAsync(String prefer) {
+        return prefer != null && Arrays.stream(prefer.split(","))
+                .map(String::trim)
+                .anyMatch("respond-async"::equalsIgnoreCase);
+    }
+
+    /**
+     * If-None-Match uses weak comparison (RFC 9110), so a W/ prefix sent
+     * back by a cache still matches.
+     */
+    private static boolean matchesAny(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(candidate -> candidate.startsWith("W/") ? candidate.substring(2) : candidate)
+                .anyMatch(candidate -> candidate.equals("*") || candidate.equals(eTag));
+    }
+
+    /**
+     * Only a single byte range is passed on to S3. Malformed headers and
+     * multi-range requests are ignored, which per RFC 9110 means serving
+     * the full representation.
+     */
+    private static String singleRange(String range) {
+        if (range == null) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            return ranges.size() == 1 ? HttpRange.toString(ranges) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void copy(InputStream inputStream, OutputStream outputStream)
+            throws IOException {
+        try (inputStream) {
+            inputStream.transferTo(outputStream);
+        }
     }
 
 }
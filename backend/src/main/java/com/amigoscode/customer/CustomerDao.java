@@ -1,7 +1,10 @@
 package com.amigoscode.customer;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface CustomerDao {
     List<Customer> selectAllCustomers();
@@ -12,5 +15,33 @@ public interface CustomerDao {
     void deleteCustomerById(Integer customerId);
     void updateCustomer(Customer update);
     Optional<Customer> selectUserByEmail(String email);
-    void updateCustomerProfileImageId(String profileImageId, Integer customerId);
+    /**
+     * Returns the profile image id the customer had before, or null. Of
+     * concurrent updates each sees the id the one before it set.
+     */
+    String updateCustomerProfileImageId(String profileImageId, Integer customerId);
+    void updateCustomerPassword(String password, Integer customerId);
+    Set<Integer> selectExistingCustomerIds(Collection<Integer> customerIds);
+    /**
+     * Sets the profile image of many customers at once and returns the
+     * profile image ids they had before, by customer id. Customers that do
+     * not exist are left out.
+     */
+    Map<Integer, String> updateProfileImageIds(Map<Integer, String> profileImageIds);
+    /**
+     * The given profile image ids that some customer still has.
+     */
+    Set<String> selectReferencedProfileImageIds(Collection<String> profileImageIds);
+    /**
+     * Profile images of the given customers in one round trip. Customers
+     * without a profile image are left out; sha256 is null for images
+     * stored under their legacy per customer key.
+     */
+    List<ProfileImageLocation> selectProfileImageLocations(Collection<Integer> customerIds);
+    /**
+     * Up to {@code limit} current profile images that have no metadata
+     * yet, of customers with an id above {@code afterCustomerId}, in id
+     * order.
+     */
+    List<ProfileImageLocation> selectProfileImagesWithoutMetadata(Integer afterCustomerId, int limit);
 }
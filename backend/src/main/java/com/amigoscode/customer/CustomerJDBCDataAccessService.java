@@ -4,8 +4,16 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDao {
@@ -22,7 +30,7 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     @Override
     public List<Customer> selectAllCustomers() {
         var sql = """
-                SELECT id, name, email, password, age, gender, profile_image_id
+                SELECT id, name, email, password, age, gender, profile_image_id, role
                 FROM customer
                 LIMIT 1000
                 """;
@@ -35,7 +43,7 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
         var sql = """
-                SELECT id, name, email, password, age, gender, profile_image_id
+                SELECT id, name, email, password, age, gender, profile_image_id, role
                 FROM customer
                 WHERE id = ?
                 """;
@@ -49,15 +57,16 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     @Override
     public void insertCustomer(Customer customer) {
         var sql = """
-                INSERT INTO customer(name, email, password, age, gender)
-                VALUES (?, ?, ?, ?, ?)
+                INSERT INTO customer(name, email, password, age, gender, role)
+                VALUES (?, ?, ?, ?, ?, ?)
                 """;
         int result = jdbcTemplate.update(sql,
                 customer.getName(),
                 customer.getEmail(),
                 customer.getPassword(),
                 customer.getAge(),
-                customer.getGender().name()
+                customer.getGender().name(),
+                customer.getRole().name()
         );
 
         System.out.println("jdbcTemplate.update = " + result);
@@ -132,7 +141,7 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     @Override
     public Optional<Customer> selectUserByEmail(String email) {
         var sql = """
-                SELECT id, name, email, password, age, gender
+                SELECT id, name, email, password, age, gender, profile_image_id, role
                 FROM customer
                 WHERE email = ?
                 """;
@@ -144,12 +153,135 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+    public String updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+        // the locked sub-select reads the row as it was before the update
         var sql = """
-                UPDATE customer
+                UPDATE customer c
                 SET profile_image_id = ?
+                FROM (
+                    SELECT id, profile_image_id FROM customer WHERE id = ? FOR UPDATE
+                ) previous
+                WHERE c.id = previous.id
+                RETURNING previous.profile_image_id
+                """;
+        return jdbcTemplate.queryForList(sql, String.class, profileImageId, customerId)
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public void updateCustomerPassword(String password, Integer customerId) {
+        var sql = """
+                UPDATE customer
+                SET password = ?
                 WHERE id = ?
                 """;
-        jdbcTemplate.update(sql, profileImageId, customerId);
+        jdbcTemplate.update(sql, password, customerId);
+    }
+
+    @Override
+    public Set<Integer> selectExistingCustomerIds(Collection<Integer> customerIds) {
+        var sql = """
+                SELECT id
+                FROM customer
+                WHERE id = ANY(?)
+                """;
+        return new HashSet<>(jdbcTemplate.query(sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", customerIds.toArray())),
+                (rs, rowNum) -> rs.getInt(1)));
+    }
+
+    @Override
+    public Map<Integer, String> updateProfileImageIds(Map<Integer, String> profileImageIds) {
+        // the locked sub-select reads the rows as they were before the update,
+        // also when another upload changed them in the meantime; locking in id
+        // order keeps concurrent batches from deadlocking
+        var sql = """
+                UPDATE customer c
+                SET profile_image_id = u.profile_image_id
+                FROM unnest(?, ?) AS u(id, profile_image_id), (
+                    SELECT id, profile_image_id
+                    FROM customer
+                    WHERE id = ANY(?)
+                    ORDER BY id
+                    FOR UPDATE
+                ) previous
+                WHERE c.id = u.id
+                AND previous.id = c.id
+                RETURNING c.id, previous.profile_image_id
+                """;
+        Map<Integer, String> previous = new HashMap<>();
+        jdbcTemplate.query(sql,
+                ps -> {
+                    Array customerIds = ps.getConnection().createArrayOf(
+                            "integer", profileImageIds.keySet().toArray());
+                    ps.setArray(1, customerIds);
+                    ps.setArray(2, textArray(ps, profileImageIds.values()));
+                    ps.setArray(3, customerIds);
+                },
+                rs -> {
+                    previous.put(rs.getInt(1), rs.getString(2));
+                });
+        return previous;
+    }
+
+    @Override
+    public Set<String> selectReferencedProfileImageIds(Collection<String> profileImageIds) {
+        var sql = """
+                SELECT profile_image_id
+                FROM customer
+                WHERE profile_image_id = ANY(?)
+                """;
+        return new HashSet<>(jdbcTemplate.query(sql,
+                ps -> ps.setArray(1, textArray(ps, profileImageIds)),
+                (rs, rowNum) -> rs.getString(1)));
+    }
+
+    @Override
+    public List<ProfileImageLocation> selectProfileImageLocations(Collection<Integer> customerIds) {
+        var sql = """
+                SELECT c.id, c.profile_image_id, r.sha256
+                FROM customer c
+                LEFT JOIN profile_image_ref r ON r.profile_image_id = c.profile_image_id
+                WHERE c.id = ANY(?)
+                AND c.profile_image_id IS NOT NULL
+                """;
+        return jdbcTemplate.query(sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("integer", customerIds.toArray())),
+                (rs, rowNum) -> new ProfileImageLocation(
+                        rs.getInt("id"),
+                        rs.getString("profile_image_id"),
+                        rs.getString("sha256")));
+    }
+
+    @Override
+    public List<ProfileImageLocation> selectProfileImagesWithoutMetadata(Integer afterCustomerId,
+                                                                         int limit) {
+        var sql = """
+                SELECT c.id, c.profile_image_id, r.sha256
+                FROM customer c
+                LEFT JOIN profile_image_ref r ON r.profile_image_id = c.profile_image_id
+                WHERE c.id > ?
+                AND c.profile_image_id IS NOT NULL
+                AND NOT EXISTS (
+                    SELECT 1 FROM customer_profile_image m
+                    WHERE m.profile_image_id = c.profile_image_id
+                )
+                ORDER BY c.id
+                LIMIT ?
+                """;
+        return jdbcTemplate.query(sql,
+                (rs, rowNum) -> new ProfileImageLocation(
+                        rs.getInt("id"),
+                        rs.getString("profile_image_id"),
+                        rs.getString("sha256")),
+                afterCustomerId,
+                limit);
+    }
+
+    private static Array textArray(PreparedStatement ps, Collection<String> values)
+            throws SQLException {
+        return ps.getConnection().createArrayOf("text", values.toArray());
     }
 }
@@ -3,9 +3,14 @@ package com.amigoscode.customer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository("jpa")
 public class CustomerJPADataAccessService implements CustomerDao {
@@ -58,7 +63,62 @@ public class CustomerJPADataAccessService implements CustomerDao {
     }
 
     @Override
-    public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+    @Transactional
+    public String updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+        String previous = customerRepository.findByIdForUpdate(customerId)
+                .map(Customer::getProfileImageId)
+                .orElse(null);
         customerRepository.updateProfileImageId(profileImageId, customerId);
+        return previous;
+    }
+
+    @Override
+    public void updateCustomerPassword(String password, Integer customerId) {
+        customerRepository.updatePassword(password, customerId);
+    }
+
+    @Override
+    public Set<Integer> selectExistingCustomerIds(Collection<Integer> customerIds) {
+        return customerRepository.findExistingIds(customerIds);
+    }
+
+    @Override
+    @Transactional
+    public Map<Integer, String> updateProfileImageIds(Map<Integer, String> profileImageIds) {
+        // locked in id order, so concurrent batches cannot deadlock
+        Map<Integer, String> previous = new HashMap<>();
+        for (Customer customer : customerRepository.findAllByIdForUpdate(profileImageIds.keySet())) {
+            previous.put(customer.getId(), customer.getProfileImageId());
+            customerRepository.updateProfileImageId(
+                    profileImageIds.get(customer.getId()), customer.getId());
+        }
+        return previous;
+    }
+
+    @Override
+    public Set<String> selectReferencedProfileImageIds(Collection<String> profileImageIds) {
+        return customerRepository.findReferencedProfileImageIds(profileImageIds);
+    }
+
+    @Override
+    public List<ProfileImageLocation> selectProfileImageLocations(Collection<Integer> customerIds) {
+        return customerRepository.findProfileImageLocations(customerIds).stream()
+                .map(CustomerJPADataAccessService::toProfileImageLocation)
+                .toList();
+    }
+
+    @Override
+    public List<ProfileImageLocation> selectProfileImagesWithoutMetadata(Integer afterCustomerId,
+                                                                         int limit) {
+        return customerRepository.findProfileImagesWithoutMetadata(afterCustomerId, limit).stream()
+                .map(CustomerJPADataAccessService::toProfileImageLocation)
+                .toList();
+    }
+
+    private static ProfileImageLocation toProfileImageLocation(Object[] row) {
+        return new ProfileImageLocation(
+                ((Number) row[0]).intValue(),
+                (String) row[1],
+                (String) row[2]);
     }
 }
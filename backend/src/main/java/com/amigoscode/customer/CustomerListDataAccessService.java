@@ -3,8 +3,15 @@ package com.amigoscode.customer;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Repository("list")
 public class CustomerListDataAccessService implements CustomerDao {
@@ -78,7 +85,74 @@ public class CustomerListDataAccessService implements CustomerDao {
     }
 
     @Override
-    public void updateCustomerProfileImageId(String profileImageId, Integer customerId) {
-        // TODO: Implement this
+    public String updateCustomerProfileImageId(String profileImageId, Integer customerId) {
+        String previous = customers.stream()
+                .filter(c -> c.getId().equals(customerId))
+                .map(Customer::getProfileImageId)
+                .findFirst()
+                .orElse(null);
+        customers.replaceAll(c -> c.getId().equals(customerId)
+                ? new Customer(c.getId(), c.getName(), c.getEmail(), c.getPassword(),
+                        c.getAge(), c.getGender(), profileImageId, c.getRole())
+                : c);
+        return previous;
+    }
+
+    @Override
+    public void updateCustomerPassword(String password, Integer customerId) {
+        customers.replaceAll(c -> c.getId().equals(customerId)
+                ? new Customer(c.getId(), c.getName(), c.getEmail(), password,
+                        c.getAge(), c.getGender(), c.getProfileImageId(), c.getRole())
+                : c);
+    }
+
+    @Override
+    public Set<Integer> selectExistingCustomerIds(Collection<Integer> customerIds) {
+        return customers.stream()
+                .map(Customer::getId)
+                .filter(customerIds::contains)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Map<Integer, String> updateProfileImageIds(Map<Integer, String> profileImageIds) {
+        Map<Integer, String> previous = new HashMap<>();
+        for (Integer customerId : selectExistingCustomerIds(profileImageIds.keySet())) {
+            previous.put(customerId,
+                    updateCustomerProfileImageId(profileImageIds.get(customerId), customerId));
+        }
+        return previous;
+    }
+
+    @Override
+    public Set<String> selectReferencedProfileImageIds(Collection<String> profileImageIds) {
+        return customers.stream()
+                .map(Customer::getProfileImageId)
+                .filter(Objects::nonNull)
+                .filter(profileImageIds::contains)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<ProfileImageLocation> selectProfileImageLocations(Collection<Integer> customerIds) {
+        // no content store here, so every image is under its legacy key
+        return customers.stream()
+                .filter(c -> customerIds.contains(c.getId()))
+                .filter(c -> c.getProfileImageId() != null)
+                .map(c -> new ProfileImageLocation(c.getId(), c.getProfileImageId(), null))
+                .toList();
+    }
+
+    @Override
+    public List<ProfileImageLocation> selectProfileImagesWithoutMetadata(Integer afterCustomerId,
+                                                                         int limit) {
+        // no metadata is kept here, so every profile image lacks it
+        return customers.stream()
+                .filter(c -> c.getId() > afterCustomerId)
+                .filter(c -> c.getProfileImageId() != null)
+                .sorted(Comparator.comparing(Customer::getId))
+                .limit(limit)
+                .map(c -> new ProfileImageLocation(c.getId(), c.getProfileImageId(), null))
+                .toList();
     }
 }
@@ -0,0 +1,59 @@
+package com.amigoscode.customer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Lets customers change only their own record and profile image, and
+ * follow only their own uploads, matched by the email the access token
+ * was issued for; admins may do so for any. The customer id is the
+ * {customerId} variable of the request matcher.
+ */
+@Component
+public class CustomerOwnerAuthorizationManager
+        implements AuthorizationManager<RequestAuthorizationContext> {
+
+    private static final String ADMIN_AUTHORITY = "ROLE_" + Role.ADMIN.name();
+
+    private final CustomerDao customerDao;
+
+    public CustomerOwnerAuthorizationManager(@Qualifier("jdbc") CustomerDao customerDao) {
+        this.customerDao = customerDao;
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication,
+                                       RequestAuthorizationContext context) {
+        Authentication current = authentication.get();
+        if (current == null
+                || current instanceof AnonymousAuthenticationToken
+                || !current.isAuthenticated()) {
+            return new AuthorizationDecision(false);
+        }
+        boolean admin = current.getAuthorities()
+                .stream()
+                .anyMatch(authority -> ADMIN_AUTHORITY.equals(authority.getAuthority()));
+        if (admin) {
+            return new AuthorizationDecision(true);
+        }
+
+        Integer customerId;
+        try {
+            customerId = Integer.valueOf(context.getVariables().get("customerId"));
+        } catch (NumberFormatException e) {
+            return new AuthorizationDecision(false);
+        }
+        boolean owner = customerDao.selectCustomerById(customerId)
+                .map(Customer::getUsername)
+                .filter(current.getName()::equals)
+                .isPresent();
+        return new AuthorizationDecision(owner);
+    }
+}
@@ -0,0 +1,10 @@
+package com.amigoscode.customer;
+
+import java.io.InputStream;
+
+public record CustomerProfileImage(
+        InputStream content,
+        Long contentLength,
+        String contentType,
+        String contentRange) {
+}
@@ -1,16 +1,59 @@
 package com.amigoscode.customer;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface CustomerRepository extends JpaRepository<Customer, Integer> {
     boolean existsCustomerByEmail(String email);
     boolean existsCustomerById(Integer id);
     Optional<Customer> findCustomerByEmail(String email);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Customer c WHERE c.id = ?1")
+    Optional<Customer> findByIdForUpdate(Integer customerId);
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Customer c WHERE c.id IN ?1 ORDER BY c.id")
+    List<Customer> findAllByIdForUpdate(Collection<Integer> customerIds);
+    @Query("SELECT c.id FROM Customer c WHERE c.id IN ?1")
+    Set<Integer> findExistingIds(Collection<Integer> customerIds);
+    @Query("SELECT c.profileImageId FROM Customer c WHERE c.profileImageId IN ?1")
+    Set<String> findReferencedProfileImageIds(Collection<String> profileImageIds);
+    // profile_image_ref has no entity, the content store is plain JDBC
+    @Query(value = """
+            SELECT c.id, c.profile_image_id, r.sha256
+            FROM customer c
+            LEFT JOIN profile_image_ref r ON r.profile_image_id = c.profile_image_id
+            WHERE c.id IN ?1
+            AND c.profile_image_id IS NOT NULL
+            """, nativeQuery = true)
+    List<Object[]> findProfileImageLocations(Collection<Integer> customerIds);
+    @Query(value = """
+            SELECT c.id, c.profile_image_id, r.sha256
+            FROM customer c
+            LEFT JOIN profile_image_ref r ON r.profile_image_id = c.profile_image_id
+            WHERE c.id > ?1
+            AND c.profile_image_id IS NOT NULL
+            AND NOT EXISTS (
+                SELECT 1 FROM customer_profile_image m
+                WHERE m.profile_image_id = c.profile_image_id
+            )
+            ORDER BY c.id
+            LIMIT ?2
+            """, nativeQuery = true)
+    List<Object[]> findProfileImagesWithoutMetadata(Integer afterCustomerId, int limit);
     @Modifying(clearAutomatically = true)
     @Query("UPDATE Customer c SET c.profileImageId = ?1 WHERE c.id = ?2")
     int updateProfileImageId(String profileImageId, Integer customerId);
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Customer c SET c.password = ?1 WHERE c.id = ?2")
+    int updatePassword(String password, Integer customerId);
 }
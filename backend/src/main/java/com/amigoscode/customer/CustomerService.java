@@ -1,37 +1,99 @@
 package com.amigoscode.customer;
 import com.amigoscode.exception.DuplicateResourceException;
 import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.RequestedRangeNotSatisfiableException;
 import com.amigoscode.exception.ResourceNotFoundException;
+import com.amigoscode.exception.TooManyRequestsException;
+import com.amigoscode.s3.S3AsyncService;
 import com.amigoscode.s3.S3Buckets;
 import com.amigoscode.s3.S3Service;
 import io.micrometer.common.util.StringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class CustomerService {
+    static final int MAX_PROFILE_IMAGE_BATCH = 100;
+    private static final Duration CONTENT_CLAIMED_RETRY_AFTER = Duration.ofSeconds(1);
+
+    /**
+     * dimensions is null when ImageIO cannot read the image.
+     */
+    record ContentDigest(String sha256, Dimension dimensions) {
+    }
+
     private final CustomerDao customerDao;
     private final CustomerDTOMapper customerDTOMapper;
     private final PasswordEncoder passwordEncoder;
     private final S3Service s3Service;
+    private final S3AsyncService s3AsyncService;
     private final S3Buckets s3Buckets;
+    private final ProfileImageVariantGenerator variantGenerator;
+    private final ProfileImagePresigner profileImagePresigner;
+    private final ProfileImageContentDao profileImageContentDao;
+    private final ProfileImageMetadataDao profileImageMetadataDao;
+    // database work after an async upload, kept off the S3 client's completion threads
+    private final Executor applicationTaskExecutor;
+    private final TransactionOperations transactionOperations;
 
     public CustomerService(@Qualifier("jdbc") CustomerDao customerDao,
                            CustomerDTOMapper customerDTOMapper,
-                           PasswordEncoder passwordEncoder, S3Service s3Service, S3Buckets s3Buckets) {
+                           PasswordEncoder passwordEncoder,
+                           S3Service s3Service,
+                           S3AsyncService s3AsyncService,
+                           S3Buckets s3Buckets,
+                           ProfileImageVariantGenerator variantGenerator,
+                           ProfileImagePresigner profileImagePresigner,
+                           ProfileImageContentDao profileImageContentDao,
+                           ProfileImageMetadataDao profileImageMetadataDao,
+                           @Qualifier("applicationTaskExecutor") Executor applicationTaskExecutor,
+                           TransactionOperations transactionOperations) {
         this.customerDao = customerDao;
         this.customerDTOMapper = customerDTOMapper;
         this.passwordEncoder = passwordEncoder;
 
         this.s3Service = s3Service;
+        this.s3AsyncService = s3AsyncService;
         this.s3Buckets = s3Buckets;
+        this.variantGenerator = variantGenerator;
+        this.profileImagePresigner = profileImagePresigner;
+        this.profileImageContentDao = profileImageContentDao;
+        this.profileImageMetadataDao = profileImageMetadataDao;
+        this.applicationTaskExecutor = applicationTaskExecutor;
+        this.transactionOperations = transactionOperations;
     }
 
     public List<CustomerDTO> getAllCustomers(){
@@ -50,7 +112,7 @@ public class CustomerService {
                 ));
     }
 
-    public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+    public CustomerDTO addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
         // 1. Check if email exists already. If so, throw exception
         String email = customerRegistrationRequest.email();
         if (customerDao.existsPersonWithEmail(email)) {
@@ -67,15 +129,25 @@ public class CustomerService {
                 customerRegistrationRequest.gender());
 
         customerDao.insertCustomer(customer);
+        // read back for the id, which the refresh token is issued for
+        return customerDao.selectUserByEmail(email)
+                .map(customerDTOMapper)
+                .orElseThrow();
     }
 
     public void deleteCustomerById(Integer customerId) {
         checkIfCustomerExistsOrThrow(customerId);
 
+        String profileImageId = customerDao.selectCustomerById(customerId)
+                .map(Customer::getProfileImageId)
+                .orElse(null);
         customerDao.deleteCustomerById(customerId);
+        if (profileImageId != null) {
+            profileImageContentDao.releaseReference(profileImageId);
+        }
     }
 
-    private void checkIfCustomerExistsOrThrow(Integer customerId) {
+    void checkIfCustomerExistsOrThrow(Integer customerId) {
         if(!customerDao.existsPersonWithId(customerId)) {
             throw new ResourceNotFoundException(
                     "customer with id [%s] not found".formatted(customerId)
@@ -125,22 +197,513 @@ public class CustomerService {
 
 
     public void uploadCustomerProfileImage(Integer customerId, MultipartFile file) {
+        uploadCustomerProfileImage(customerId, file, file.getSize(), file.getContentType());
+    }
+
+    public String uploadCustomerProfileImage(Integer customerId,
+                                             InputStreamSource source,
+                                             long contentLength,
+                                             String contentType) {
         checkIfCustomerExistsOrThrow(customerId);
         String profileImageId = UUID.randomUUID().toString();
+        ContentDigest digest = storeProfileImageContent(
+                profileImageId, source, contentLength, contentType);
+        publishStoredProfileImage(describeProfileImage(
+                customerId, profileImageId, contentLength, contentType, digest));
+        return profileImageId;
+    }
+
+    /**
+     * Adds a reference from the profile image to its content and puts the
+     * original and its variants under the content key, unless the same
+     * content is already stored. The reference is added before anything
+     * is put, so the garbage collector cannot delete the content in
+     * between; it is released again if storing fails.
+     */
+    ContentDigest storeProfileImageContent(String profileImageId,
+                                           InputStreamSource source,
+                                           long contentLength,
+                                           String contentType) {
+        ContentDigest digest = digest(source);
+        String key = contentKey(digest.sha256());
+        int refCount = addContentReference(profileImageId, digest.sha256(), key, contentLength);
         try {
-            s3Service.putObject(
-                    s3Buckets.getCustomer(),
-                    "profile-images/%s/%s".formatted(customerId, profileImageId),
-                    file.getBytes()
-            );
+            if (mustStoreContent(refCount, key)) {
+                try (InputStream inputStream = source.getInputStream()) {
+                    s3Service.putObject(
+                            s3Buckets.getCustomer(),
+                            key,
+                            inputStream,
+                            contentLength,
+                            contentType
+                    );
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to upload profile image", e);
+                }
+                putVariants(key, source);
+            }
+        } catch (RuntimeException e) {
+            profileImageContentDao.releaseReference(profileImageId);
+            throw e;
+        }
+        return digest;
+    }
+
+    private int addContentReference(String profileImageId, String sha256, String key, long size) {
+        return profileImageContentDao.addReference(profileImageId, sha256, key, size)
+                .orElseThrow(() -> new TooManyRequestsException(
+                        "profile image is being cleaned up, try again", CONTENT_CLAIMED_RETRY_AFTER));
+    }
+
+    /**
+     * The first reference stores the content; a later one only if an
+     * earlier upload of the same content failed before putting it.
+     */
+    private boolean mustStoreContent(int refCount, String key) {
+        if (refCount == 1) {
+            return true;
+        }
+        try {
+            s3Service.headObject(s3Buckets.getCustomer(), key);
+            return false;
+        } catch (NoSuchKeyException e) {
+            return true;
+        }
+    }
+
+    private void putVariants(String originalKey, InputStreamSource source) {
+        variantGenerator.generate(source).join().forEach((size, variant) ->
+                s3Service.putObject(
+                        s3Buckets.getCustomer(),
+                        originalKey + size.keySuffix(),
+                        variant
+                ));
+    }
+
+    /**
+     * Records the metadata and points the customer at the profile image in
+     * one transaction, releasing the image it replaces. The replaced id is
+     * returned by the update itself, so concurrent uploads for the same
+     * customer never release it twice.
+     */
+    private void publishProfileImage(ProfileImageMetadata metadata) {
+        transactionOperations.executeWithoutResult(status -> {
+            profileImageMetadataDao.insertMetadata(metadata);
+            String previous = customerDao.updateCustomerProfileImageId(
+                    metadata.profileImageId(), metadata.customerId());
+            if (previous != null && !previous.equals(metadata.profileImageId())) {
+                profileImageContentDao.releaseReference(previous);
+                profileImageMetadataDao.deleteMetadata(previous);
+            }
+        });
+    }
+
+    /**
+     * {@link #publishProfileImage} for content stored by
+     * {@link #storeProfileImageContent}, whose reference is released again
+     * if publishing fails.
+     */
+    private void publishStoredProfileImage(ProfileImageMetadata metadata) {
+        try {
+            publishProfileImage(metadata);
+        } catch (RuntimeException e) {
+            profileImageContentDao.releaseReference(metadata.profileImageId());
+            throw e;
+        }
+    }
+
+    static ProfileImageMetadata describeProfileImage(Integer customerId,
+                                                     String profileImageId,
+                                                     long contentLength,
+                                                     String contentType,
+                                                     ContentDigest digest) {
+        Dimension dimensions = digest.dimensions();
+        return new ProfileImageMetadata(
+                profileImageId,
+                customerId,
+                contentLength,
+                contentType,
+                digest.sha256(),
+                dimensions != null ? dimensions.width : null,
+                dimensions != null ? dimensions.height : null,
+                Instant.now());
+    }
+
+    public ProfileImageUploadUrl createProfileImageUploadUrl(Integer customerId,
+                                                             ProfileImageUploadUrlRequest request) {
+        checkIfCustomerExistsOrThrow(customerId);
+        String profileImageId = UUID.randomUUID().toString();
+        return profileImagePresigner.presignUpload(
+                profileImageId,
+                legacyKey(customerId, profileImageId),
+                request.contentType(),
+                request.contentLength()
+        );
+    }
+
+    public void confirmProfileImageUpload(Integer customerId,
+                                          ProfileImageUploadConfirmation confirmation) {
+        checkIfCustomerExistsOrThrow(customerId);
+        String profileImageId = confirmation.profileImageId();
+        try {
+            UUID.fromString(String.valueOf(profileImageId));
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException(
+                    "profile image id [%s] is not valid".formatted(profileImageId));
+        }
+        // confirming again, e.g. on a retry, must not release the image it keeps
+        boolean current = customerDao.selectCustomerById(customerId)
+                .map(Customer::getProfileImageId)
+                .filter(profileImageId::equals)
+                .isPresent();
+        if (current) {
+            return;
+        }
+
+        String key = legacyKey(customerId, profileImageId);
+        HeadObjectResponse profileImage;
+        try {
+            profileImage = s3Service.headObject(s3Buckets.getCustomer(), key);
+        } catch (NoSuchKeyException e) {
+            throw new ResourceNotFoundException(
+                    "profile image [%s] has not been uploaded".formatted(profileImageId));
+        }
+        if (profileImage.contentLength() > profileImagePresigner.getMaxContentLength()) {
+            throw new RequestValidationException(
+                    "profile image [%s] is larger than %s bytes".formatted(
+                            profileImageId, profileImagePresigner.getMaxContentLength()));
+        }
+
+        // variants still need one read of the original, but no bytes from the client
+        putVariants(key, () -> s3Service.getObjectStream(s3Buckets.getCustomer(), key));
+        // dimensions would cost another read of the original
+        publishProfileImage(toProfileImageMetadata(
+                customerId, profileImageId, profileImage, Instant.now()));
+    }
+
+    public ProfileImageDownloadUrl getCustomerProfileImageUrl(Integer customerId,
+                                                              ProfileImageSize size) {
+        String originalKey = profileImageKey(customerId);
+        String key = originalKey + size.keySuffix();
+        if (size != ProfileImageSize.ORIGINAL) {
+            try {
+                s3Service.headObject(s3Buckets.getCustomer(), key);
+            } catch (NoSuchKeyException e) {
+                key = originalKey;
+            }
+        }
+        return profileImagePresigner.presignDownload(key);
+    }
+
+    public CompletableFuture<Void> uploadCustomerProfileImageAsync(Integer customerId,
+                                                                   MultipartFile file) {
+        checkIfCustomerExistsOrThrow(customerId);
+        String profileImageId = UUID.randomUUID().toString();
+        ContentDigest digest = digest(file);
+        String key = contentKey(digest.sha256());
+        int refCount = addContentReference(profileImageId, digest.sha256(), key, file.getSize());
+        CompletableFuture<Void> stored;
+        try {
+            stored = mustStoreContent(refCount, key)
+                    ? putOriginalAndVariants(key, file)
+                    : CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            stored = CompletableFuture.failedFuture(e);
+        }
+        // the id is only published once every size is in place
+        return stored.handleAsync((result, e) -> {
+            if (e != null) {
+                profileImageContentDao.releaseReference(profileImageId);
+                throw e instanceof CompletionException completionException
+                        ? completionException
+                        : new CompletionException(e);
+            }
+            publishStoredProfileImage(describeProfileImage(
+                    customerId, profileImageId, file.getSize(), file.getContentType(), digest));
+            return null;
+        }, applicationTaskExecutor);
+    }
+
+    private CompletableFuture<Void> putOriginalAndVariants(String key, MultipartFile file) {
+        InputStream inputStream;
+        try {
+            inputStream = file.getInputStream();
         } catch (IOException e) {
             throw new RuntimeException("Failed to upload profile image", e);
         }
-        // TODO: Store profileImageId to db
-        customerDao.updateCustomerProfileImageId(profileImageId, customerId);
+        CompletableFuture<Void> original = s3AsyncService.putObject(
+                        s3Buckets.getCustomer(),
+                        key,
+                        inputStream,
+                        file.getSize(),
+                        file.getContentType())
+                .whenComplete((result, e) -> closeQuietly(inputStream));
+        CompletableFuture<Void> variants = variantGenerator.generate(file)
+                .thenCompose(generated -> putVariants(key, generated));
+        return CompletableFuture.allOf(original, variants);
+    }
+
+    private CompletableFuture<Void> putVariants(String originalKey,
+                                                Map<ProfileImageSize, byte[]> variants) {
+        return CompletableFuture.allOf(variants.entrySet().stream()
+                .map(variant -> s3AsyncService.putObject(
+                        s3Buckets.getCustomer(),
+                        originalKey + variant.getKey().keySuffix(),
+                        new ByteArrayInputStream(variant.getValue()),
+                        variant.getValue().length,
+                        "image/jpeg"))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * SHA-256 and dimensions of the source in one read. The hash decides
+     * whether the content has to be put at all, so it cannot be taken
+     * while putting it.
+     */
+    static ContentDigest digest(InputStreamSource source) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (DigestInputStream inputStream = new DigestInputStream(source.getInputStream(), sha256)) {
+            Dimension dimensions = ProfileImageVariantGenerator.readDimensions(inputStream)
+                    .orElse(null);
+            inputStream.transferTo(OutputStream.nullOutputStream());
+            return new ContentDigest(HexFormat.of().formatHex(sha256.digest()), dimensions);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to upload profile image", e);
+        }
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException ignored) {
+        }
     }
 
     public byte[] getCustomerProfileImage(Integer customerId) {
+        String key = profileImageKey(customerId);
+
+        byte[] profileImage = s3Service.getObject(
+                s3Buckets.getCustomer(),
+                key
+        );
+
+        return profileImage;
+    }
+
+    public CustomerProfileImage getCustomerProfileImageStream(Integer customerId) {
+        return getCustomerProfileImageStream(customerId, null);
+    }
+
+    public CustomerProfileImage getCustomerProfileImageStream(Integer customerId,
+                                                              String range) {
+        String key = profileImageKey(customerId);
+
+        ResponseInputStream<GetObjectResponse> profileImage;
+        try {
+            profileImage = s3Service.getObjectStream(
+                    s3Buckets.getCustomer(),
+                    key,
+                    range
+            );
+        } catch (S3Exception e) {
+            throw translateRangeException(e, customerId, range);
+        }
+
+        return toCustomerProfileImage(profileImage);
+    }
+
+    public CompletableFuture<CustomerProfileImage> getCustomerProfileImageAsync(
+            Integer customerId,
+            String range) {
+        return getCustomerProfileImageAsync(customerId, range, ProfileImageSize.ORIGINAL);
+    }
+
+    public CompletableFuture<CustomerProfileImage> getCustomerProfileImageAsync(
+            Integer customerId,
+            String range,
+            ProfileImageSize size) {
+        return fetchProfileImage(profileImageKey(customerId), range, size)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (cause instanceof S3Exception s3Exception) {
+                        throw translateRangeException(s3Exception, customerId, range);
+                    }
+                    throw new CompletionException(cause);
+                })
+                .thenApply(CustomerService::toCustomerProfileImage);
+    }
+
+    /**
+     * Profile images of several customers after a single lookup of their
+     * keys, in the order of {@code customerIds}, leaving out customers
+     * without a profile image. Nothing is fetched until the caller asks
+     * for an image, so it decides how many reads run at once and none
+     * waits for its first byte behind images that are not read yet. A
+     * fetch completes with null when the image is gone from S3.
+     */
+    public Map<Integer, Supplier<CompletableFuture<CustomerProfileImage>>> getCustomerProfileImagesAsync(
+            List<Integer> customerIds,
+            ProfileImageSize size) {
+        List<Integer> distinctIds = customerIds.stream().distinct().toList();
+        if (distinctIds.isEmpty() || distinctIds.size() > MAX_PROFILE_IMAGE_BATCH) {
+            throw new RequestValidationException(
+                    "between 1 and %s customer ids required".formatted(MAX_PROFILE_IMAGE_BATCH));
+        }
+
+        Map<Integer, String> keys = new HashMap<>();
+        for (ProfileImageLocation location :
+                customerDao.selectProfileImageLocations(distinctIds)) {
+            keys.put(location.customerId(), location.sha256() != null
+                    ? contentKey(location.sha256())
+                    : legacyKey(location.customerId(), location.profileImageId()));
+        }
+
+        Map<Integer, Supplier<CompletableFuture<CustomerProfileImage>>> fetches = new LinkedHashMap<>();
+        for (Integer customerId : distinctIds) {
+            String key = keys.get(customerId);
+            if (key == null) {
+                continue;
+            }
+            fetches.put(customerId, () -> fetchProfileImage(key, null, size)
+                    .thenApply(CustomerService::toCustomerProfileImage)
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        if (cause instanceof NoSuchKeyException) {
+                            return null;
+                        }
+                        throw new CompletionException(cause);
+                    }));
+        }
+        return fetches;
+    }
+
+    private CompletableFuture<ResponseInputStream<GetObjectResponse>> fetchProfileImage(
+            String originalKey,
+            String range,
+            ProfileImageSize size) {
+        String key = originalKey + size.keySuffix();
+
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> profileImage =
+                s3AsyncService.getObjectStream(s3Buckets.getCustomer(), key, range);
+        if (size != ProfileImageSize.ORIGINAL) {
+            // images uploaded before variants existed, or not decodable, only have the original
+            profileImage = profileImage.handle((object, e) -> {
+                Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                if (cause instanceof NoSuchKeyException) {
+                    return s3AsyncService.getObjectStream(
+                            s3Buckets.getCustomer(), originalKey, range);
+                }
+                return e != null
+                        ? CompletableFuture.<ResponseInputStream<GetObjectResponse>>failedFuture(cause)
+                        : CompletableFuture.completedFuture(object);
+            }).thenCompose(future -> future);
+        }
+        return profileImage;
+    }
+
+    private static CustomerProfileImage toCustomerProfileImage(
+            ResponseInputStream<GetObjectResponse> profileImage) {
+        return new CustomerProfileImage(
+                profileImage,
+                profileImage.response().contentLength(),
+                profileImage.response().contentType(),
+                profileImage.response().contentRange()
+        );
+    }
+
+    private static RuntimeException translateRangeException(S3Exception e,
+                                                            Integer customerId,
+                                                            String range) {
+        if (e.statusCode() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+            return new RequestedRangeNotSatisfiableException(
+                    "range [%s] not satisfiable for customer with id [%s] profile image"
+                            .formatted(range, customerId));
+        }
+        return e;
+    }
+
+    /**
+     * Metadata of the customer's profile image, read from the database
+     * only. Empty when the customer has no profile image, or one uploaded
+     * before metadata was recorded that {@link ProfileImageMetadataBackfill}
+     * has not described yet.
+     */
+    public Optional<ProfileImageMetadata> getCustomerProfileImageMetadata(Integer customerId) {
+        return profileImageMetadataDao.selectMetadataByCustomerId(customerId);
+    }
+
+    /**
+     * Describes a profile image stored without metadata from S3 and
+     * records it. For the backfill only, never on a request.
+     *
+     * @return false if the image is gone from S3
+     */
+    public boolean describeStoredProfileImage(ProfileImageLocation location) {
+        HeadObjectResponse profileImage;
+        try {
+            profileImage = s3Service.headObject(
+                    s3Buckets.getCustomer(),
+                    location.sha256() != null
+                            ? contentKey(location.sha256())
+                            : legacyKey(location.customerId(), location.profileImageId()));
+        } catch (NoSuchKeyException e) {
+            return false;
+        }
+        profileImageMetadataDao.insertMetadata(toProfileImageMetadata(
+                location.customerId(),
+                location.profileImageId(),
+                profileImage,
+                profileImage.lastModified() != null ? profileImage.lastModified() : Instant.now()));
+        return true;
+    }
+
+    private static ProfileImageMetadata toProfileImageMetadata(Integer customerId,
+                                                               String profileImageId,
+                                                               HeadObjectResponse profileImage,
+                                                               Instant createdAt) {
+        return new ProfileImageMetadata(
+                profileImageId,
+                customerId,
+                profileImage.contentLength(),
+                profileImage.contentType(),
+                // S3 quotes its ETags; an upload id is unique enough without one
+                profileImage.eTag() != null
+                        ? profileImage.eTag().replace("\"", "")
+                        : profileImageId,
+                null,
+                null,
+                createdAt);
+    }
+
+    /**
+     * Key of the original upload; variants live under the same key plus
+     * {@link ProfileImageSize#keySuffix()}.
+     */
+    private String profileImageKey(Integer customerId) {
+        return profileImageKey(customerId, profileImageId(customerId));
+    }
+
+    private String profileImageKey(Integer customerId, String profileImageId) {
+        return profileImageContentDao.selectContentHash(profileImageId)
+                .map(CustomerService::contentKey)
+                .orElseGet(() -> legacyKey(customerId, profileImageId));
+    }
+
+    static String contentKey(String sha256) {
+        return "profile-images/content/%s".formatted(sha256);
+    }
+
+    // presigned and resumable uploads, and uploads from before content addressing
+    static String legacyKey(Integer customerId, String profileImageId) {
+        return "profile-images/%s/%s".formatted(customerId, profileImageId);
+    }
+
+    private String profileImageId(Integer customerId) {
         var customer = customerDao.selectCustomerById(customerId)
                 .map(customerDTOMapper)
                 .orElseThrow(() -> new ResourceNotFoundException(
@@ -153,11 +716,6 @@ public class CustomerService {
                             .formatted(customerId));
         }
 
-        byte[] profileImage = s3Service.getObject(
-                s3Buckets.getCustomer(),
-                "profile-images/%s/%s".formatted(customerId, customer.profileImageId())
-        );
-
-        return profileImage;
+        return customer.profileImageId();
     }
 }
@@ -2,25 +2,50 @@ package com.amigoscode.customer;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 @Service
-public class CustomerUserDetailsService implements UserDetailsService {
+public class CustomerUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final CustomerDao customerDao;
+    private final CustomerCache customerCache;
 
-    public CustomerUserDetailsService(@Qualifier("jpa") CustomerDao customerDao){
+    public CustomerUserDetailsService(@Qualifier("jpa") CustomerDao customerDao,
+                                      CustomerCache customerCache){
 
         this.customerDao = customerDao;
+        this.customerCache = customerCache;
     }
     @Override
     public UserDetails loadUserByUsername(String username)
             throws UsernameNotFoundException {
-        return customerDao.selectUserByEmail(username)
+        return customerCache.getByUsername(username, customerDao::selectUserByEmail)
                 .orElseThrow(() -> new UsernameNotFoundException(
                         "Username " + username + " not found"
                 ));
     }
+
+    /**
+     * Stores the new hash when a login finds the old one was made with
+     * weaker parameters than the encoder now uses.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        Customer customer = (Customer) user;
+        customerDao.updateCustomerPassword(newPassword, customer.getId());
+        customerCache.evict(customer.getId());
+        return new Customer(
+                customer.getId(),
+                customer.getName(),
+                customer.getEmail(),
+                newPassword,
+                customer.getAge(),
+                customer.getGender(),
+                customer.getProfileImageId(),
+                customer.getRole()
+        );
+    }
 }
@@ -0,0 +1,182 @@
+package com.amigoscode.customer;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Reference counted, content addressed profile images (see V4 migration).
+ * Each change is a single statement so counts and references cannot drift
+ * apart when a request fails half way. A ref_count of -1 marks content the
+ * garbage collector is deleting.
+ */
+@Repository
+public class ProfileImageContentDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProfileImageContentDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<String> selectContentHash(String profileImageId) {
+        var sql = """
+                SELECT sha256
+                FROM profile_image_ref
+                WHERE profile_image_id = ?
+                """;
+        return jdbcTemplate.queryForList(sql, String.class, profileImageId)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Adds a reference to the content, creating its row on first use, and
+     * returns the reference count including the new one. Empty, and
+     * nothing added, while the garbage collector has claimed the content
+     * (see {@link #claimUnreferencedContent}).
+     */
+    public Optional<Integer> addReference(String profileImageId,
+                                          String sha256,
+                                          String objectKey,
+                                          long size) {
+        var sql = """
+                WITH content AS (
+                    INSERT INTO profile_image_content(sha256, object_key, size, ref_count)
+                    VALUES (?, ?, ?, 1)
+                    ON CONFLICT (sha256)
+                    DO UPDATE SET ref_count = profile_image_content.ref_count + 1
+                    WHERE profile_image_content.ref_count >= 0
+                    RETURNING sha256, ref_count
+                ), ref AS (
+                    INSERT INTO profile_image_ref(profile_image_id, sha256)
+                    SELECT ?, sha256 FROM content
+                )
+                SELECT ref_count FROM content
+                """;
+        return jdbcTemplate.queryForList(sql, Integer.class, sha256, objectKey, size, profileImageId)
+                .stream()
+                .findFirst();
+    }
+
+    public void releaseReference(String profileImageId) {
+        jdbcTemplate.update(RELEASE_REFERENCE_SQL, profileImageId);
+    }
+
+    public void releaseReferences(Collection<String> profileImageIds) {
+        jdbcTemplate.batchUpdate(RELEASE_REFERENCE_SQL, profileImageIds.stream()
+                .map(profileImageId -> new Object[]{profileImageId})
+                .toList());
+    }
+
+    private static final String RELEASE_REFERENCE_SQL = """
+                WITH ref AS (
+                    DELETE FROM profile_image_ref
+                    WHERE profile_image_id = ?
+                    RETURNING sha256
+                )
+                UPDATE profile_image_content
+                SET ref_count = ref_count - 1
+                WHERE sha256 IN (SELECT sha256 FROM ref)
+                """;
+
+    /**
+     * Claims content nothing refers to for deletion and returns the claimed
+     * hashes, whose objects can then be deleted. A claimed row has a
+     * ref_count of -1, and hashes without a row get one, so
+     * {@link #addReference} turns away uploads of the same content until
+     * the claim is removed with {@link #deleteClaimedContent}.
+     */
+    public Set<String> claimUnreferencedContent(Collection<String> hashes) {
+        var sql = """
+                WITH claimed AS (
+                    UPDATE profile_image_content c
+                    SET ref_count = -1
+                    WHERE c.sha256 = ANY(?)
+                    AND c.ref_count <= 0
+                    AND NOT EXISTS (
+                        SELECT 1 FROM profile_image_ref r WHERE r.sha256 = c.sha256
+                    )
+                    RETURNING c.sha256
+                ), unknown AS (
+                    INSERT INTO profile_image_content(sha256, object_key, size, ref_count)
+                    SELECT sha256, '', 0, -1 FROM unnest(?) AS h(sha256)
+                    ON CONFLICT (sha256) DO NOTHING
+                    RETURNING sha256
+                )
+                SELECT sha256 FROM claimed
+                UNION ALL
+                SELECT sha256 FROM unknown
+                """;
+        return new HashSet<>(jdbcTemplate.query(sql,
+                ps -> {
+                    ps.setArray(1, textArray(ps, hashes));
+                    ps.setArray(2, textArray(ps, hashes));
+                },
+                (rs, rowNum) -> rs.getString(1)));
+    }
+
+    public void deleteClaimedContent(Collection<String> hashes) {
+        var sql = """
+                DELETE FROM profile_image_content
+                WHERE sha256 = ANY(?)
+                AND ref_count < 0
+                """;
+        jdbcTemplate.update(sql, ps -> ps.setArray(1, textArray(ps, hashes)));
+    }
+
+    /**
+     * Removes every claim, e.g. those left behind by a sweep that did not
+     * finish.
+     */
+    public int deleteClaimedContent() {
+        var sql = """
+                DELETE FROM profile_image_content
+                WHERE ref_count < 0
+                """;
+        return jdbcTemplate.update(sql);
+    }
+
+    /**
+     * Runs the task only if this node gets the session level advisory lock,
+     * which is held on one pooled connection for the duration of the task.
+     */
+    public boolean tryRunExclusively(long lockKey, Runnable task) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!advisoryLock(connection, "SELECT pg_try_advisory_lock(?)", lockKey)) {
+                return false;
+            }
+            try {
+                task.run();
+                return true;
+            } finally {
+                advisoryLock(connection, "SELECT pg_advisory_unlock(?)", lockKey);
+            }
+        }));
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql, long lockKey)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, lockKey);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private static Array textArray(PreparedStatement ps, Collection<String> values)
+            throws SQLException {
+        return ps.getConnection().createArrayOf("text", values.toArray());
+    }
+}
@@ -0,0 +1,245 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.s3.S3Buckets;
+import com.amigoscode.s3.S3Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Deletes profile image objects that nothing refers to any more: images of
+ * deleted customers, replaced uploads and content whose reference count
+ * dropped to zero. Only one node sweeps at a time (Postgres advisory lock),
+ * S3 calls are paced, and objects younger than {@code min-age} are left
+ * alone so uploads that are not yet recorded survive.
+ */
+@Component
+@ConditionalOnProperty(
+        name = "customer.profile-image.gc.enabled",
+        havingValue = "true",
+        matchIfMissing = true)
+public class ProfileImageGarbageCollector {
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(ProfileImageGarbageCollector.class);
+    // arbitrary, but must not clash with other advisory locks
+    static final long LOCK_KEY = 0x70726f66696c65L;
+    static final String PREFIX = "profile-images/";
+    private static final String CONTENT_PREFIX = PREFIX + "content/";
+    private static final int BATCH_SIZE = 1000;
+    private static final Pattern SHA256 = Pattern.compile("[0-9a-f]{64}");
+
+    private final S3Service s3Service;
+    private final S3Buckets s3Buckets;
+    private final ProfileImageContentDao profileImageContentDao;
+    private final CustomerDao customerDao;
+    private final Duration minAge;
+    private final long requestIntervalNanos;
+    private final Clock clock;
+    private long nextRequestNanos;
+
+    @Autowired
+    public ProfileImageGarbageCollector(
+            S3Service s3Service,
+            S3Buckets s3Buckets,
+            ProfileImageContentDao profileImageContentDao,
+            @Qualifier("jdbc") CustomerDao customerDao,
+            @Value("${customer.profile-image.gc.min-age:1d}") Duration minAge,
+            @Value("${customer.profile-image.gc.requests-per-second:10}") double requestsPerSecond) {
+        this(s3Service, s3Buckets, profileImageContentDao, customerDao, minAge, requestsPerSecond,
+                Clock.systemUTC());
+    }
+
+    ProfileImageGarbageCollector(S3Service s3Service,
+                                 S3Buckets s3Buckets,
+                                 ProfileImageContentDao profileImageContentDao,
+                                 CustomerDao customerDao,
+                                 Duration minAge,
+                                 double requestsPerSecond,
+                                 Clock clock) {
+        this.s3Service = s3Service;
+        this.s3Buckets = s3Buckets;
+        this.profileImageContentDao = profileImageContentDao;
+        this.customerDao = customerDao;
+        this.minAge = minAge;
+        this.requestIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        this.clock = clock;
+        this.nextRequestNanos = System.nanoTime();
+    }
+
+    @Scheduled(
+            initialDelayString = "${customer.profile-image.gc.initial-delay:PT10M}",
+            fixedDelayString = "${customer.profile-image.gc.interval:PT6H}")
+    public void collect() {
+        boolean ran = profileImageContentDao.tryRunExclusively(LOCK_KEY, this::sweep);
+        if (!ran) {
+            LOGGER.debug("Profile image garbage collection is running on another node");
+        }
+    }
+
+    void sweep() {
+        int stale = profileImageContentDao.deleteClaimedContent();
+        if (stale > 0) {
+            LOGGER.info("Released {} profile image contents claimed by an unfinished sweep", stale);
+        }
+
+        String bucket = s3Buckets.getCustomer();
+        Instant cutoff = clock.instant().minus(minAge);
+        List<String> orphans = new ArrayList<>();
+        // claimed hash -> keys not yet deleted
+        Map<String, Integer> claimed = new HashMap<>();
+        int scanned = 0;
+        int deleted = 0;
+
+        try {
+            String continuationToken = null;
+            ListObjectsV2Response page;
+            do {
+                pace();
+                page = s3Service.listObjects(bucket, PREFIX, continuationToken, BATCH_SIZE);
+                List<String> candidates = page.contents().stream()
+                        .filter(object -> object.lastModified().isBefore(cutoff))
+                        .map(S3Object::key)
+                        .toList();
+                scanned += page.contents().size();
+                orphans.addAll(findOrphans(candidates, claimed));
+                while (orphans.size() >= BATCH_SIZE) {
+                    deleted += delete(bucket, orphans.subList(0, BATCH_SIZE), claimed);
+                }
+                // uploads of claimed content are turned away, so don't keep it claimed for long
+                if (!claimed.isEmpty() && !orphans.isEmpty()) {
+                    deleted += delete(bucket, orphans, claimed);
+                }
+                continuationToken = page.nextContinuationToken();
+            } while (Boolean.TRUE.equals(page.isTruncated()));
+            if (!orphans.isEmpty()) {
+                deleted += delete(bucket, orphans, claimed);
+            }
+        } finally {
+            if (!claimed.isEmpty()) {
+                profileImageContentDao.deleteClaimedContent(claimed.keySet());
+            }
+        }
+
+        LOGGER.info("Profile image garbage collection scanned {} objects and deleted {}",
+                scanned, deleted);
+    }
+
+    /**
+     * Keys are either profile-images/content/{sha256}[-size] or the per
+     * customer profile-images/{customerId}/{profileImageId}[-size].
+     * Content is claimed before its keys are returned, so that an upload
+     * of the same content cannot start using it while it is deleted.
+     */
+    private List<String> findOrphans(List<String> keys, Map<String, Integer> claimed) {
+        Map<String, List<String>> keysByHash = new HashMap<>();
+        Map<String, List<String>> keysByProfileImageId = new HashMap<>();
+        List<String> orphans = new ArrayList<>();
+        for (String key : keys) {
+            if (key.startsWith(CONTENT_PREFIX)) {
+                String hash = baseName(key);
+                if (SHA256.matcher(hash).matches()) {
+                    keysByHash.computeIfAbsent(hash, k -> new ArrayList<>()).add(key);
+                } else {
+                    // no content row can refer to it
+                    orphans.add(key);
+                }
+            } else {
+                keysByProfileImageId.computeIfAbsent(baseName(key), k -> new ArrayList<>()).add(key);
+            }
+        }
+
+        if (!keysByHash.isEmpty()) {
+            for (String hash : profileImageContentDao.claimUnreferencedContent(keysByHash.keySet())) {
+                List<String> hashKeys = keysByHash.get(hash);
+                orphans.addAll(hashKeys);
+                claimed.merge(hash, hashKeys.size(), Integer::sum);
+            }
+        }
+        if (!keysByProfileImageId.isEmpty()) {
+            Set<String> referenced = customerDao
+                    .selectReferencedProfileImageIds(keysByProfileImageId.keySet());
+            keysByProfileImageId.forEach((profileImageId, idKeys) -> {
+                if (!referenced.contains(profileImageId)) {
+                    orphans.addAll(idKeys);
+                }
+            });
+        }
+        return orphans;
+    }
+
+    private static String baseName(String key) {
+        String name = key.substring(key.lastIndexOf('/') + 1);
+        for (ProfileImageSize size : ProfileImageSize.values()) {
+            String suffix = size.keySuffix();
+            if (!suffix.isEmpty() && name.endsWith(suffix)) {
+                return name.substring(0, name.length() - suffix.length());
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Deletes the batch and removes it from the pending list, so the
+     * caller can pass a view of the list. Content whose keys are all gone
+     * is no longer claimed afterwards.
+     */
+    private int delete(String bucket, List<String> batch, Map<String, Integer> claimed) {
+        pace();
+        List<S3Error> errors = s3Service.deleteObjects(bucket, List.copyOf(batch));
+        for (S3Error error : errors) {
+            LOGGER.warn("Could not delete orphaned profile image {}: {} {}",
+                    error.key(), error.code(), error.message());
+        }
+        int deleted = batch.size() - errors.size();
+
+        List<String> released = new ArrayList<>();
+        for (String key : batch) {
+            String hash = baseName(key);
+            Integer pending = key.startsWith(CONTENT_PREFIX) ? claimed.get(hash) : null;
+            if (pending == null) {
+                continue;
+            }
+            if (pending > 1) {
+                claimed.put(hash, pending - 1);
+            } else {
+                claimed.remove(hash);
+                released.add(hash);
+            }
+        }
+        if (!released.isEmpty()) {
+            profileImageContentDao.deleteClaimedContent(released);
+        }
+        batch.clear();
+        return deleted;
+    }
+
+    private void pace() {
+        long now = System.nanoTime();
+        long wait = nextRequestNanos - now;
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during profile image garbage collection", e);
+            }
+        }
+        nextRequestNanos = (wait > 0 ? nextRequestNanos : now) + requestIntervalNanos;
+    }
+}
@@ -0,0 +1,12 @@
+package com.amigoscode.customer;
+
+import java.util.Map;
+
+/**
+ * @param failures reason by archive entry name, for entries not imported
+ */
+public record ProfileImageImportResult(
+        int imported,
+        Map<String, String> failures
+) {
+}
@@ -0,0 +1,230 @@
+package com.amigoscode.customer;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Imports profile images for many existing customers from one ZIP
+ * archive, e.g. when migrating from another system. Entries are named by
+ * customer id ("42.jpg") and read one at a time as the archive streams
+ * in; storing them in S3 runs on a bounded pool, and at most
+ * {@code 2 * threads} entries are held in memory at once. Customers are
+ * switched over to their new images in batches of one statement each.
+ */
+@Service
+public class ProfileImageImporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfileImageImporter.class);
+
+    private record StoredEntry(String name, ProfileImageMetadata metadata) {
+    }
+
+    private final CustomerService customerService;
+    private final CustomerDao customerDao;
+    private final ProfileImageContentDao profileImageContentDao;
+    private final ProfileImageMetadataDao profileImageMetadataDao;
+    private final ExecutorService executor;
+    private final int maxBufferedEntries;
+    private final long maxContentLength;
+    private final int batchSize;
+
+    @Autowired
+    public ProfileImageImporter(
+            CustomerService customerService,
+            @Qualifier("jdbc") CustomerDao customerDao,
+            ProfileImageContentDao profileImageContentDao,
+            ProfileImageMetadataDao profileImageMetadataDao,
+            @Value("${customer.profile-image.import.threads:8}") int threads,
+            @Value("${spring.servlet.multipart.max-file-size:10MB}") DataSize maxContentLength,
+            @Value("${customer.profile-image.import.batch-size:1000}") int batchSize) {
+        this(customerService, customerDao, profileImageContentDao, profileImageMetadataDao,
+                Executors.newFixedThreadPool(threads), threads * 2,
+                maxContentLength.toBytes(), batchSize);
+    }
+
+    ProfileImageImporter(CustomerService customerService,
+                         CustomerDao customerDao,
+                         ProfileImageContentDao profileImageContentDao,
+                         ProfileImageMetadataDao profileImageMetadataDao,
+                         ExecutorService executor,
+                         int maxBufferedEntries,
+                         long maxContentLength,
+                         int batchSize) {
+        this.customerService = customerService;
+        this.customerDao = customerDao;
+        this.profileImageContentDao = profileImageContentDao;
+        this.profileImageMetadataDao = profileImageMetadataDao;
+        this.executor = executor;
+        this.maxBufferedEntries = maxBufferedEntries;
+        this.maxContentLength = maxContentLength;
+        this.batchSize = batchSize;
+    }
+
+    public ProfileImageImportResult importArchive(InputStream archive) {
+        Map<String, String> failures = new ConcurrentHashMap<>();
+        BlockingQueue<StoredEntry> stored = new LinkedBlockingQueue<>();
+        Semaphore bufferedEntries = new Semaphore(maxBufferedEntries);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        int imported = 0;
+        boolean read = false;
+
+        try (ZipInputStream zip = new ZipInputStream(archive)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String name = entry.getName();
+                Integer customerId = customerId(name);
+                MediaType contentType = MediaTypeFactory.getMediaType(name).orElse(null);
+                if (customerId == null) {
+                    failures.put(name, "entry name is not a customer id");
+                    continue;
+                }
+                if (contentType == null || !contentType.getType().equals("image")) {
+                    failures.put(name, "entry is not an image");
+                    continue;
+                }
+                // the next entry is only read once there is room for it
+                bufferedEntries.acquire();
+                byte[] bytes = zip.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxContentLength + 1));
+                if (bytes.length > maxContentLength) {
+                    bufferedEntries.release();
+                    failures.put(name, "entry is larger than %s bytes".formatted(maxContentLength));
+                    continue;
+                }
+                pending.add(CompletableFuture
+                        .runAsync(() -> stored.add(new StoredEntry(
+                                name, store(customerId, bytes, contentType.toString()))), executor)
+                        .whenComplete((ignored, e) -> {
+                            bufferedEntries.release();
+                            if (e != null) {
+                                LOGGER.warn("Failed to import profile image {}", name, e);
+                                failures.put(name, "could not be stored");
+                            }
+                        }));
+                pending.removeIf(CompletableFuture::isDone);
+                if (stored.size() >= batchSize) {
+                    imported += publish(drain(stored, batchSize), failures);
+                }
+            }
+            read = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read profile image archive", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while importing profile images");
+        } finally {
+            // also on failure, so that what was stored is not lost
+            pending.forEach(future -> future.exceptionally(e -> null).join());
+            if (!read) {
+                // never published, so its content is left to the garbage collector
+                profileImageContentDao.releaseReferences(stored.stream()
+                        .map(storedEntry -> storedEntry.metadata().profileImageId())
+                        .toList());
+            }
+        }
+
+        while (!stored.isEmpty()) {
+            imported += publish(drain(stored, batchSize), failures);
+        }
+        return new ProfileImageImportResult(imported, Map.copyOf(failures));
+    }
+
+    private ProfileImageMetadata store(Integer customerId, byte[] bytes, String contentType) {
+        String profileImageId = UUID.randomUUID().toString();
+        CustomerService.ContentDigest digest = customerService.storeProfileImageContent(
+                profileImageId, new ByteArrayResource(bytes), bytes.length, contentType);
+        return CustomerService.describeProfileImage(
+                customerId, profileImageId, bytes.length, contentType, digest);
+    }
+
+    /**
+     * Records a batch of stored images and points their customers at them.
+     * As for single uploads, references and metadata exist before the new
+     * ids are published; the references were added when the images were
+     * stored.
+     */
+    private int publish(List<StoredEntry> batch, Map<String, String> failures) {
+        // a later entry for the same customer wins, as if uploaded one after another
+        Map<Integer, StoredEntry> byCustomer = new LinkedHashMap<>();
+        List<String> unused = new ArrayList<>();
+        batch.forEach(entry -> {
+            StoredEntry replaced = byCustomer.put(entry.metadata().customerId(), entry);
+            if (replaced != null) {
+                unused.add(replaced.metadata().profileImageId());
+            }
+        });
+        Set<Integer> existing = customerDao.selectExistingCustomerIds(byCustomer.keySet());
+        List<ProfileImageMetadata> profileImages = new ArrayList<>();
+        byCustomer.forEach((customerId, entry) -> {
+            if (existing.contains(customerId)) {
+                profileImages.add(entry.metadata());
+            } else {
+                unused.add(entry.metadata().profileImageId());
+                failures.put(entry.name(), "customer not found");
+            }
+        });
+        if (!unused.isEmpty()) {
+            profileImageContentDao.releaseReferences(unused);
+        }
+        if (profileImages.isEmpty()) {
+            return 0;
+        }
+
+        profileImageMetadataDao.insertMetadata(profileImages);
+        Map<Integer, String> profileImageIds = new LinkedHashMap<>();
+        profileImages.forEach(metadata ->
+                profileImageIds.put(metadata.customerId(), metadata.profileImageId()));
+        List<String> previous = customerDao.updateProfileImageIds(profileImageIds)
+                .values()
+                .stream()
+                .filter(Objects::nonNull)
+                .toList();
+        profileImageContentDao.releaseReferences(previous);
+        profileImageMetadataDao.deleteMetadata(previous);
+        return profileImages.size();
+    }
+
+    private static List<StoredEntry> drain(BlockingQueue<StoredEntry> stored, int batchSize) {
+        List<StoredEntry> batch = new ArrayList<>(batchSize);
+        stored.drainTo(batch, batchSize);
+        return batch;
+    }
+
+    /**
+     * "42.jpg" and "avatars/42.png" are both customer 42.
+     */
+    static Integer customerId(String entryName) {
+        String fileName = entryName.substring(entryName.lastIndexOf('/') + 1);
+        int extension = fileName.lastIndexOf('.');
+        String id = extension > 0 ? fileName.substring(0, extension) : fileName;
+        try {
+            return Integer.valueOf(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,7 @@
+package com.amigoscode.customer;
+
+public record ProfileImageLocation(
+        Integer customerId,
+        String profileImageId,
+        String sha256) {
+}
@@ -0,0 +1,26 @@
+package com.amigoscode.customer;
+
+import java.time.Instant;
+
+/**
+ * What is known about a stored original profile image, so that HEAD and
+ * conditional requests can be answered without reading it from S3.
+ */
+public record ProfileImageMetadata(
+        String profileImageId,
+        Integer customerId,
+        long size,
+        String contentType,
+        String checksum,
+        Integer width,
+        Integer height,
+        Instant createdAt) {
+
+    /**
+     * Strong entity tag of the given size. Variants are derived from the
+     * original, so its checksum identifies them too.
+     */
+    public String eTag(ProfileImageSize profileImageSize) {
+        return "\"%s%s\"".formatted(checksum, profileImageSize.keySuffix());
+    }
+}
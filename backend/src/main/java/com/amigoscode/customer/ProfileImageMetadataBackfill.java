@@ -0,0 +1,94 @@
+package com.amigoscode.customer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Describes profile images uploaded before metadata was recorded from S3,
+ * in the background, so that requests only ever read metadata from the
+ * database. Until an image is described it is served without validators
+ * and HEAD does not find it. Runs on one node at a time and paces its
+ * S3 requests like the garbage collector.
+ */
+@Component
+public class ProfileImageMetadataBackfill {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfileImageMetadataBackfill.class);
+    static final long LOCK_KEY = 0x6d65746164617461L;
+    static final int BATCH_SIZE = 100;
+
+    private final CustomerDao customerDao;
+    private final CustomerService customerService;
+    private final ProfileImageContentDao profileImageContentDao;
+    private final long requestIntervalNanos;
+    private long nextRequestNanos;
+
+    @Autowired
+    public ProfileImageMetadataBackfill(
+            @Qualifier("jdbc") CustomerDao customerDao,
+            CustomerService customerService,
+            ProfileImageContentDao profileImageContentDao,
+            @Value("${customer.profile-image.metadata-backfill.requests-per-second:10}")
+            double requestsPerSecond) {
+        this.customerDao = customerDao;
+        this.customerService = customerService;
+        this.profileImageContentDao = profileImageContentDao;
+        this.requestIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        this.nextRequestNanos = System.nanoTime();
+    }
+
+    @Scheduled(
+            initialDelayString = "${customer.profile-image.metadata-backfill.initial-delay:PT1M}",
+            fixedDelayString = "${customer.profile-image.metadata-backfill.interval:PT1H}")
+    public void backfill() {
+        boolean ran = profileImageContentDao.tryRunExclusively(LOCK_KEY, this::describeMissing);
+        if (!ran) {
+            LOGGER.debug("Profile image metadata backfill is running on another node");
+        }
+    }
+
+    void describeMissing() {
+        int described = 0;
+        int gone = 0;
+        Integer after = 0;
+        List<ProfileImageLocation> page;
+        do {
+            page = customerDao.selectProfileImagesWithoutMetadata(after, BATCH_SIZE);
+            for (ProfileImageLocation location : page) {
+                pace();
+                if (customerService.describeStoredProfileImage(location)) {
+                    described++;
+                } else {
+                    gone++;
+                }
+                // images gone from S3 stay without metadata, so move past them
+                after = location.customerId();
+            }
+        } while (page.size() == BATCH_SIZE);
+        if (described > 0 || gone > 0) {
+            LOGGER.info("Described {} profile images from S3, {} were not found", described, gone);
+        }
+    }
+
+    private void pace() {
+        long now = System.nanoTime();
+        long wait = nextRequestNanos - now;
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted during profile image metadata backfill", e);
+            }
+        }
+        nextRequestNanos = (wait > 0 ? nextRequestNanos : now) + requestIntervalNanos;
+    }
+}
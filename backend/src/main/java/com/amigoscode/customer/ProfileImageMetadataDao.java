@@ -0,0 +1,99 @@
+package com.amigoscode.customer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Rows of customer_profile_image (see V5 migration).
+ */
+@Repository
+public class ProfileImageMetadataDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProfileImageMetadataDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Describes a profile image once; a profile image id is never reused,
+     * so a second insert for the same id is ignored.
+     */
+    public void insertMetadata(ProfileImageMetadata metadata) {
+        jdbcTemplate.update(INSERT_METADATA_SQL, toParameters(metadata));
+    }
+
+    public void insertMetadata(List<ProfileImageMetadata> metadata) {
+        jdbcTemplate.batchUpdate(INSERT_METADATA_SQL, metadata.stream()
+                .map(ProfileImageMetadataDao::toParameters)
+                .toList());
+    }
+
+    private static final String INSERT_METADATA_SQL = """
+                INSERT INTO customer_profile_image(
+                    profile_image_id, customer_id, size, content_type, checksum, width, height, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (profile_image_id) DO NOTHING
+                """;
+
+    private static Object[] toParameters(ProfileImageMetadata metadata) {
+        return new Object[]{
+                metadata.profileImageId(),
+                metadata.customerId(),
+                metadata.size(),
+                metadata.contentType(),
+                metadata.checksum(),
+                metadata.width(),
+                metadata.height(),
+                Timestamp.from(metadata.createdAt())};
+    }
+
+    /**
+     * Metadata of the customer's current profile image, if it has one and
+     * it has been described.
+     */
+    public Optional<ProfileImageMetadata> selectMetadataByCustomerId(Integer customerId) {
+        var sql = """
+                SELECT m.profile_image_id, m.customer_id, m.size, m.content_type,
+                       m.checksum, m.width, m.height, m.created_at
+                FROM customer c
+                JOIN customer_profile_image m ON m.profile_image_id = c.profile_image_id
+                WHERE c.id = ?
+                """;
+        return jdbcTemplate.query(sql,
+                        (rs, rowNum) -> new ProfileImageMetadata(
+                                rs.getString("profile_image_id"),
+                                rs.getInt("customer_id"),
+                                rs.getLong("size"),
+                                rs.getString("content_type"),
+                                rs.getString("checksum"),
+                                rs.getObject("width", Integer.class),
+                                rs.getObject("height", Integer.class),
+                                rs.getTimestamp("created_at").toInstant()),
+                        customerId)
+                .stream()
+                .findFirst();
+    }
+
+    public void deleteMetadata(String profileImageId) {
+        var sql = """
+                DELETE FROM customer_profile_image
+                WHERE profile_image_id = ?
+                """;
+        jdbcTemplate.update(sql, profileImageId);
+    }
+
+    public void deleteMetadata(Collection<String> profileImageIds) {
+        var sql = """
+                DELETE FROM customer_profile_image
+                WHERE profile_image_id = ANY(?)
+                """;
+        jdbcTemplate.update(sql, ps -> ps.setArray(1,
+                ps.getConnection().createArrayOf("text", profileImageIds.toArray())));
+    }
+}
@@ -0,0 +1,76 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.s3.S3Buckets;
+import com.amigoscode.s3.S3Service;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Hands out short lived URLs so profile image bytes go straight between
+ * the client and S3 instead of through this application.
+ */
+@Component
+public class ProfileImagePresigner {
+
+    private final S3Service s3Service;
+    private final S3Buckets s3Buckets;
+    private final Duration expiry;
+    private final long maxContentLength;
+
+    public ProfileImagePresigner(
+            S3Service s3Service,
+            S3Buckets s3Buckets,
+            @Value("${customer.profile-image.presigned-url.expiry:10m}") Duration expiry,
+            @Value("${spring.servlet.multipart.max-file-size:10MB}") DataSize maxContentLength) {
+        this.s3Service = s3Service;
+        this.s3Buckets = s3Buckets;
+        this.expiry = expiry;
+        this.maxContentLength = maxContentLength.toBytes();
+    }
+
+    public ProfileImageUploadUrl presignUpload(String profileImageId,
+                                               String key,
+                                               String contentType,
+                                               Long contentLength) {
+        if (contentType == null || !contentType.startsWith("image/")) {
+            throw new RequestValidationException(
+                    "content type [%s] is not an image".formatted(contentType));
+        }
+        if (contentLength == null || contentLength <= 0 || contentLength > maxContentLength) {
+            throw new RequestValidationException(
+                    "content length must be between 1 and %s bytes".formatted(maxContentLength));
+        }
+
+        PresignedPutObjectRequest presigned = s3Service.presignPutObject(
+                s3Buckets.getCustomer(), key, contentType, contentLength, expiry);
+        // the client sets Host itself, everything else has to be sent as signed
+        Map<String, List<String>> headers = presigned.signedHeaders().entrySet().stream()
+                .filter(header -> !header.getKey().equalsIgnoreCase("host"))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        return new ProfileImageUploadUrl(
+                profileImageId,
+                presigned.url().toString(),
+                headers,
+                presigned.expiration()
+        );
+    }
+
+    public ProfileImageDownloadUrl presignDownload(String key) {
+        PresignedGetObjectRequest presigned = s3Service.presignGetObject(
+                s3Buckets.getCustomer(), key, expiry);
+        return new ProfileImageDownloadUrl(presigned.url().toString(), presigned.expiration());
+    }
+
+    public long getMaxContentLength() {
+        return maxContentLength;
+    }
+}
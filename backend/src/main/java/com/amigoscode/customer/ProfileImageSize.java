@@ -0,0 +1,38 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+
+import java.util.Arrays;
+
+public enum ProfileImageSize {
+    ORIGINAL(0),
+    MEDIUM(512),
+    THUMBNAIL(128);
+
+    private final int maxDimension;
+
+    ProfileImageSize(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    /**
+     * Variants live next to the original, e.g.
+     * profile-images/{customerId}/{profileImageId}-thumbnail
+     */
+    public String keySuffix() {
+        return this == ORIGINAL ? "" : "-" + name().toLowerCase();
+    }
+
+    public static ProfileImageSize fromParameter(String size) {
+        return Arrays.stream(values())
+                .filter(value -> value.name().equalsIgnoreCase(size))
+                .findFirst()
+                .orElseThrow(() -> new RequestValidationException(
+                        "profile image size [%s] is not supported".formatted(size)
+                ));
+    }
+}
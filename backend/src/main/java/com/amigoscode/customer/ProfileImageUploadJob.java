@@ -0,0 +1,24 @@
+package com.amigoscode.customer;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ProfileImageUploadJob(
+        UUID id,
+        Integer customerId,
+        Status status,
+        String profileImageId,
+        String error,
+        Instant updatedAt) {
+
+    public enum Status {
+        QUEUED,
+        PROCESSING,
+        COMPLETED,
+        FAILED
+    }
+
+    boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+}
@@ -0,0 +1,86 @@
+package com.amigoscode.customer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * State of queued profile image uploads (see V10 migration).
+ */
+@Repository
+public class ProfileImageUploadJobDao {
+
+    private static final RowMapper<ProfileImageUploadJob> JOB_ROW_MAPPER =
+            (rs, rowNum) -> new ProfileImageUploadJob(
+                    rs.getObject("id", UUID.class),
+                    rs.getInt("customer_id"),
+                    ProfileImageUploadJob.Status.valueOf(rs.getString("status")),
+                    rs.getString("profile_image_id"),
+                    rs.getString("error"),
+                    rs.getTimestamp("updated_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProfileImageUploadJobDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void upsertJob(ProfileImageUploadJob job) {
+        var sql = """
+                INSERT INTO profile_image_upload_job(
+                    id, customer_id, status, profile_image_id, error, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON CONFLICT (id)
+                DO UPDATE SET status = EXCLUDED.status,
+                              profile_image_id = EXCLUDED.profile_image_id,
+                              error = EXCLUDED.error,
+                              updated_at = EXCLUDED.updated_at
+                """;
+        jdbcTemplate.update(sql,
+                job.id(),
+                job.customerId(),
+                job.status().name(),
+                job.profileImageId(),
+                job.error(),
+                Timestamp.from(job.updatedAt()));
+    }
+
+    /**
+     * The job of the given customer.
+     */
+    public Optional<ProfileImageUploadJob> selectJob(UUID id, Integer customerId) {
+        var sql = """
+                SELECT id, customer_id, status, profile_image_id, error, updated_at
+                FROM profile_image_upload_job
+                WHERE id = ?
+                AND customer_id = ?
+                """;
+        return jdbcTemplate.query(sql, JOB_ROW_MAPPER, id, customerId)
+                .stream()
+                .findFirst();
+    }
+
+    public void deleteJob(UUID id) {
+        var sql = """
+                DELETE FROM profile_image_upload_job
+                WHERE id = ?
+                """;
+        jdbcTemplate.update(sql, id);
+    }
+
+    /**
+     * Removes jobs not updated since {@code before}, finished or not.
+     */
+    public int deleteJobsUpdatedBefore(Instant before) {
+        var sql = """
+                DELETE FROM profile_image_upload_job
+                WHERE updated_at < ?
+                """;
+        return jdbcTemplate.update(sql, Timestamp.from(before));
+    }
+}
@@ -0,0 +1,17 @@
+package com.amigoscode.customer;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * What a client needs to resume an upload: chunk i covers bytes
+ * i * chunkSize up to the next chunk or the end of the image.
+ */
+public record ProfileImageUploadProgress(
+        String uploadId,
+        long contentLength,
+        int chunkSize,
+        List<Integer> missingChunks,
+        Instant expiresAt
+) {
+}
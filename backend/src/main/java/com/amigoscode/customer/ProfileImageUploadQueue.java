@@ -0,0 +1,299 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.ResourceNotFoundException;
+import com.amigoscode.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Accepts profile image uploads as soon as they are spooled to local disk
+ * and stores them on a bounded pool of workers. A full queue rejects new
+ * uploads with 429 instead of tying up request threads. Spooled uploads
+ * left behind by a shutdown are picked up again on the next start.
+ * <p>
+ * Job state lives in Postgres, so a poll can be answered by any node. The
+ * spool does not: a job is only processed by the node that accepted it,
+ * and while that node is down its jobs stay queued and are eventually
+ * pruned, until it starts again and recovers them.
+ */
+@Component
+public class ProfileImageUploadQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfileImageUploadQueue.class);
+    private static final String CONTENT_TYPE_SUFFIX = ".content-type";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final CustomerService customerService;
+    private final ProfileImageUploadJobDao profileImageUploadJobDao;
+    private final Path spoolDirectory;
+    private final ThreadPoolExecutor executor;
+    private final Duration jobTtl;
+    private final Duration retryAfter;
+    private final Clock clock;
+    private final AtomicLong lastPruneMillis = new AtomicLong();
+    private final Counter rejected;
+
+    @Autowired
+    public ProfileImageUploadQueue(
+            CustomerService customerService,
+            ProfileImageUploadJobDao profileImageUploadJobDao,
+            MeterRegistry meterRegistry,
+            @Value("${customer.profile-image.upload.spool-dir:${java.io.tmpdir}/amigoscode/profile-image-spool}")
+            Path spoolDirectory,
+            @Value("${customer.profile-image.upload.workers:4}") int workers,
+            @Value("${customer.profile-image.upload.queue-capacity:100}") int queueCapacity,
+            @Value("${customer.profile-image.upload.job-ttl:1h}") Duration jobTtl,
+            @Value("${customer.profile-image.upload.retry-after:5s}") Duration retryAfter) {
+        this(customerService,
+                profileImageUploadJobDao,
+                meterRegistry,
+                spoolDirectory,
+                new ThreadPoolExecutor(
+                        workers, workers,
+                        0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity),
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "profile-image-upload");
+                            thread.setDaemon(true);
+                            return thread;
+                        }),
+                jobTtl,
+                retryAfter,
+                Clock.systemUTC());
+    }
+
+    ProfileImageUploadQueue(CustomerService customerService,
+                            ProfileImageUploadJobDao profileImageUploadJobDao,
+                            MeterRegistry meterRegistry,
+                            Path spoolDirectory,
+                            ThreadPoolExecutor executor,
+                            Duration jobTtl,
+                            Duration retryAfter,
+                            Clock clock) {
+        this.customerService = customerService;
+        this.profileImageUploadJobDao = profileImageUploadJobDao;
+        this.spoolDirectory = spoolDirectory;
+        this.executor = executor;
+        this.jobTtl = jobTtl;
+        this.retryAfter = retryAfter;
+        this.clock = clock;
+
+        Gauge.builder("profile.image.upload.queue.depth", executor, e -> e.getQueue().size())
+                .description("Spooled profile image uploads waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("profile.image.upload.queue.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Profile image uploads being stored")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("profile.image.upload.queue.rejected")
+                .description("Profile image uploads rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    public ProfileImageUploadJob submit(Integer customerId, MultipartFile file) {
+        customerService.checkIfCustomerExistsOrThrow(customerId);
+        pruneFinishedJobs();
+        // cheap check up front so a full queue doesn't cost a spool write
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw queueFull();
+        }
+
+        UUID jobId = UUID.randomUUID();
+        Path spooled;
+        try {
+            spooled = spool(jobId, customerId, file);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to spool profile image", e);
+        }
+        return enqueue(jobId, customerId, spooled, file.getContentType());
+    }
+
+    public ProfileImageUploadJob getJob(Integer customerId, UUID jobId) {
+        return profileImageUploadJobDao.selectJob(jobId, customerId)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "profile image upload job with id [%s] not found".formatted(jobId)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!Files.isDirectory(spoolDirectory)) {
+            return;
+        }
+        try (Stream<Path> customers = Files.list(spoolDirectory)) {
+            for (Path customerDirectory : customers.toList()) {
+                recover(customerDirectory);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not recover spooled profile images from {}", spoolDirectory, e);
+        }
+    }
+
+    private void recover(Path customerDirectory) throws IOException {
+        Integer customerId;
+        try {
+            customerId = Integer.valueOf(customerDirectory.getFileName().toString());
+        } catch (NumberFormatException e) {
+            // e.g. lost+found when the spool is a mount of its own
+            LOGGER.warn("Skipping {}, not a spool directory of a customer", customerDirectory);
+            return;
+        }
+        if (!Files.isDirectory(customerDirectory)) {
+            LOGGER.warn("Skipping {}, not a spool directory of a customer", customerDirectory);
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> list = Files.list(customerDirectory)) {
+            files = list.toList();
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(TMP_SUFFIX)) {
+                // never made it to a 202, so nobody is waiting for it
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(contentTypeFile(file));
+            } else if (!name.endsWith(CONTENT_TYPE_SUFFIX)) {
+                String contentType = Files.readString(contentTypeFile(file), StandardCharsets.UTF_8);
+                try {
+                    enqueue(UUID.fromString(name), customerId, file,
+                            contentType.isEmpty() ? null : contentType);
+                    LOGGER.info("Recovered spooled profile image {} for customer {}", name, customerId);
+                } catch (TooManyRequestsException e) {
+                    LOGGER.warn("Upload queue full, leaving {} spooled until next start", file);
+                    return;
+                }
+            }
+        }
+    }
+
+    private ProfileImageUploadJob enqueue(UUID jobId,
+                                          Integer customerId,
+                                          Path spooled,
+                                          String contentType) {
+        ProfileImageUploadJob job = new ProfileImageUploadJob(
+                jobId, customerId, ProfileImageUploadJob.Status.QUEUED, null, null, clock.instant());
+        profileImageUploadJobDao.upsertJob(job);
+        try {
+            executor.execute(() -> process(job, spooled, contentType));
+        } catch (RejectedExecutionException e) {
+            profileImageUploadJobDao.deleteJob(jobId);
+            deleteSpooled(spooled);
+            throw queueFull();
+        }
+        return job;
+    }
+
+    private void process(ProfileImageUploadJob job, Path spooled, String contentType) {
+        update(job, ProfileImageUploadJob.Status.PROCESSING, null, null);
+        String profileImageId;
+        try {
+            profileImageId = customerService.uploadCustomerProfileImage(
+                    job.customerId(),
+                    new FileSystemResource(spooled),
+                    Files.size(spooled),
+                    contentType);
+        } catch (Exception e) {
+            if (executor.isShutdown()) {
+                // interrupted by shutdown, the spooled file is retried on the next start
+                return;
+            }
+            LOGGER.warn("Profile image upload job {} failed", job.id(), e);
+            deleteSpooled(spooled);
+            update(job, ProfileImageUploadJob.Status.FAILED, null, e.getMessage());
+            return;
+        }
+        // cleaned up before the job reports completion, so a finished job leaves nothing behind
+        deleteSpooled(spooled);
+        update(job, ProfileImageUploadJob.Status.COMPLETED, profileImageId, null);
+    }
+
+    private void update(ProfileImageUploadJob job,
+                        ProfileImageUploadJob.Status status,
+                        String profileImageId,
+                        String error) {
+        profileImageUploadJobDao.upsertJob(new ProfileImageUploadJob(
+                job.id(), job.customerId(), status, profileImageId, error, clock.instant()));
+    }
+
+    private Path spool(UUID jobId, Integer customerId, MultipartFile file) throws IOException {
+        Path customerDirectory = Files.createDirectories(
+                spoolDirectory.resolve(customerId.toString()));
+        Path spooled = customerDirectory.resolve(jobId.toString());
+        Path tmp = customerDirectory.resolve(jobId + TMP_SUFFIX);
+        try {
+            Files.writeString(contentTypeFile(spooled),
+                    file.getContentType() != null ? file.getContentType() : "",
+                    StandardCharsets.UTF_8);
+            file.transferTo(tmp);
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            // only complete spool files are picked up by recover()
+            Files.move(tmp, spooled, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmp);
+            Files.deleteIfExists(contentTypeFile(spooled));
+            throw e;
+        }
+        return spooled;
+    }
+
+    private static Path contentTypeFile(Path spooled) {
+        String name = spooled.getFileName().toString();
+        if (name.endsWith(TMP_SUFFIX)) {
+            name = name.substring(0, name.length() - TMP_SUFFIX.length());
+        }
+        return spooled.resolveSibling(name + CONTENT_TYPE_SUFFIX);
+    }
+
+    private static void deleteSpooled(Path spooled) {
+        try {
+            Files.deleteIfExists(spooled);
+            Files.deleteIfExists(contentTypeFile(spooled));
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete spooled profile image {}", spooled, e);
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        long now = clock.millis();
+        long last = lastPruneMillis.get();
+        if (now - last < jobTtl.toMillis() / 10 || !lastPruneMillis.compareAndSet(last, now)) {
+            return;
+        }
+        // unfinished jobs this old belong to a node that is gone, it writes them again on recovery
+        profileImageUploadJobDao.deleteJobsUpdatedBefore(clock.instant().minus(jobTtl));
+    }
+
+    private TooManyRequestsException queueFull() {
+        rejected.increment();
+        return new TooManyRequestsException("profile image upload queue is full", retryAfter);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // queued uploads stay spooled and are recovered on the next start
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,28 @@
+package com.amigoscode.customer;
+
+import java.time.Instant;
+
+/**
+ * A resumable profile image upload in progress. Its id becomes the
+ * profile image id once the upload is completed.
+ */
+public record ProfileImageUploadSession(
+        String id,
+        Integer customerId,
+        String s3UploadId,
+        long contentLength,
+        String contentType,
+        int chunkSize,
+        Instant expiresAt) {
+
+    public int chunkCount() {
+        return (int) ((contentLength + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Chunks are a fixed size except for the last one.
+     */
+    public long chunkLength(int chunkIndex) {
+        return Math.min(chunkSize, contentLength - (long) chunkIndex * chunkSize);
+    }
+}
@@ -0,0 +1,144 @@
+package com.amigoscode.customer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Sessions and received chunks of resumable uploads (see V6 migration).
+ */
+@Repository
+public class ProfileImageUploadSessionDao {
+
+    private static final RowMapper<ProfileImageUploadSession> SESSION_ROW_MAPPER =
+            (rs, rowNum) -> new ProfileImageUploadSession(
+                    rs.getString("id"),
+                    rs.getInt("customer_id"),
+                    rs.getString("s3_upload_id"),
+                    rs.getLong("content_length"),
+                    rs.getString("content_type"),
+                    rs.getInt("chunk_size"),
+                    rs.getTimestamp("expires_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProfileImageUploadSessionDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertSession(ProfileImageUploadSession session) {
+        var sql = """
+                INSERT INTO profile_image_upload_session(
+                    id, customer_id, s3_upload_id, content_length, content_type, chunk_size, expires_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """;
+        jdbcTemplate.update(sql,
+                session.id(),
+                session.customerId(),
+                session.s3UploadId(),
+                session.contentLength(),
+                session.contentType(),
+                session.chunkSize(),
+                Timestamp.from(session.expiresAt()));
+    }
+
+    /**
+     * The session of the given customer, unless it has expired.
+     */
+    public Optional<ProfileImageUploadSession> selectSession(String id,
+                                                             Integer customerId,
+                                                             Instant now) {
+        var sql = """
+                SELECT id, customer_id, s3_upload_id, content_length, content_type, chunk_size, expires_at
+                FROM profile_image_upload_session
+                WHERE id = ?
+                AND customer_id = ?
+                AND expires_at > ?
+                """;
+        return jdbcTemplate.query(sql, SESSION_ROW_MAPPER, id, customerId, Timestamp.from(now))
+                .stream()
+                .findFirst();
+    }
+
+    public void upsertChunk(String sessionId, int chunkIndex, String eTag) {
+        var sql = """
+                INSERT INTO profile_image_upload_chunk(session_id, chunk_index, e_tag)
+                VALUES (?, ?, ?)
+                ON CONFLICT (session_id, chunk_index)
+                DO UPDATE SET e_tag = EXCLUDED.e_tag
+                """;
+        jdbcTemplate.update(sql, sessionId, chunkIndex, eTag);
+    }
+
+    /**
+     * ETags of the received chunks by chunk index, in ascending order.
+     */
+    public SortedMap<Integer, String> selectChunks(String sessionId) {
+        var sql = """
+                SELECT chunk_index, e_tag
+                FROM profile_image_upload_chunk
+                WHERE session_id = ?
+                """;
+        SortedMap<Integer, String> chunks = new TreeMap<>();
+        jdbcTemplate.query(sql,
+                rs -> {
+                    chunks.put(rs.getInt("chunk_index"), rs.getString("e_tag"));
+                },
+                sessionId);
+        return chunks;
+    }
+
+    /**
+     * @return false if another request already finished or removed it
+     */
+    /**
+     * Locks the session until the end of the transaction, so concurrent
+     * completions of it run one after another.
+     *
+     * @return false if the session is gone
+     */
+    public boolean lockSession(String id) {
+        var sql = """
+                SELECT id
+                FROM profile_image_upload_session
+                WHERE id = ?
+                FOR UPDATE
+                """;
+        return !jdbcTemplate.queryForList(sql, String.class, id).isEmpty();
+    }
+
+    public boolean deleteSession(String id) {
+        var sql = """
+                DELETE FROM profile_image_upload_session
+                WHERE id = ?
+                """;
+        return jdbcTemplate.update(sql, id) > 0;
+    }
+
+    /**
+     * Removes up to {@code limit} expired sessions and returns them, so
+     * their multipart uploads can be aborted. Rows locked by another node
+     * are skipped rather than waited for.
+     */
+    public List<ProfileImageUploadSession> deleteExpiredSessions(Instant now, int limit) {
+        var sql = """
+                DELETE FROM profile_image_upload_session
+                WHERE id IN (
+                    SELECT id
+                    FROM profile_image_upload_session
+                    WHERE expires_at <= ?
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING id, customer_id, s3_upload_id, content_length, content_type, chunk_size, expires_at
+                """;
+        return jdbcTemplate.query(sql, SESSION_ROW_MAPPER, Timestamp.from(now), limit);
+    }
+}
@@ -0,0 +1,265 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.ResourceNotFoundException;
+import com.amigoscode.s3.S3Buckets;
+import com.amigoscode.s3.S3Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+
+import java.io.InputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Resumable profile image uploads for clients on unreliable links. A
+ * session is an S3 multipart upload: every chunk is uploaded as its own
+ * part, so a client that lost its connection asks which chunks are
+ * missing and sends only those. Completing the session hands the object
+ * to the same checks and processing as a presigned upload.
+ */
+@Service
+public class ProfileImageUploadSessions {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProfileImageUploadSessions.class);
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+    private static final int EXPIRY_BATCH_SIZE = 100;
+
+    private final CustomerService customerService;
+    private final ProfileImageUploadSessionDao profileImageUploadSessionDao;
+    private final S3Service s3Service;
+    private final S3Buckets s3Buckets;
+    private final long maxContentLength;
+    private final int chunkSize;
+    private final Duration ttl;
+    private final TransactionOperations transactionOperations;
+    private final Clock clock;
+
+    @Autowired
+    public ProfileImageUploadSessions(
+            CustomerService customerService,
+            ProfileImageUploadSessionDao profileImageUploadSessionDao,
+            S3Service s3Service,
+            S3Buckets s3Buckets,
+            @Value("${spring.servlet.multipart.max-file-size:10MB}") DataSize maxContentLength,
+            // S3 rejects parts below 5MB unless they are the last one
+            @Value("${customer.profile-image.resumable.chunk-size:5MB}") DataSize chunkSize,
+            @Value("${customer.profile-image.resumable.ttl:24h}") Duration ttl,
+            TransactionOperations transactionOperations) {
+        this(customerService, profileImageUploadSessionDao, s3Service, s3Buckets,
+                maxContentLength.toBytes(), Math.toIntExact(chunkSize.toBytes()), ttl,
+                transactionOperations, Clock.systemUTC());
+    }
+
+    ProfileImageUploadSessions(CustomerService customerService,
+                               ProfileImageUploadSessionDao profileImageUploadSessionDao,
+                               S3Service s3Service,
+                               S3Buckets s3Buckets,
+                               long maxContentLength,
+                               int chunkSize,
+                               Duration ttl,
+                               TransactionOperations transactionOperations,
+                               Clock clock) {
+        this.customerService = customerService;
+        this.profileImageUploadSessionDao = profileImageUploadSessionDao;
+        this.s3Service = s3Service;
+        this.s3Buckets = s3Buckets;
+        this.maxContentLength = maxContentLength;
+        this.chunkSize = chunkSize;
+        this.ttl = ttl;
+        this.transactionOperations = transactionOperations;
+        this.clock = clock;
+    }
+
+    public ProfileImageUploadProgress createSession(Integer customerId,
+                                                    ProfileImageUploadUrlRequest request) {
+        customerService.checkIfCustomerExistsOrThrow(customerId);
+        if (request.contentType() == null || !request.contentType().startsWith("image/")) {
+            throw new RequestValidationException(
+                    "content type [%s] is not an image".formatted(request.contentType()));
+        }
+        if (request.contentLength() == null
+                || request.contentLength() <= 0
+                || request.contentLength() > maxContentLength) {
+            throw new RequestValidationException(
+                    "content length must be between 1 and %s bytes".formatted(maxContentLength));
+        }
+
+        String id = UUID.randomUUID().toString();
+        String s3UploadId = s3Service.createMultipartUpload(
+                s3Buckets.getCustomer(),
+                CustomerService.legacyKey(customerId, id),
+                request.contentType());
+        ProfileImageUploadSession session = new ProfileImageUploadSession(
+                id,
+                customerId,
+                s3UploadId,
+                request.contentLength(),
+                request.contentType(),
+                chunkSize,
+                clock.instant().plus(ttl));
+        profileImageUploadSessionDao.insertSession(session);
+        return toProgress(session, Set.of());
+    }
+
+    public ProfileImageUploadProgress getProgress(Integer customerId, String uploadId) {
+        ProfileImageUploadSession session = session(customerId, uploadId);
+        return toProgress(session,
+                profileImageUploadSessionDao.selectChunks(session.id()).keySet());
+    }
+
+    /**
+     * Stores one chunk, named by its Content-Range. Sending a chunk again
+     * replaces it, so a client may retry anything it is unsure about.
+     */
+    public ProfileImageUploadProgress uploadChunk(Integer customerId,
+                                                  String uploadId,
+                                                  String contentRange,
+                                                  InputStream inputStream) {
+        ProfileImageUploadSession session = session(customerId, uploadId);
+        int chunkIndex = chunkIndex(session, contentRange);
+
+        String eTag;
+        try {
+            eTag = s3Service.uploadPart(
+                    s3Buckets.getCustomer(),
+                    CustomerService.legacyKey(customerId, session.id()),
+                    session.s3UploadId(),
+                    chunkIndex + 1,
+                    inputStream,
+                    session.chunkLength(chunkIndex));
+        } catch (NoSuchUploadException e) {
+            throw uploadNotFound(uploadId);
+        }
+        profileImageUploadSessionDao.upsertChunk(session.id(), chunkIndex, eTag);
+        return toProgress(session,
+                profileImageUploadSessionDao.selectChunks(session.id()).keySet());
+    }
+
+    public void completeSession(Integer customerId, String uploadId) {
+        ProfileImageUploadSession session = session(customerId, uploadId);
+        SortedMap<Integer, String> chunks = profileImageUploadSessionDao.selectChunks(session.id());
+        List<Integer> missingChunks = missingChunks(session, chunks.keySet());
+        if (!missingChunks.isEmpty()) {
+            throw new RequestValidationException(
+                    "upload [%s] is missing chunks %s".formatted(uploadId, missingChunks));
+        }
+
+        SortedMap<Integer, String> parts = new TreeMap<>();
+        chunks.forEach((chunkIndex, eTag) -> parts.put(chunkIndex + 1, eTag));
+        try {
+            s3Service.completeMultipartUpload(
+                    s3Buckets.getCustomer(),
+                    CustomerService.legacyKey(customerId, session.id()),
+                    session.s3UploadId(),
+                    parts);
+        } catch (NoSuchUploadException ignored) {
+            // completed by an earlier attempt whose confirmation failed,
+            // confirming finds out whether the object is there
+        }
+        // the session is only gone once its image is published, so a failed
+        // confirmation can be retried without sending the chunks again
+        transactionOperations.executeWithoutResult(status -> {
+            if (!profileImageUploadSessionDao.lockSession(session.id())) {
+                // a concurrent request completed it and published the image
+                return;
+            }
+            customerService.confirmProfileImageUpload(
+                    customerId, new ProfileImageUploadConfirmation(session.id()));
+            profileImageUploadSessionDao.deleteSession(session.id());
+        });
+    }
+
+    /**
+     * Aborts the multipart uploads of expired sessions, which S3 would
+     * otherwise keep, and bill, indefinitely. Sessions outlive a deleted
+     * customer for this, and are aborted once they expire.
+     */
+    @Scheduled(
+            initialDelayString = "${customer.profile-image.resumable.cleanup-interval:PT15M}",
+            fixedDelayString = "${customer.profile-image.resumable.cleanup-interval:PT15M}")
+    public void expireSessions() {
+        List<ProfileImageUploadSession> expired;
+        do {
+            expired = profileImageUploadSessionDao.deleteExpiredSessions(
+                    clock.instant(), EXPIRY_BATCH_SIZE);
+            expired.forEach(this::abort);
+        } while (expired.size() == EXPIRY_BATCH_SIZE);
+    }
+
+    private void abort(ProfileImageUploadSession session) {
+        try {
+            s3Service.abortMultipartUpload(
+                    s3Buckets.getCustomer(),
+                    CustomerService.legacyKey(session.customerId(), session.id()),
+                    session.s3UploadId());
+        } catch (NoSuchUploadException ignored) {
+        } catch (SdkException e) {
+            LOGGER.warn("Failed to abort expired profile image upload {}", session.id(), e);
+        }
+    }
+
+    private ProfileImageUploadSession session(Integer customerId, String uploadId) {
+        return profileImageUploadSessionDao.selectSession(uploadId, customerId, clock.instant())
+                .orElseThrow(() -> uploadNotFound(uploadId));
+    }
+
+    private static int chunkIndex(ProfileImageUploadSession session, String contentRange) {
+        Matcher matcher = contentRange != null ? CONTENT_RANGE.matcher(contentRange) : null;
+        if (matcher == null || !matcher.matches()) {
+            throw new RequestValidationException(
+                    "Content-Range [%s] is not a byte range".formatted(contentRange));
+        }
+        long start = Long.parseLong(matcher.group(1));
+        long end = Long.parseLong(matcher.group(2));
+        long total = Long.parseLong(matcher.group(3));
+        if (total != session.contentLength()
+                || start % session.chunkSize() != 0
+                || start >= total
+                || end - start + 1 != session.chunkLength((int) (start / session.chunkSize()))) {
+            throw new RequestValidationException(
+                    "Content-Range [%s] is not a chunk of %s bytes of %s".formatted(
+                            contentRange, session.chunkSize(), session.contentLength()));
+        }
+        return (int) (start / session.chunkSize());
+    }
+
+    private static List<Integer> missingChunks(ProfileImageUploadSession session,
+                                               Set<Integer> receivedChunks) {
+        return IntStream.range(0, session.chunkCount())
+                .filter(chunkIndex -> !receivedChunks.contains(chunkIndex))
+                .boxed()
+                .toList();
+    }
+
+    private static ProfileImageUploadProgress toProgress(ProfileImageUploadSession session,
+                                                         Set<Integer> receivedChunks) {
+        return new ProfileImageUploadProgress(
+                session.id(),
+                session.contentLength(),
+                session.chunkSize(),
+                missingChunks(session, receivedChunks),
+                session.expiresAt());
+    }
+
+    private static ResourceNotFoundException uploadNotFound(String uploadId) {
+        return new ResourceNotFoundException(
+                "profile image upload [%s] not found".formatted(uploadId));
+    }
+}
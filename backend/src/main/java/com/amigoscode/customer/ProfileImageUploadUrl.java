@@ -0,0 +1,13 @@
+package com.amigoscode.customer;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+public record ProfileImageUploadUrl(
+        String profileImageId,
+        String url,
+        Map<String, List<String>> headers,
+        Instant expiresAt
+) {
+}
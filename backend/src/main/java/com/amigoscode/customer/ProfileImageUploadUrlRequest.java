@@ -0,0 +1,7 @@
+package com.amigoscode.customer;
+
+public record ProfileImageUploadUrlRequest(
+        String contentType,
+        Long contentLength
+) {
+}
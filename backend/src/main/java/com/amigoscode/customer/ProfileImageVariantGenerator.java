@@ -0,0 +1,233 @@
+package com.amigoscode.customer;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Decodes an uploaded profile image once and produces the smaller JPEG
+ * variants from it on a bounded pool. When the pool is saturated the
+ * submitting thread does the work itself, which throttles uploads instead
+ * of queueing unbounded decoded images.
+ */
+@Component
+public class ProfileImageVariantGenerator {
+
+    private static final List<ProfileImageSize> VARIANTS = Arrays.stream(ProfileImageSize.values())
+            .filter(size -> size != ProfileImageSize.ORIGINAL)
+            .sorted(Comparator.comparingInt(ProfileImageSize::getMaxDimension).reversed())
+            .toList();
+
+    private final ExecutorService executor;
+    private final float jpegQuality;
+    private final long maxPixels;
+
+    @Autowired
+    public ProfileImageVariantGenerator(
+            @Value("${customer.profile-image.variants.threads:0}") int threads,
+            @Value("${customer.profile-image.variants.queue-capacity:64}") int queueCapacity,
+            @Value("${customer.profile-image.variants.jpeg-quality:0.8}") float jpegQuality,
+            @Value("${customer.profile-image.variants.max-pixels:40000000}") long maxPixels) {
+        this(boundedExecutor(
+                        threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                        queueCapacity),
+                jpegQuality,
+                maxPixels);
+    }
+
+    ProfileImageVariantGenerator(ExecutorService executor, float jpegQuality, long maxPixels) {
+        this.executor = executor;
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+    }
+
+    private static ExecutorService boundedExecutor(int threads, int queueCapacity) {
+        return new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "profile-image-variants");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    /**
+     * Completes with an empty map when the source is not an image ImageIO
+     * can decode, in which case callers fall back to the original.
+     */
+    public CompletableFuture<Map<ProfileImageSize, byte[]>> generate(InputStreamSource source) {
+        return CompletableFuture
+                .supplyAsync(() -> resize(source), executor)
+                .thenCompose(this::encode);
+    }
+
+    private Map<ProfileImageSize, BufferedImage> resize(InputStreamSource source) {
+        BufferedImage image = decode(source);
+        if (image == null) {
+            return Map.of();
+        }
+        // every variant is scaled down from the next larger one
+        Map<ProfileImageSize, BufferedImage> resized = new EnumMap<>(ProfileImageSize.class);
+        for (ProfileImageSize size : VARIANTS) {
+            image = scaleDown(image, size.getMaxDimension());
+            resized.put(size, image);
+        }
+        return resized;
+    }
+
+    private CompletableFuture<Map<ProfileImageSize, byte[]>> encode(
+            Map<ProfileImageSize, BufferedImage> images) {
+        Map<ProfileImageSize, CompletableFuture<byte[]>> encoded = new EnumMap<>(ProfileImageSize.class);
+        images.forEach((size, image) -> encoded.put(
+                size, CompletableFuture.supplyAsync(() -> toJpeg(image), executor)));
+        return CompletableFuture
+                .allOf(encoded.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<ProfileImageSize, byte[]> variants = new EnumMap<>(ProfileImageSize.class);
+                    encoded.forEach((size, bytes) -> variants.put(size, bytes.join()));
+                    return variants;
+                });
+    }
+
+    /**
+     * Width and height from the image header, without decoding any pixels.
+     * Empty when ImageIO cannot read the source.
+     */
+    static Optional<Dimension> readDimensions(InputStreamSource source) {
+        try (InputStream inputStream = source.getInputStream()) {
+            return readDimensions(inputStream);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * {@link #readDimensions(InputStreamSource)} from a stream the caller
+     * keeps reading afterwards; it is left open and positioned somewhere
+     * after the header.
+     */
+    static Optional<Dimension> readDimensions(InputStream inputStream) {
+        // closing the image stream leaves the underlying stream open
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return Optional.empty();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                return Optional.of(new Dimension(reader.getWidth(0), reader.getHeight(0)));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private BufferedImage decode(InputStreamSource source) {
+        try (InputStream inputStream = source.getInputStream();
+             ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                // check the header before allocating pixels for a decompression bomb
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static BufferedImage scaleDown(BufferedImage source, int maxDimension) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = source;
+        // halving in steps keeps bilinear filtering from dropping detail
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            if (current != source || source.getType() != BufferedImage.TYPE_INT_RGB
+                    || width != source.getWidth() || height != source.getHeight()) {
+                current = draw(current, width, height);
+            }
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING,
+                    RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG has no alpha channel, so transparent areas become white
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] toJpeg(BufferedImage image) {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,13 @@
+package com.amigoscode.customer;
+
+public enum Role {
+    USER,
+    ADMIN;
+
+    /**
+     * The authority the role is granted as, and issued in tokens as.
+     */
+    public String authority() {
+        return "ROLE_" + name();
+    }
+}
@@ -0,0 +1,11 @@
+package com.amigoscode.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+public class RequestedRangeNotSatisfiableException extends RuntimeException {
+    public RequestedRangeNotSatisfiableException(String message) {
+        super(message);
+    }
+}
@@ -1,30 +1,37 @@
 package com.amigoscode.jwt;
 
-import com.amigoscode.customer.CustomerUserDetailsService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Authenticates requests from the access token alone. Tokens live for
+ * minutes, so their subject and scopes are trusted as issued instead of
+ * loading the customer on every request. Revoked tokens are checked
+ * against an in-memory set, see {@link TokenRevocationService}.
+ */
 @Component
 public class JWTAuthenticationFilter extends OncePerRequestFilter {
 
     private final JWTUtil jwtUtil;
-    private final CustomerUserDetailsService customerUserDetailsService;
+    private final TokenRevocationService tokenRevocationService;
 
     public JWTAuthenticationFilter(JWTUtil jwtUtil,
-                                   CustomerUserDetailsService customerUserDetailsService) {
+                                   TokenRevocationService tokenRevocationService) {
         this.jwtUtil = jwtUtil;
-        this.customerUserDetailsService = customerUserDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -41,26 +48,34 @@ public class JWTAuthenticationFilter extends OncePerRequestFilter {
         }
 
         String jwt = authHeader.substring(7);
-        String subject = jwtUtil.getSubject(jwt);
+        Claims claims;
+        try {
+            claims = jwtUtil.getClaims(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            // expired or forged, the request carries on unauthenticated
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String subject = claims.getSubject();
 
         if (subject != null &&
+                !tokenRevocationService.isRevoked(claims.getId()) &&
                 SecurityContextHolder.getContext().getAuthentication() == null){
-            UserDetails userDetails =
-                    customerUserDetailsService.loadUserByUsername(subject);
-            if (jwtUtil.isTokenValid(jwt, userDetails.getUsername())) {
-                UsernamePasswordAuthenticationToken authenticationToken =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
-                authenticationToken.setDetails(
-                        new WebAuthenticationDetailsSource()
-                                .buildDetails(request)
-                );
-                SecurityContextHolder.getContext()
-                        .setAuthentication(authenticationToken);
-            }
+            UsernamePasswordAuthenticationToken authenticationToken =
+                    new UsernamePasswordAuthenticationToken(
+                            subject,
+                            null,
+                            jwtUtil.getScopes(claims)
+                                    .stream()
+                                    .map(SimpleGrantedAuthority::new)
+                                    .toList()
+                    );
+            authenticationToken.setDetails(
+                    new WebAuthenticationDetailsSource()
+                            .buildDetails(request)
+            );
+            SecurityContextHolder.getContext()
+                    .setAuthentication(authenticationToken);
         }
         filterChain.doFilter(request, response);
     }
@@ -4,20 +4,30 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class JWTUtil {
     private static final String SECRET_KEY =
             "foobar_123456789_foobar_123456789_foobar_123456789_foobar_123456789";
 
+    private final Duration accessTokenTtl;
+
+    // short lived, so requests can trust the token without looking the
+    // customer up; refresh tokens (see RefreshTokenService) renew them
+    public JWTUtil(@Value("${jwt.access-token.ttl:15m}") Duration accessTokenTtl) {
+        this.accessTokenTtl = accessTokenTtl;
+    }
+
     public String issueToken (String subject) {
 
         return issueToken(subject, Map.of());
@@ -35,12 +45,13 @@ public class JWTUtil {
         String token = Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
+                // lets the token be revoked before it expires
+                .setId(UUID.randomUUID().toString())
                 .setIssuer("https://amigoscode.com")
                 .setIssuedAt(Date.from(Instant.now()))
                 .setExpiration(
                         Date.from(
-                                Instant.now().plus(15,
-                                        ChronoUnit.DAYS)
+                                Instant.now().plus(accessTokenTtl)
                         )
                 )
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
@@ -54,7 +65,12 @@ public class JWTUtil {
         return claims.getSubject();
     }
 
-    private Claims getClaims(String token){
+    /**
+     * Verifies the signature and expiry of the token.
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is not valid
+     */
+    public Claims getClaims(String token){
         Claims claims = Jwts.parserBuilder()
                 .setSigningKey(getSigningKey())
                 .build()
@@ -68,6 +84,18 @@ public class JWTUtil {
         return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
     }
 
+    public List<String> getScopes(Claims claims) {
+        List<?> scopes = claims.get("scopes", List.class);
+        if (scopes == null) {
+            return List.of();
+        }
+        return scopes.stream().map(String::valueOf).toList();
+    }
+
+    public Duration getAccessTokenTtl() {
+        return accessTokenTtl;
+    }
+
     public boolean isTokenValid(String jwt, String username){
         String subject = getSubject(jwt);
         return subject.equals(username) && !isTokenExpired(jwt);
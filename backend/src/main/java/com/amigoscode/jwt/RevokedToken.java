@@ -0,0 +1,9 @@
+package com.amigoscode.jwt;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record RevokedToken(
+        UUID jti,
+        Instant expiresAt) {
+}
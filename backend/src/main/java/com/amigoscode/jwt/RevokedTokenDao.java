@@ -0,0 +1,62 @@
+package com.amigoscode.jwt;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Access tokens revoked before their expiry (see V8 migration).
+ */
+@Repository
+public class RevokedTokenDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RevokedTokenDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertRevokedToken(RevokedToken revokedToken) {
+        var sql = """
+                INSERT INTO revoked_token(jti, expires_at)
+                VALUES (?, ?)
+                ON CONFLICT (jti) DO NOTHING
+                """;
+        jdbcTemplate.update(sql, revokedToken.jti(), Timestamp.from(revokedToken.expiresAt()));
+    }
+
+    public List<RevokedToken> selectRevokedTokens(Instant now) {
+        var sql = """
+                SELECT jti, expires_at
+                FROM revoked_token
+                WHERE expires_at > ?
+                """;
+        return jdbcTemplate.query(sql,
+                (rs, rowNum) -> new RevokedToken(
+                        rs.getObject("jti", UUID.class),
+                        rs.getTimestamp("expires_at").toInstant()),
+                Timestamp.from(now));
+    }
+
+    /**
+     * Removes up to {@code limit} rows of tokens that have expired, which
+     * would be rejected anyway.
+     */
+    public int deleteExpiredTokens(Instant now, int limit) {
+        var sql = """
+                DELETE FROM revoked_token
+                WHERE jti IN (
+                    SELECT jti
+                    FROM revoked_token
+                    WHERE expires_at <= ?
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED
+                )
+                """;
+        return jdbcTemplate.update(sql, Timestamp.from(now), limit);
+    }
+}
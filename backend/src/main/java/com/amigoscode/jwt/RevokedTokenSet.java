@@ -0,0 +1,236 @@
+package com.amigoscode.jwt;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * The ids of revoked tokens that have not expired yet. Ids are UUIDs kept
+ * as two longs in an open addressing table, 16 bytes per entry at most
+ * half full, and looked up under an optimistic read that costs a couple
+ * of volatile reads when nothing is being written. A timing wheel with
+ * one slot per tick drops every id once its token has expired, so the
+ * set only ever holds the tokens revoked within one token lifetime.
+ */
+class RevokedTokenSet {
+
+    private static final int MIN_CAPACITY = 16;
+    // slot entries are (most significant bits, least significant bits, expiry millis)
+    private static final int ENTRY_LONGS = 3;
+
+    private final StampedLock lock = new StampedLock();
+    private final long tickMillis;
+    private final long[][] wheel;
+    private final int[] wheelSizes;
+    private long currentTick;
+
+    // pairs of longs, (0, 0) marks a free slot; random UUIDs never are zero
+    private long[] keys = new long[MIN_CAPACITY * 2];
+    private volatile int size;
+
+    RevokedTokenSet(long tickMillis, int wheelSlots, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.wheel = new long[wheelSlots][];
+        this.wheelSizes = new int[wheelSlots];
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    boolean contains(UUID id) {
+        if (size == 0) {
+            return false;
+        }
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        long stamp = lock.tryOptimisticRead();
+        boolean found = find(keys, msb, lsb) >= 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = find(keys, msb, lsb) >= 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Adds the id until {@code expiresAtMillis}. Ids that have already
+     * expired are not added, since their tokens are rejected anyway.
+     */
+    void add(UUID id, long expiresAtMillis) {
+        long stamp = lock.writeLock();
+        try {
+            // the first tick at or after the expiry, when the id can go
+            long expiryTick = -Math.floorDiv(-expiresAtMillis, tickMillis);
+            if (expiryTick <= currentTick) {
+                return;
+            }
+            long msb = id.getMostSignificantBits();
+            long lsb = id.getLeastSignificantBits();
+            if (find(keys, msb, lsb) >= 0) {
+                return;
+            }
+            if ((size + 1) * 2 > keys.length / 2) {
+                keys = rehash(keys, keys.length * 2);
+            }
+            insert(keys, msb, lsb);
+            size++;
+            schedule((int) Math.floorMod(expiryTick, (long) wheel.length), msb, lsb, expiresAtMillis);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Turns the wheel to {@code nowMillis}, dropping the ids of every token
+     * expired by then. Ids further out than one turn of the wheel come
+     * round again and stay until their own expiry.
+     */
+    void advance(long nowMillis) {
+        long stamp = lock.writeLock();
+        try {
+            long nowTick = nowMillis / tickMillis;
+            long ticks = Math.min(nowTick - currentTick, wheel.length);
+            for (long tick = nowTick - ticks + 1; tick <= nowTick; tick++) {
+                expire((int) Math.floorMod(tick, (long) wheel.length), nowMillis);
+            }
+            currentTick = Math.max(currentTick, nowTick);
+            if (keys.length > MIN_CAPACITY * 2 && size * 8 < keys.length / 2) {
+                keys = rehash(keys, Math.max(MIN_CAPACITY * 2, keys.length / 2));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void clear() {
+        long stamp = lock.writeLock();
+        try {
+            keys = new long[MIN_CAPACITY * 2];
+            Arrays.fill(wheel, null);
+            Arrays.fill(wheelSizes, 0);
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void schedule(int slot, long msb, long lsb, long expiresAtMillis) {
+        long[] entries = wheel[slot];
+        int offset = wheelSizes[slot] * ENTRY_LONGS;
+        if (entries == null) {
+            entries = new long[4 * ENTRY_LONGS];
+        } else if (offset == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[offset] = msb;
+        entries[offset + 1] = lsb;
+        entries[offset + 2] = expiresAtMillis;
+        wheel[slot] = entries;
+        wheelSizes[slot]++;
+    }
+
+    private void expire(int slot, long nowMillis) {
+        long[] entries = wheel[slot];
+        int kept = 0;
+        for (int i = 0; i < wheelSizes[slot]; i++) {
+            int offset = i * ENTRY_LONGS;
+            if (entries[offset + 2] <= nowMillis) {
+                remove(entries[offset], entries[offset + 1]);
+            } else {
+                System.arraycopy(entries, offset, entries, kept * ENTRY_LONGS, ENTRY_LONGS);
+                kept++;
+            }
+        }
+        wheelSizes[slot] = kept;
+        if (kept == 0) {
+            wheel[slot] = null;
+        }
+    }
+
+    private void remove(long msb, long lsb) {
+        int index = find(keys, msb, lsb);
+        if (index < 0) {
+            return;
+        }
+        int mask = keys.length / 2 - 1;
+        // backward shift deletion keeps probe sequences unbroken without tombstones
+        int free = index;
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            long nextMsb = keys[next * 2];
+            long nextLsb = keys[next * 2 + 1];
+            if (nextMsb == 0 && nextLsb == 0) {
+                break;
+            }
+            int home = home(nextMsb, nextLsb, mask);
+            boolean staysPut = free <= next
+                    ? free < home && home <= next
+                    : free < home || home <= next;
+            if (!staysPut) {
+                keys[free * 2] = nextMsb;
+                keys[free * 2 + 1] = nextLsb;
+                free = next;
+            }
+        }
+        keys[free * 2] = 0;
+        keys[free * 2 + 1] = 0;
+        size--;
+    }
+
+    private static int find(long[] keys, long msb, long lsb) {
+        int slots = keys.length / 2;
+        int mask = slots - 1;
+        int index = home(msb, lsb, mask);
+        // bounded, so a read racing a resize cannot spin forever
+        for (int probes = 0; probes < slots; probes++) {
+            long slotMsb = keys[index * 2];
+            long slotLsb = keys[index * 2 + 1];
+            if (slotMsb == msb && slotLsb == lsb) {
+                return index;
+            }
+            if (slotMsb == 0 && slotLsb == 0) {
+                return -1;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static void insert(long[] keys, long msb, long lsb) {
+        int mask = keys.length / 2 - 1;
+        int index = home(msb, lsb, mask);
+        while (keys[index * 2] != 0 || keys[index * 2 + 1] != 0) {
+            index = (index + 1) & mask;
+        }
+        keys[index * 2] = msb;
+        keys[index * 2 + 1] = lsb;
+    }
+
+    private static long[] rehash(long[] keys, int length) {
+        long[] rehashed = new long[length];
+        for (int i = 0; i < keys.length; i += 2) {
+            if (keys[i] != 0 || keys[i + 1] != 0) {
+                insert(rehashed, keys[i], keys[i + 1]);
+            }
+        }
+        return rehashed;
+    }
+
+    private static int home(long msb, long lsb, int mask) {
+        // finalizer of MurmurHash3, spreads the bits of both halves
+        long hash = msb ^ lsb;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+}
@@ -0,0 +1,122 @@
+package com.amigoscode.jwt;
+
+import com.amigoscode.notify.PgNotificationHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Revokes access tokens by their jti before they expire. Revocations are
+ * stored in revoked_token and every node holds the unexpired ones in a
+ * {@link RevokedTokenSet}, so checking a request never touches the
+ * database. Other nodes learn of a revocation through the token_revoked
+ * trigger (see V8 migration) and reload the table whenever their
+ * listener (re)connects.
+ */
+@Service
+public class TokenRevocationService implements PgNotificationHandler {
+
+    static final String CHANNEL = "token_revoked";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenRevocationService.class);
+    private static final int EXPIRY_BATCH_SIZE = 1000;
+
+    private final RevokedTokenDao revokedTokenDao;
+    private final RevokedTokenSet revokedTokens;
+    private final Clock clock;
+
+    @Autowired
+    public TokenRevocationService(
+            RevokedTokenDao revokedTokenDao,
+            @Value("${jwt.revocation.tick:1s}") Duration tick,
+            @Value("${jwt.access-token.ttl:15m}") Duration accessTokenTtl) {
+        this(revokedTokenDao, tick, accessTokenTtl, Clock.systemUTC());
+    }
+
+    TokenRevocationService(RevokedTokenDao revokedTokenDao,
+                           Duration tick,
+                           Duration accessTokenTtl,
+                           Clock clock) {
+        this.revokedTokenDao = revokedTokenDao;
+        this.clock = clock;
+        // one turn of the wheel covers a token lifetime
+        int wheelSlots = Math.toIntExact(accessTokenTtl.toMillis() / tick.toMillis() + 1);
+        this.revokedTokens = new RevokedTokenSet(tick.toMillis(), wheelSlots, clock.millis());
+    }
+
+    public void revoke(String jti, Instant expiresAt) {
+        RevokedToken revokedToken = new RevokedToken(UUID.fromString(jti), expiresAt);
+        revokedTokenDao.insertRevokedToken(revokedToken);
+        // this node does not wait for its own notification
+        revokedTokens.add(revokedToken.jti(), expiresAt.toEpochMilli());
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || revokedTokens.size() == 0) {
+            return false;
+        }
+        try {
+            return revokedTokens.contains(UUID.fromString(jti));
+        } catch (IllegalArgumentException e) {
+            // every token we issue has a UUID jti
+            return false;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.tick:1s}")
+    public void advance() {
+        revokedTokens.advance(clock.millis());
+    }
+
+    @Scheduled(
+            initialDelayString = "${jwt.revocation.cleanup-interval:PT1H}",
+            fixedDelayString = "${jwt.revocation.cleanup-interval:PT1H}")
+    public void deleteExpiredTokens() {
+        int deleted;
+        do {
+            deleted = revokedTokenDao.deleteExpiredTokens(clock.instant(), EXPIRY_BATCH_SIZE);
+        } while (deleted == EXPIRY_BATCH_SIZE);
+    }
+
+    @Override
+    public String channel() {
+        return CHANNEL;
+    }
+
+    @Override
+    public void onNotification(String payload) {
+        Arrays.stream(payload.split(","))
+                .map(token -> token.split(":"))
+                .forEach(token -> revokedTokens.add(
+                        UUID.fromString(token[0]), Long.parseLong(token[1])));
+    }
+
+    /**
+     * Revocations cannot be undone, so nothing is dropped here; reloading
+     * the table adds whatever was missed while no connection listened.
+     */
+    @Override
+    public void onListenerReset() {
+        try {
+            revokedTokenDao.selectRevokedTokens(clock.instant())
+                    .forEach(token -> revokedTokens.add(
+                            token.jti(), token.expiresAt().toEpochMilli()));
+        } catch (DataAccessException e) {
+            LOGGER.error("Failed to load revoked tokens", e);
+        }
+    }
+
+    int size() {
+        return revokedTokens.size();
+    }
+}
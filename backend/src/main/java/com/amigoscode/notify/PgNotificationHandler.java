@@ -0,0 +1,19 @@
+package com.amigoscode.notify;
+
+/**
+ * Receives Postgres NOTIFY payloads for a single channel.
+ * Implementations are picked up by {@link PgNotificationListener}.
+ */
+public interface PgNotificationHandler {
+
+    String channel();
+
+    void onNotification(String payload);
+
+    /**
+     * Called whenever the listener (re)connects. Notifications sent while
+     * no connection was listening are lost, so anything derived from them
+     * must be dropped here.
+     */
+    void onListenerReset();
+}
@@ -0,0 +1,127 @@
+package com.amigoscode.notify;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Holds one dedicated (non pooled) connection that LISTENs on the channels
+ * of all registered {@link PgNotificationHandler}s and dispatches incoming
+ * notifications to them on a single background thread.
+ */
+@Component
+public class PgNotificationListener implements SmartLifecycle {
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(PgNotificationListener.class);
+
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long MAX_RECONNECT_BACKOFF_MILLIS = 30_000;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final Map<String, List<PgNotificationHandler>> handlersByChannel;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public PgNotificationListener(@Value("${spring.datasource.url}") String url,
+                                  @Value("${spring.datasource.username}") String username,
+                                  @Value("${spring.datasource.password}") String password,
+                                  List<PgNotificationHandler> handlers) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.handlersByChannel = handlers.stream()
+                .collect(Collectors.groupingBy(PgNotificationHandler::channel));
+    }
+
+    @Override
+    public void start() {
+        if (handlersByChannel.isEmpty()) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::listen, "pg-notification-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        long backoff = 1_000;
+        while (running) {
+            try (Connection connection =
+                         DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    for (String channel : handlersByChannel.keySet()) {
+                        statement.execute("LISTEN " + channel);
+                    }
+                }
+                handlersByChannel.values().stream()
+                        .flatMap(List::stream)
+                        .forEach(PgNotificationHandler::onListenerReset);
+                backoff = 1_000;
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications =
+                            pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification);
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.warn("Lost notification connection, reconnecting in {} ms", backoff, e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_RECONNECT_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void dispatch(PGNotification notification) {
+        for (PgNotificationHandler handler :
+                handlersByChannel.getOrDefault(notification.getName(), List.of())) {
+            try {
+                handler.onNotification(notification.getParameter());
+            } catch (RuntimeException e) {
+                LOGGER.error("Handler for channel {} failed", notification.getName(), e);
+            }
+        }
+    }
+}
@@ -1,20 +1,65 @@
 package com.amigoscode.s3;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Local object store standing in for S3. Each bucket is a
+ * {@link FakeS3Bucket}: keys are sharded over directories, writes land in
+ * a temp file and are moved into place, and size, ETag and content type are
+ * kept in per shard index files. Safe to share between threads.
+ */
 public class FakeS3 implements S3Client {
     // For Mac and Windows users
     private static final String PATH =
             System.getProperty("user.home") + "/.amigoscode/s3";
+    // next to the numbered part files of an upload
+    private static final String CONTENT_TYPE_FILE = "content-type";
+
+    private final Path root;
+    private final FakeS3Faults faults;
+    private final ConcurrentMap<String, FakeS3Bucket> buckets = new ConcurrentHashMap<>();
+
+    public FakeS3() {
+        this(Path.of(PATH));
+    }
+
+    public FakeS3(Path root) {
+        this(root, FakeS3Faults.NONE);
+    }
+
+    public FakeS3(FakeS3Faults faults) {
+        this(Path.of(PATH), faults);
+    }
+
+    public FakeS3(Path root, FakeS3Faults faults) {
+        this.root = root;
+        this.faults = faults;
+    }
 
     @Override
     public String serviceName() {
@@ -29,18 +74,28 @@ public class FakeS3 implements S3Client {
     @Override
     public PutObjectResponse putObject(PutObjectRequest putObjectRequest, RequestBody requestBody)
             throws AwsServiceException, SdkClientException {
-        InputStream inputStream = requestBody.contentStreamProvider().newStream();
-        try {
-            byte[] bytes = IOUtils.toByteArray(inputStream);
-            FileUtils.writeByteArrayToFile(
-                    new File(
-                            buildObjectFullPath(
-                                    putObjectRequest.bucket(),
-                                    putObjectRequest.key())
-                    ),
-                    bytes
-            );
-            return PutObjectResponse.builder().build();
+        faults.beforeRequest();
+        FakeS3Bucket bucket = bucket(putObjectRequest.bucket());
+        String contentType = putObjectRequest.contentType() != null
+                ? putObjectRequest.contentType()
+                : requestBody.contentType();
+        try (InputStream inputStream = faults.throttle(
+                requestBody.contentStreamProvider().newStream())) {
+            Path temp = bucket.createTempFile(putObjectRequest.key());
+            try {
+                MessageDigest md5 = md5();
+                try (OutputStream outputStream = new DigestOutputStream(
+                        Files.newOutputStream(temp), md5)) {
+                    inputStream.transferTo(outputStream);
+                }
+                FakeS3Bucket.ObjectMetadata metadata = bucket.put(
+                        putObjectRequest.key(), temp, eTag(md5.digest()), contentType);
+                return PutObjectResponse.builder()
+                        .eTag(metadata.eTag())
+                        .build();
+            } finally {
+                Files.deleteIfExists(temp);
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -49,21 +104,414 @@ public class FakeS3 implements S3Client {
     @Override
     public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest getObjectRequest)
             throws AwsServiceException, SdkClientException {
+        faults.beforeRequest();
+        FakeS3Bucket.OpenObject object = openObject(getObjectRequest.bucket(), getObjectRequest.key());
+        FileChannel channel = object.channel();
         try {
-            FileInputStream fileInputStream = new FileInputStream(
-                    buildObjectFullPath(getObjectRequest.bucket(), getObjectRequest.key())
-            );
+            long size = object.metadata().size();
+            long[] range = resolveRange(getObjectRequest.range(), size);
+            channel.position(range[0]);
             return new ResponseInputStream<>(
-                    GetObjectResponse.builder().build(),
-                    fileInputStream
+                    buildGetObjectResponse(getObjectRequest, object.metadata(), range),
+                    faults.throttle(new BoundedInputStream(
+                            Channels.newInputStream(channel),
+                            range[1] - range[0] + 1
+                    ))
             );
-        } catch (FileNotFoundException e) {
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public <ReturnT> ReturnT getObject(GetObjectRequest getObjectRequest,
+                                       ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer)
+            throws AwsServiceException, SdkClientException {
+        ResponseInputStream<GetObjectResponse> object = getObject(getObjectRequest);
+        try (object) {
+            return responseTransformer.transform(
+                    object.response(),
+                    AbortableInputStream.create(object)
+            );
+        } catch (Exception e) {
+            throw SdkClientException.create("Failed to transform response", e);
+        }
+    }
+
+    @Override
+    public GetObjectResponse getObject(GetObjectRequest getObjectRequest, Path destinationPath)
+            throws AwsServiceException, SdkClientException {
+        faults.beforeRequest();
+        FakeS3Bucket.OpenObject object = openObject(getObjectRequest.bucket(), getObjectRequest.key());
+        try (FileChannel source = object.channel();
+             FileChannel destination = FileChannel.open(destinationPath,
+                     StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long[] range = resolveRange(getObjectRequest.range(), object.metadata().size());
+            long position = range[0];
+            long remaining = range[1] - range[0] + 1;
+            while (remaining > 0) {
+                long transferred = source.transferTo(position, remaining, destination);
+                position += transferred;
+                remaining -= transferred;
+            }
+            faults.throttle(range[1] - range[0] + 1);
+            return buildGetObjectResponse(getObjectRequest, object.metadata(), range);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest headObjectRequest)
+            throws AwsServiceException, SdkClientException {
+        faults.beforeRequest();
+        FakeS3Bucket.ObjectMetadata metadata =
+                bucket(headObjectRequest.bucket()).head(headObjectRequest.key());
+        if (metadata == null) {
+            throw noSuchKey(headObjectRequest.key());
+        }
+        return HeadObjectResponse.builder()
+                .acceptRanges("bytes")
+                .contentLength(metadata.size())
+                .contentType(metadata.contentType())
+                .eTag(metadata.eTag())
+                .lastModified(metadata.lastModified())
+                .build();
+    }
+
+    /**
+     * Lists keys in lexicographic order. The continuation token is simply
+     * the last key of the previous page.
+     */
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request listObjectsV2Request)
+            throws AwsServiceException, SdkClientException {
+        faults.beforeRequest();
+        String prefix = listObjectsV2Request.prefix() != null ? listObjectsV2Request.prefix() : "";
+        String after = listObjectsV2Request.continuationToken() != null
+                ? listObjectsV2Request.continuationToken()
+                : listObjectsV2Request.startAfter();
+        int maxKeys = listObjectsV2Request.maxKeys() != null ? listObjectsV2Request.maxKeys() : 1000;
+
+        List<FakeS3Bucket.ObjectMetadata> page =
+                bucket(listObjectsV2Request.bucket()).list(prefix, after, maxKeys + 1);
+        boolean truncated = page.size() > maxKeys;
+        List<S3Object> contents = (truncated ? page.subList(0, maxKeys) : page).stream()
+                .map(metadata -> S3Object.builder()
+                        .key(metadata.key())
+                        .size(metadata.size())
+                        .eTag(metadata.eTag())
+                        .lastModified(metadata.lastModified())
+                        .build())
+                .toList();
+        return ListObjectsV2Response.builder()
+                .name(listObjectsV2Request.bucket())
+                .prefix(listObjectsV2Request.prefix())
+                .maxKeys(maxKeys)
+                .keyCount(contents.size())
+                .contents(contents)
+                .isTruncated(truncated)
+                .nextContinuationToken(truncated ? contents.get(maxKeys - 1).key() : null)
+                .build();
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest deleteObjectRequest)
+            throws AwsServiceException, SdkClientException {
+        faults.beforeRequest();
+        try {
+            bucket(deleteObjectRequest.bucket()).delete(deleteObjectRequest.key());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return DeleteObjectResponse.builder().build();
+    }
+
+    @Override
+    public DeleteObjectsResponse deleteObjects(DeleteObjectsRequest deleteObjectsRequest)
+            throws AwsServiceException, SdkClientException {
+        faults.beforeRequest();
+        FakeS3Bucket bucket = bucket(deleteObjectsRequest.bucket());
+        List<DeletedObject> deleted = new ArrayList<>();
+        List<S3Error> errors = new ArrayList<>();
+        for (ObjectIdentifier object : deleteObjectsRequest.delete().objects()) {
+            try {
+                // like S3, deleting a missing key counts as deleted
+                bucket.delete(object.key());
+                deleted.add(DeletedObject.builder().key(object.key()).build());
+            } catch (IOException e) {
+                errors.add(S3Error.builder()
+                        .key(object.key())
+                        .code("InternalError")
+                        .message(e.getMessage())
+                        .build());
+            }
+        }
+        return DeleteObjectsResponse.builder()
+                .deleted(deleted)
+                .errors(errors)
+                .build();
+    }
+
+    @Override
+    public CreateMultipartUploadResponse createMultipartUpload(
+            CreateMultipartUploadRequest createMultipartUploadRequest)
+            throws AwsServiceException, SdkClientException {
+        faults.beforeRequest();
+        String uploadId = UUID.randomUUID().toString();
+        try {
+            Path uploadPath = Files.createDirectories(buildUploadPath(uploadId));
+            // applied to the object on completion, as S3 does
+            if (createMultipartUploadRequest.contentType() != null) {
+                Files.writeString(uploadPath.resolve(CONTENT_TYPE_FILE),
+                        createMultipartUploadRequest.contentType(), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return CreateMultipartUploadResponse.builder()
+                .bucket(createMultipartUploadRequest.bucket())
+                .key(createMultipartUploadRequest.key())
+                .uploadId(uploadId)
+                .build();
+    }
+
+    @Override
+    public UploadPartResponse uploadPart(UploadPartRequest uploadPartRequest,
+                                         RequestBody requestBody)
+            throws AwsServiceException, SdkClientException {
+        faults.beforeRequest();
+        Path uploadPath = existingUploadPath(uploadPartRequest.uploadId());
+        Path partPath = uploadPath.resolve("%05d".formatted(uploadPartRequest.partNumber()));
+        MessageDigest md5 = md5();
+        try (InputStream inputStream = new DigestInputStream(
+                faults.throttle(requestBody.contentStreamProvider().newStream()), md5)) {
+            writeAtomically(partPath, inputStream);
+            return UploadPartResponse.builder()
+                    .eTag(eTag(md5.digest()))
+                    .build();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Concatenates the parts into the object. As on S3, the ETag is the MD5
+     * of the parts' MD5s followed by the number of parts.
+     */
+    @Override
+    public CompleteMultipartUploadResponse completeMultipartUpload(
+            CompleteMultipartUploadRequest completeMultipartUploadRequest)
+            throws AwsServiceException, SdkClientException {
+        faults.beforeRequest();
+        Path uploadPath = existingUploadPath(completeMultipartUploadRequest.uploadId());
+        FakeS3Bucket bucket = bucket(completeMultipartUploadRequest.bucket());
+        List<CompletedPart> parts = completeMultipartUploadRequest.multipartUpload().parts();
+        String eTag;
+        try {
+            Path contentTypeFile = uploadPath.resolve(CONTENT_TYPE_FILE);
+            String contentType = Files.exists(contentTypeFile)
+                    ? Files.readString(contentTypeFile, StandardCharsets.UTF_8)
+                    : null;
+            Path temp = bucket.createTempFile(completeMultipartUploadRequest.key());
+            try {
+                MessageDigest partDigests = md5();
+                try (OutputStream destination = Files.newOutputStream(temp)) {
+                    for (CompletedPart part : parts) {
+                        Path partPath = uploadPath.resolve("%05d".formatted(part.partNumber()));
+                        MessageDigest partDigest = md5();
+                        try (InputStream source = new DigestInputStream(
+                                Files.newInputStream(partPath), partDigest)) {
+                            source.transferTo(destination);
+                        }
+                        partDigests.update(partDigest.digest());
+                    }
+                }
+                eTag = bucket.put(
+                        completeMultipartUploadRequest.key(),
+                        temp,
+                        eTag(partDigests.digest(), parts.size()),
+                        contentType).eTag();
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            FileUtils.deleteDirectory(uploadPath.toFile());
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        return CompleteMultipartUploadResponse.builder()
+                .bucket(completeMultipartUploadRequest.bucket())
+                .key(completeMultipartUploadRequest.key())
+                .eTag(eTag)
+                .build();
     }
 
-    private String buildObjectFullPath(String bucketName, String key)
-    {
-        return PATH + "/" + bucketName + "/" + key;
-    };
+    @Override
+    public AbortMultipartUploadResponse abortMultipartUpload(
+            AbortMultipartUploadRequest abortMultipartUploadRequest)
+            throws AwsServiceException, SdkClientException {
+        faults.beforeRequest();
+        Path uploadPath = existingUploadPath(abortMultipartUploadRequest.uploadId());
+        try {
+            FileUtils.deleteDirectory(uploadPath.toFile());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    private Path buildUploadPath(String uploadId) {
+        return root.resolve(".multipart").resolve(uploadId);
+    }
+
+    private Path existingUploadPath(String uploadId) {
+        Path uploadPath = buildUploadPath(uploadId);
+        if (!Files.isDirectory(uploadPath)) {
+            throw NoSuchUploadException.builder()
+                    .statusCode(404)
+                    .message("The specified upload does not exist: " + uploadId)
+                    .build();
+        }
+        return uploadPath;
+    }
+
+    private static GetObjectResponse buildGetObjectResponse(GetObjectRequest request,
+                                                            FakeS3Bucket.ObjectMetadata metadata,
+                                                            long[] range) {
+        GetObjectResponse.Builder response = GetObjectResponse.builder()
+                .acceptRanges("bytes")
+                .contentLength(range[1] - range[0] + 1)
+                .contentType(metadata.contentType())
+                .eTag(metadata.eTag())
+                .lastModified(metadata.lastModified());
+        if (request.range() != null) {
+            response.contentRange("bytes %d-%d/%d".formatted(range[0], range[1], metadata.size()));
+        }
+        return response.build();
+    }
+
+    /**
+     * Resolves an HTTP style range header against the object size into an
+     * inclusive {start, end} pair. Like S3, syntactically invalid ranges are
+     * ignored and the whole object is returned.
+     */
+    static long[] resolveRange(String range, long size) {
+        long[] whole = {0, size - 1};
+        if (range == null || !range.startsWith("bytes=") || range.contains(",")) {
+            return whole;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return whole;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                long suffixLength = Long.parseLong(last);
+                if (suffixLength == 0) {
+                    throw invalidRange(range);
+                }
+                start = Math.max(0, size - suffixLength);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = size - 1;
+                if (!last.isEmpty()) {
+                    long requestedEnd = Long.parseLong(last);
+                    if (requestedEnd < start) {
+                        return whole;
+                    }
+                    end = Math.min(requestedEnd, end);
+                }
+            }
+            if (start >= size) {
+                throw invalidRange(range);
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return whole;
+        }
+    }
+
+    private static void writeAtomically(Path path, InputStream inputStream) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path temp = Files.createTempFile(path.getParent(), ".upload-", ".tmp");
+        try {
+            Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, path,
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static NoSuchKeyException noSuchKey(String key) {
+        return (NoSuchKeyException) NoSuchKeyException.builder()
+                .statusCode(404)
+                .message("The specified key does not exist: " + key)
+                .build();
+    }
+
+    private static S3Exception invalidRange(String range) {
+        return (S3Exception) S3Exception.builder()
+                .statusCode(416)
+                .message("The requested range is not satisfiable: " + range)
+                .build();
+    }
+
+    private FakeS3Bucket bucket(String bucketName) {
+        return buckets.computeIfAbsent(bucketName, name -> {
+            try {
+                return FakeS3Bucket.open(root.resolve(name));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private FakeS3Bucket.OpenObject openObject(String bucketName, String key) {
+        FakeS3Bucket.OpenObject object;
+        try {
+            object = bucket(bucketName).open(key);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (object == null) {
+            throw noSuchKey(key);
+        }
+        return object;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing left to clean up
+        }
+    }
+
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String eTag(byte[] md5) {
+        return "\"" + HexFormat.of().formatHex(md5) + "\"";
+    }
+
+    private static String eTag(byte[] md5OfPartMd5s, int parts) {
+        return "\"" + HexFormat.of().formatHex(md5OfPartMd5s) + "-" + parts + "\"";
+    }
 }
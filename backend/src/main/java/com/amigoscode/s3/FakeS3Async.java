@@ -0,0 +1,84 @@
+package com.amigoscode.s3;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.utils.async.InputStreamConsumingPublisher;
+import software.amazon.awssdk.utils.async.InputStreamSubscriber;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Async stand-in for S3 that runs the blocking {@link FakeS3} calls on its
+ * own small pool, so that callers see the same non-blocking contract as
+ * with the real {@link S3AsyncClient}.
+ */
+public class FakeS3Async implements S3AsyncClient {
+
+    private final S3Client delegate;
+    private final ExecutorService executor;
+
+    public FakeS3Async(S3Client delegate) {
+        this(delegate, Executors.newFixedThreadPool(16, runnable -> {
+            Thread thread = new Thread(runnable, "fake-s3-async");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    FakeS3Async(S3Client delegate, ExecutorService executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public String serviceName() {
+        return "fake";
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    @Override
+    public CompletableFuture<PutObjectResponse> putObject(PutObjectRequest putObjectRequest,
+                                                          AsyncRequestBody requestBody) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (InputStreamSubscriber inputStream = new InputStreamSubscriber()) {
+                requestBody.subscribe(inputStream);
+                RequestBody body = requestBody.contentLength()
+                        .map(contentLength -> RequestBody.fromInputStream(inputStream, contentLength))
+                        .orElseGet(() -> RequestBody.fromContentProvider(
+                                () -> inputStream, "application/octet-stream"));
+                return delegate.putObject(putObjectRequest, body);
+            }
+        }, executor);
+    }
+
+    @Override
+    public <ReturnT> CompletableFuture<ReturnT> getObject(
+            GetObjectRequest getObjectRequest,
+            AsyncResponseTransformer<GetObjectResponse, ReturnT> asyncResponseTransformer) {
+        CompletableFuture<ReturnT> result = asyncResponseTransformer.prepare();
+        executor.execute(() -> {
+            try (ResponseInputStream<GetObjectResponse> object =
+                         delegate.getObject(getObjectRequest)) {
+                asyncResponseTransformer.onResponse(object.response());
+                InputStreamConsumingPublisher publisher = new InputStreamConsumingPublisher();
+                asyncResponseTransformer.onStream(SdkPublisher.adapt(publisher));
+                publisher.doBlockingWrite(object);
+            } catch (Throwable e) {
+                asyncResponseTransformer.exceptionOccurred(e);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,253 @@
+package com.amigoscode.s3;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * One bucket of {@link FakeS3} on disk. Objects are spread over 256 shard
+ * directories picked by the SHA-256 of their key and stored under that hash,
+ * so any key is a valid file name. Every shard has an index file with the
+ * key, size, ETag, last modified time and content type of its objects; the
+ * whole index is also kept in memory, sorted by key, for listing.
+ *
+ * <p>Writers replace the object file and the shard index under the shard's
+ * write lock, readers open the object under its read lock, so a reader
+ * always gets metadata and content of the same version.
+ */
+final class FakeS3Bucket {
+
+    private static final int SHARDS = 256;
+    private static final String INDEX = "index";
+    private static final String TEMP_PREFIX = ".upload-";
+
+    record ObjectMetadata(String key,
+                          long size,
+                          String eTag,
+                          Instant lastModified,
+                          String contentType) {
+    }
+
+    record OpenObject(ObjectMetadata metadata, FileChannel channel) {
+    }
+
+    private final Path directory;
+    private final NavigableMap<String, ObjectMetadata> objects = new ConcurrentSkipListMap<>();
+    private final List<Map<String, ObjectMetadata>> shards = new ArrayList<>(SHARDS);
+    private final ReadWriteLock[] locks = new ReadWriteLock[SHARDS];
+
+    private FakeS3Bucket(Path directory) {
+        this.directory = directory;
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shards.add(new HashMap<>());
+            locks[shard] = new ReentrantReadWriteLock();
+        }
+    }
+
+    static FakeS3Bucket open(Path directory) throws IOException {
+        FakeS3Bucket bucket = new FakeS3Bucket(directory);
+        for (int shard = 0; shard < SHARDS; shard++) {
+            bucket.load(shard);
+        }
+        return bucket;
+    }
+
+    /**
+     * Creates an empty file next to where the object will live, so that
+     * {@link #put} can move it into place atomically.
+     */
+    Path createTempFile(String key) throws IOException {
+        Path shardDirectory = shardDirectory(shard(key));
+        Files.createDirectories(shardDirectory);
+        return Files.createTempFile(shardDirectory, TEMP_PREFIX, ".tmp");
+    }
+
+    ObjectMetadata put(String key, Path temp, String eTag, String contentType) throws IOException {
+        int shard = shard(key);
+        Lock lock = locks[shard].writeLock();
+        lock.lock();
+        try {
+            ObjectMetadata metadata = new ObjectMetadata(
+                    key, Files.size(temp), eTag, Instant.now(), contentType);
+            Files.move(temp, objectPath(key),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            shards.get(shard).put(key, metadata);
+            objects.put(key, metadata);
+            writeIndex(shard);
+            return metadata;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the object with an open channel, or null if there is no such
+     * key. The channel keeps reading this version even if the object is
+     * replaced or deleted afterwards.
+     */
+    OpenObject open(String key) throws IOException {
+        Lock lock = locks[shard(key)].readLock();
+        lock.lock();
+        try {
+            ObjectMetadata metadata = objects.get(key);
+            if (metadata == null) {
+                return null;
+            }
+            return new OpenObject(metadata, FileChannel.open(objectPath(key), StandardOpenOption.READ));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    ObjectMetadata head(String key) {
+        return objects.get(key);
+    }
+
+    boolean delete(String key) throws IOException {
+        int shard = shard(key);
+        Lock lock = locks[shard].writeLock();
+        lock.lock();
+        try {
+            if (shards.get(shard).remove(key) == null) {
+                return false;
+            }
+            objects.remove(key);
+            // index first: a crash in between leaves an unlisted file, not a dangling entry
+            writeIndex(shard);
+            Files.deleteIfExists(objectPath(key));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} objects whose key starts with
+     * {@code prefix} and sorts after {@code startAfter}, in key order.
+     */
+    List<ObjectMetadata> list(String prefix, String startAfter, int limit) {
+        SortedMap<String, ObjectMetadata> tail = startAfter != null && startAfter.compareTo(prefix) >= 0
+                ? objects.tailMap(startAfter, false)
+                : objects.tailMap(prefix, true);
+        List<ObjectMetadata> page = new ArrayList<>(Math.min(limit, 1024));
+        for (ObjectMetadata metadata : tail.values()) {
+            if (page.size() == limit || !metadata.key().startsWith(prefix)) {
+                break;
+            }
+            page.add(metadata);
+        }
+        return page;
+    }
+
+    private void load(int shard) throws IOException {
+        Path shardDirectory = shardDirectory(shard);
+        if (!Files.isDirectory(shardDirectory)) {
+            return;
+        }
+        // leftovers of writes that never completed
+        try (Stream<Path> files = Files.list(shardDirectory)) {
+            for (Path file : files.toList()) {
+                if (file.getFileName().toString().startsWith(TEMP_PREFIX)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        Path index = shardDirectory.resolve(INDEX);
+        if (!Files.exists(index)) {
+            return;
+        }
+        for (String line : Files.readAllLines(index, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            String key = decode(fields[0]);
+            if (!Files.exists(objectPath(key))) {
+                continue;
+            }
+            ObjectMetadata metadata = new ObjectMetadata(
+                    key,
+                    Long.parseLong(fields[1]),
+                    fields[2],
+                    Instant.parse(fields[3]),
+                    fields[4].isEmpty() ? null : decode(fields[4]));
+            shards.get(shard).put(key, metadata);
+            objects.put(key, metadata);
+        }
+    }
+
+    private void writeIndex(int shard) throws IOException {
+        Path shardDirectory = shardDirectory(shard);
+        Files.createDirectories(shardDirectory);
+        Path temp = Files.createTempFile(shardDirectory, TEMP_PREFIX, ".index");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+                 BufferedWriter writer = new BufferedWriter(
+                         Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+                for (ObjectMetadata metadata : shards.get(shard).values()) {
+                    writer.write(encode(metadata.key()));
+                    writer.write('\t');
+                    writer.write(Long.toString(metadata.size()));
+                    writer.write('\t');
+                    writer.write(metadata.eTag());
+                    writer.write('\t');
+                    writer.write(metadata.lastModified().toString());
+                    writer.write('\t');
+                    writer.write(metadata.contentType() == null ? "" : encode(metadata.contentType()));
+                    writer.newLine();
+                }
+                writer.flush();
+                channel.force(false);
+            }
+            Files.move(temp, shardDirectory.resolve(INDEX),
+                    StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path objectPath(String key) {
+        return shardDirectory(shard(key)).resolve(hash(key));
+    }
+
+    private Path shardDirectory(int shard) {
+        return directory.resolve("%02x".formatted(shard));
+    }
+
+    private static int shard(String key) {
+        return Integer.parseInt(hash(key).substring(0, 2), 16);
+    }
+
+    private static String hash(String key) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,128 @@
+package com.amigoscode.s3;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriUtils;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+
+/**
+ * Serves presigned URLs handed out while {@code aws.s3.mock} is on, so that
+ * direct-to-S3 uploads and downloads can be exercised locally against
+ * {@link FakeS3}. Requests without a valid signature of
+ * {@link FakeS3PresignedUrls} for the object are refused.
+ */
+@RestController
+@RequestMapping("fake-s3")
+@ConditionalOnProperty(name = "aws.s3.mock", havingValue = "true")
+public class FakeS3Controller {
+
+    private final S3Client s3Client;
+    private final FakeS3PresignedUrls presignedUrls;
+    private final Clock clock;
+
+    public FakeS3Controller(S3Client s3Client, FakeS3PresignedUrls presignedUrls) {
+        this(s3Client, presignedUrls, Clock.systemUTC());
+    }
+
+    FakeS3Controller(S3Client s3Client, FakeS3PresignedUrls presignedUrls, Clock clock) {
+        this.s3Client = s3Client;
+        this.presignedUrls = presignedUrls;
+        this.clock = clock;
+    }
+
+    @PutMapping("{bucket}/**")
+    public ResponseEntity<Void> putObject(@PathVariable("bucket") String bucket,
+                                          HttpServletRequest request) throws IOException {
+        String key = key(bucket, request);
+        if (!presignedUrls.isValid(request, bucket, key, clock)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        long contentLength = request.getContentLengthLong();
+        if (contentLength < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).build();
+        }
+        try (InputStream inputStream = request.getInputStream()) {
+            s3Client.putObject(
+                    PutObjectRequest.builder()
+                            .bucket(bucket)
+                            .key(key)
+                            .contentType(request.getContentType())
+                            .build(),
+                    RequestBody.fromInputStream(inputStream, contentLength)
+            );
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("{bucket}/**")
+    public ResponseEntity<StreamingResponseBody> getObject(
+            @PathVariable("bucket") String bucket,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            HttpServletRequest request) {
+        String key = key(bucket, request);
+        if (!presignedUrls.isValid(request, bucket, key, clock)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        ResponseInputStream<GetObjectResponse> object;
+        try {
+            object = s3Client.getObject(GetObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .range(range)
+                    .build());
+        } catch (NoSuchKeyException e) {
+            return ResponseEntity.notFound().build();
+        } catch (S3Exception e) {
+            return ResponseEntity.status(e.statusCode()).build();
+        }
+
+        GetObjectResponse response = object.response();
+        ResponseEntity.BodyBuilder builder = ResponseEntity
+                .status(response.contentRange() != null ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentLength(response.contentLength());
+        if (response.eTag() != null) {
+            builder.eTag(response.eTag());
+        }
+        if (response.contentType() != null) {
+            builder.header(HttpHeaders.CONTENT_TYPE, response.contentType());
+        }
+        if (response.contentRange() != null) {
+            builder.header(HttpHeaders.CONTENT_RANGE, response.contentRange());
+        }
+        return builder.body(outputStream -> {
+            try (object) {
+                object.transferTo(outputStream);
+            }
+        });
+    }
+
+    private static String key(String bucket, HttpServletRequest request) {
+        String prefix = request.getContextPath() + "/fake-s3/" + bucket + "/";
+        return UriUtils.decode(
+                request.getRequestURI().substring(prefix.length()),
+                StandardCharsets.UTF_8);
+    }
+}
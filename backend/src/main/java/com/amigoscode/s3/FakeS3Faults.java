@@ -0,0 +1,179 @@
+package com.amigoscode.s3;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+
+/**
+ * Latency, bandwidth and error injection for {@link FakeS3}. Latency is
+ * log-normal, fitted so that its median and 99th percentile match the
+ * configured values, which gives the long tail real S3 requests show.
+ * Failed requests throw the same exceptions S3 returns when it sheds load.
+ */
+public class FakeS3Faults {
+
+    public static final FakeS3Faults NONE = new FakeS3Faults(null, null, null, 0, 0, null);
+
+    // z-score of the 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.326348;
+
+    private final double mu;
+    private final double sigma;
+    private final long maxLatencyNanos;
+    private final long bytesPerSecond;
+    private final double errorRate;
+    private final RandomGenerator random;
+
+    FakeS3Faults(Duration latencyMedian,
+                 Duration latencyP99,
+                 Duration latencyMax,
+                 long bytesPerSecond,
+                 double errorRate,
+                 Long seed) {
+        if (latencyMedian != null && !latencyMedian.isZero()) {
+            Duration p99 = latencyP99 != null ? latencyP99 : latencyMedian;
+            if (p99.compareTo(latencyMedian) < 0) {
+                throw new IllegalArgumentException("latency p99 must not be below the median");
+            }
+            this.mu = Math.log(latencyMedian.toNanos());
+            this.sigma = (Math.log(p99.toNanos()) - mu) / Z_99;
+            this.maxLatencyNanos = latencyMax != null ? latencyMax.toNanos() : p99.toNanos() * 10;
+        } else {
+            this.mu = Double.NEGATIVE_INFINITY;
+            this.sigma = 0;
+            this.maxLatencyNanos = 0;
+        }
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("error rate must be between 0 and 1");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+        this.errorRate = errorRate;
+        // a seeded java.util.Random is thread safe and repeats the same run
+        this.random = seed != null ? new Random(seed) : null;
+    }
+
+    public static FakeS3Faults from(FakeS3Properties properties) {
+        return new FakeS3Faults(
+                properties.effectiveLatencyMedian(),
+                properties.effectiveLatencyP99(),
+                properties.getLatency().getMax(),
+                properties.effectiveBandwidth() != null
+                        ? properties.effectiveBandwidth().toBytes()
+                        : 0,
+                properties.effectiveErrorRate(),
+                properties.getSeed());
+    }
+
+    /**
+     * Waits for the sampled latency, then fails the request with the
+     * configured probability.
+     */
+    void beforeRequest() {
+        long latencyNanos = sampleLatencyNanos();
+        if (latencyNanos > 0) {
+            sleep(latencyNanos);
+        }
+        if (errorRate > 0 && random().nextDouble() < errorRate) {
+            throw error();
+        }
+    }
+
+    long sampleLatencyNanos() {
+        if (mu == Double.NEGATIVE_INFINITY) {
+            return 0;
+        }
+        double sample = Math.exp(mu + sigma * random().nextGaussian());
+        return Math.min((long) sample, maxLatencyNanos);
+    }
+
+    /**
+     * Limits how fast a single request body or response can be read.
+     */
+    InputStream throttle(InputStream inputStream) {
+        if (bytesPerSecond <= 0) {
+            return inputStream;
+        }
+        return new FilterInputStream(inputStream) {
+            private final long start = System.nanoTime();
+            private long bytes;
+
+            @Override
+            public int read() throws IOException {
+                int read = super.read();
+                if (read >= 0) {
+                    pace(1);
+                }
+                return read;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                // small chunks so a large buffer does not turn into one long stall
+                int read = super.read(b, off, (int) Math.min(len, Math.max(1, bytesPerSecond / 20)));
+                if (read > 0) {
+                    pace(read);
+                }
+                return read;
+            }
+
+            private void pace(int read) {
+                bytes += read;
+                long due = start + bytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    sleep(wait);
+                }
+            }
+        };
+    }
+
+    /**
+     * Waits as long as transferring {@code bytes} would take, for transfers
+     * that do not go through a stream.
+     */
+    void throttle(long bytes) {
+        if (bytesPerSecond > 0 && bytes > 0) {
+            sleep(bytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+        }
+    }
+
+    private S3Exception error() {
+        boolean slowDown = random().nextBoolean();
+        int statusCode = slowDown ? 503 : 500;
+        String errorCode = slowDown ? "SlowDown" : "InternalError";
+        String message = slowDown
+                ? "Please reduce your request rate."
+                : "We encountered an internal error. Please try again.";
+        return (S3Exception) S3Exception.builder()
+                .statusCode(statusCode)
+                .message(message)
+                .awsErrorDetails(AwsErrorDetails.builder()
+                        .errorCode(errorCode)
+                        .errorMessage(message)
+                        .serviceName("S3")
+                        .build())
+                .build();
+    }
+
+    private RandomGenerator random() {
+        return random != null ? random : ThreadLocalRandom.current();
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Interrupted while simulating S3 latency", e);
+        }
+    }
+}
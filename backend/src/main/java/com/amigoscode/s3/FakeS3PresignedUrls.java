@@ -0,0 +1,127 @@
+package com.amigoscode.s3;
+
+import jakarta.servlet.http.HttpServletRequest;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.auth.signer.AwsS3V4Signer;
+import software.amazon.awssdk.auth.signer.params.Aws4PresignerParams;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Signs the presigned URLs handed out while {@code aws.s3.mock} is on and
+ * checks them when they come back to {@link FakeS3Controller}. The URL is
+ * signed again with the same credentials, so only URLs this application
+ * presigned, for the method, bucket, key and headers they were presigned
+ * for, and only until they expire, are let through.
+ */
+public class FakeS3PresignedUrls {
+
+    private static final DateTimeFormatter AMZ_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    // added by the signer itself
+    private static final Set<String> SIGNING_PARAMETERS = Set.of(
+            "X-Amz-Algorithm",
+            "X-Amz-Credential",
+            "X-Amz-Date",
+            "X-Amz-Expires",
+            "X-Amz-SignedHeaders",
+            "X-Amz-Signature");
+
+    private final AwsBasicCredentials credentials;
+    private final Region region;
+    private final URI endpoint;
+    private final AwsS3V4Signer signer = AwsS3V4Signer.create();
+
+    public FakeS3PresignedUrls(AwsBasicCredentials credentials, Region region, URI endpoint) {
+        this.credentials = credentials;
+        this.region = region;
+        this.endpoint = endpoint;
+    }
+
+    public AwsCredentialsProvider credentialsProvider() {
+        return StaticCredentialsProvider.create(credentials);
+    }
+
+    public URI getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Whether the request carries a signature of this application for the
+     * object and has not expired by {@code clock}.
+     */
+    boolean isValid(HttpServletRequest request, String bucket, String key, Clock clock) {
+        String date = request.getParameter("X-Amz-Date");
+        String expires = request.getParameter("X-Amz-Expires");
+        String signedHeaders = request.getParameter("X-Amz-SignedHeaders");
+        String signature = request.getParameter("X-Amz-Signature");
+        if (date == null || expires == null || signedHeaders == null || signature == null) {
+            return false;
+        }
+        Instant signedAt;
+        Instant expiry;
+        try {
+            signedAt = Instant.from(AMZ_DATE.parse(date));
+            expiry = signedAt.plusSeconds(Long.parseLong(expires));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return false;
+        }
+        if (clock.instant().isAfter(expiry)) {
+            return false;
+        }
+
+        SdkHttpFullRequest.Builder unsigned = SdkHttpFullRequest.builder()
+                .method(SdkHttpMethod.fromValue(request.getMethod()))
+                .uri(endpoint)
+                .encodedPath(endpoint.getRawPath() + "/" + bucket + "/"
+                        + SdkHttpUtils.urlEncodeIgnoreSlashes(key));
+        for (String name : Collections.list(request.getParameterNames())) {
+            if (!SIGNING_PARAMETERS.contains(name)) {
+                for (String value : request.getParameterValues(name)) {
+                    unsigned.appendRawQueryParameter(name, value);
+                }
+            }
+        }
+        // the signer adds host from the endpoint the URL was presigned for
+        for (String name : signedHeaders.split(";")) {
+            if (name.equals("host")) {
+                continue;
+            }
+            String value = request.getHeader(name);
+            if (value == null) {
+                return false;
+            }
+            unsigned.putHeader(name, value);
+        }
+
+        SdkHttpFullRequest presigned = signer.presign(unsigned.build(), Aws4PresignerParams.builder()
+                .awsCredentials(credentials)
+                .signingName("s3")
+                .signingRegion(region)
+                .doubleUrlEncode(false)
+                .normalizePath(false)
+                .signingClockOverride(Clock.fixed(signedAt, ZoneOffset.UTC))
+                .expirationTime(expiry)
+                .build());
+        return presigned.firstMatchingRawQueryParameter("X-Amz-Signature")
+                .map(expected -> MessageDigest.isEqual(
+                        expected.getBytes(StandardCharsets.US_ASCII),
+                        signature.getBytes(StandardCharsets.US_ASCII)))
+                .orElse(false);
+    }
+}
@@ -0,0 +1,128 @@
+package com.amigoscode.s3;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * How {@link FakeS3} misbehaves while {@code aws.s3.mock} is on. A profile
+ * supplies defaults, any property set explicitly overrides them.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "aws.s3.fake")
+public class FakeS3Properties {
+
+    public enum Profile {
+        // median, p99, bandwidth per request, error rate
+        NONE(null, null, null, 0),
+        SLOW(Duration.ofMillis(80), Duration.ofMillis(800), DataSize.ofMegabytes(2), 0),
+        FLAKY(Duration.ofMillis(30), Duration.ofMillis(300), null, 0.05);
+
+        private final Duration latencyMedian;
+        private final Duration latencyP99;
+        private final DataSize bandwidth;
+        private final double errorRate;
+
+        Profile(Duration latencyMedian, Duration latencyP99, DataSize bandwidth, double errorRate) {
+            this.latencyMedian = latencyMedian;
+            this.latencyP99 = latencyP99;
+            this.bandwidth = bandwidth;
+            this.errorRate = errorRate;
+        }
+    }
+
+    public static class Latency {
+        private Duration median;
+        private Duration p99;
+        private Duration max;
+
+        public Duration getMedian() {
+            return median;
+        }
+
+        public void setMedian(Duration median) {
+            this.median = median;
+        }
+
+        public Duration getP99() {
+            return p99;
+        }
+
+        public void setP99(Duration p99) {
+            this.p99 = p99;
+        }
+
+        public Duration getMax() {
+            return max;
+        }
+
+        public void setMax(Duration max) {
+            this.max = max;
+        }
+    }
+
+    private Profile profile = Profile.NONE;
+    private Latency latency = new Latency();
+    // per request, like a single connection
+    private DataSize bandwidth;
+    private Double errorRate;
+    private Long seed;
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(Profile profile) {
+        this.profile = profile;
+    }
+
+    public Latency getLatency() {
+        return latency;
+    }
+
+    public void setLatency(Latency latency) {
+        this.latency = latency;
+    }
+
+    public DataSize getBandwidth() {
+        return bandwidth;
+    }
+
+    public void setBandwidth(DataSize bandwidth) {
+        this.bandwidth = bandwidth;
+    }
+
+    public Double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(Double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    Duration effectiveLatencyMedian() {
+        return latency.getMedian() != null ? latency.getMedian() : profile.latencyMedian;
+    }
+
+    Duration effectiveLatencyP99() {
+        return latency.getP99() != null ? latency.getP99() : profile.latencyP99;
+    }
+
+    DataSize effectiveBandwidth() {
+        return bandwidth != null ? bandwidth : profile.bandwidth;
+    }
+
+    double effectiveErrorRate() {
+        return errorRate != null ? errorRate : profile.errorRate;
+    }
+}
@@ -0,0 +1,209 @@
+package com.amigoscode.s3;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.exception.ApiCallAttemptTimeoutException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class S3AsyncService {
+
+    private final S3AsyncClient s3AsyncClient;
+    // AsyncRequestBody.fromInputStream needs somewhere to do its blocking reads
+    private final ExecutorService inputStreamExecutor;
+    // fires read deadlines and hedges
+    private final ScheduledExecutorService scheduler;
+    private final Duration readTimeout;
+    // null when hedging is off
+    private final S3HedgingPolicy hedgingPolicy;
+    private final Counter reads;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+    private final Counter timeouts;
+
+    @Autowired
+    public S3AsyncService(S3AsyncClient s3AsyncClient,
+                          MeterRegistry meterRegistry,
+                          @Value("${aws.s3.async.input-stream-threads:8}") int inputStreamThreads,
+                          @Value("${aws.s3.timeouts.read:5s}") Duration readTimeout,
+                          @Value("${aws.s3.hedging.enabled:true}") boolean hedging,
+                          @Value("${aws.s3.hedging.percentile:0.95}") double hedgingPercentile,
+                          @Value("${aws.s3.hedging.min-delay:10ms}") Duration hedgingMinDelay,
+                          @Value("${aws.s3.hedging.initial-delay:200ms}") Duration hedgingInitialDelay,
+                          @Value("${aws.s3.hedging.budget:0.05}") double hedgingBudget) {
+        this(s3AsyncClient,
+                meterRegistry,
+                Executors.newFixedThreadPool(inputStreamThreads),
+                Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "s3-read-scheduler");
+                    thread.setDaemon(true);
+                    return thread;
+                }),
+                readTimeout,
+                hedging
+                        ? new S3HedgingPolicy(hedgingPercentile, hedgingMinDelay,
+                        hedgingInitialDelay, hedgingBudget)
+                        : null);
+    }
+
+    S3AsyncService(S3AsyncClient s3AsyncClient,
+                   MeterRegistry meterRegistry,
+                   ExecutorService inputStreamExecutor,
+                   ScheduledExecutorService scheduler,
+                   Duration readTimeout,
+                   S3HedgingPolicy hedgingPolicy) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.inputStreamExecutor = inputStreamExecutor;
+        this.scheduler = scheduler;
+        this.readTimeout = readTimeout;
+        this.hedgingPolicy = hedgingPolicy;
+        this.reads = meterRegistry.counter("s3.get.requests");
+        this.hedges = meterRegistry.counter("s3.get.hedges");
+        this.hedgeWins = meterRegistry.counter("s3.get.hedge.wins");
+        this.timeouts = meterRegistry.counter("s3.get.timeouts");
+        if (hedgingPolicy != null) {
+            meterRegistry.gauge("s3.get.hedge.delay", hedgingPolicy,
+                    policy -> policy.delayNanos() / 1e9);
+        }
+    }
+
+    public CompletableFuture<Void> putObject(String bucketName,
+                                             String key,
+                                             InputStream inputStream,
+                                             long contentLength,
+                                             String contentType) {
+        PutObjectRequest objectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentLength(contentLength)
+                .contentType(contentType)
+                .build();
+        return s3AsyncClient.putObject(
+                objectRequest,
+                AsyncRequestBody.fromInputStream(inputStream, contentLength, inputStreamExecutor)
+        ).thenApply(response -> null);
+    }
+
+    public CompletableFuture<ResponseInputStream<GetObjectResponse>> getObjectStream(
+            String bucketName,
+            String key,
+            String range) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range(range)
+                .build();
+
+        return hedgedRead(getObjectRequest);
+    }
+
+    /**
+     * Completes with the first response of the original request or, if that
+     * is slower than the hedging policy's delay, of a duplicate. The other
+     * request is cancelled. Fails with {@link ApiCallTimeoutException} when
+     * neither has responded within the read timeout.
+     */
+    private CompletableFuture<ResponseInputStream<GetObjectResponse>> hedgedRead(
+            GetObjectRequest getObjectRequest) {
+        reads.increment();
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> result = new CompletableFuture<>();
+        List<CompletableFuture<?>> attempts = new CopyOnWriteArrayList<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        attempt(getObjectRequest, result, attempts, pending, false);
+
+        List<ScheduledFuture<?>> timers = new CopyOnWriteArrayList<>();
+        timers.add(scheduler.schedule(
+                () -> result.completeExceptionally(
+                        ApiCallTimeoutException.create(readTimeout.toMillis())),
+                readTimeout.toNanos(), TimeUnit.NANOSECONDS));
+        if (hedgingPolicy != null) {
+            hedgingPolicy.onRead();
+            timers.add(scheduler.schedule(() -> {
+                if (!result.isDone() && hedgingPolicy.tryAcquireHedge()) {
+                    hedges.increment();
+                    pending.incrementAndGet();
+                    attempt(getObjectRequest, result, attempts, pending, true);
+                }
+            }, hedgingPolicy.delayNanos(), TimeUnit.NANOSECONDS));
+        }
+
+        result.whenComplete((object, e) -> {
+            timers.forEach(timer -> timer.cancel(false));
+            // the winner is already done, so this only aborts the loser
+            attempts.forEach(attempt -> attempt.cancel(true));
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof ApiCallTimeoutException
+                    || cause instanceof ApiCallAttemptTimeoutException) {
+                timeouts.increment();
+            }
+        });
+        return result;
+    }
+
+    private void attempt(GetObjectRequest getObjectRequest,
+                         CompletableFuture<ResponseInputStream<GetObjectResponse>> result,
+                         List<CompletableFuture<?>> attempts,
+                         AtomicInteger pending,
+                         boolean hedge) {
+        long start = System.nanoTime();
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> attempt = s3AsyncClient.getObject(
+                getObjectRequest,
+                AsyncResponseTransformer.toBlockingInputStream()
+        );
+        attempts.add(attempt);
+        attempt.whenComplete((object, e) -> {
+            if (e == null) {
+                if (hedgingPolicy != null) {
+                    hedgingPolicy.record(System.nanoTime() - start);
+                }
+                // count the win before anyone waiting on the result can look
+                if (hedge && !result.isDone()) {
+                    hedgeWins.increment();
+                }
+                if (!result.complete(object)) {
+                    closeQuietly(object);
+                }
+            } else if (pending.decrementAndGet() == 0 || !isRetryable(e)) {
+                // a 404 or 416 will not go away by waiting for the other request
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        return !(cause instanceof S3Exception s3Exception) || s3Exception.statusCode() >= 500;
+    }
+
+    private static void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        inputStreamExecutor.shutdown();
+        scheduler.shutdownNow();
+    }
+}
@@ -3,10 +3,17 @@ package com.amigoscode.s3;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
 
 @Configuration
 public class S3Config {
@@ -16,14 +23,77 @@ public class S3Config {
     @Value("${aws.s3.mock}")
     private boolean mock;
 
+    @Value("${aws.s3.fake.endpoint:http://localhost:${server.port:8080}/fake-s3}")
+    private URI fakeEndpoint;
+
+    // random unless set, so nobody else can presign URLs for the fake
+    @Value("${aws.s3.fake.secret-key:}")
+    private String fakeSecretKey;
+
+    @Value("${aws.s3.timeouts.api-call:30s}")
+    private Duration apiCallTimeout;
+
+    @Value("${aws.s3.timeouts.api-call-attempt:10s}")
+    private Duration apiCallAttemptTimeout;
+
     @Bean
-    public S3Client s3Client() {
+    public S3Client s3Client(FakeS3Properties fakeS3Properties) {
         if (mock) {
-            return new FakeS3();
+            return new FakeS3(FakeS3Faults.from(fakeS3Properties));
         }
         S3Client client = S3Client.builder()
                 .region(Region.of(awsRegion))
+                .overrideConfiguration(timeouts())
                 .build();
         return client;
     }
+
+    @Bean
+    public S3AsyncClient s3AsyncClient(S3Client s3Client) {
+        if (mock) {
+            return new FakeS3Async(s3Client);
+        }
+        S3AsyncClient client = S3AsyncClient.builder()
+                .region(Region.of(awsRegion))
+                .overrideConfiguration(timeouts())
+                .build();
+        return client;
+    }
+
+    @Bean
+    public FakeS3PresignedUrls fakeS3PresignedUrls() {
+        String secretKey = fakeSecretKey.isBlank()
+                ? UUID.randomUUID().toString()
+                : fakeSecretKey;
+        return new FakeS3PresignedUrls(
+                AwsBasicCredentials.create("fake", secretKey),
+                Region.of(awsRegion),
+                fakeEndpoint);
+    }
+
+    @Bean
+    public S3Presigner s3Presigner(FakeS3PresignedUrls fakeS3PresignedUrls) {
+        if (mock) {
+            // signing is local, FakeS3Controller checks the signatures
+            return S3Presigner.builder()
+                    .region(Region.of(awsRegion))
+                    .credentialsProvider(fakeS3PresignedUrls.credentialsProvider())
+                    .endpointOverride(fakeS3PresignedUrls.getEndpoint())
+                    .serviceConfiguration(S3Configuration.builder()
+                            .pathStyleAccessEnabled(true)
+                            .build())
+                    .build();
+        }
+        return S3Presigner.builder()
+                .region(Region.of(awsRegion))
+                .build();
+    }
+
+    // without these a stalled connection blocks the caller for good
+    private ClientOverrideConfiguration timeouts() {
+        return ClientOverrideConfiguration.builder()
+                .apiCallTimeout(apiCallTimeout)
+                .apiCallAttemptTimeout(apiCallAttemptTimeout)
+                .build();
+    }
 }
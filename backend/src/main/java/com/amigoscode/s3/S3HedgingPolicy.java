@@ -0,0 +1,70 @@
+package com.amigoscode.s3;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Decides when a read that has not answered yet gets a duplicate request.
+ * The delay is a percentile of recent read latencies, and duplicates are
+ * paid for out of a budget that grows by a fixed fraction of every read,
+ * so extra load stays bounded even when S3 as a whole slows down.
+ */
+class S3HedgingPolicy {
+
+    private static final int WINDOW = 1024;
+    private static final int RECOMPUTE_EVERY = 64;
+    private static final int MIN_SAMPLES = 100;
+    // budget is kept in millionths of a hedge so it adds up exactly
+    private static final long TOKEN = 1_000_000;
+    // hedges that may be issued back to back after a quiet period
+    private static final long MAX_TOKENS = 10 * TOKEN;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long budget;
+    private final long[] samples = new long[WINDOW];
+    private long recorded;
+    private long tokens;
+    private volatile long delayNanos;
+
+    S3HedgingPolicy(double percentile, Duration minDelay, Duration initialDelay, double budget) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("hedging percentile must be between 0 and 1");
+        }
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.budget = Math.round(budget * TOKEN);
+        this.delayNanos = Math.max(minDelayNanos, initialDelay.toNanos());
+    }
+
+    /**
+     * How long to wait for the first request before sending a duplicate.
+     * Until enough reads have been seen this is the initial delay.
+     */
+    long delayNanos() {
+        return delayNanos;
+    }
+
+    synchronized void record(long latencyNanos) {
+        samples[(int) (recorded % WINDOW)] = latencyNanos;
+        recorded++;
+        if (recorded >= MIN_SAMPLES && recorded % RECOMPUTE_EVERY == 0) {
+            long[] window = Arrays.copyOf(samples, (int) Math.min(recorded, WINDOW));
+            Arrays.sort(window);
+            int index = Math.min(window.length - 1, (int) Math.ceil(percentile * window.length) - 1);
+            delayNanos = Math.max(minDelayNanos, window[index]);
+        }
+    }
+
+    synchronized void onRead() {
+        tokens = Math.min(MAX_TOKENS, tokens + budget);
+    }
+
+    synchronized boolean tryAcquireHedge() {
+        if (tokens < TOKEN) {
+            return false;
+        }
+        tokens -= TOKEN;
+        return true;
+    }
+}
@@ -0,0 +1,176 @@
+package com.amigoscode.s3;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Uploads large objects as S3 multipart uploads. The input is split into
+ * fixed size parts which are uploaded concurrently on a shared, bounded
+ * pool; at most {@code concurrency} parts of one upload are buffered at a
+ * time. Each part is retried on its own, and the whole upload is aborted
+ * if any part finally fails.
+ */
+@Service
+public class S3MultipartUploader {
+
+    private final S3Client s3Client;
+    private final long threshold;
+    private final int partSize;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final ExecutorService executor;
+
+    @Autowired
+    public S3MultipartUploader(S3Client s3Client,
+                               @Value("${aws.s3.multipart.threshold:16MB}") DataSize threshold,
+                               @Value("${aws.s3.multipart.part-size:8MB}") DataSize partSize,
+                               @Value("${aws.s3.multipart.concurrency:4}") int concurrency,
+                               @Value("${aws.s3.multipart.threads:8}") int threads,
+                               @Value("${aws.s3.multipart.max-attempts:3}") int maxAttempts) {
+        this(s3Client, threshold.toBytes(), Math.toIntExact(partSize.toBytes()),
+                concurrency, maxAttempts, Executors.newFixedThreadPool(threads));
+    }
+
+    S3MultipartUploader(S3Client s3Client,
+                        long threshold,
+                        int partSize,
+                        int concurrency,
+                        int maxAttempts,
+                        ExecutorService executor) {
+        this.s3Client = s3Client;
+        this.threshold = threshold;
+        this.partSize = partSize;
+        this.concurrency = concurrency;
+        this.maxAttempts = maxAttempts;
+        this.executor = executor;
+    }
+
+    public boolean isMultipart(long contentLength) {
+        return contentLength >= threshold;
+    }
+
+    public void upload(String bucketName, String key, InputStream inputStream, String contentType) {
+        String uploadId = s3Client.createMultipartUpload(
+                CreateMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .build()
+        ).uploadId();
+
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        Semaphore bufferedParts = new Semaphore(concurrency);
+        try {
+            int partNumber = 1;
+            byte[] part;
+            do {
+                bufferedParts.acquire();
+                part = inputStream.readNBytes(partSize);
+                if (part.length == 0 && partNumber > 1) {
+                    bufferedParts.release();
+                    break;
+                }
+                failFast(parts);
+
+                UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber++)
+                        .contentLength((long) part.length)
+                        .build();
+                byte[] bytes = part;
+                parts.add(CompletableFuture
+                        .supplyAsync(() -> uploadPart(uploadPartRequest, bytes), executor)
+                        .whenComplete((completedPart, e) -> bufferedParts.release()));
+            } while (part.length == partSize);
+
+            List<CompletedPart> completedParts = new ArrayList<>();
+            for (CompletableFuture<CompletedPart> completedPart : parts) {
+                completedParts.add(completedPart.join());
+            }
+
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder()
+                            .parts(completedParts)
+                            .build())
+                    .build());
+        } catch (Exception e) {
+            parts.forEach(completedPart -> completedPart.cancel(true));
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            throw new RuntimeException("Multipart upload of [%s] failed".formatted(key), cause);
+        }
+    }
+
+    private static void failFast(List<CompletableFuture<CompletedPart>> parts) {
+        for (CompletableFuture<CompletedPart> part : parts) {
+            if (part.isCompletedExceptionally()) {
+                part.join();
+            }
+        }
+    }
+
+    private CompletedPart uploadPart(UploadPartRequest request, byte[] bytes) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                UploadPartResponse response =
+                        s3Client.uploadPart(request, RequestBody.fromBytes(bytes));
+                return CompletedPart.builder()
+                        .partNumber(request.partNumber())
+                        .eTag(response.eTag())
+                        .build();
+            } catch (SdkException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    private static boolean isRetryable(SdkException e) {
+        if (e instanceof S3Exception s3Exception) {
+            int status = s3Exception.statusCode();
+            return status >= 500 || status == 429;
+        }
+        return true;
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(100L << (attempt - 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while retrying part upload");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -4,19 +4,49 @@ import org.springframework.stereotype.Service;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class S3Service {
 
     private final S3Client s3Client;
+    private final S3MultipartUploader multipartUploader;
+    private final S3Presigner s3Presigner;
 
-    public S3Service(S3Client s3Client){
+    public S3Service(S3Client s3Client,
+                     S3MultipartUploader multipartUploader,
+                     S3Presigner s3Presigner){
         this.s3Client = s3Client;
+        this.multipartUploader = multipartUploader;
+        this.s3Presigner = s3Presigner;
     }
 
     public void putObject(String bucketName, String key, byte[] file) {
@@ -27,6 +57,27 @@ public class S3Service {
         s3Client.putObject(objectRequest, RequestBody.fromBytes(file));
     }
 
+    public void putObject(String bucketName,
+                          String key,
+                          InputStream inputStream,
+                          long contentLength,
+                          String contentType) {
+        if (multipartUploader.isMultipart(contentLength)) {
+            multipartUploader.upload(bucketName, key, inputStream, contentType);
+            return;
+        }
+        PutObjectRequest objectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentLength(contentLength)
+                .contentType(contentType)
+                .build();
+        s3Client.putObject(
+                objectRequest,
+                RequestBody.fromInputStream(inputStream, contentLength)
+        );
+    }
+
     public byte[] getObject(String bucketName, String key){
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(bucketName)
@@ -42,4 +93,152 @@ public class S3Service {
             throw new RuntimeException(e);
         }
     }
+
+    public ResponseInputStream<GetObjectResponse> getObjectStream(String bucketName, String key) {
+        return getObjectStream(bucketName, key, null);
+    }
+
+    public ResponseInputStream<GetObjectResponse> getObjectStream(String bucketName,
+                                                                  String key,
+                                                                  String range) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range(range)
+                .build();
+
+        return s3Client.getObject(getObjectRequest);
+    }
+
+    public HeadObjectResponse headObject(String bucketName, String key) {
+        return s3Client.headObject(HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+    }
+
+    public ListObjectsV2Response listObjects(String bucketName,
+                                             String prefix,
+                                             String continuationToken,
+                                             int maxKeys) {
+        return s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .continuationToken(continuationToken)
+                .maxKeys(maxKeys)
+                .build());
+    }
+
+    /**
+     * Deletes up to 1000 keys in one request and returns the keys S3 could
+     * not delete.
+     */
+    public List<S3Error> deleteObjects(String bucketName, List<String> keys) {
+        DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder()
+                        .objects(keys.stream()
+                                .map(key -> ObjectIdentifier.builder().key(key).build())
+                                .toList())
+                        .quiet(true)
+                        .build())
+                .build());
+        return response.errors();
+    }
+
+    /**
+     * Starts a multipart upload whose parts are sent one request at a time,
+     * e.g. by a client resuming an interrupted upload, and returns its id.
+     */
+    public String createMultipartUpload(String bucketName, String key, String contentType) {
+        return s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build()
+        ).uploadId();
+    }
+
+    /**
+     * Uploads, or replaces, one part and returns its ETag.
+     */
+    public String uploadPart(String bucketName,
+                             String key,
+                             String uploadId,
+                             int partNumber,
+                             InputStream inputStream,
+                             long contentLength) {
+        return s3Client.uploadPart(
+                UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength(contentLength)
+                        .build(),
+                RequestBody.fromInputStream(inputStream, contentLength)
+        ).eTag();
+    }
+
+    /**
+     * @param eTags ETag of every part by part number, in ascending order
+     */
+    public void completeMultipartUpload(String bucketName,
+                                        String key,
+                                        String uploadId,
+                                        Map<Integer, String> eTags) {
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder()
+                        .parts(eTags.entrySet().stream()
+                                .map(part -> CompletedPart.builder()
+                                        .partNumber(part.getKey())
+                                        .eTag(part.getValue())
+                                        .build())
+                                .toList())
+                        .build())
+                .build());
+    }
+
+    public void abortMultipartUpload(String bucketName, String key, String uploadId) {
+        s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .uploadId(uploadId)
+                .build());
+    }
+
+    /**
+     * Content type and length are part of the signature, so the client has
+     * to upload exactly what it asked for.
+     */
+    public PresignedPutObjectRequest presignPutObject(String bucketName,
+                                                      String key,
+                                                      String contentType,
+                                                      long contentLength,
+                                                      Duration expiry) {
+        return s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(expiry)
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .contentLength(contentLength)
+                        .build())
+                .build());
+    }
+
+    public PresignedGetObjectRequest presignGetObject(String bucketName,
+                                                      String key,
+                                                      Duration expiry) {
+        return s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(expiry)
+                .getObjectRequest(GetObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .build())
+                .build());
+    }
 }
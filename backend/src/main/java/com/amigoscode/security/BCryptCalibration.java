@@ -0,0 +1,54 @@
+package com.amigoscode.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Picks the BCrypt cost factor for the hardware we run on. One hash at the
+ * lowest allowed cost is timed, and since every extra cost step doubles the
+ * work, the highest cost whose estimated time still fits the target on a
+ * single core is chosen.
+ */
+final class BCryptCalibration {
+
+    private static final int SAMPLES = 3;
+
+    private BCryptCalibration() {
+    }
+
+    static int strengthFor(Duration targetTime, int minStrength, int maxStrength) {
+        return strengthFor(targetTime, minStrength, maxStrength, BCryptCalibration::timeHash);
+    }
+
+    static int strengthFor(Duration targetTime,
+                           int minStrength,
+                           int maxStrength,
+                           IntToLongFunction hashNanos) {
+        if (minStrength < 4 || maxStrength > 31 || minStrength > maxStrength) {
+            throw new IllegalArgumentException("BCrypt strength must be between 4 and 31");
+        }
+        // the fastest sample is the one least disturbed by JIT and other threads
+        long nanos = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            nanos = Math.min(nanos, hashNanos.applyAsLong(minStrength));
+        }
+        long target = targetTime.toNanos();
+        int strength = minStrength;
+        while (strength < maxStrength && nanos * 2 <= target) {
+            nanos *= 2;
+            strength++;
+        }
+        return strength;
+    }
+
+    private static long timeHash(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        String password = UUID.randomUUID().toString();
+        long start = System.nanoTime();
+        encoder.encode(password);
+        return System.nanoTime() - start;
+    }
+}
@@ -34,6 +34,7 @@ public class CorsConfig {
         configuration.setExposedHeaders(exposedHeaders);
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/api/**", configuration);
+        source.registerCorsConfiguration("/fake-s3/**", configuration);
         return source;
     }
 }
@@ -1,6 +1,9 @@
 package com.amigoscode.security;
 
+import com.amigoscode.customer.CustomerOwnerAuthorizationManager;
+import com.amigoscode.customer.Role;
 import com.amigoscode.jwt.JWTAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -20,13 +23,16 @@ public class SecurityFilterChainConfig {
     private final AuthenticationProvider authenticationProvider;
     private final JWTAuthenticationFilter jwtAuthenticationFilter;
     private final AuthenticationEntryPoint authenticationEntryPoint;
+    private final CustomerOwnerAuthorizationManager customerOwnerAuthorizationManager;
 
     public SecurityFilterChainConfig(AuthenticationProvider authenticationProvider,
                                      JWTAuthenticationFilter jwtAuthenticationFilter,
-                                     AuthenticationEntryPoint authenticationEntryPoint) {
+                                     AuthenticationEntryPoint authenticationEntryPoint,
+                                     CustomerOwnerAuthorizationManager customerOwnerAuthorizationManager) {
         this.authenticationProvider = authenticationProvider;
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
         this.authenticationEntryPoint = authenticationEntryPoint;
+        this.customerOwnerAuthorizationManager = customerOwnerAuthorizationManager;
     }
 
     @Bean
@@ -34,16 +40,44 @@ public class SecurityFilterChainConfig {
         http.csrf().disable()
                 .cors(Customizer.withDefaults())
                 .authorizeHttpRequests()
+                // the original REQUEST dispatch was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC)
+                .permitAll()
                 .requestMatchers(HttpMethod.POST,
                         "/api/v1/customers",
-                        "/api/v1/auth/login")
+                        "/api/v1/auth/login",
+                        "/api/v1/auth/refresh")
                 .permitAll()
                 .requestMatchers(HttpMethod.GET,
                         "/ping",
-                        "/api/v1/customers/*/profile-image")
+                        "/api/v1/customers/*/profile-image",
+                        "/api/v1/customers/profile-images",
+                        "/api/v1/customers/*/profile-image/url")
+                .permitAll()
+                .requestMatchers(HttpMethod.HEAD, "/api/v1/customers/*/profile-image")
+                .permitAll()
+                // only mapped with aws.s3.mock, the presigned URL is the credential
+                .requestMatchers(HttpMethod.GET, "/fake-s3/**")
+                .permitAll()
+                .requestMatchers(HttpMethod.PUT, "/fake-s3/**")
                 .permitAll()
                 .requestMatchers(HttpMethod.GET, "/actuator/**")
                 .permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/v1/customers/profile-images/import")
+                .hasRole(Role.ADMIN.name())
+                // everything that changes a customer, and the progress of its uploads
+                .requestMatchers(HttpMethod.PUT,
+                        "/api/v1/customers/{customerId}",
+                        "/api/v1/customers/{customerId}/profile-image/uploads/*")
+                .access(customerOwnerAuthorizationManager)
+                .requestMatchers(HttpMethod.DELETE, "/api/v1/customers/{customerId}")
+                .access(customerOwnerAuthorizationManager)
+                .requestMatchers(HttpMethod.POST, "/api/v1/customers/{customerId}/profile-image/**")
+                .access(customerOwnerAuthorizationManager)
+                .requestMatchers(HttpMethod.GET,
+                        "/api/v1/customers/{customerId}/profile-image/uploads/*",
+                        "/api/v1/customers/{customerId}/profile-image/jobs/*")
+                .access(customerOwnerAuthorizationManager)
                 .anyRequest()
                 .authenticated()
                 .and()
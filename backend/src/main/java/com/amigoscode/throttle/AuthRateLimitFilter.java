@@ -0,0 +1,271 @@
+package com.amigoscode.throttle;
+
+import com.amigoscode.exception.PayloadTooLargeException;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.TooManyRequestsException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limits login and registration before they reach the password
+ * encoder. Clients over their limit are turned away with 429 and
+ * Retry-After after a map lookup and a compare-and-set, instead of
+ * costing a BCrypt round each. The client IP is checked first; the
+ * username is only read from the body once the IP is within its limit.
+ * Bodies the username cannot be read from are turned away as well, since
+ * login still hashes the password of an unknown user.
+ */
+@Component
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    // login and registration bodies are far smaller than this
+    private static final int MAX_PARSED_BODY_BYTES = 16 * 1024;
+
+    private record RouteLimit(String method,
+                              String path,
+                              String usernameField,
+                              StripedRateLimiter perIp,
+                              StripedRateLimiter perUsername,
+                              Counter rejectedByIp,
+                              Counter rejectedByUsername) {
+    }
+
+    private final List<RouteLimit> routes;
+    private final ObjectMapper objectMapper;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public AuthRateLimitFilter(
+            AuthRateLimitProperties properties,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver) {
+        this(properties, objectMapper, meterRegistry, handlerExceptionResolver, System::nanoTime);
+    }
+
+    AuthRateLimitFilter(AuthRateLimitProperties properties,
+                        ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry,
+                        HandlerExceptionResolver handlerExceptionResolver,
+                        LongSupplier nanoClock) {
+        this.objectMapper = objectMapper;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.nanoClock = nanoClock;
+        this.routes = properties.getRoutes().entrySet().stream()
+                .map(entry -> new RouteLimit(
+                        entry.getValue().getMethod(),
+                        entry.getValue().getPath(),
+                        entry.getValue().getUsernameField(),
+                        limiter(entry.getValue().getPerIp(), properties),
+                        entry.getValue().getUsernameField() != null
+                                ? limiter(entry.getValue().getPerUsername(), properties)
+                                : null,
+                        meterRegistry.counter("auth.rate-limit.rejected",
+                                "route", entry.getKey(), "key", "ip"),
+                        meterRegistry.counter("auth.rate-limit.rejected",
+                                "route", entry.getKey(), "key", "username")))
+                .toList();
+    }
+
+    private static StripedRateLimiter limiter(AuthRateLimitProperties.Limit limit,
+                                              AuthRateLimitProperties properties) {
+        if (limit == null) {
+            return null;
+        }
+        return new StripedRateLimiter(limit.getPermits(), limit.getPeriod(), limit.effectiveBurst(),
+                properties.getStripes(), properties.getMaxKeys());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return route(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        RouteLimit route = route(request);
+        long now = nanoClock.getAsLong();
+
+        if (route.perIp() != null) {
+            // the client, as resolved from X-Forwarded-For by the servlet
+            // container when the request came through a trusted proxy
+            long waitNanos = route.perIp().tryAcquire(request.getRemoteAddr(), now);
+            if (waitNanos > 0) {
+                route.rejectedByIp().increment();
+                reject(request, response, waitNanos);
+                return;
+            }
+        }
+
+        if (route.perUsername() != null) {
+            byte[] body = request.getInputStream().readNBytes(MAX_PARSED_BODY_BYTES + 1);
+            if (body.length > MAX_PARSED_BODY_BYTES) {
+                reject(request, response, new PayloadTooLargeException(
+                        "request body is larger than %s bytes".formatted(MAX_PARSED_BODY_BYTES)));
+                return;
+            }
+            String username = username(body, route.usernameField());
+            if (username == null) {
+                reject(request, response, new RequestValidationException(
+                        "request body has no %s".formatted(route.usernameField())));
+                return;
+            }
+            long waitNanos = route.perUsername().tryAcquire(username, now);
+            if (waitNanos > 0) {
+                route.rejectedByUsername().increment();
+                reject(request, response, waitNanos);
+                return;
+            }
+            filterChain.doFilter(new ReplayingRequest(request, body), response);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${throttle.auth.eviction-interval:PT1M}")
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        for (RouteLimit route : routes) {
+            if (route.perIp() != null) {
+                route.perIp().evictIdle(now);
+            }
+            if (route.perUsername() != null) {
+                route.perUsername().evictIdle(now);
+            }
+        }
+    }
+
+    private RouteLimit route(HttpServletRequest request) {
+        // decoded, as Spring MVC matches it, so "%6Cogin" is login here as well
+        String path = UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+        for (RouteLimit route : routes) {
+            if (route.method().equalsIgnoreCase(request.getMethod()) && route.path().equals(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private String username(byte[] body, String field) {
+        try {
+            JsonNode value = objectMapper.readTree(body).path(field);
+            return value.isTextual() && !value.asText().isBlank()
+                    ? value.asText().trim().toLowerCase(Locale.ROOT)
+                    : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) {
+        reject(request, response, new TooManyRequestsException(
+                "too many attempts, try again later", Duration.ofNanos(waitNanos)));
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, RuntimeException e) {
+        handlerExceptionResolver.resolveException(request, response, null, e);
+    }
+
+    /**
+     * Hands the body, which was read whole for the username, on to the
+     * controller.
+     */
+    private static class ReplayingRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+        private ServletInputStream servletInputStream;
+
+        ReplayingRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            // the body must only be replayed once
+            if (servletInputStream == null) {
+                servletInputStream = replay(new ByteArrayInputStream(body));
+            }
+            return servletInputStream;
+        }
+
+        private static ServletInputStream replay(ByteArrayInputStream inputStream) {
+            return new ServletInputStream() {
+
+                @Override
+                public int read() {
+                    return inputStream.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return inputStream.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return inputStream.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // everything is in memory, so all of it is available right away
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        readListener.onDataAvailable();
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            Charset charset = getCharacterEncoding() != null
+                    ? Charset.forName(getCharacterEncoding())
+                    : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.amigoscode.throttle;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rate limits of the unauthenticated endpoints that hash a password, by
+ * route. Each route can limit per client IP, per username taken from a
+ * field of the JSON body, or both.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "throttle.auth")
+public class AuthRateLimitProperties {
+
+    public static class Limit {
+        private int permits;
+        private Duration period = Duration.ofMinutes(1);
+        // defaults to permits, a full period's worth at once
+        private Integer burst;
+
+        public int getPermits() {
+            return permits;
+        }
+
+        public void setPermits(int permits) {
+            this.permits = permits;
+        }
+
+        public Duration getPeriod() {
+            return period;
+        }
+
+        public void setPeriod(Duration period) {
+            this.period = period;
+        }
+
+        public Integer getBurst() {
+            return burst;
+        }
+
+        public void setBurst(Integer burst) {
+            this.burst = burst;
+        }
+
+        int effectiveBurst() {
+            return burst != null ? burst : permits;
+        }
+    }
+
+    public static class Route {
+        private String method = "POST";
+        private String path;
+        private String usernameField;
+        private Limit perIp;
+        private Limit perUsername;
+
+        public String getMethod() {
+            return method;
+        }
+
+        public void setMethod(String method) {
+            this.method = method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public String getUsernameField() {
+            return usernameField;
+        }
+
+        public void setUsernameField(String usernameField) {
+            this.usernameField = usernameField;
+        }
+
+        public Limit getPerIp() {
+            return perIp;
+        }
+
+        public void setPerIp(Limit perIp) {
+            this.perIp = perIp;
+        }
+
+        public Limit getPerUsername() {
+            return perUsername;
+        }
+
+        public void setPerUsername(Limit perUsername) {
+            this.perUsername = perUsername;
+        }
+    }
+
+    private int stripes = 16;
+    // per route and key type
+    private int maxKeys = 100_000;
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public int getMaxKeys() {
+        return maxKeys;
+    }
+
+    public void setMaxKeys(int maxKeys) {
+        this.maxKeys = maxKeys;
+    }
+
+    public Map<String, Route> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(Map<String, Route> routes) {
+        this.routes = routes;
+    }
+}
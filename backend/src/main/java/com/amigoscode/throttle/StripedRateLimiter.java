@@ -0,0 +1,136 @@
+package com.amigoscode.throttle;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket per key, kept as the single timestamp of the generic cell
+ * rate algorithm: the theoretical arrival time (TAT) of the next request
+ * if every key spent its rate evenly. A request is allowed while the TAT
+ * is less than one burst ahead of now, and moves it on by one emission
+ * interval with a compare-and-set, so checking costs no lock and no
+ * allocation for a known key.
+ * <p>
+ * Keys are spread over stripes with a bounded number of entries each. A
+ * key whose TAT has fallen behind now has a full bucket, exactly as if it
+ * were unknown, so such idle entries are evicted without changing any
+ * decision. A new key for a full stripe takes the place of an idle entry,
+ * or of the one closest to idle among a few sampled, so every key keeps
+ * a bucket of its own and memory stays bounded under a flood of distinct
+ * keys.
+ */
+class StripedRateLimiter {
+
+    // entries looked at for one eviction, as a full scan would cost every
+    // new key a pass over the stripe while flooded
+    private static final int EVICTION_SAMPLES = 8;
+
+    private final long emissionIntervalNanos;
+    private final long burstNanos;
+    private final int maxKeysPerStripe;
+    private final Stripe[] stripes;
+
+    private static final class Stripe {
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    }
+
+    StripedRateLimiter(int permits, Duration period, int burst, int stripes, int maxKeys) {
+        if (permits <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("rate limit permits and burst must be positive");
+        }
+        this.emissionIntervalNanos = period.toNanos() / permits;
+        this.burstNanos = emissionIntervalNanos * burst;
+        // a power of two, so the stripe is picked with a mask
+        int stripeCount = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.maxKeysPerStripe = Math.max(1, maxKeys / stripeCount);
+    }
+
+    /**
+     * Takes one permit for the key.
+     *
+     * @return zero if the request is allowed, otherwise how many
+     * nanoseconds until it would be
+     */
+    long tryAcquire(String key, long nowNanos) {
+        Stripe stripe = stripe(key);
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket == null) {
+            bucket = newBucket(stripe, key, nowNanos);
+        }
+        while (true) {
+            long tat = bucket.get();
+            long newTat = Math.max(tat, nowNanos) + emissionIntervalNanos;
+            long waitNanos = newTat - nowNanos - burstNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drops the entries of keys whose bucket has filled up again.
+     */
+    void evictIdle(long nowNanos) {
+        for (Stripe stripe : stripes) {
+            stripe.buckets.values().removeIf(bucket -> bucket.get() <= nowNanos);
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+
+    private AtomicLong newBucket(Stripe stripe, String key, long nowNanos) {
+        if (stripe.buckets.size() >= maxKeysPerStripe) {
+            evictOne(stripe, nowNanos);
+        }
+        AtomicLong bucket = new AtomicLong(nowNanos);
+        AtomicLong existing = stripe.buckets.putIfAbsent(key, bucket);
+        return existing != null ? existing : bucket;
+    }
+
+    /**
+     * Drops the first idle entry among the samples, otherwise the one with
+     * the lowest TAT, whose key loses the fewest permits by starting over.
+     */
+    private void evictOne(Stripe stripe, long nowNanos) {
+        Map.Entry<String, AtomicLong> oldest = null;
+        int sampled = 0;
+        for (Map.Entry<String, AtomicLong> entry : stripe.buckets.entrySet()) {
+            long tat = entry.getValue().get();
+            if (tat <= nowNanos) {
+                stripe.buckets.remove(entry.getKey(), entry.getValue());
+                return;
+            }
+            if (oldest == null || tat < oldest.getValue().get()) {
+                oldest = entry;
+            }
+            if (++sampled == EVICTION_SAMPLES) {
+                break;
+            }
+        }
+        if (oldest != null) {
+            stripe.buckets.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private Stripe stripe(String key) {
+        int hash = key.hashCode();
+        // mix the high bits in, as ConcurrentHashMap does
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
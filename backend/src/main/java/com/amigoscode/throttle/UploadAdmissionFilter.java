@@ -0,0 +1,202 @@
+package com.amigoscode.throttle;
+
+import com.amigoscode.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Admits uploads, i.e. multipart bodies and the chunks of resumable profile
+ * image uploads, only while the bytes of every upload in flight fit one
+ * global budget. An upload is charged its Content-Length before
+ * the body is read, and holds the charge until the response completes,
+ * including asynchronous processing. Uploads over budget are turned away
+ * at once with 429 and Retry-After instead of queueing on the heap.
+ * <p>
+ * ZIP archives for the profile image import have a budget of their own,
+ * counted in imports rather than bytes: an import streams its archive and
+ * holds a bounded number of entries however large the archive is, and it
+ * must not keep avatar uploads out for as long as it runs.
+ */
+@Component
+public class UploadAdmissionFilter extends OncePerRequestFilter {
+
+    // permits are KiB so budgets above 2GB still fit in an int
+    private static final int PERMIT_BYTES = 1024;
+
+    private static final Pattern CHUNK_PATH =
+            Pattern.compile("/api/v1/customers/[^/]+/profile-image/uploads/[^/]+");
+
+    private final HandlerExceptionResolver handlerExceptionResolver;
+    private final Semaphore budget;
+    private final Semaphore imports;
+    private final int maxPermits;
+    private final long unknownLengthBytes;
+    private final Duration retryAfter;
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final Counter admitted;
+    private final Counter rejected;
+
+    @Autowired
+    public UploadAdmissionFilter(
+            MeterRegistry meterRegistry,
+            @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver,
+            @Value("${throttle.uploads.max-in-flight:64MB}") DataSize maxInFlight,
+            @Value("${spring.servlet.multipart.max-request-size:10MB}") DataSize maxRequestSize,
+            @Value("${throttle.uploads.max-concurrent-imports:1}") int maxConcurrentImports,
+            @Value("${throttle.uploads.retry-after:1s}") Duration retryAfter) {
+        this(meterRegistry,
+                handlerExceptionResolver,
+                maxInFlight.toBytes(),
+                maxRequestSize.toBytes(),
+                maxConcurrentImports,
+                retryAfter);
+    }
+
+    UploadAdmissionFilter(MeterRegistry meterRegistry,
+                          HandlerExceptionResolver handlerExceptionResolver,
+                          long maxInFlightBytes,
+                          long unknownLengthBytes,
+                          int maxConcurrentImports,
+                          Duration retryAfter) {
+        this.handlerExceptionResolver = handlerExceptionResolver;
+        this.maxPermits = toPermits(maxInFlightBytes);
+        this.budget = new Semaphore(maxPermits);
+        this.imports = new Semaphore(maxConcurrentImports);
+        this.unknownLengthBytes = unknownLengthBytes;
+        this.retryAfter = retryAfter;
+        meterRegistry.gauge("upload.admission.in-flight.bytes", inFlightBytes);
+        meterRegistry.gauge("upload.admission.in-flight.imports", imports,
+                semaphore -> maxConcurrentImports - semaphore.availablePermits());
+        this.admitted = meterRegistry.counter("upload.admission.admitted");
+        this.rejected = meterRegistry.counter("upload.admission.rejected");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        if (isChunk(request)) {
+            return false;
+        }
+        String contentType = request.getContentType();
+        if (contentType == null) {
+            return true;
+        }
+        String normalized = contentType.toLowerCase();
+        return !normalized.startsWith("multipart/") && !isImport(request);
+    }
+
+    // chunks are read as a raw body whatever their content type,
+    // so they are recognised by route, on the decoded path
+    private static boolean isChunk(HttpServletRequest request) {
+        return "PUT".equals(request.getMethod())
+                && CHUNK_PATH.matcher(
+                        UrlPathHelper.defaultInstance.getPathWithinApplication(request)
+                ).matches();
+    }
+
+    private static boolean isImport(HttpServletRequest request) {
+        return request.getContentType() != null
+                && request.getContentType().toLowerCase().startsWith("application/zip");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean isImport = isImport(request);
+        Semaphore charged = isImport ? imports : budget;
+        long bytes;
+        int permits;
+        if (isImport) {
+            bytes = 0;
+            permits = 1;
+        } else {
+            // chunked uploads are charged the max request size
+            bytes = request.getContentLengthLong() >= 0
+                    ? request.getContentLengthLong()
+                    : unknownLengthBytes;
+            // an upload larger than the whole budget could otherwise never run
+            permits = Math.min(maxPermits, toPermits(bytes));
+        }
+        if (!charged.tryAcquire(permits)) {
+            rejected.increment();
+            handlerExceptionResolver.resolveException(request, response, null,
+                    new TooManyRequestsException(
+                            isImport
+                                    ? "too many imports in progress, try again later"
+                                    : "too many uploads in progress, try again later",
+                            retryAfter));
+            return;
+        }
+        admitted.increment();
+        inFlightBytes.addAndGet(bytes);
+
+        Runnable release = new Runnable() {
+            private final AtomicBoolean released = new AtomicBoolean();
+
+            @Override
+            public void run() {
+                if (released.compareAndSet(false, true)) {
+                    inFlightBytes.addAndGet(-bytes);
+                    charged.release(permits);
+                }
+            }
+        };
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        release.run();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    long getInFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    private static int toPermits(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, (bytes + PERMIT_BYTES - 1) / PERMIT_BYTES);
+    }
+}
@@ -0,0 +1,16 @@
+-- State of queued profile image uploads, so any node can answer a poll.
+-- The spooled image itself stays on the disk of the node that accepted
+-- it. Rows not updated for the job ttl are removed; a node coming back
+-- with the spool writes them again as it recovers.
+CREATE TABLE profile_image_upload_job(
+    id UUID PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    status TEXT NOT NULL,
+    profile_image_id TEXT,
+    error TEXT,
+    -- with time zone, as pruning compares it with an instant
+    updated_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX profile_image_upload_job_updated_at_idx
+    ON profile_image_upload_job(updated_at);
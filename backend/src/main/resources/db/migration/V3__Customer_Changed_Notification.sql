@@ -0,0 +1,31 @@
+CREATE OR REPLACE FUNCTION notify_customer_changed() RETURNS trigger AS $$
+DECLARE
+    ids TEXT;
+BEGIN
+    -- one notification per 500 rows keeps bulk statements well below
+    -- the 8000 byte payload limit of pg_notify
+    FOR ids IN
+        SELECT string_agg(id::TEXT, ',')
+        FROM (
+            SELECT id, (row_number() OVER () - 1) / 500 AS batch
+            FROM changed_customer
+        ) numbered
+        GROUP BY batch
+    LOOP
+        PERFORM pg_notify('customer_changed', ids);
+    END LOOP;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_changed_after_update
+AFTER UPDATE ON customer
+REFERENCING OLD TABLE AS changed_customer
+FOR EACH STATEMENT
+EXECUTE FUNCTION notify_customer_changed();
+
+CREATE TRIGGER customer_changed_after_delete
+AFTER DELETE ON customer
+REFERENCING OLD TABLE AS changed_customer
+FOR EACH STATEMENT
+EXECUTE FUNCTION notify_customer_changed();
@@ -0,0 +1,20 @@
+-- Uploaded profile images are stored once per distinct content under
+-- profile-images/content/{sha256}; ref_count is the number of
+-- profile_image_ref rows pointing at the content.
+CREATE TABLE profile_image_content(
+    sha256 CHAR(64) PRIMARY KEY,
+    object_key TEXT NOT NULL,
+    size BIGINT NOT NULL,
+    ref_count INT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- customer.profile_image_id stays unique per upload and resolves to its
+-- content here; ids without a row use the per customer key layout.
+CREATE TABLE profile_image_ref(
+    profile_image_id VARCHAR(36) PRIMARY KEY,
+    sha256 CHAR(64) NOT NULL REFERENCES profile_image_content(sha256),
+    created_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX profile_image_ref_sha256_idx ON profile_image_ref(sha256);
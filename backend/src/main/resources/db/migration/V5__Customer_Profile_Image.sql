@@ -0,0 +1,17 @@
+-- What is known about each profile image without reading it from S3.
+-- checksum is the SHA-256 of the upload, or the S3 ETag for images
+-- uploaded straight to S3; width and height are null when the image
+-- could not be decoded. Rows describe the original, variants are
+-- derived from it.
+CREATE TABLE customer_profile_image(
+    profile_image_id VARCHAR(36) PRIMARY KEY,
+    customer_id BIGINT NOT NULL REFERENCES customer(id) ON DELETE CASCADE,
+    size BIGINT NOT NULL,
+    content_type TEXT,
+    checksum TEXT NOT NULL,
+    width INT,
+    height INT,
+    created_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX customer_profile_image_customer_id_idx ON customer_profile_image(customer_id);
@@ -0,0 +1,28 @@
+-- Resumable profile image uploads. Each session is an S3 multipart
+-- upload to the legacy key of profile image id, chunk i is part i + 1.
+CREATE TABLE profile_image_upload_session(
+    id VARCHAR(36) PRIMARY KEY,
+    -- not cascaded from customer: sessions of a deleted customer stay until
+    -- the expiry sweep aborts their multipart uploads
+    customer_id BIGINT NOT NULL,
+    s3_upload_id TEXT NOT NULL,
+    content_length BIGINT NOT NULL,
+    content_type TEXT NOT NULL,
+    chunk_size INT NOT NULL,
+    -- with time zone, as the expiry sweep compares it with an instant
+    expires_at TIMESTAMPTZ NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX profile_image_upload_session_expires_at_idx
+    ON profile_image_upload_session(expires_at);
+
+-- A chunk sent again replaces its part, so only the ETag of the last
+-- successful attempt is kept.
+CREATE TABLE profile_image_upload_chunk(
+    session_id VARCHAR(36) NOT NULL
+        REFERENCES profile_image_upload_session(id) ON DELETE CASCADE,
+    chunk_index INT NOT NULL,
+    e_tag TEXT NOT NULL,
+    PRIMARY KEY (session_id, chunk_index)
+);
@@ -0,0 +1,16 @@
+-- Opaque refresh tokens, stored as the SHA-256 of the token. Every refresh
+-- marks the presented token used and issues the next one in the same
+-- family; presenting a used token again revokes the whole family.
+CREATE TABLE refresh_token(
+    token_hash CHAR(64) PRIMARY KEY,
+    family_id VARCHAR(36) NOT NULL,
+    customer_id BIGINT NOT NULL REFERENCES customer(id) ON DELETE CASCADE,
+    -- with time zone, so expiry checks do not depend on the session time zone
+    expires_at TIMESTAMPTZ NOT NULL,
+    used_at TIMESTAMPTZ,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX refresh_token_family_id_idx ON refresh_token(family_id);
+CREATE INDEX refresh_token_customer_id_idx ON refresh_token(customer_id);
+CREATE INDEX refresh_token_expires_at_idx ON refresh_token(expires_at);
@@ -0,0 +1,38 @@
+-- Access tokens revoked before their expiry, by jti. Rows are only
+-- needed until the token expires; every node keeps them in memory and
+-- rebuilds that copy from here whenever its listener (re)connects.
+CREATE TABLE revoked_token(
+    jti UUID PRIMARY KEY,
+    -- with time zone, so the epoch millis sent to listeners are exact
+    expires_at TIMESTAMPTZ NOT NULL,
+    revoked_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX revoked_token_expires_at_idx ON revoked_token(expires_at);
+
+CREATE OR REPLACE FUNCTION notify_token_revoked() RETURNS trigger AS $$
+DECLARE
+    tokens TEXT;
+BEGIN
+    -- jti:expiry millis pairs, 100 per notification to stay well below
+    -- the 8000 byte payload limit of pg_notify
+    FOR tokens IN
+        SELECT string_agg(jti::TEXT || ':' ||
+                          (extract(EPOCH FROM expires_at) * 1000)::BIGINT, ',')
+        FROM (
+            SELECT jti, expires_at, (row_number() OVER () - 1) / 100 AS batch
+            FROM revoked
+        ) numbered
+        GROUP BY batch
+    LOOP
+        PERFORM pg_notify('token_revoked', tokens);
+    END LOOP;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER token_revoked_after_insert
+AFTER INSERT ON revoked_token
+REFERENCING NEW TABLE AS revoked
+FOR EACH STATEMENT
+EXECUTE FUNCTION notify_token_revoked();
@@ -0,0 +1,5 @@
+-- Customers are USER unless promoted, e.g.
+--   UPDATE customer SET role = 'ADMIN' WHERE email = '...';
+-- The role is issued in access tokens, so a change applies from the next
+-- login or token refresh.
+ALTER TABLE customer ADD COLUMN role VARCHAR(20) NOT NULL DEFAULT 'USER';
@@ -0,0 +1,115 @@
+package com.amigoscode.auth;
+
+import com.amigoscode.AbstractTestcontainers;
+import com.amigoscode.customer.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RefreshTokenDaoTest extends AbstractTestcontainers {
+
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+    private RefreshTokenDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new RefreshTokenDao(jdbcTemplate);
+    }
+
+    @Test
+    void tokenCanBeUsedOnce() {
+        // Given
+        String email = UUID.randomUUID() + "@amigoscode.com";
+        int customerId = insertCustomer(email);
+        String tokenHash = UUID.randomUUID().toString();
+        String familyId = UUID.randomUUID().toString();
+        Instant now = Instant.now();
+        underTest.insertToken(tokenHash, familyId, customerId, now.plus(1, ChronoUnit.DAYS));
+
+        // When
+        var first = underTest.useToken(tokenHash, now);
+        var second = underTest.useToken(tokenHash, now);
+
+        // Then
+        assertThat(first).contains(new RefreshTokenGrant(familyId, customerId, email, Role.USER));
+        assertThat(second).isEmpty();
+        assertThat(underTest.selectUsedTokenFamily(tokenHash)).contains(familyId);
+    }
+
+    @Test
+    void expiredTokenCannotBeUsed() {
+        // Given
+        int customerId = insertCustomer(UUID.randomUUID() + "@amigoscode.com");
+        String tokenHash = UUID.randomUUID().toString();
+        Instant now = Instant.now();
+        underTest.insertToken(tokenHash, UUID.randomUUID().toString(), customerId, now);
+
+        // When
+        var actual = underTest.useToken(tokenHash, now);
+
+        // Then
+        assertThat(actual).isEmpty();
+        assertThat(underTest.selectUsedTokenFamily(tokenHash)).isEmpty();
+    }
+
+    @Test
+    void deleteFamilyRemovesEveryTokenOfTheFamily() {
+        // Given
+        int customerId = insertCustomer(UUID.randomUUID() + "@amigoscode.com");
+        String familyId = UUID.randomUUID().toString();
+        Instant expiresAt = Instant.now().plus(1, ChronoUnit.DAYS);
+        underTest.insertToken(UUID.randomUUID().toString(), familyId, customerId, expiresAt);
+        underTest.insertToken(UUID.randomUUID().toString(), familyId, customerId, expiresAt);
+        String otherFamilyToken = UUID.randomUUID().toString();
+        underTest.insertToken(otherFamilyToken, UUID.randomUUID().toString(), customerId, expiresAt);
+
+        // When
+        int actual = underTest.deleteFamily(familyId);
+
+        // Then
+        assertThat(actual).isEqualTo(2);
+        assertThat(underTest.useToken(otherFamilyToken, Instant.now())).isPresent();
+    }
+
+    @Test
+    void deleteExpiredTokensKeepsLiveOnes() {
+        // Given
+        int customerId = insertCustomer(UUID.randomUUID() + "@amigoscode.com");
+        Instant now = Instant.now();
+        String expired = UUID.randomUUID().toString();
+        String live = UUID.randomUUID().toString();
+        underTest.insertToken(expired, UUID.randomUUID().toString(), customerId, now.minusSeconds(1));
+        underTest.insertToken(live, UUID.randomUUID().toString(), customerId, now.plusSeconds(60));
+
+        // When
+        underTest.deleteExpiredTokens(now, 1000);
+
+        // Then
+        assertThat(countTokens(expired)).isZero();
+        assertThat(countTokens(live)).isOne();
+    }
+
+    private int countTokens(String tokenHash) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM refresh_token WHERE token_hash = ?",
+                Integer.class,
+                tokenHash);
+    }
+
+    private int insertCustomer(String email) {
+        return jdbcTemplate.queryForObject("""
+                        INSERT INTO customer(name, email, password, age, gender)
+                        VALUES (?, ?, 'password', 20, 'MALE')
+                        RETURNING id
+                        """,
+                Integer.class,
+                FAKER.name().fullName(),
+                email);
+    }
+}
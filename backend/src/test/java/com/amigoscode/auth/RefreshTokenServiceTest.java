@@ -0,0 +1,112 @@
+package com.amigoscode.auth;
+
+import com.amigoscode.customer.Role;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Mock
+    private RefreshTokenDao refreshTokenDao;
+    private RefreshTokenService underTest;
+    private AutoCloseable autoCloseable;
+
+    @BeforeEach
+    void setUp() {
+        autoCloseable = MockitoAnnotations.openMocks(this);
+        underTest = new RefreshTokenService(
+                refreshTokenDao, Duration.ofDays(14), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        autoCloseable.close();
+    }
+
+    @Test
+    void issueStoresOnlyTheHashOfTheToken() {
+        // When
+        String actual = underTest.issue(1);
+
+        // Then
+        ArgumentCaptor<String> tokenHash = ArgumentCaptor.forClass(String.class);
+        verify(refreshTokenDao).insertToken(
+                tokenHash.capture(), anyString(), eq(1), eq(NOW.plus(Duration.ofDays(14))));
+        assertThat(tokenHash.getValue())
+                .isEqualTo(RefreshTokenService.hash(actual))
+                .isNotEqualTo(actual)
+                .hasSize(64);
+    }
+
+    @Test
+    void rotateIssuesTheNextTokenOfTheFamily() {
+        // Given
+        String token = "token";
+        when(refreshTokenDao.useToken(RefreshTokenService.hash(token), NOW))
+                .thenReturn(Optional.of(new RefreshTokenGrant("family", 1, "alex@amigoscode.com", Role.ADMIN)));
+
+        // When
+        RefreshTokenService.RotatedRefreshToken actual = underTest.rotate(token);
+
+        // Then
+        assertThat(actual.email()).isEqualTo("alex@amigoscode.com");
+        assertThat(actual.role()).isEqualTo(Role.ADMIN);
+        assertThat(actual.refreshToken()).isNotEqualTo(token);
+        verify(refreshTokenDao).insertToken(
+                RefreshTokenService.hash(actual.refreshToken()), "family", 1,
+                NOW.plus(Duration.ofDays(14)));
+    }
+
+    @Test
+    void reusedTokenRevokesItsFamily() {
+        // Given
+        String token = "token";
+        when(refreshTokenDao.useToken(RefreshTokenService.hash(token), NOW))
+                .thenReturn(Optional.empty());
+        when(refreshTokenDao.selectUsedTokenFamily(RefreshTokenService.hash(token)))
+                .thenReturn(Optional.of("family"));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.rotate(token))
+                .isInstanceOf(BadCredentialsException.class)
+                .hasMessage("Invalid refresh token");
+        verify(refreshTokenDao).deleteFamily("family");
+        verify(refreshTokenDao, never()).insertToken(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void unknownTokenIsRejected() {
+        // Given
+        when(refreshTokenDao.useToken(anyString(), eq(NOW))).thenReturn(Optional.empty());
+        when(refreshTokenDao.selectUsedTokenFamily(anyString())).thenReturn(Optional.empty());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.rotate("unknown"))
+                .isInstanceOf(BadCredentialsException.class);
+        verify(refreshTokenDao, never()).deleteFamily(anyString());
+    }
+}
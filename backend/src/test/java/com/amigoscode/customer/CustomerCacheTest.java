@@ -0,0 +1,119 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CustomerCacheTest {
+
+    private CustomerCache underTest;
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Customer customer = new Customer(
+            10, "Alex", "alex@gmail.com", "password", 19, Gender.MALE);
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerCache(100, Duration.ofMinutes(5));
+    }
+
+    private Optional<Customer> load(String username) {
+        loads.incrementAndGet();
+        return Optional.of(customer);
+    }
+
+    @Test
+    void servesSecondLookupFromCache() {
+        // When
+        underTest.getByUsername("alex@gmail.com", this::load);
+        Optional<Customer> actual = underTest.getByUsername("alex@gmail.com", this::load);
+
+        // Then
+        assertThat(actual).contains(customer);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void notificationEvictsAffectedCustomers() {
+        // Given
+        underTest.getByUsername("alex@gmail.com", this::load);
+
+        // When
+        underTest.onNotification("3,10,42");
+        underTest.getByUsername("alex@gmail.com", this::load);
+
+        // Then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void doesNotCacheWhenEvictedDuringLoad() {
+        // When
+        underTest.getByUsername("alex@gmail.com", username -> {
+            underTest.evict(customer.getId());
+            return load(username);
+        });
+        underTest.getByUsername("alex@gmail.com", this::load);
+
+        // Then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void listenerResetClearsEverything() {
+        // Given
+        underTest.getByUsername("alex@gmail.com", this::load);
+
+        // When
+        underTest.onListenerReset();
+        underTest.getByUsername("alex@gmail.com", this::load);
+
+        // Then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void resumesCachingOnceFullCacheHasExpired() {
+        // Given
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        CustomerCache cache = new CustomerCache(2, Duration.ofMinutes(5), clock);
+        cache.getByUsername("alex@gmail.com", this::load);
+        cache.getByUsername("jamila@gmail.com", username -> Optional.of(
+                new Customer(11, "Jamila", username, "password", 20, Gender.FEMALE)));
+
+        // When
+        when(clock.millis()).thenReturn(Duration.ofMinutes(6).toMillis());
+        cache.getByUsername("ali@gmail.com", username -> Optional.of(
+                new Customer(12, "Ali", username, "password", 21, Gender.MALE)));
+        loads.set(0);
+        cache.getByUsername("ali@gmail.com", this::load);
+
+        // Then
+        assertThat(loads).hasValue(0);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsEldestEntryWhenFull() {
+        // Given
+        CustomerCache cache = new CustomerCache(1, Duration.ofMinutes(5));
+        cache.getByUsername("jamila@gmail.com", username -> Optional.of(
+                new Customer(11, "Jamila", username, "password", 20, Gender.FEMALE)));
+
+        // When
+        cache.getByUsername("alex@gmail.com", this::load);
+        cache.getByUsername("alex@gmail.com", this::load);
+
+        // Then
+        assertThat(loads).hasValue(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+}
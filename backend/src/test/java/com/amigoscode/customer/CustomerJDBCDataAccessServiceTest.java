@@ -4,7 +4,9 @@ import com.amigoscode.AbstractTestcontainers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -387,9 +389,12 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
                 .orElseThrow();
 
         // When
-        underTest.updateCustomerProfileImageId("2222", id);
+        String first = underTest.updateCustomerProfileImageId("1111", id);
+        String second = underTest.updateCustomerProfileImageId("2222", id);
 
         // Then
+        assertThat(first).isNull();
+        assertThat(second).isEqualTo("1111");
         Optional<Customer> customerOptional = underTest.selectCustomerById(id);
         assertThat(customerOptional)
                 .isPresent()
@@ -399,4 +404,107 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
                                     .isEqualTo("2222");
                         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void canUpdatePassword() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                "password", 20,
+                Gender.MALE);
+        underTest.insertCustomer(customer);
+
+        int id = underTest.selectAllCustomers()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(c -> c.getId())
+                .findFirst()
+                .orElseThrow();
+
+        // When
+        underTest.updateCustomerPassword("{bcrypt}new-hash", id);
+
+        // Then
+        Optional<Customer> customerOptional = underTest.selectUserByEmail(email);
+        assertThat(customerOptional)
+                .isPresent()
+                .hasValueSatisfying(c -> assertThat(c.getPassword()).isEqualTo("{bcrypt}new-hash"));
+    }
+
+    @Test
+    void selectProfileImageLocationsResolvesSeveralCustomersAtOnce() {
+        // Given
+        String sha256 = (UUID.randomUUID().toString() + UUID.randomUUID())
+                .replace("-", "")
+                .substring(0, 64);
+        String contentAddressed = UUID.randomUUID().toString();
+        String legacy = UUID.randomUUID().toString();
+        int first = insertCustomer(contentAddressed);
+        int second = insertCustomer(legacy);
+        int withoutImage = insertCustomer(null);
+        new ProfileImageContentDao(getJdbcTemplate())
+                .addReference(contentAddressed, sha256, "profile-images/content/" + sha256, 5);
+
+        // When
+        List<ProfileImageLocation> actual = underTest.selectProfileImageLocations(
+                List.of(first, second, withoutImage, -1));
+
+        // Then
+        assertThat(actual).containsExactlyInAnyOrder(
+                new ProfileImageLocation(first, contentAddressed, sha256),
+                new ProfileImageLocation(second, legacy, null));
+    }
+
+    @Test
+    void updateProfileImageIdsReturnsPreviousIdsOfExistingCustomers() {
+        // Given
+        String previous = UUID.randomUUID().toString();
+        int first = insertCustomer(previous);
+        int second = insertCustomer(null);
+        String firstNew = UUID.randomUUID().toString();
+        String secondNew = UUID.randomUUID().toString();
+
+        // When
+        var actual = underTest.updateProfileImageIds(
+                Map.of(first, firstNew, second, secondNew, -1, UUID.randomUUID().toString()));
+
+        // Then
+        assertThat(actual).containsOnlyKeys(first, second);
+        assertThat(actual.get(first)).isEqualTo(previous);
+        assertThat(actual.get(second)).isNull();
+        assertThat(underTest.selectReferencedProfileImageIds(List.of(previous, firstNew, secondNew)))
+                .containsExactlyInAnyOrder(firstNew, secondNew);
+    }
+
+    @Test
+    void selectProfileImagesWithoutMetadataSkipsDescribedImages() {
+        // Given
+        String described = UUID.randomUUID().toString();
+        String undescribed = UUID.randomUUID().toString();
+        int first = insertCustomer(described);
+        int second = insertCustomer(undescribed);
+        insertCustomer(null);
+        new ProfileImageMetadataDao(getJdbcTemplate()).insertMetadata(new ProfileImageMetadata(
+                described, first, 5, "image/png", "abc", null, null, Instant.now()));
+
+        // When
+        List<ProfileImageLocation> actual = underTest.selectProfileImagesWithoutMetadata(first - 1, 10);
+
+        // Then
+        assertThat(actual).containsExactly(new ProfileImageLocation(second, undescribed, null));
+    }
+
+    private int insertCustomer(String profileImageId) {
+        return getJdbcTemplate().queryForObject("""
+                        INSERT INTO customer(name, email, password, age, gender, profile_image_id)
+                        VALUES (?, ?, 'password', 20, 'MALE', ?)
+                        RETURNING id
+                        """,
+                Integer.class,
+                FAKER.name().fullName(),
+                UUID.randomUUID() + "@amigoscode.com",
+                profileImageId);
+    }
+}
@@ -11,6 +11,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -128,11 +130,70 @@ class CustomerJPADataAccessServiceTest {
         // Given
         String profileImageId = "2222";
         Integer customerId = 1;
+        Mockito.when(customerRepository.findByIdForUpdate(customerId))
+                .thenReturn(Optional.of(new Customer(
+                        customerId, "Alex", "alex@gmail.com", "password", 19,
+                        Gender.MALE, "1111")));
 
         // When
-        underTest.updateCustomerProfileImageId(profileImageId, customerId);
+        String previous = underTest.updateCustomerProfileImageId(profileImageId, customerId);
 
         // Then
         Mockito.verify(customerRepository).updateProfileImageId(profileImageId, customerId);
+        assertThat(previous).isEqualTo("1111");
     }
-}
\ No newline at end of file
+
+    @Test
+    void canUpdatePassword() {
+        // Given
+        String password = "{bcrypt}$2a$12$hash";
+        Integer customerId = 1;
+
+        // When
+        underTest.updateCustomerPassword(password, customerId);
+
+        // Then
+        Mockito.verify(customerRepository).updatePassword(password, customerId);
+    }
+
+    @Test
+    void canUpdateProfileImageIdsOfExistingCustomers() {
+        // Given
+        Map<Integer, String> profileImageIds = Map.of(1, "2222", 2, "3333", 3, "4444");
+        Mockito.when(customerRepository.findAllByIdForUpdate(profileImageIds.keySet()))
+                .thenReturn(List.of(
+                        new Customer(1, "Alex", "alex@gmail.com", "password", 19,
+                                Gender.MALE, "1111"),
+                        new Customer(2, "Jamila", "jamila@gmail.com", "password", 21,
+                                Gender.FEMALE, null)));
+
+        // When
+        Map<Integer, String> previous = underTest.updateProfileImageIds(profileImageIds);
+
+        // Then
+        Mockito.verify(customerRepository).updateProfileImageId("2222", 1);
+        Mockito.verify(customerRepository).updateProfileImageId("3333", 2);
+        Mockito.verify(customerRepository, Mockito.never()).updateProfileImageId("4444", 3);
+        assertThat(previous).containsOnlyKeys(1, 2);
+        assertThat(previous.get(1)).isEqualTo("1111");
+        assertThat(previous.get(2)).isNull();
+    }
+
+    @Test
+    void canSelectProfileImageLocations() {
+        // Given
+        List<Integer> customerIds = List.of(1, 2);
+        Mockito.when(customerRepository.findProfileImageLocations(customerIds))
+                .thenReturn(List.of(
+                        new Object[]{1, "1111", "abc"},
+                        new Object[]{2, "2222", null}));
+
+        // When
+        List<ProfileImageLocation> actual = underTest.selectProfileImageLocations(customerIds);
+
+        // Then
+        assertThat(actual).containsExactly(
+                new ProfileImageLocation(1, "1111", "abc"),
+                new ProfileImageLocation(2, "2222", null));
+    }
+}
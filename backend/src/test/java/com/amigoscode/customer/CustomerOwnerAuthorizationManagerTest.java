@@ -0,0 +1,98 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerOwnerAuthorizationManagerTest {
+
+    private final CustomerDao customerDao = Mockito.mock(CustomerDao.class);
+    private final CustomerOwnerAuthorizationManager underTest =
+            new CustomerOwnerAuthorizationManager(customerDao);
+
+    @Test
+    void grantsCustomerAccessToOwnRecord() {
+        // Given
+        mockCustomer(1, "alex@gmail.com");
+
+        // When
+        boolean actual = check(user("alex@gmail.com", "ROLE_USER"), "1");
+
+        // Then
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void deniesCustomerAccessToAnotherRecord() {
+        // Given
+        mockCustomer(1, "alex@gmail.com");
+
+        // When
+        boolean actual = check(user("jamila@gmail.com", "ROLE_USER"), "1");
+
+        // Then
+        assertThat(actual).isFalse();
+    }
+
+    @Test
+    void grantsAdminAccessToAnyRecord() {
+        // When
+        boolean actual = check(user("admin@gmail.com", "ROLE_ADMIN"), "1");
+
+        // Then
+        assertThat(actual).isTrue();
+        Mockito.verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void deniesAnonymousRequests() {
+        // Given
+        mockCustomer(1, "alex@gmail.com");
+        Authentication anonymous = new AnonymousAuthenticationToken(
+                "key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+        // When
+        boolean actual = check(anonymous, "1");
+
+        // Then
+        assertThat(actual).isFalse();
+    }
+
+    @Test
+    void deniesCustomerIdThatIsNotANumber() {
+        // When
+        boolean actual = check(user("alex@gmail.com", "ROLE_USER"), "alex");
+
+        // Then
+        assertThat(actual).isFalse();
+    }
+
+    private boolean check(Authentication authentication, String customerId) {
+        return underTest.check(
+                () -> authentication,
+                new RequestAuthorizationContext(
+                        new MockHttpServletRequest("PUT", "/api/v1/customers/" + customerId),
+                        Map.of("customerId", customerId))
+        ).isGranted();
+    }
+
+    private void mockCustomer(int id, String email) {
+        Mockito.when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(
+                new Customer(id, "Alex", email, "password", 19, Gender.MALE)));
+    }
+
+    private static Authentication user(String email, String role) {
+        return new UsernamePasswordAuthenticationToken(
+                email, null, AuthorityUtils.createAuthorityList(role));
+    }
+}
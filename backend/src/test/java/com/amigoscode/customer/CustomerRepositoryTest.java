@@ -131,4 +131,33 @@ class CustomerRepositoryTest extends AbstractTestcontainers {
                                     .isEqualTo("2222");
                         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void canUpdatePassword() {
+        // Given
+        String email = "email";
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                "password", 20,
+                Gender.MALE);
+
+        underTest.save(customer);
+
+        Integer id = underTest.findAll()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(c -> c.getId())
+                .findFirst()
+                .orElseThrow();
+
+        // When
+        underTest.updatePassword("{bcrypt}new-hash", id);
+
+        // Then
+        Optional<Customer> customerOptional = underTest.findById(id);
+        assertThat(customerOptional)
+                .isPresent()
+                .hasValueSatisfying(c -> assertThat(c.getPassword()).isEqualTo("{bcrypt}new-hash"));
+    }
+}
@@ -23,6 +23,7 @@ class CustomerRowMapperTest {
         Mockito.when(resultSet.getString("gender")).thenReturn("FEMALE");
         Mockito.when(resultSet.getString("password")).thenReturn("password");
         Mockito.when(resultSet.getString("profile_image_id")).thenReturn("22222");
+        Mockito.when(resultSet.getString("role")).thenReturn("ADMIN");
 
         // When
         Customer actual = customerRowMapper.mapRow(resultSet, 1);
@@ -30,7 +31,7 @@ class CustomerRowMapperTest {
         // Then
         Customer expected = new Customer(
                 1, "Jameela", "jameela@gmail.com", "password", 19,
-                Gender.FEMALE, "22222");
+                Gender.FEMALE, "22222", Role.ADMIN);
         assertThat(actual).isEqualTo(expected);
     }
 }
\ No newline at end of file
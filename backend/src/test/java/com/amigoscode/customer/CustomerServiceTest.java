@@ -2,23 +2,51 @@ package com.amigoscode.customer;
 
 import com.amigoscode.exception.DuplicateResourceException;
 import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.RequestedRangeNotSatisfiableException;
 import com.amigoscode.exception.ResourceNotFoundException;
+import com.amigoscode.exception.TooManyRequestsException;
+import com.amigoscode.s3.S3AsyncService;
 import com.amigoscode.s3.S3Buckets;
 import com.amigoscode.s3.S3Service;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.multipart.MultipartFile;
-
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.awt.image.ImagingOpException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
@@ -33,7 +61,17 @@ class CustomerServiceTest {
     @Mock
     private S3Service s3Service;
     @Mock
+    private S3AsyncService s3AsyncService;
+    @Mock
     private S3Buckets s3Buckets;
+    @Mock
+    private ProfileImageVariantGenerator variantGenerator;
+    @Mock
+    private ProfileImagePresigner profileImagePresigner;
+    @Mock
+    private ProfileImageContentDao profileImageContentDao;
+    @Mock
+    private ProfileImageMetadataDao profileImageMetadataDao;
     private CustomerService underTest;
     private AutoCloseable autoCloseable;
 
@@ -42,7 +80,13 @@ class CustomerServiceTest {
     @BeforeEach
     void setUp() {
         autoCloseable = MockitoAnnotations.openMocks(this);
-        underTest = new CustomerService(customerDao, customerDTOMapper, passwordEncoder, s3Service, s3Buckets);
+        underTest = new CustomerService(customerDao, customerDTOMapper, passwordEncoder, s3Service, s3AsyncService, s3Buckets, variantGenerator, profileImagePresigner,
+                profileImageContentDao, profileImageMetadataDao, Runnable::run,
+                TransactionOperations.withoutTransaction());
+        Mockito.when(variantGenerator.generate(any()))
+                .thenReturn(CompletableFuture.completedFuture(Map.of()));
+        Mockito.when(profileImageContentDao.addReference(any(), any(), any(), anyLong()))
+                .thenReturn(Optional.of(1));
     }
 
     @AfterEach
@@ -105,9 +149,12 @@ class CustomerServiceTest {
         String passwordHash = "$5554ml;f;lsd";
 
         Mockito.when(passwordEncoder.encode(request.password())).thenReturn(passwordHash);
+        Customer inserted = new Customer(
+                7, request.name(), email, passwordHash, request.age(), request.gender());
+        Mockito.when(customerDao.selectUserByEmail(email)).thenReturn(Optional.of(inserted));
 
         // When
-        underTest.addCustomer(request);
+        CustomerDTO actual = underTest.addCustomer(request);
 
         // Then
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(
@@ -123,6 +170,7 @@ class CustomerServiceTest {
         assertThat(capturedCustomer.getEmail()).isEqualTo(request.email());
         assertThat(capturedCustomer.getAge()).isEqualTo(request.age());
         assertThat(capturedCustomer.getPassword()).isEqualTo(passwordHash);
+        assertThat(actual.id()).isEqualTo(7);
     }
 
     @Test
@@ -159,6 +207,21 @@ class CustomerServiceTest {
         Mockito.verify(customerDao).deleteCustomerById(id);
     }
 
+    @Test
+    void releasesProfileImageWhenDeletingCustomer() {
+        // Given
+        int id = 10;
+        Mockito.when(customerDao.existsPersonWithId(id)).thenReturn(true);
+        mockCustomerWithProfileImage(id, "2222");
+
+        // When
+        underTest.deleteCustomerById(id);
+
+        // Then
+        Mockito.verify(customerDao).deleteCustomerById(id);
+        Mockito.verify(profileImageContentDao).releaseReference("2222");
+    }
+
     @Test
     void willThrowWhenDeleteCustomerByIdNotExists() {
         // Given
@@ -342,7 +405,7 @@ class CustomerServiceTest {
     }
 
     @Test
-    void canUploadProfileImage() {
+    void canUploadProfileImage() throws IOException {
         // Given
         int customerId = 10;
 
@@ -370,64 +433,131 @@ class CustomerServiceTest {
                 eq(customerId)
         );
 
+        ArgumentCaptor<InputStream> inputStreamArgumentCaptor =
+                ArgumentCaptor.forClass(InputStream.class);
+
+        String sha256 = sha256(bytes);
         Mockito.verify(s3Service).putObject(
-                bucket,
-                "profile-images/%s/%s".formatted(
-                        customerId, profileImageIdArgumentCaptor.getValue()),
-                bytes
+                eq(bucket),
+                eq("profile-images/content/%s".formatted(sha256)),
+                inputStreamArgumentCaptor.capture(),
+                eq((long) bytes.length),
+                eq(multipartFile.getContentType())
+        );
+
+        assertThat(inputStreamArgumentCaptor.getValue().readAllBytes())
+                .isEqualTo(bytes);
+        Mockito.verify(profileImageContentDao).addReference(
+                profileImageIdArgumentCaptor.getValue(),
+                sha256,
+                "profile-images/content/%s".formatted(sha256),
+                bytes.length
         );
     }
 
     @Test
-    void cannotUploadProfileImageWhenCustomerDoesNotExist() {
+    void canUploadProfileImageAsync() throws IOException {
         // Given
         int customerId = 10;
 
-        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(false);
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+
+        byte[] bytes = "Hello World".getBytes();
+        MultipartFile multipartFile = new MockMultipartFile(
+                "file", "male.jpeg", "image/jpeg", bytes
+        );
+
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        ArgumentCaptor<String> keyArgumentCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.when(s3AsyncService.putObject(
+                eq(bucket),
+                keyArgumentCaptor.capture(),
+                any(InputStream.class),
+                eq((long) bytes.length),
+                eq("image/jpeg")
+        )).thenReturn(CompletableFuture.completedFuture(null));
 
         // When
-        assertThatThrownBy(() ->
-            underTest.uploadCustomerProfileImage(customerId,
-                    Mockito.mock(MultipartFile.class))
-        ).isInstanceOf(ResourceNotFoundException.class)
-                .hasMessage("customer with id ["+ customerId +"] not found");
+        underTest.uploadCustomerProfileImageAsync(customerId, multipartFile).join();
 
         // Then
-        Mockito.verify(customerDao).existsPersonWithId(customerId);
-        Mockito.verifyNoMoreInteractions(customerDao);
-        Mockito.verifyNoInteractions(s3Buckets);
-        Mockito.verifyNoInteractions(s3Service);
+        ArgumentCaptor<String> profileImageIdArgumentCaptor =
+                ArgumentCaptor.forClass(String.class);
+
+        Mockito.verify(customerDao).updateCustomerProfileImageId(
+                profileImageIdArgumentCaptor.capture(),
+                eq(customerId)
+        );
+        assertThat(keyArgumentCaptor.getValue()).isEqualTo(
+                "profile-images/content/%s".formatted(sha256(bytes)));
+        Mockito.verify(profileImageContentDao).addReference(
+                profileImageIdArgumentCaptor.getValue(),
+                sha256(bytes),
+                keyArgumentCaptor.getValue(),
+                bytes.length
+        );
     }
 
     @Test
-    void cannotUploadProfileImageWhenExceptionThrown() throws IOException {
+    void doesNotStoreProfileImageIdWhenAsyncUploadFails() {
         // Given
         int customerId = 10;
 
         Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
-
-        MultipartFile multipartFile = Mockito.mock(MultipartFile.class);
-        Mockito.when(multipartFile.getBytes()).thenThrow(IOException.class);
-
-        String bucket = "customer-bucket";
-        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+        Mockito.when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
+        Mockito.when(s3AsyncService.putObject(any(), any(), any(), anyLong(), any()))
+                .thenReturn(CompletableFuture.failedFuture(
+                        S3Exception.builder().statusCode(500).build()));
 
         // When
-        assertThatThrownBy(() -> underTest.uploadCustomerProfileImage(
-                customerId, multipartFile
-        )).isInstanceOf(RuntimeException.class)
-                .hasMessage("Failed to upload profile image")
-                .hasRootCauseInstanceOf(IOException.class);
+        CompletableFuture<Void> actual = underTest.uploadCustomerProfileImageAsync(
+                customerId, new MockMultipartFile("file", "image".getBytes()));
 
         // Then
+        assertThat(actual).isCompletedExceptionally();
         Mockito.verify(customerDao, Mockito.never()).updateCustomerProfileImageId(
                 any(),
                 any()
         );
+        ArgumentCaptor<String> profileImageIdArgumentCaptor =
+                ArgumentCaptor.forClass(String.class);
+        Mockito.verify(profileImageContentDao).addReference(
+                profileImageIdArgumentCaptor.capture(), any(), any(), anyLong());
+        Mockito.verify(profileImageContentDao)
+                .releaseReference(profileImageIdArgumentCaptor.getValue());
     }
 
     @Test
-    void canDownloadProfileImage() {
+    void recordsAsyncUploadOnApplicationExecutor() {
+        // Given
+        int customerId = 10;
+        List<Runnable> tasks = new ArrayList<>();
+        underTest = new CustomerService(customerDao, customerDTOMapper, passwordEncoder, s3Service, s3AsyncService, s3Buckets, variantGenerator, profileImagePresigner,
+                profileImageContentDao, profileImageMetadataDao, tasks::add,
+                TransactionOperations.withoutTransaction());
+
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        Mockito.when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
+        Mockito.when(s3AsyncService.putObject(any(), any(), any(), anyLong(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        CompletableFuture<Void> actual = underTest.uploadCustomerProfileImageAsync(
+                customerId, new MockMultipartFile("file", "image".getBytes()));
+
+        // Then
+        assertThat(actual).isNotDone();
+        Mockito.verifyNoInteractions(profileImageMetadataDao);
+        assertThat(tasks).hasSize(1);
+        tasks.get(0).run();
+        assertThat(actual).isCompleted();
+        Mockito.verify(customerDao).updateCustomerProfileImageId(any(), eq(customerId));
+    }
+
+    @Test
+    void canStreamProfileImageAsync() {
         // Given
         int customerId = 10;
         String profileImageId = "2222";
@@ -446,17 +576,906 @@ class CustomerServiceTest {
         String bucket = "customer-bucket";
         Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
 
-        byte[] expectedImage = "image".getBytes();
-        Mockito.when(s3Service.getObject(
+        ResponseInputStream<GetObjectResponse> object = new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength(5L).build(),
+                new ByteArrayInputStream("image".getBytes())
+        );
+        Mockito.when(s3AsyncService.getObjectStream(
+                bucket,
+                "profile-images/%s/%s".formatted(customerId, profileImageId),
+                null
+        )).thenReturn(CompletableFuture.completedFuture(object));
+
+        // When
+        CustomerProfileImage actual =
+                underTest.getCustomerProfileImageAsync(customerId, null).join();
+
+        // Then
+        assertThat(actual.content()).isSameAs(object);
+        assertThat(actual.contentLength()).isEqualTo(5L);
+    }
+
+    @Test
+    void storesProfileImageVariantsNextToOriginal() {
+        // Given
+        int customerId = 10;
+
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+        Mockito.when(s3AsyncService.putObject(any(), any(), any(), anyLong(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        byte[] thumbnail = "thumbnail".getBytes();
+        MultipartFile multipartFile = new MockMultipartFile(
+                "file", "male.jpeg", "image/jpeg", "image".getBytes()
+        );
+        Mockito.when(variantGenerator.generate(multipartFile))
+                .thenReturn(CompletableFuture.completedFuture(
+                        Map.of(ProfileImageSize.THUMBNAIL, thumbnail)));
+
+        // When
+        underTest.uploadCustomerProfileImageAsync(customerId, multipartFile).join();
+
+        // Then
+        ArgumentCaptor<String> profileImageIdArgumentCaptor =
+                ArgumentCaptor.forClass(String.class);
+        Mockito.verify(customerDao).updateCustomerProfileImageId(
+                profileImageIdArgumentCaptor.capture(),
+                eq(customerId)
+        );
+        Mockito.verify(s3AsyncService).putObject(
+                eq(bucket),
+                eq("profile-images/content/%s-thumbnail".formatted(sha256("image".getBytes()))),
+                any(InputStream.class),
+                eq((long) thumbnail.length),
+                eq("image/jpeg")
+        );
+    }
+
+    @Test
+    void doesNotStoreProfileImageIdWhenVariantGenerationFails() {
+        // Given
+        int customerId = 10;
+
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        Mockito.when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
+        Mockito.when(s3AsyncService.putObject(any(), any(), any(), anyLong(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        Mockito.when(variantGenerator.generate(any()))
+                .thenReturn(CompletableFuture.failedFuture(new OutOfMemoryError()));
+
+        // When
+        CompletableFuture<Void> actual = underTest.uploadCustomerProfileImageAsync(
+                customerId, new MockMultipartFile("file", "image".getBytes()));
+
+        // Then
+        assertThat(actual).isCompletedExceptionally();
+        Mockito.verify(customerDao, Mockito.never()).updateCustomerProfileImageId(
+                any(),
+                any()
+        );
+    }
+
+    @Test
+    void canStreamProfileImageVariant() {
+        // Given
+        int customerId = 10;
+        String profileImageId = "2222";
+        mockCustomerWithProfileImage(customerId, profileImageId);
+
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        ResponseInputStream<GetObjectResponse> object = new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength(5L).build(),
+                new ByteArrayInputStream("thumb".getBytes())
+        );
+        Mockito.when(s3AsyncService.getObjectStream(
+                bucket,
+                "profile-images/%s/%s-thumbnail".formatted(customerId, profileImageId),
+                null
+        )).thenReturn(CompletableFuture.completedFuture(object));
+
+        // When
+        CustomerProfileImage actual = underTest.getCustomerProfileImageAsync(
+                customerId, null, ProfileImageSize.THUMBNAIL).join();
+
+        // Then
+        assertThat(actual.content()).isSameAs(object);
+    }
+
+    @Test
+    void fallsBackToOriginalWhenProfileImageVariantMissing() {
+        // Given
+        int customerId = 10;
+        String profileImageId = "2222";
+        mockCustomerWithProfileImage(customerId, profileImageId);
+
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        Mockito.when(s3AsyncService.getObjectStream(
+                bucket,
+                "profile-images/%s/%s-medium".formatted(customerId, profileImageId),
+                null
+        )).thenReturn(CompletableFuture.failedFuture(
+                NoSuchKeyException.builder().statusCode(404).build()));
+        ResponseInputStream<GetObjectResponse> original = new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength(5L).build(),
+                new ByteArrayInputStream("image".getBytes())
+        );
+        Mockito.when(s3AsyncService.getObjectStream(
                 bucket,
+                "profile-images/%s/%s".formatted(customerId, profileImageId),
+                null
+        )).thenReturn(CompletableFuture.completedFuture(original));
+
+        // When
+        CustomerProfileImage actual = underTest.getCustomerProfileImageAsync(
+                customerId, null, ProfileImageSize.MEDIUM).join();
+
+        // Then
+        assertThat(actual.content()).isSameAs(original);
+    }
+
+    @Test
+    void canCreateProfileImageUploadUrl() {
+        // Given
+        int customerId = 10;
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        ProfileImageUploadUrl uploadUrl = new ProfileImageUploadUrl(
+                "2222", "https://s3/upload", Map.of(), Instant.now());
+        Mockito.when(profileImagePresigner.presignUpload(
+                any(), any(), eq("image/png"), eq(1024L))).thenReturn(uploadUrl);
+
+        // When
+        ProfileImageUploadUrl actual = underTest.createProfileImageUploadUrl(
+                customerId, new ProfileImageUploadUrlRequest("image/png", 1024L));
+
+        // Then
+        assertThat(actual).isSameAs(uploadUrl);
+        ArgumentCaptor<String> profileImageIdArgumentCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> keyArgumentCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(profileImagePresigner).presignUpload(
+                profileImageIdArgumentCaptor.capture(),
+                keyArgumentCaptor.capture(),
+                eq("image/png"),
+                eq(1024L));
+        assertThat(keyArgumentCaptor.getValue()).isEqualTo("profile-images/%s/%s".formatted(
+                customerId, profileImageIdArgumentCaptor.getValue()));
+        Mockito.verify(customerDao, Mockito.never()).updateCustomerProfileImageId(any(), any());
+    }
+
+    @Test
+    void canConfirmProfileImageUpload() {
+        // Given
+        int customerId = 10;
+        String profileImageId = UUID.randomUUID().toString();
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+        Mockito.when(profileImagePresigner.getMaxContentLength()).thenReturn(1024L);
+        Mockito.when(s3Service.headObject(
+                bucket, "profile-images/%s/%s".formatted(customerId, profileImageId)
+        )).thenReturn(HeadObjectResponse.builder().contentLength(5L).build());
+
+        // When
+        underTest.confirmProfileImageUpload(
+                customerId, new ProfileImageUploadConfirmation(profileImageId));
+
+        // Then
+        Mockito.verify(variantGenerator).generate(any());
+        Mockito.verify(customerDao).updateCustomerProfileImageId(profileImageId, customerId);
+    }
+
+    @Test
+    void confirmingCurrentProfileImageAgainKeepsIt() {
+        // Given
+        int customerId = 10;
+        String profileImageId = UUID.randomUUID().toString();
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        Mockito.when(customerDao.selectCustomerById(customerId)).thenReturn(Optional.of(new Customer(
+                customerId, "Alex", "alex@gmail.com", "password", 19, Gender.MALE, profileImageId)));
+
+        // When
+        underTest.confirmProfileImageUpload(
+                customerId, new ProfileImageUploadConfirmation(profileImageId));
+
+        // Then
+        Mockito.verify(customerDao, Mockito.never()).updateCustomerProfileImageId(any(), any());
+        Mockito.verify(profileImageContentDao, Mockito.never()).releaseReference(any());
+        Mockito.verifyNoInteractions(profileImageMetadataDao);
+        Mockito.verifyNoInteractions(s3Service);
+    }
+
+    @Test
+    void willThrowWhenConfirmingProfileImageThatWasNotUploaded() {
+        // Given
+        int customerId = 10;
+        String profileImageId = UUID.randomUUID().toString();
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        Mockito.when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
+        Mockito.when(s3Service.headObject(any(), any()))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+
+        // When
+        assertThatThrownBy(() -> underTest.confirmProfileImageUpload(
+                customerId, new ProfileImageUploadConfirmation(profileImageId)))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("profile image [%s] has not been uploaded".formatted(profileImageId));
+
+        // Then
+        Mockito.verify(customerDao, Mockito.never()).updateCustomerProfileImageId(any(), any());
+    }
+
+    @Test
+    void willThrowWhenConfirmingInvalidProfileImageId() {
+        // Given
+        int customerId = 10;
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+
+        // When
+        assertThatThrownBy(() -> underTest.confirmProfileImageUpload(
+                customerId, new ProfileImageUploadConfirmation("../../other")))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("profile image id [../../other] is not valid");
+
+        // Then
+        Mockito.verifyNoInteractions(s3Service);
+        Mockito.verify(customerDao, Mockito.never()).updateCustomerProfileImageId(any(), any());
+    }
+
+    @Test
+    void presignsOriginalWhenProfileImageVariantMissing() {
+        // Given
+        int customerId = 10;
+        String profileImageId = "2222";
+        mockCustomerWithProfileImage(customerId, profileImageId);
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+        Mockito.when(s3Service.headObject(
+                bucket, "profile-images/%s/%s-thumbnail".formatted(customerId, profileImageId)
+        )).thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+        ProfileImageDownloadUrl downloadUrl =
+                new ProfileImageDownloadUrl("https://s3/download", Instant.now());
+        Mockito.when(profileImagePresigner.presignDownload(
                 "profile-images/%s/%s".formatted(customerId, profileImageId)
-        )).thenReturn(expectedImage);
+        )).thenReturn(downloadUrl);
 
         // When
-        byte[] actualImage = underTest.getCustomerProfileImage(customerId);
+        ProfileImageDownloadUrl actual = underTest.getCustomerProfileImageUrl(
+                customerId, ProfileImageSize.THUMBNAIL);
 
         // Then
-        assertThat(actualImage).isEqualTo(expectedImage);
+        assertThat(actual).isSameAs(downloadUrl);
+    }
+
+    @Test
+    void skipsStoringProfileImageContentThatAlreadyExists() {
+        // Given
+        int customerId = 10;
+        byte[] bytes = "Hello World".getBytes();
+        String sha256 = sha256(bytes);
+
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        Mockito.when(profileImageContentDao.addReference(any(), eq(sha256), any(), anyLong()))
+                .thenReturn(Optional.of(2));
+        Mockito.when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
+        Mockito.when(s3Service.headObject("customer-bucket", "profile-images/content/" + sha256))
+                .thenReturn(HeadObjectResponse.builder().build());
+
+        // When
+        underTest.uploadCustomerProfileImageAsync(
+                customerId, new MockMultipartFile("file", bytes)).join();
+
+        // Then
+        Mockito.verifyNoInteractions(s3AsyncService);
+        Mockito.verifyNoInteractions(variantGenerator);
+        ArgumentCaptor<String> profileImageIdArgumentCaptor =
+                ArgumentCaptor.forClass(String.class);
+        Mockito.verify(customerDao).updateCustomerProfileImageId(
+                profileImageIdArgumentCaptor.capture(),
+                eq(customerId)
+        );
+        Mockito.verify(profileImageContentDao).addReference(
+                profileImageIdArgumentCaptor.getValue(),
+                sha256,
+                "profile-images/content/%s".formatted(sha256),
+                bytes.length
+        );
+    }
+
+    @Test
+    void releasesPreviousProfileImageOnUpload() {
+        // Given
+        int customerId = 10;
+        mockCustomerWithProfileImage(customerId, "1111");
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        Mockito.when(profileImageContentDao.addReference(any(), any(), any(), anyLong()))
+                .thenReturn(Optional.of(2));
+
+        // When
+        underTest.uploadCustomerProfileImage(
+                customerId, new MockMultipartFile("file", "image".getBytes()));
+
+        // Then
+        InOrder inOrder = Mockito.inOrder(customerDao, profileImageContentDao);
+        inOrder.verify(customerDao).updateCustomerProfileImageId(any(), eq(customerId));
+        inOrder.verify(profileImageContentDao).releaseReference("1111");
+    }
+
+    @Test
+    void replacesProfileImageInOneTransaction() {
+        // Given
+        int customerId = 10;
+        mockCustomerWithProfileImage(customerId, "1111");
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        List<String> inTransaction = new ArrayList<>();
+        boolean[] open = {false};
+        underTest = new CustomerService(customerDao, customerDTOMapper, passwordEncoder, s3Service, s3AsyncService, s3Buckets, variantGenerator, profileImagePresigner,
+                profileImageContentDao, profileImageMetadataDao, Runnable::run,
+                new TransactionOperations() {
+                    @Override
+                    public <T> T execute(TransactionCallback<T> action) {
+                        open[0] = true;
+                        try {
+                            return action.doInTransaction(new SimpleTransactionStatus());
+                        } finally {
+                            open[0] = false;
+                        }
+                    }
+                });
+        Mockito.doAnswer(invocation -> {
+            if (open[0]) {
+                inTransaction.add("release");
+            }
+            return null;
+        }).when(profileImageContentDao).releaseReference("1111");
+
+        // When
+        underTest.uploadCustomerProfileImage(
+                customerId, new MockMultipartFile("file", "image".getBytes()));
+
+        // Then
+        assertThat(inTransaction).containsExactly("release");
+        InOrder inOrder = Mockito.inOrder(customerDao, profileImageContentDao, profileImageMetadataDao);
+        inOrder.verify(customerDao).updateCustomerProfileImageId(any(), eq(customerId));
+        inOrder.verify(profileImageContentDao).releaseReference("1111");
+        inOrder.verify(profileImageMetadataDao).deleteMetadata("1111");
+        Mockito.verify(customerDao, Mockito.never()).selectCustomerById(customerId);
+    }
+
+    @Test
+    void releasesContentReferenceWhenPublishingProfileImageFails() {
+        // Given
+        int customerId = 10;
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        Mockito.when(customerDao.updateCustomerProfileImageId(any(), eq(customerId)))
+                .thenThrow(new IllegalStateException("database is down"));
+
+        // When
+        assertThatThrownBy(() -> underTest.uploadCustomerProfileImage(
+                customerId, new MockMultipartFile("file", "image".getBytes())))
+                .isInstanceOf(IllegalStateException.class);
+
+        // Then
+        ArgumentCaptor<String> profileImageIdArgumentCaptor =
+                ArgumentCaptor.forClass(String.class);
+        Mockito.verify(profileImageContentDao).addReference(
+                profileImageIdArgumentCaptor.capture(), any(), any(), anyLong());
+        Mockito.verify(profileImageContentDao)
+                .releaseReference(profileImageIdArgumentCaptor.getValue());
+    }
+
+    @Test
+    void storesProfileImageContentAgainWhenMissingFromS3() {
+        // Given
+        int customerId = 10;
+        byte[] bytes = "Hello World".getBytes();
+        String key = "profile-images/content/" + sha256(bytes);
+
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        Mockito.when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
+        Mockito.when(profileImageContentDao.addReference(any(), any(), any(), anyLong()))
+                .thenReturn(Optional.of(2));
+        Mockito.when(s3Service.headObject("customer-bucket", key))
+                .thenThrow(NoSuchKeyException.builder().build());
+
+        // When
+        underTest.uploadCustomerProfileImage(customerId, new MockMultipartFile("file", bytes));
+
+        // Then
+        Mockito.verify(s3Service).putObject(
+                eq("customer-bucket"), eq(key), any(InputStream.class), eq((long) bytes.length), any());
+    }
+
+    @Test
+    void willThrowWhenProfileImageContentIsBeingCollected() {
+        // Given
+        int customerId = 10;
+
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        Mockito.when(profileImageContentDao.addReference(any(), any(), any(), anyLong()))
+                .thenReturn(Optional.empty());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.uploadCustomerProfileImage(
+                customerId, new MockMultipartFile("file", "image".getBytes())))
+                .isInstanceOf(TooManyRequestsException.class);
+        Mockito.verifyNoInteractions(s3Service);
+        Mockito.verify(customerDao, Mockito.never()).updateCustomerProfileImageId(any(), any());
+    }
+
+    @Test
+    void releasesContentReferenceWhenStoringProfileImageFails() {
+        // Given
+        int customerId = 10;
+
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        Mockito.when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
+        Mockito.doThrow(S3Exception.builder().statusCode(500).build())
+                .when(s3Service).putObject(any(), any(), any(InputStream.class), anyLong(), any());
+
+        // When
+        assertThatThrownBy(() -> underTest.uploadCustomerProfileImage(
+                customerId, new MockMultipartFile("file", "image".getBytes())))
+                .isInstanceOf(S3Exception.class);
+
+        // Then
+        ArgumentCaptor<String> profileImageIdArgumentCaptor =
+                ArgumentCaptor.forClass(String.class);
+        Mockito.verify(profileImageContentDao).addReference(
+                profileImageIdArgumentCaptor.capture(), any(), any(), anyLong());
+        Mockito.verify(profileImageContentDao)
+                .releaseReference(profileImageIdArgumentCaptor.getValue());
+        Mockito.verifyNoInteractions(profileImageMetadataDao);
+    }
+
+    @Test
+    void recordsProfileImageMetadataOnUpload() throws IOException {
+        // Given
+        int customerId = 10;
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        byte[] bytes = png.toByteArray();
+        MultipartFile multipartFile = new MockMultipartFile(
+                "file", "profile.png", "image/png", bytes);
+        Mockito.when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
+
+        // When
+        underTest.uploadCustomerProfileImage(customerId, multipartFile);
+
+        // Then
+        ArgumentCaptor<ProfileImageMetadata> metadataArgumentCaptor =
+                ArgumentCaptor.forClass(ProfileImageMetadata.class);
+        InOrder inOrder = Mockito.inOrder(profileImageMetadataDao, customerDao);
+        inOrder.verify(profileImageMetadataDao).insertMetadata(metadataArgumentCaptor.capture());
+        inOrder.verify(customerDao).updateCustomerProfileImageId(
+                metadataArgumentCaptor.getValue().profileImageId(), customerId);
+        ProfileImageMetadata actual = metadataArgumentCaptor.getValue();
+        assertThat(actual.customerId()).isEqualTo(customerId);
+        assertThat(actual.size()).isEqualTo(bytes.length);
+        assertThat(actual.contentType()).isEqualTo("image/png");
+        assertThat(actual.checksum()).isEqualTo(sha256(bytes));
+        assertThat(actual.width()).isEqualTo(40);
+        assertThat(actual.height()).isEqualTo(30);
+    }
+
+    @Test
+    void canGetProfileImageMetadataWithoutTouchingS3() {
+        // Given
+        int customerId = 10;
+        ProfileImageMetadata metadata = new ProfileImageMetadata(
+                "2222", customerId, 5, "image/png", sha256("image".getBytes()),
+                1, 1, Instant.now());
+        Mockito.when(profileImageMetadataDao.selectMetadataByCustomerId(customerId))
+                .thenReturn(Optional.of(metadata));
+
+        // When
+        Optional<ProfileImageMetadata> actual = underTest.getCustomerProfileImageMetadata(customerId);
+
+        // Then
+        assertThat(actual).containsSame(metadata);
+        Mockito.verifyNoInteractions(s3Service, s3AsyncService);
+    }
+
+    @Test
+    void profileImageWithoutMetadataIsNotDescribedOnRequest() {
+        // Given
+        int customerId = 10;
+        mockCustomerWithProfileImage(customerId, "2222");
+
+        // When
+        Optional<ProfileImageMetadata> actual = underTest.getCustomerProfileImageMetadata(customerId);
+
+        // Then
+        assertThat(actual).isEmpty();
+        Mockito.verifyNoInteractions(s3Service, s3AsyncService);
+        Mockito.verify(profileImageMetadataDao, Mockito.never()).insertMetadata(any(ProfileImageMetadata.class));
+    }
+
+    @Test
+    void canDescribeStoredProfileImageFromS3() {
+        // Given
+        int customerId = 10;
+        String profileImageId = "2222";
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+        Instant lastModified = Instant.parse("2023-01-01T00:00:00Z");
+        Mockito.when(s3Service.headObject(
+                bucket, "profile-images/%s/%s".formatted(customerId, profileImageId)
+        )).thenReturn(HeadObjectResponse.builder()
+                .contentLength(5L)
+                .contentType("image/png")
+                .eTag("\"5d41402abc4b2a76b9719d911017c592\"")
+                .lastModified(lastModified)
+                .build());
+
+        // When
+        boolean actual = underTest.describeStoredProfileImage(
+                new ProfileImageLocation(customerId, profileImageId, null));
+
+        // Then
+        assertThat(actual).isTrue();
+        Mockito.verify(profileImageMetadataDao).insertMetadata(new ProfileImageMetadata(
+                profileImageId, customerId, 5, "image/png",
+                "5d41402abc4b2a76b9719d911017c592", null, null, lastModified));
+    }
+
+    @Test
+    void describeStoredProfileImageReportsImageGoneFromS3() {
+        // Given
+        String sha256 = sha256("image".getBytes());
+        Mockito.when(s3Buckets.getCustomer()).thenReturn("customer-bucket");
+        Mockito.when(s3Service.headObject("customer-bucket", "profile-images/content/" + sha256))
+                .thenThrow(NoSuchKeyException.builder().statusCode(404).build());
+
+        // When
+        boolean actual = underTest.describeStoredProfileImage(
+                new ProfileImageLocation(10, "2222", sha256));
+
+        // Then
+        assertThat(actual).isFalse();
+        Mockito.verify(profileImageMetadataDao, Mockito.never()).insertMetadata(any(ProfileImageMetadata.class));
+    }
+
+    @Test
+    void profileImageVariantsHaveTheirOwnETag() {
+        // Given
+        ProfileImageMetadata metadata = new ProfileImageMetadata(
+                "2222", 10, 5, "image/png", "abc", null, null, Instant.now());
+
+        // When
+        // Then
+        assertThat(metadata.eTag(ProfileImageSize.ORIGINAL)).isEqualTo("\"abc\"");
+        assertThat(metadata.eTag(ProfileImageSize.THUMBNAIL)).isEqualTo("\"abc-thumbnail\"");
+    }
+
+    @Test
+    void canStreamContentAddressedProfileImage() {
+        // Given
+        int customerId = 10;
+        String profileImageId = "2222";
+        String sha256 = sha256("image".getBytes());
+        mockCustomerWithProfileImage(customerId, profileImageId);
+        Mockito.when(profileImageContentDao.selectContentHash(profileImageId))
+                .thenReturn(Optional.of(sha256));
+
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        ResponseInputStream<GetObjectResponse> object = new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength(5L).build(),
+                new ByteArrayInputStream("thumb".getBytes())
+        );
+        Mockito.when(s3AsyncService.getObjectStream(
+                bucket,
+                "profile-images/content/%s-thumbnail".formatted(sha256),
+                null
+        )).thenReturn(CompletableFuture.completedFuture(object));
+
+        // When
+        CustomerProfileImage actual = underTest.getCustomerProfileImageAsync(
+                customerId, null, ProfileImageSize.THUMBNAIL).join();
+
+        // Then
+        assertThat(actual.content()).isSameAs(object);
+    }
+
+    @Test
+    void canGetProfileImagesOfSeveralCustomersInRequestOrder() {
+        // Given
+        String sha256 = sha256("image".getBytes());
+        Mockito.when(customerDao.selectProfileImageLocations(List.of(3, 1, 2, 4)))
+                .thenReturn(List.of(
+                        new ProfileImageLocation(1, "1111", sha256),
+                        new ProfileImageLocation(2, "2222", null),
+                        new ProfileImageLocation(3, "3333", null)));
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        ResponseInputStream<GetObjectResponse> first = thumbnail();
+        ResponseInputStream<GetObjectResponse> third = thumbnail();
+        Mockito.when(s3AsyncService.getObjectStream(
+                bucket, "profile-images/content/%s-thumbnail".formatted(sha256), null
+        )).thenReturn(CompletableFuture.completedFuture(first));
+        Mockito.when(s3AsyncService.getObjectStream(
+                bucket, "profile-images/3/3333-thumbnail", null
+        )).thenReturn(CompletableFuture.completedFuture(third));
+        // neither the variant nor the original exist any more
+        Mockito.when(s3AsyncService.getObjectStream(
+                eq(bucket), startsWith("profile-images/2/2222"), isNull()
+        )).thenReturn(CompletableFuture.failedFuture(
+                NoSuchKeyException.builder().statusCode(404).build()));
+
+        // When
+        Map<Integer, Supplier<CompletableFuture<CustomerProfileImage>>> actual =
+                underTest.getCustomerProfileImagesAsync(
+                        List.of(3, 1, 2, 3, 4), ProfileImageSize.THUMBNAIL);
+
+        // Then
+        assertThat(actual.keySet()).containsExactly(3, 1, 2);
+        // nothing is fetched before the caller asks for it
+        Mockito.verifyNoInteractions(s3AsyncService);
+        assertThat(actual.get(3).get().join().content()).isSameAs(third);
+        assertThat(actual.get(1).get().join().content()).isSameAs(first);
+        assertThat(actual.get(2).get().join()).isNull();
+        // fetched in the order the parts are written
+        InOrder inOrder = Mockito.inOrder(s3AsyncService);
+        inOrder.verify(s3AsyncService).getObjectStream(
+                bucket, "profile-images/3/3333-thumbnail", null);
+        inOrder.verify(s3AsyncService).getObjectStream(
+                bucket, "profile-images/content/%s-thumbnail".formatted(sha256), null);
+    }
+
+    @Test
+    void willThrowWhenTooManyProfileImagesRequested() {
+        // Given
+        List<Integer> customerIds = IntStream.rangeClosed(1, CustomerService.MAX_PROFILE_IMAGE_BATCH + 1)
+                .boxed()
+                .toList();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getCustomerProfileImagesAsync(
+                customerIds, ProfileImageSize.THUMBNAIL))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("between 1 and 100 customer ids required");
+        Mockito.verify(customerDao, Mockito.never()).selectProfileImageLocations(any());
+    }
+
+    private static ResponseInputStream<GetObjectResponse> thumbnail() {
+        return new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength(5L).build(),
+                new ByteArrayInputStream("thumb".getBytes())
+        );
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void mockCustomerWithProfileImage(int customerId, String profileImageId) {
+        Customer customer = new Customer(
+                customerId,
+                "Alex",
+                "alex@gmail.com",
+                "password",
+                19,
+                Gender.MALE,
+                profileImageId
+        );
+        Mockito.when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.of(customer));
+        Mockito.when(customerDao.updateCustomerProfileImageId(any(), eq(customerId)))
+                .thenReturn(profileImageId);
+    }
+
+    @Test
+    void cannotUploadProfileImageWhenCustomerDoesNotExist() {
+        // Given
+        int customerId = 10;
+
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(false);
+
+        // When
+        assertThatThrownBy(() ->
+            underTest.uploadCustomerProfileImage(customerId,
+                    Mockito.mock(MultipartFile.class))
+        ).isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id ["+ customerId +"] not found");
+
+        // Then
+        Mockito.verify(customerDao).existsPersonWithId(customerId);
+        Mockito.verifyNoMoreInteractions(customerDao);
+        Mockito.verifyNoInteractions(s3Buckets);
+        Mockito.verifyNoInteractions(s3Service);
+    }
+
+    @Test
+    void cannotUploadProfileImageWhenExceptionThrown() throws IOException {
+        // Given
+        int customerId = 10;
+
+        Mockito.when(customerDao.existsPersonWithId(customerId)).thenReturn(true);
+
+        MultipartFile multipartFile = Mockito.mock(MultipartFile.class);
+        Mockito.when(multipartFile.getInputStream()).thenThrow(IOException.class);
+
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        // When
+        assertThatThrownBy(() -> underTest.uploadCustomerProfileImage(
+                customerId, multipartFile
+        )).isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to upload profile image")
+                .hasRootCauseInstanceOf(IOException.class);
+
+        // Then
+        Mockito.verify(customerDao, Mockito.never()).updateCustomerProfileImageId(
+                any(),
+                any()
+        );
+    }
+
+    @Test
+    void canDownloadProfileImage() {
+        // Given
+        int customerId = 10;
+        String profileImageId = "2222";
+        Customer customer = new Customer(
+                customerId,
+                "Alex",
+                "alex@gmail.com",
+                "password",
+                19,
+                Gender.MALE,
+                profileImageId
+        );
+        Mockito.when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.of(customer));
+
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        byte[] expectedImage = "image".getBytes();
+        Mockito.when(s3Service.getObject(
+                bucket,
+                "profile-images/%s/%s".formatted(customerId, profileImageId)
+        )).thenReturn(expectedImage);
+
+        // When
+        byte[] actualImage = underTest.getCustomerProfileImage(customerId);
+
+        // Then
+        assertThat(actualImage).isEqualTo(expectedImage);
+    }
+
+    @Test
+    void canStreamProfileImage() {
+        // Given
+        int customerId = 10;
+        String profileImageId = "2222";
+        Customer customer = new Customer(
+                customerId,
+                "Alex",
+                "alex@gmail.com",
+                "password",
+                19,
+                Gender.MALE,
+                profileImageId
+        );
+        Mockito.when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.of(customer));
+
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        ResponseInputStream<GetObjectResponse> object = new ResponseInputStream<>(
+                GetObjectResponse.builder()
+                        .contentLength(5L)
+                        .contentType("image/png")
+                        .build(),
+                new ByteArrayInputStream("image".getBytes())
+        );
+        Mockito.when(s3Service.getObjectStream(
+                bucket,
+                "profile-images/%s/%s".formatted(customerId, profileImageId),
+                null
+        )).thenReturn(object);
+
+        // When
+        CustomerProfileImage actual = underTest.getCustomerProfileImageStream(customerId);
+
+        // Then
+        assertThat(actual.content()).isSameAs(object);
+        assertThat(actual.contentLength()).isEqualTo(5L);
+        assertThat(actual.contentType()).isEqualTo("image/png");
+    }
+
+    @Test
+    void canStreamProfileImageRange() {
+        // Given
+        int customerId = 10;
+        String profileImageId = "2222";
+        Customer customer = new Customer(
+                customerId,
+                "Alex",
+                "alex@gmail.com",
+                "password",
+                19,
+                Gender.MALE,
+                profileImageId
+        );
+        Mockito.when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.of(customer));
+
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        ResponseInputStream<GetObjectResponse> object = new ResponseInputStream<>(
+                GetObjectResponse.builder()
+                        .contentLength(2L)
+                        .contentRange("bytes 0-1/5")
+                        .build(),
+                new ByteArrayInputStream("im".getBytes())
+        );
+        Mockito.when(s3Service.getObjectStream(
+                bucket,
+                "profile-images/%s/%s".formatted(customerId, profileImageId),
+                "bytes=0-1"
+        )).thenReturn(object);
+
+        // When
+        CustomerProfileImage actual =
+                underTest.getCustomerProfileImageStream(customerId, "bytes=0-1");
+
+        // Then
+        assertThat(actual.contentLength()).isEqualTo(2L);
+        assertThat(actual.contentRange()).isEqualTo("bytes 0-1/5");
+    }
+
+    @Test
+    void willThrowWhenProfileImageRangeNotSatisfiable() {
+        // Given
+        int customerId = 10;
+        String profileImageId = "2222";
+        Customer customer = new Customer(
+                customerId,
+                "Alex",
+                "alex@gmail.com",
+                "password",
+                19,
+                Gender.MALE,
+                profileImageId
+        );
+        Mockito.when(customerDao.selectCustomerById(customerId))
+                .thenReturn(Optional.of(customer));
+
+        String bucket = "customer-bucket";
+        Mockito.when(s3Buckets.getCustomer()).thenReturn(bucket);
+
+        Mockito.when(s3Service.getObjectStream(
+                bucket,
+                "profile-images/%s/%s".formatted(customerId, profileImageId),
+                "bytes=100-"
+        )).thenThrow(S3Exception.builder().statusCode(416).build());
+
+        // When
+        // Then
+        assertThatThrownBy(() ->
+                underTest.getCustomerProfileImageStream(customerId, "bytes=100-")
+        ).isInstanceOf(RequestedRangeNotSatisfiableException.class);
     }
 
     @Test
@@ -0,0 +1,145 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.AbstractTestcontainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileImageContentDaoTest extends AbstractTestcontainers {
+
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+    private ProfileImageContentDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ProfileImageContentDao(jdbcTemplate);
+    }
+
+    @Test
+    void addReferenceCountsEveryProfileImageOfTheSameContent() {
+        // Given
+        String sha256 = randomSha256();
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+
+        // When
+        var firstCount = underTest.addReference(first, sha256, "profile-images/content/" + sha256, 5);
+        var secondCount = underTest.addReference(second, sha256, "profile-images/content/" + sha256, 5);
+
+        // Then
+        assertThat(firstCount).contains(1);
+        assertThat(secondCount).contains(2);
+        assertThat(refCount(sha256)).isEqualTo(2);
+        assertThat(underTest.selectContentHash(first)).contains(sha256);
+        assertThat(underTest.selectContentHash(second)).contains(sha256);
+    }
+
+    @Test
+    void releaseReferenceDecrementsCount() {
+        // Given
+        String sha256 = randomSha256();
+        String profileImageId = UUID.randomUUID().toString();
+        underTest.addReference(profileImageId, sha256, "profile-images/content/" + sha256, 5);
+
+        // When
+        underTest.releaseReference(profileImageId);
+        underTest.releaseReference(profileImageId);
+
+        // Then
+        assertThat(refCount(sha256)).isZero();
+        assertThat(underTest.selectContentHash(profileImageId)).isEmpty();
+    }
+
+    @Test
+    void selectContentHashIsEmptyForProfileImagesWithoutContent() {
+        // When
+        Optional<String> actual = underTest.selectContentHash(UUID.randomUUID().toString());
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void claimUnreferencedContentOnlyClaimsReleasedOrUnknownContent() {
+        // Given
+        String released = randomSha256();
+        String live = randomSha256();
+        String unknown = randomSha256();
+        String releasedId = UUID.randomUUID().toString();
+        underTest.addReference(releasedId, released, "profile-images/content/" + released, 5);
+        underTest.addReference(UUID.randomUUID().toString(), live, "profile-images/content/" + live, 5);
+        underTest.releaseReference(releasedId);
+
+        // When
+        var actual = underTest.claimUnreferencedContent(List.of(released, live, unknown));
+
+        // Then
+        assertThat(actual).containsExactlyInAnyOrder(released, unknown);
+        assertThat(refCount(live)).isEqualTo(1);
+    }
+
+    @Test
+    void addReferenceIsTurnedAwayWhileContentIsClaimed() {
+        // Given
+        String sha256 = randomSha256();
+        String profileImageId = UUID.randomUUID().toString();
+        underTest.claimUnreferencedContent(List.of(sha256));
+
+        // When
+        var actual = underTest.addReference(profileImageId, sha256, "profile-images/content/" + sha256, 5);
+
+        // Then
+        assertThat(actual).isEmpty();
+        assertThat(underTest.selectContentHash(profileImageId)).isEmpty();
+    }
+
+    @Test
+    void deleteClaimedContentMakesContentUsableAgain() {
+        // Given
+        String sha256 = randomSha256();
+        underTest.claimUnreferencedContent(List.of(sha256));
+
+        // When
+        underTest.deleteClaimedContent(List.of(sha256));
+        var actual = underTest.addReference(
+                UUID.randomUUID().toString(), sha256, "profile-images/content/" + sha256, 5);
+
+        // Then
+        assertThat(actual).contains(1);
+    }
+
+    @Test
+    void tryRunExclusivelyRunsTaskWhileHoldingTheLock() {
+        // Given
+        long lockKey = 42L;
+        boolean[] ranNested = {true};
+
+        // When
+        boolean actual = underTest.tryRunExclusively(lockKey, () ->
+                ranNested[0] = new ProfileImageContentDao(getJdbcTemplate())
+                        .tryRunExclusively(lockKey, () -> {}));
+
+        // Then
+        assertThat(actual).isTrue();
+        assertThat(ranNested[0]).isFalse();
+    }
+
+    private Integer refCount(String sha256) {
+        return jdbcTemplate.queryForObject(
+                "SELECT ref_count FROM profile_image_content WHERE sha256 = ?",
+                Integer.class,
+                sha256);
+    }
+
+    private static String randomSha256() {
+        return (UUID.randomUUID().toString() + UUID.randomUUID())
+                .replace("-", "")
+                .substring(0, 64);
+    }
+}
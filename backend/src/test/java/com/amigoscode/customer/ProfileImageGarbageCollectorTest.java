@@ -0,0 +1,227 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.s3.FakeS3;
+import com.amigoscode.s3.S3Buckets;
+import com.amigoscode.s3.S3MultipartUploader;
+import com.amigoscode.s3.S3Service;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+
+class ProfileImageGarbageCollectorTest {
+
+    private static final String BUCKET = "customer";
+
+    @TempDir
+    Path root;
+
+    private FakeS3 s3Client;
+    private final S3Buckets s3Buckets = new S3Buckets();
+    private final ProfileImageContentDao profileImageContentDao =
+            Mockito.mock(ProfileImageContentDao.class);
+    private final CustomerDao customerDao = Mockito.mock(CustomerDao.class);
+
+    @BeforeEach
+    void setUp() {
+        s3Client = new FakeS3(root);
+        s3Buckets.setCustomer(BUCKET);
+        Mockito.when(profileImageContentDao.tryRunExclusively(anyLong(), any()))
+                .thenAnswer(invocation -> {
+                    invocation.getArgument(1, Runnable.class).run();
+                    return true;
+                });
+    }
+
+    @Test
+    void canDeleteOrphanedProfileImages() {
+        // Given
+        String live = "a".repeat(64);
+        String gone = "b".repeat(64);
+        put("profile-images/1/live", "profile-images/1/live-thumbnail",
+                "profile-images/2/gone", "profile-images/2/gone-medium",
+                "profile-images/content/" + live, "profile-images/content/" + live + "-thumbnail",
+                "profile-images/content/" + gone, "profile-images/content/" + gone + "-medium");
+        Mockito.when(customerDao.selectReferencedProfileImageIds(any()))
+                .thenReturn(Set.of("live"));
+        Mockito.when(profileImageContentDao.claimUnreferencedContent(any()))
+                .thenReturn(Set.of(gone));
+
+        // When
+        underTest(later(), Duration.ofDays(1)).collect();
+
+        // Then
+        assertThat(keys()).containsExactly(
+                "profile-images/1/live", "profile-images/1/live-thumbnail",
+                "profile-images/content/" + live, "profile-images/content/" + live + "-thumbnail");
+        Mockito.verify(profileImageContentDao).claimUnreferencedContent(Set.of(live, gone));
+        Mockito.verify(profileImageContentDao).deleteClaimedContent(List.of(gone));
+    }
+
+    @Test
+    void releasesClaimsLeftByAnUnfinishedSweep() {
+        // When
+        underTest(later(), Duration.ofDays(1)).collect();
+
+        // Then
+        Mockito.verify(profileImageContentDao).deleteClaimedContent();
+    }
+
+    @Test
+    void releasesClaimsWhenDeletingFails() {
+        // Given
+        String gone = "b".repeat(64);
+        S3Service s3Service = Mockito.mock(S3Service.class);
+        Mockito.when(s3Service.listObjects(eq(BUCKET), eq("profile-images/"), isNull(), eq(1000)))
+                .thenReturn(page(List.of(S3Object.builder()
+                        .key("profile-images/content/" + gone)
+                        .lastModified(Instant.EPOCH)
+                        .build()), null));
+        Mockito.when(s3Service.deleteObjects(eq(BUCKET), anyList()))
+                .thenThrow(new IllegalStateException("S3 is down"));
+        Mockito.when(profileImageContentDao.claimUnreferencedContent(any()))
+                .thenReturn(Set.of(gone));
+        ProfileImageGarbageCollector underTest = new ProfileImageGarbageCollector(
+                s3Service, s3Buckets, profileImageContentDao, customerDao, Duration.ofDays(1), 1_000,
+                Clock.systemUTC());
+
+        // When
+        assertThatThrownBy(underTest::collect).isInstanceOf(IllegalStateException.class);
+
+        // Then
+        Mockito.verify(profileImageContentDao).deleteClaimedContent(Set.of(gone));
+    }
+
+    @Test
+    void deletesContentKeysThatAreNotAHashWithoutClaimingThem() {
+        // Given
+        put("profile-images/content/not-a-hash");
+
+        // When
+        underTest(later(), Duration.ofDays(1)).collect();
+
+        // Then
+        assertThat(keys()).isEmpty();
+        Mockito.verify(profileImageContentDao, Mockito.never()).claimUnreferencedContent(any());
+    }
+
+    @Test
+    void willKeepObjectsYoungerThanMinAge() {
+        // Given
+        put("profile-images/2/gone", "profile-images/content/bbb");
+
+        // When
+        underTest(Clock.systemUTC(), Duration.ofDays(1)).collect();
+
+        // Then
+        assertThat(keys()).containsExactly(
+                "profile-images/2/gone", "profile-images/content/bbb");
+        Mockito.verify(customerDao, Mockito.never())
+                .selectReferencedProfileImageIds(any());
+    }
+
+    @Test
+    void willNotSweepWhenAnotherNodeHoldsTheLock() {
+        // Given
+        put("profile-images/2/gone");
+        Mockito.doReturn(false)
+                .when(profileImageContentDao).tryRunExclusively(anyLong(), any());
+
+        // When
+        underTest(later(), Duration.ofDays(1)).collect();
+
+        // Then
+        assertThat(keys()).containsExactly("profile-images/2/gone");
+    }
+
+    @Test
+    void willDeleteInBatchesOfAThousand() {
+        // Given
+        S3Service s3Service = Mockito.mock(S3Service.class);
+        Instant old = Instant.EPOCH;
+        List<S3Object> objects = IntStream.range(0, 2500)
+                .mapToObj(i -> S3Object.builder()
+                        .key("profile-images/%d/%d".formatted(i, i))
+                        .lastModified(old)
+                        .build())
+                .toList();
+        Mockito.when(s3Service.listObjects(eq(BUCKET), eq("profile-images/"), isNull(), eq(1000)))
+                .thenReturn(page(objects.subList(0, 1000), "a"));
+        Mockito.when(s3Service.listObjects(eq(BUCKET), eq("profile-images/"), eq("a"), eq(1000)))
+                .thenReturn(page(objects.subList(1000, 2000), "b"));
+        Mockito.when(s3Service.listObjects(eq(BUCKET), eq("profile-images/"), eq("b"), eq(1000)))
+                .thenReturn(page(objects.subList(2000, 2500), null));
+        Mockito.when(customerDao.selectReferencedProfileImageIds(any()))
+                .thenReturn(Set.of());
+        List<Integer> batchSizes = new ArrayList<>();
+        Mockito.when(s3Service.deleteObjects(eq(BUCKET), anyList())).thenAnswer(invocation -> {
+            batchSizes.add(invocation.getArgument(1, List.class).size());
+            return List.of();
+        });
+        ProfileImageGarbageCollector underTest = new ProfileImageGarbageCollector(
+                s3Service, s3Buckets, profileImageContentDao, customerDao, Duration.ofDays(1), 1_000,
+                Clock.systemUTC());
+
+        // When
+        underTest.collect();
+
+        // Then
+        assertThat(batchSizes).containsExactly(1000, 1000, 500);
+    }
+
+    private ProfileImageGarbageCollector underTest(Clock clock, Duration minAge) {
+        S3Service s3Service = new S3Service(
+                s3Client,
+                Mockito.mock(S3MultipartUploader.class),
+                Mockito.mock(S3Presigner.class));
+        return new ProfileImageGarbageCollector(
+                s3Service, s3Buckets, profileImageContentDao, customerDao, minAge, 1_000, clock);
+    }
+
+    private static Clock later() {
+        return Clock.fixed(Instant.now().plus(Duration.ofDays(2)), ZoneOffset.UTC);
+    }
+
+    private static ListObjectsV2Response page(List<S3Object> objects, String next) {
+        return ListObjectsV2Response.builder()
+                .contents(objects)
+                .isTruncated(next != null)
+                .nextContinuationToken(next)
+                .build();
+    }
+
+    private void put(String... keys) {
+        for (String key : keys) {
+            s3Client.putObject(
+                    PutObjectRequest.builder().bucket(BUCKET).key(key).build(),
+                    RequestBody.fromBytes("image".getBytes()));
+        }
+    }
+
+    private List<String> keys() {
+        return s3Client.listObjectsV2(ListObjectsV2Request.builder().bucket(BUCKET).build())
+                .contents().stream()
+                .map(S3Object::key)
+                .toList();
+    }
+}
@@ -0,0 +1,126 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+
+class ProfileImageImporterTest {
+
+    private final CustomerService customerService = Mockito.mock(CustomerService.class);
+    private final CustomerDao customerDao = Mockito.mock(CustomerDao.class);
+    private final ProfileImageContentDao profileImageContentDao =
+            Mockito.mock(ProfileImageContentDao.class);
+    private final ProfileImageMetadataDao profileImageMetadataDao =
+            Mockito.mock(ProfileImageMetadataDao.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private ProfileImageImporter underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ProfileImageImporter(customerService, customerDao, profileImageContentDao,
+                profileImageMetadataDao, executor, 4, 16, 1000);
+        Mockito.when(customerService.storeProfileImageContent(any(), any(), anyLong(), any()))
+                .thenReturn(new CustomerService.ContentDigest("a".repeat(64), null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void importsEntriesAndPublishesThemInOneUpdate() throws IOException {
+        // Given
+        Mockito.when(customerDao.selectExistingCustomerIds(any()))
+                .thenReturn(Set.of(1, 2));
+        Mockito.when(customerDao.updateProfileImageIds(any()))
+                .thenReturn(Map.of(1, "previous"));
+        byte[] archive = zip(Map.of(
+                "avatars/1.png", "one",
+                "2.jpg", "two"));
+
+        // When
+        ProfileImageImportResult actual = underTest.importArchive(new ByteArrayInputStream(archive));
+
+        // Then
+        assertThat(actual.imported()).isEqualTo(2);
+        assertThat(actual.failures()).isEmpty();
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<Integer, String>> profileImageIdsArgumentCaptor =
+                ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(customerDao, Mockito.times(1))
+                .updateProfileImageIds(profileImageIdsArgumentCaptor.capture());
+        assertThat(profileImageIdsArgumentCaptor.getValue()).containsOnlyKeys(1, 2);
+        Mockito.verify(customerService, Mockito.times(2))
+                .storeProfileImageContent(any(), any(), anyLong(), any());
+        Mockito.verify(profileImageContentDao).releaseReferences(List.of("previous"));
+        Mockito.verify(profileImageMetadataDao).deleteMetadata(List.of("previous"));
+    }
+
+    @Test
+    void reportsEntriesThatCannotBeImported() throws IOException {
+        // Given
+        Mockito.when(customerDao.selectExistingCustomerIds(any()))
+                .thenReturn(Set.of());
+        byte[] archive = zip(Map.of(
+                "alex.png", "image",
+                "1.txt", "text",
+                "2.png", "larger than sixteen bytes",
+                "3.png", "image"));
+
+        // When
+        ProfileImageImportResult actual = underTest.importArchive(new ByteArrayInputStream(archive));
+
+        // Then
+        assertThat(actual.imported()).isZero();
+        assertThat(actual.failures()).isEqualTo(Map.of(
+                "alex.png", "entry name is not a customer id",
+                "1.txt", "entry is not an image",
+                "2.png", "entry is larger than 16 bytes",
+                "3.png", "customer not found"));
+        Mockito.verify(customerDao, Mockito.never()).updateProfileImageIds(any());
+        ArgumentCaptor<String> profileImageIdArgumentCaptor = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(customerService).storeProfileImageContent(
+                profileImageIdArgumentCaptor.capture(), any(), anyLong(), any());
+        Mockito.verify(profileImageContentDao)
+                .releaseReferences(List.of(profileImageIdArgumentCaptor.getValue()));
+    }
+
+    @Test
+    void canReadCustomerIdFromEntryName() {
+        assertThat(ProfileImageImporter.customerId("42.jpg")).isEqualTo(42);
+        assertThat(ProfileImageImporter.customerId("avatars/42.png")).isEqualTo(42);
+        assertThat(ProfileImageImporter.customerId("42")).isEqualTo(42);
+        assertThat(ProfileImageImporter.customerId("alex.png")).isNull();
+    }
+
+    private static byte[] zip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(outputStream)) {
+            zip.putNextEntry(new ZipEntry("avatars/"));
+            zip.closeEntry();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes());
+                zip.closeEntry();
+            }
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,90 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+
+class ProfileImageMetadataBackfillTest {
+
+    private final CustomerDao customerDao = Mockito.mock(CustomerDao.class);
+    private final CustomerService customerService = Mockito.mock(CustomerService.class);
+    private final ProfileImageContentDao profileImageContentDao =
+            Mockito.mock(ProfileImageContentDao.class);
+    private ProfileImageMetadataBackfill underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ProfileImageMetadataBackfill(
+                customerDao, customerService, profileImageContentDao, 1_000_000);
+    }
+
+    @Test
+    void describesEveryProfileImageWithoutMetadata() {
+        // Given
+        List<ProfileImageLocation> firstPage = IntStream
+                .rangeClosed(1, ProfileImageMetadataBackfill.BATCH_SIZE)
+                .mapToObj(id -> new ProfileImageLocation(id, "image-" + id, null))
+                .toList();
+        ProfileImageLocation last = new ProfileImageLocation(
+                ProfileImageMetadataBackfill.BATCH_SIZE + 5, "last", "abc");
+        Mockito.when(customerDao.selectProfileImagesWithoutMetadata(
+                0, ProfileImageMetadataBackfill.BATCH_SIZE)).thenReturn(firstPage);
+        Mockito.when(customerDao.selectProfileImagesWithoutMetadata(
+                ProfileImageMetadataBackfill.BATCH_SIZE, ProfileImageMetadataBackfill.BATCH_SIZE
+        )).thenReturn(List.of(last));
+        Mockito.when(customerService.describeStoredProfileImage(any())).thenReturn(true);
+
+        // When
+        underTest.describeMissing();
+
+        // Then
+        Mockito.verify(customerService, Mockito.times(ProfileImageMetadataBackfill.BATCH_SIZE + 1))
+                .describeStoredProfileImage(any());
+        Mockito.verify(customerService).describeStoredProfileImage(last);
+        Mockito.verify(customerDao, Mockito.times(2)).selectProfileImagesWithoutMetadata(any(), anyInt());
+    }
+
+    @Test
+    void movesPastProfileImagesGoneFromS3() {
+        // Given
+        List<ProfileImageLocation> page = IntStream
+                .rangeClosed(1, ProfileImageMetadataBackfill.BATCH_SIZE)
+                .mapToObj(id -> new ProfileImageLocation(id, "image-" + id, null))
+                .toList();
+        Mockito.when(customerDao.selectProfileImagesWithoutMetadata(
+                0, ProfileImageMetadataBackfill.BATCH_SIZE)).thenReturn(page);
+        Mockito.when(customerDao.selectProfileImagesWithoutMetadata(
+                ProfileImageMetadataBackfill.BATCH_SIZE, ProfileImageMetadataBackfill.BATCH_SIZE
+        )).thenReturn(List.of());
+        Mockito.when(customerService.describeStoredProfileImage(any())).thenReturn(false);
+
+        // When
+        underTest.describeMissing();
+
+        // Then
+        Mockito.verify(customerDao).selectProfileImagesWithoutMetadata(
+                ProfileImageMetadataBackfill.BATCH_SIZE, ProfileImageMetadataBackfill.BATCH_SIZE);
+    }
+
+    @Test
+    void skipsRunWhileAnotherNodeHoldsTheLock() {
+        // Given
+        Mockito.when(profileImageContentDao.tryRunExclusively(
+                eq(ProfileImageMetadataBackfill.LOCK_KEY), any())).thenReturn(false);
+
+        // When
+        underTest.backfill();
+
+        // Then
+        Mockito.verifyNoInteractions(customerDao, customerService);
+        Mockito.verify(profileImageContentDao).tryRunExclusively(anyLong(), any());
+    }
+}
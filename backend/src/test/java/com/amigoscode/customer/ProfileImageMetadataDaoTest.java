@@ -0,0 +1,90 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.AbstractTestcontainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileImageMetadataDaoTest extends AbstractTestcontainers {
+
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+    private ProfileImageMetadataDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ProfileImageMetadataDao(jdbcTemplate);
+    }
+
+    @Test
+    void selectMetadataByCustomerIdReturnsCurrentProfileImageOnly() {
+        // Given
+        String previous = UUID.randomUUID().toString();
+        String current = UUID.randomUUID().toString();
+        int customerId = insertCustomer(current);
+        ProfileImageMetadata metadata = new ProfileImageMetadata(
+                current, customerId, 5, "image/png", "abc", 40, 30,
+                Instant.now().truncatedTo(ChronoUnit.MICROS));
+        underTest.insertMetadata(new ProfileImageMetadata(
+                previous, customerId, 7, "image/jpeg", "def", null, null, Instant.now()));
+        underTest.insertMetadata(metadata);
+
+        // When
+        var actual = underTest.selectMetadataByCustomerId(customerId);
+
+        // Then
+        assertThat(actual).contains(metadata);
+    }
+
+    @Test
+    void insertMetadataKeepsTheFirstDescription() {
+        // Given
+        String profileImageId = UUID.randomUUID().toString();
+        int customerId = insertCustomer(profileImageId);
+        underTest.insertMetadata(new ProfileImageMetadata(
+                profileImageId, customerId, 5, "image/png", "abc", null, null, Instant.now()));
+
+        // When
+        underTest.insertMetadata(new ProfileImageMetadata(
+                profileImageId, customerId, 9, "image/gif", "xyz", null, null, Instant.now()));
+
+        // Then
+        assertThat(underTest.selectMetadataByCustomerId(customerId))
+                .hasValueSatisfying(actual -> assertThat(actual.checksum()).isEqualTo("abc"));
+    }
+
+    @Test
+    void metadataIsDeletedWithItsCustomer() {
+        // Given
+        String profileImageId = UUID.randomUUID().toString();
+        int customerId = insertCustomer(profileImageId);
+        underTest.insertMetadata(new ProfileImageMetadata(
+                profileImageId, customerId, 5, "image/png", "abc", null, null, Instant.now()));
+
+        // When
+        jdbcTemplate.update("DELETE FROM customer WHERE id = ?", customerId);
+
+        // Then
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM customer_profile_image WHERE profile_image_id = ?",
+                Integer.class,
+                profileImageId)).isZero();
+    }
+
+    private int insertCustomer(String profileImageId) {
+        return jdbcTemplate.queryForObject("""
+                        INSERT INTO customer(name, email, password, age, gender, profile_image_id)
+                        VALUES (?, ?, 'password', 20, 'MALE', ?)
+                        RETURNING id
+                        """,
+                Integer.class,
+                FAKER.name().fullName(),
+                UUID.randomUUID() + "@amigoscode.com",
+                profileImageId);
+    }
+}
@@ -0,0 +1,71 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.AbstractTestcontainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileImageUploadJobDaoTest extends AbstractTestcontainers {
+
+    private ProfileImageUploadJobDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ProfileImageUploadJobDao(getJdbcTemplate());
+    }
+
+    @Test
+    void upsertJobReplacesItsState() {
+        // Given
+        UUID id = UUID.randomUUID();
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        underTest.upsertJob(new ProfileImageUploadJob(
+                id, 10, ProfileImageUploadJob.Status.QUEUED, null, null, now));
+        ProfileImageUploadJob completed = new ProfileImageUploadJob(
+                id, 10, ProfileImageUploadJob.Status.COMPLETED, "2222", null, now.plusSeconds(1));
+
+        // When
+        underTest.upsertJob(completed);
+
+        // Then
+        assertThat(underTest.selectJob(id, 10)).contains(completed);
+    }
+
+    @Test
+    void selectJobOfAnotherCustomerIsEmpty() {
+        // Given
+        UUID id = UUID.randomUUID();
+        underTest.upsertJob(new ProfileImageUploadJob(
+                id, 10, ProfileImageUploadJob.Status.QUEUED, null, null, Instant.now()));
+
+        // When
+        var actual = underTest.selectJob(id, 11);
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void deleteJobsUpdatedBeforeKeepsRecentJobs() {
+        // Given
+        Instant now = Instant.now();
+        UUID stale = UUID.randomUUID();
+        UUID recent = UUID.randomUUID();
+        underTest.upsertJob(new ProfileImageUploadJob(
+                stale, 10, ProfileImageUploadJob.Status.PROCESSING, null, null, now.minusSeconds(7200)));
+        underTest.upsertJob(new ProfileImageUploadJob(
+                recent, 10, ProfileImageUploadJob.Status.QUEUED, null, null, now));
+
+        // When
+        underTest.deleteJobsUpdatedBefore(now.minusSeconds(3600));
+
+        // Then
+        assertThat(underTest.selectJob(stale, 10)).isEmpty();
+        assertThat(underTest.selectJob(recent, 10)).isPresent();
+    }
+}
@@ -0,0 +1,257 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.ResourceNotFoundException;
+import com.amigoscode.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+
+class ProfileImageUploadQueueTest {
+
+    @TempDir
+    Path spoolDirectory;
+
+    private final CustomerService customerService = Mockito.mock(CustomerService.class);
+    private final ProfileImageUploadJobDao profileImageUploadJobDao =
+            Mockito.mock(ProfileImageUploadJobDao.class);
+    // stands in for the job table
+    private final Map<UUID, ProfileImageUploadJob> jobs = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ThreadPoolExecutor executor;
+    private ProfileImageUploadQueue underTest;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolExecutor(
+                1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        Mockito.doAnswer(invocation -> {
+            ProfileImageUploadJob job = invocation.getArgument(0);
+            jobs.put(job.id(), job);
+            return null;
+        }).when(profileImageUploadJobDao).upsertJob(any());
+        Mockito.doAnswer(invocation -> jobs.remove(invocation.<UUID>getArgument(0)))
+                .when(profileImageUploadJobDao).deleteJob(any());
+        Mockito.when(profileImageUploadJobDao.selectJob(any(), any())).thenAnswer(invocation ->
+                Optional.ofNullable(jobs.get(invocation.<UUID>getArgument(0)))
+                        .filter(job -> job.customerId().equals(invocation.getArgument(1))));
+        underTest = new ProfileImageUploadQueue(
+                customerService,
+                profileImageUploadJobDao,
+                meterRegistry,
+                spoolDirectory,
+                executor,
+                Duration.ofHours(1),
+                Duration.ofSeconds(5),
+                Clock.systemUTC());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void canProcessSpooledUpload() throws Exception {
+        // Given
+        int customerId = 10;
+        byte[] bytes = "image".getBytes();
+        Mockito.when(customerService.uploadCustomerProfileImage(
+                eq(customerId), any(InputStreamSource.class), eq((long) bytes.length), eq("image/jpeg")
+        )).thenReturn("2222");
+
+        // When
+        ProfileImageUploadJob job = underTest.submit(customerId, new MockMultipartFile(
+                "file", "male.jpeg", "image/jpeg", bytes));
+
+        // Then
+        ProfileImageUploadJob actual = awaitFinished(customerId, job.id());
+        assertThat(actual.status()).isEqualTo(ProfileImageUploadJob.Status.COMPLETED);
+        assertThat(actual.profileImageId()).isEqualTo("2222");
+        try (var spooled = Files.list(spoolDirectory.resolve(String.valueOf(customerId)))) {
+            assertThat(spooled).isEmpty();
+        }
+    }
+
+    @Test
+    void reportsFailedUpload() throws Exception {
+        // Given
+        int customerId = 10;
+        Mockito.when(customerService.uploadCustomerProfileImage(
+                eq(customerId), any(InputStreamSource.class), anyLong(), any()
+        )).thenThrow(new RuntimeException("s3 is down"));
+
+        // When
+        ProfileImageUploadJob job = underTest.submit(customerId, new MockMultipartFile(
+                "file", "image".getBytes()));
+
+        // Then
+        ProfileImageUploadJob actual = awaitFinished(customerId, job.id());
+        assertThat(actual.status()).isEqualTo(ProfileImageUploadJob.Status.FAILED);
+        assertThat(actual.error()).isEqualTo("s3 is down");
+    }
+
+    @Test
+    void willThrowWhenQueueIsFull() throws Exception {
+        // Given
+        int customerId = 10;
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(customerService.uploadCustomerProfileImage(
+                eq(customerId), any(InputStreamSource.class), anyLong(), any()
+        )).thenAnswer(invocation -> {
+            release.await();
+            return "2222";
+        });
+        MockMultipartFile file = new MockMultipartFile("file", "image".getBytes());
+
+        underTest.submit(customerId, file);
+        while (executor.getActiveCount() == 0) {
+            Thread.sleep(5);
+        }
+        underTest.submit(customerId, file);
+
+        // When
+        assertThatThrownBy(() -> underTest.submit(customerId, file))
+                .isInstanceOf(TooManyRequestsException.class)
+                .hasMessage("profile image upload queue is full");
+
+        // Then
+        assertThat(meterRegistry.get("profile.image.upload.queue.depth").gauge().value())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("profile.image.upload.queue.rejected").counter().count())
+                .isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void willThrowWhenCustomerDoesNotExist() {
+        // Given
+        int customerId = 10;
+        Mockito.doThrow(new ResourceNotFoundException("customer with id [10] not found"))
+                .when(customerService).checkIfCustomerExistsOrThrow(customerId);
+
+        // When
+        assertThatThrownBy(() -> underTest.submit(customerId, new MockMultipartFile(
+                "file", "image".getBytes())))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        // Then
+        assertThat(spoolDirectory).isEmptyDirectory();
+    }
+
+    @Test
+    void cannotSeeJobOfAnotherCustomer() {
+        // Given
+        ProfileImageUploadJob job = underTest.submit(10, new MockMultipartFile(
+                "file", "image".getBytes()));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getJob(11, job.id()))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("profile image upload job with id [%s] not found".formatted(job.id()));
+    }
+
+    @Test
+    void canRecoverSpooledUploads() throws Exception {
+        // Given
+        int customerId = 10;
+        UUID jobId = UUID.randomUUID();
+        Path customerDirectory = Files.createDirectories(
+                spoolDirectory.resolve(String.valueOf(customerId)));
+        Files.writeString(customerDirectory.resolve(jobId.toString()), "image");
+        Files.writeString(customerDirectory.resolve(jobId + ".content-type"), "image/png");
+        Files.writeString(customerDirectory.resolve(UUID.randomUUID() + ".tmp"), "partial");
+        Mockito.when(customerService.uploadCustomerProfileImage(
+                eq(customerId), any(InputStreamSource.class), eq(5L), eq("image/png")
+        )).thenReturn("2222");
+
+        // When
+        underTest.recover();
+
+        // Then
+        ProfileImageUploadJob actual = awaitFinished(customerId, jobId);
+        assertThat(actual.status()).isEqualTo(ProfileImageUploadJob.Status.COMPLETED);
+        try (var spooled = Files.list(customerDirectory)) {
+            assertThat(spooled).isEmpty();
+        }
+    }
+
+    @Test
+    void recoverSkipsEntriesThatAreNotCustomerDirectories() throws Exception {
+        // Given
+        int customerId = 10;
+        UUID jobId = UUID.randomUUID();
+        Files.createDirectories(spoolDirectory.resolve("lost+found"));
+        Files.writeString(spoolDirectory.resolve("42"), "not a directory");
+        Path customerDirectory = Files.createDirectories(
+                spoolDirectory.resolve(String.valueOf(customerId)));
+        Files.writeString(customerDirectory.resolve(jobId.toString()), "image");
+        Files.writeString(customerDirectory.resolve(jobId + ".content-type"), "image/png");
+        Mockito.when(customerService.uploadCustomerProfileImage(
+                eq(customerId), any(InputStreamSource.class), eq(5L), eq("image/png")
+        )).thenReturn("2222");
+
+        // When
+        underTest.recover();
+
+        // Then
+        ProfileImageUploadJob actual = awaitFinished(customerId, jobId);
+        assertThat(actual.status()).isEqualTo(ProfileImageUploadJob.Status.COMPLETED);
+        assertThat(spoolDirectory.resolve("lost+found")).isDirectory();
+    }
+
+    @Test
+    void storesJobStateForOtherNodesToReport() throws Exception {
+        // Given
+        int customerId = 10;
+        Mockito.when(customerService.uploadCustomerProfileImage(
+                eq(customerId), any(InputStreamSource.class), anyLong(), any()
+        )).thenReturn("2222");
+
+        // When
+        ProfileImageUploadJob job = underTest.submit(customerId, new MockMultipartFile(
+                "file", "image".getBytes()));
+        awaitFinished(customerId, job.id());
+
+        // Then
+        ArgumentCaptor<ProfileImageUploadJob> statuses = ArgumentCaptor.forClass(ProfileImageUploadJob.class);
+        Mockito.verify(profileImageUploadJobDao, Mockito.times(3)).upsertJob(statuses.capture());
+        assertThat(statuses.getAllValues())
+                .extracting(ProfileImageUploadJob::status)
+                .containsExactly(
+                        ProfileImageUploadJob.Status.QUEUED,
+                        ProfileImageUploadJob.Status.PROCESSING,
+                        ProfileImageUploadJob.Status.COMPLETED);
+    }
+
+    private ProfileImageUploadJob awaitFinished(int customerId, UUID jobId)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        ProfileImageUploadJob job = underTest.getJob(customerId, jobId);
+        while (!job.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+            job = underTest.getJob(customerId, jobId);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,216 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.s3.FakeS3;
+import com.amigoscode.s3.S3Buckets;
+import com.amigoscode.s3.S3MultipartUploader;
+import com.amigoscode.s3.S3Service;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionOperations;
+import software.amazon.awssdk.services.s3.model.NoSuchUploadException;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+
+class ProfileImageUploadSessionsTest {
+
+    private static final String BUCKET = "customer";
+    private static final int CUSTOMER_ID = 1;
+    private static final byte[] IMAGE = "0123456789abcdefghijKLMNO".getBytes();
+
+    @TempDir
+    Path root;
+
+    private FakeS3 s3Client;
+    private S3Service s3Service;
+    private final S3Buckets s3Buckets = new S3Buckets();
+    private final CustomerService customerService = Mockito.mock(CustomerService.class);
+    private final ProfileImageUploadSessionDao profileImageUploadSessionDao =
+            Mockito.mock(ProfileImageUploadSessionDao.class);
+    private final SortedMap<Integer, String> chunks = new TreeMap<>();
+    private final Clock clock = Clock.fixed(Instant.parse("2023-01-01T00:00:00Z"), ZoneOffset.UTC);
+    private ProfileImageUploadSessions underTest;
+
+    @BeforeEach
+    void setUp() {
+        s3Client = new FakeS3(root);
+        s3Service = new S3Service(s3Client,
+                Mockito.mock(S3MultipartUploader.class),
+                Mockito.mock(S3Presigner.class));
+        s3Buckets.setCustomer(BUCKET);
+        underTest = new ProfileImageUploadSessions(customerService, profileImageUploadSessionDao,
+                s3Service, s3Buckets, 1024, 10, Duration.ofHours(1),
+                TransactionOperations.withoutTransaction(), clock);
+        Mockito.doAnswer(invocation -> chunks.put(invocation.getArgument(1), invocation.getArgument(2)))
+                .when(profileImageUploadSessionDao).upsertChunk(any(), anyInt(), any());
+        Mockito.when(profileImageUploadSessionDao.selectChunks(any()))
+                .thenAnswer(invocation -> new TreeMap<>(chunks));
+        Mockito.when(profileImageUploadSessionDao.lockSession(any())).thenReturn(true);
+        Mockito.when(profileImageUploadSessionDao.deleteSession(any())).thenReturn(true);
+    }
+
+    @Test
+    void resumedUploadOnlySendsMissingChunks() {
+        // Given
+        ProfileImageUploadSession session = createSession();
+        uploadChunk(session, 0);
+        uploadChunk(session, 2);
+
+        // When
+        ProfileImageUploadProgress progress = underTest.getProgress(CUSTOMER_ID, session.id());
+        uploadChunk(session, 1);
+        underTest.completeSession(CUSTOMER_ID, session.id());
+
+        // Then
+        assertThat(progress.missingChunks()).containsExactly(1);
+        assertThat(s3Service.getObject(BUCKET, CustomerService.legacyKey(CUSTOMER_ID, session.id())))
+                .isEqualTo(IMAGE);
+        Mockito.verify(customerService).confirmProfileImageUpload(
+                CUSTOMER_ID, new ProfileImageUploadConfirmation(session.id()));
+    }
+
+    @Test
+    void resentChunkReplacesThePreviousAttempt() {
+        // Given
+        ProfileImageUploadSession session = createSession();
+        underTest.uploadChunk(CUSTOMER_ID, session.id(), "bytes 0-9/25",
+                new ByteArrayInputStream("XXXXXXXXXX".getBytes()));
+
+        // When
+        uploadChunk(session, 0);
+        uploadChunk(session, 1);
+        uploadChunk(session, 2);
+        underTest.completeSession(CUSTOMER_ID, session.id());
+
+        // Then
+        assertThat(s3Service.getObject(BUCKET, CustomerService.legacyKey(CUSTOMER_ID, session.id())))
+                .isEqualTo(IMAGE);
+    }
+
+    @Test
+    void keepsSessionForRetryWhenConfirmingFails() {
+        // Given
+        ProfileImageUploadSession session = createSession();
+        uploadChunk(session, 0);
+        uploadChunk(session, 1);
+        uploadChunk(session, 2);
+        ProfileImageUploadConfirmation confirmation = new ProfileImageUploadConfirmation(session.id());
+        Mockito.doThrow(new IllegalStateException("database is down"))
+                .doNothing()
+                .when(customerService).confirmProfileImageUpload(CUSTOMER_ID, confirmation);
+        assertThatThrownBy(() -> underTest.completeSession(CUSTOMER_ID, session.id()))
+                .isInstanceOf(IllegalStateException.class);
+        Mockito.verify(profileImageUploadSessionDao, Mockito.never()).deleteSession(any());
+
+        // When
+        underTest.completeSession(CUSTOMER_ID, session.id());
+
+        // Then
+        Mockito.verify(customerService, Mockito.times(2)).confirmProfileImageUpload(CUSTOMER_ID, confirmation);
+        Mockito.verify(profileImageUploadSessionDao).deleteSession(session.id());
+        assertThat(s3Service.getObject(BUCKET, CustomerService.legacyKey(CUSTOMER_ID, session.id())))
+                .isEqualTo(IMAGE);
+    }
+
+    @Test
+    void leavesSessionCompletedConcurrentlyToTheOtherRequest() {
+        // Given
+        ProfileImageUploadSession session = createSession();
+        uploadChunk(session, 0);
+        uploadChunk(session, 1);
+        uploadChunk(session, 2);
+        Mockito.when(profileImageUploadSessionDao.lockSession(session.id())).thenReturn(false);
+
+        // When
+        underTest.completeSession(CUSTOMER_ID, session.id());
+
+        // Then
+        Mockito.verify(customerService, Mockito.never()).confirmProfileImageUpload(any(), any());
+        Mockito.verify(profileImageUploadSessionDao, Mockito.never()).deleteSession(any());
+    }
+
+    @Test
+    void willNotCompleteUploadWithMissingChunks() {
+        // Given
+        ProfileImageUploadSession session = createSession();
+        uploadChunk(session, 1);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.completeSession(CUSTOMER_ID, session.id()))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("upload [%s] is missing chunks [0, 2]".formatted(session.id()));
+        Mockito.verify(customerService, Mockito.never()).confirmProfileImageUpload(any(), any());
+    }
+
+    @Test
+    void rejectsChunkThatDoesNotStartOnAChunkBoundary() {
+        // Given
+        ProfileImageUploadSession session = createSession();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.uploadChunk(CUSTOMER_ID, session.id(), "bytes 5-14/25",
+                new ByteArrayInputStream(Arrays.copyOfRange(IMAGE, 5, 15))))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Content-Range [bytes 5-14/25] is not a chunk of 10 bytes of 25");
+        assertThat(chunks).isEmpty();
+    }
+
+    @Test
+    void expiringSessionsAbortsTheirMultipartUploads() {
+        // Given
+        ProfileImageUploadSession session = createSession();
+        uploadChunk(session, 0);
+        Mockito.when(profileImageUploadSessionDao.deleteExpiredSessions(any(), anyInt()))
+                .thenReturn(List.of(session))
+                .thenReturn(List.of());
+
+        // When
+        underTest.expireSessions();
+
+        // Then
+        assertThatThrownBy(() -> s3Service.uploadPart(BUCKET,
+                CustomerService.legacyKey(CUSTOMER_ID, session.id()), session.s3UploadId(), 2,
+                new ByteArrayInputStream(IMAGE), IMAGE.length))
+                .isInstanceOf(NoSuchUploadException.class);
+    }
+
+    private ProfileImageUploadSession createSession() {
+        underTest.createSession(CUSTOMER_ID,
+                new ProfileImageUploadUrlRequest("image/png", (long) IMAGE.length));
+        ArgumentCaptor<ProfileImageUploadSession> sessionArgumentCaptor =
+                ArgumentCaptor.forClass(ProfileImageUploadSession.class);
+        Mockito.verify(profileImageUploadSessionDao).insertSession(sessionArgumentCaptor.capture());
+        ProfileImageUploadSession session = sessionArgumentCaptor.getValue();
+        Mockito.when(profileImageUploadSessionDao.selectSession(session.id(), CUSTOMER_ID, clock.instant()))
+                .thenReturn(Optional.of(session));
+        return session;
+    }
+
+    private void uploadChunk(ProfileImageUploadSession session, int chunkIndex) {
+        int start = chunkIndex * session.chunkSize();
+        int end = (int) (start + session.chunkLength(chunkIndex));
+        underTest.uploadChunk(CUSTOMER_ID, session.id(),
+                "bytes %d-%d/%d".formatted(start, end - 1, IMAGE.length),
+                new ByteArrayInputStream(Arrays.copyOfRange(IMAGE, start, end)));
+    }
+}
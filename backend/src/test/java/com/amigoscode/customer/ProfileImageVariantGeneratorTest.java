@@ -0,0 +1,114 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileImageVariantGeneratorTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final ProfileImageVariantGenerator underTest =
+            new ProfileImageVariantGenerator(executor, 0.8f, 10_000_000);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void canGenerateScaledDownJpegVariants() throws IOException {
+        // Given
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "photo.png", "image/png", png(2000, 1000));
+
+        // When
+        Map<ProfileImageSize, byte[]> actual = underTest.generate(file).join();
+
+        // Then
+        assertThat(actual).containsOnlyKeys(ProfileImageSize.MEDIUM, ProfileImageSize.THUMBNAIL);
+
+        BufferedImage medium = ImageIO.read(new ByteArrayInputStream(
+                actual.get(ProfileImageSize.MEDIUM)));
+        assertThat(medium.getWidth()).isEqualTo(512);
+        assertThat(medium.getHeight()).isEqualTo(256);
+
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(
+                actual.get(ProfileImageSize.THUMBNAIL)));
+        assertThat(thumbnail.getWidth()).isEqualTo(128);
+        assertThat(thumbnail.getHeight()).isEqualTo(64);
+    }
+
+    @Test
+    void doesNotScaleUpSmallImages() throws IOException {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", png(100, 50));
+
+        // When
+        Map<ProfileImageSize, byte[]> actual = underTest.generate(file).join();
+
+        // Then
+        BufferedImage medium = ImageIO.read(new ByteArrayInputStream(
+                actual.get(ProfileImageSize.MEDIUM)));
+        assertThat(medium.getWidth()).isEqualTo(100);
+        assertThat(medium.getHeight()).isEqualTo(50);
+    }
+
+    @Test
+    void generatesNoVariantsForContentThatIsNotAnImage() {
+        // Given
+        MockMultipartFile file = new MockMultipartFile("file", "Hello World".getBytes());
+
+        // When
+        Map<ProfileImageSize, byte[]> actual = underTest.generate(file).join();
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void generatesNoVariantsForImagesAboveMaxPixels() throws IOException {
+        // Given
+        ProfileImageVariantGenerator underTest =
+                new ProfileImageVariantGenerator(executor, 0.8f, 100);
+        MockMultipartFile file = new MockMultipartFile("file", png(20, 10));
+
+        // When
+        Map<ProfileImageSize, byte[]> actual = underTest.generate(file).join();
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void readsDimensionsFromImageHeader() throws IOException {
+        // Given
+        byte[] png = png(640, 480);
+
+        // When
+        Optional<Dimension> actual = ProfileImageVariantGenerator.readDimensions(
+                new MockMultipartFile("file", png));
+
+        // Then
+        assertThat(actual).contains(new Dimension(640, 480));
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -2,6 +2,8 @@ package com.amigoscode.journey;
 
 import com.amigoscode.auth.AuthenticationRequest;
 import com.amigoscode.auth.AuthenticationResponse;
+import com.amigoscode.auth.RefreshTokenRequest;
+import com.amigoscode.auth.RefreshTokenResponse;
 import com.amigoscode.customer.Customer;
 import com.amigoscode.customer.CustomerDTO;
 import com.amigoscode.customer.CustomerRegistrationRequest;
@@ -111,5 +113,81 @@ public class AuthenticationIntegrationTest {
         assertThat(customerDTO.username()).isEqualTo(email);
         assertThat(customerDTO.gender()).isEqualTo(gender);
         assertThat(customerDTO.roles()).isEqualTo(List.of("ROLE_USER"));
+
+        // Refresh once, the used refresh token is then rejected
+        RefreshTokenRequest refreshTokenRequest =
+                new RefreshTokenRequest(authenticationResponse.refreshToken());
+
+        RefreshTokenResponse refreshTokenResponse = webTestClient.post()
+                .uri(AUTHENTICATION_PATH + "/refresh")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(refreshTokenRequest), RefreshTokenRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(RefreshTokenResponse.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(jwtUtil.isTokenValid(
+                refreshTokenResponse.token(),
+                customerDTO.username())).isTrue();
+        assertThat(jwtUtil.getScopes(jwtUtil.getClaims(refreshTokenResponse.token())))
+                .isEqualTo(List.of("ROLE_USER"));
+        assertThat(refreshTokenResponse.refreshToken())
+                .isNotEqualTo(authenticationResponse.refreshToken());
+
+        webTestClient.post()
+                .uri(AUTHENTICATION_PATH + "/refresh")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(refreshTokenRequest), RefreshTokenRequest.class)
+                .exchange()
+                .expectStatus()
+                .isUnauthorized();
+
+        // Without an access token the client is told to authenticate
+        webTestClient.get()
+                .uri(CUSTOMER_PATH)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isUnauthorized();
+    }
+
+    @Test
+    void canRefreshRightAfterRegistering() {
+        // Register, which signs the customer in
+        Faker faker = new Faker();
+        String email = faker.name().lastName() + "-" + UUID.randomUUID() + "@amigoscode.com";
+        CustomerRegistrationRequest customerRegistrationRequest = new CustomerRegistrationRequest(
+                faker.name().fullName(), email, "password", 20, Gender.FEMALE
+        );
+
+        AuthenticationResponse registrationResponse = webTestClient.post()
+                .uri(CUSTOMER_PATH)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(customerRegistrationRequest), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(AuthenticationResponse.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(registrationResponse.customerDTO().email()).isEqualTo(email);
+
+        // The refresh token of the registration keeps the session going
+        webTestClient.post()
+                .uri(AUTHENTICATION_PATH + "/refresh")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new RefreshTokenRequest(registrationResponse.refreshToken())),
+                        RefreshTokenRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
     }
 }
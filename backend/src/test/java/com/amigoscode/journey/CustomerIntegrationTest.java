@@ -10,6 +10,7 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -21,6 +22,7 @@ import reactor.core.publisher.Mono;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
 
@@ -270,6 +272,82 @@ public class CustomerIntegrationTest {
         assertThat(updatedCustomer).isEqualTo(expected);
     }
 
+    @Test
+    void cannotChangeAnotherCustomer() {
+        // Register the customer to change and another one
+        Faker faker = new Faker();
+        String email = faker.name().lastName() + "-" + UUID.randomUUID() + "@amigoscode.com";
+        String otherEmail = faker.name().lastName() + "-" + UUID.randomUUID() + "@amigoscode.com";
+        String jwtToken = register(email);
+        String otherJwtToken = register(otherEmail);
+
+        int id = webTestClient.get()
+                .uri(CUSTOMER_PATH)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, String.format("Bearer %s", jwtToken))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(new ParameterizedTypeReference<CustomerDTO>() {})
+                .returnResult()
+                .getResponseBody()
+                .stream()
+                .filter(customer -> customer.email().equals(email))
+                .map(CustomerDTO::id)
+                .findFirst()
+                .orElseThrow();
+
+        // The other customer may not change it, nor follow its uploads
+        String uploadId = UUID.randomUUID().toString();
+        List<Map.Entry<HttpMethod, String>> requests = List.of(
+                Map.entry(HttpMethod.PUT, "/{id}"),
+                Map.entry(HttpMethod.DELETE, "/{id}"),
+                Map.entry(HttpMethod.POST, "/{id}/profile-image"),
+                Map.entry(HttpMethod.POST, "/{id}/profile-image/upload-url"),
+                Map.entry(HttpMethod.POST, "/{id}/profile-image/confirm"),
+                Map.entry(HttpMethod.POST, "/{id}/profile-image/uploads"),
+                Map.entry(HttpMethod.GET, "/{id}/profile-image/uploads/" + uploadId),
+                Map.entry(HttpMethod.PUT, "/{id}/profile-image/uploads/" + uploadId),
+                Map.entry(HttpMethod.POST, "/{id}/profile-image/uploads/" + uploadId + "/complete"),
+                Map.entry(HttpMethod.GET, "/{id}/profile-image/jobs/" + UUID.randomUUID()));
+        for (Map.Entry<HttpMethod, String> request : requests) {
+            webTestClient.method(request.getKey())
+                    .uri(CUSTOMER_PATH + request.getValue(), id)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.AUTHORIZATION, String.format("Bearer %s", otherJwtToken))
+                    .exchange()
+                    .expectStatus()
+                    .isForbidden();
+        }
+
+        // and the customer is still there
+        webTestClient.get()
+                .uri(CUSTOMER_PATH + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, String.format("Bearer %s", jwtToken))
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    private String register(String email) {
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                new Faker().name().fullName(), email, "password", 20, Gender.MALE
+        );
+        return webTestClient.post()
+                .uri(CUSTOMER_PATH)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(request), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Void.class)
+                .getResponseHeaders()
+                .get(HttpHeaders.AUTHORIZATION)
+                .get(0);
+    }
+
     @Test
     void canUploadAndDownloadProfilePictures() throws IOException {
         // Create registration request
@@ -0,0 +1,75 @@
+package com.amigoscode.jwt;
+
+import com.amigoscode.AbstractTestcontainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevokedTokenDaoTest extends AbstractTestcontainers {
+
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+    private RevokedTokenDao underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new RevokedTokenDao(jdbcTemplate);
+    }
+
+    @Test
+    void selectRevokedTokensReturnsUnexpiredTokensOnly() {
+        // Given
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        RevokedToken live = new RevokedToken(UUID.randomUUID(), now.plusSeconds(60));
+        RevokedToken expired = new RevokedToken(UUID.randomUUID(), now.minusSeconds(60));
+        underTest.insertRevokedToken(live);
+        underTest.insertRevokedToken(expired);
+
+        // When
+        var actual = underTest.selectRevokedTokens(now);
+
+        // Then
+        assertThat(actual).contains(live).doesNotContain(expired);
+    }
+
+    @Test
+    void revokingTwiceKeepsOneRow() {
+        // Given
+        RevokedToken revokedToken = new RevokedToken(UUID.randomUUID(), Instant.now().plusSeconds(60));
+        underTest.insertRevokedToken(revokedToken);
+
+        // When
+        underTest.insertRevokedToken(revokedToken);
+
+        // Then
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM revoked_token WHERE jti = ?",
+                Integer.class,
+                revokedToken.jti())).isOne();
+    }
+
+    @Test
+    void deleteExpiredTokensKeepsLiveOnes() {
+        // Given
+        Instant now = Instant.now();
+        RevokedToken live = new RevokedToken(UUID.randomUUID(), now.plusSeconds(60));
+        underTest.insertRevokedToken(live);
+        underTest.insertRevokedToken(new RevokedToken(UUID.randomUUID(), now.minusSeconds(60)));
+
+        // When
+        underTest.deleteExpiredTokens(now, 1000);
+
+        // Then
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM revoked_token WHERE expires_at <= ?",
+                Integer.class,
+                Timestamp.from(now))).isZero();
+        assertThat(underTest.selectRevokedTokens(now)).contains(live);
+    }
+}
@@ -0,0 +1,120 @@
+package com.amigoscode.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevokedTokenSetTest {
+
+    private static final long TICK = 1_000;
+
+    @Test
+    void containsAddedIds() {
+        // Given
+        RevokedTokenSet underTest = new RevokedTokenSet(TICK, 60, 0);
+        UUID revoked = UUID.randomUUID();
+
+        // When
+        underTest.add(revoked, 30_000);
+
+        // Then
+        assertThat(underTest.contains(revoked)).isTrue();
+        assertThat(underTest.contains(UUID.randomUUID())).isFalse();
+        assertThat(underTest.size()).isOne();
+    }
+
+    @Test
+    void dropsIdsOnceTheirTokenHasExpired() {
+        // Given
+        RevokedTokenSet underTest = new RevokedTokenSet(TICK, 60, 0);
+        UUID early = UUID.randomUUID();
+        UUID late = UUID.randomUUID();
+        underTest.add(early, 10_500);
+        underTest.add(late, 20_000);
+
+        // When
+        underTest.advance(10_999);
+        boolean earlyBeforeTick = underTest.contains(early);
+        underTest.advance(11_000);
+
+        // Then
+        assertThat(earlyBeforeTick).isTrue();
+        assertThat(underTest.contains(early)).isFalse();
+        assertThat(underTest.contains(late)).isTrue();
+        assertThat(underTest.size()).isOne();
+    }
+
+    @Test
+    void keepsIdsExpiringBeyondOneTurnOfTheWheel() {
+        // Given
+        RevokedTokenSet underTest = new RevokedTokenSet(TICK, 10, 0);
+        UUID id = UUID.randomUUID();
+        underTest.add(id, 25_000);
+
+        // When
+        underTest.advance(15_000);
+        boolean afterOneTurn = underTest.contains(id);
+        underTest.advance(25_000);
+
+        // Then
+        assertThat(afterOneTurn).isTrue();
+        assertThat(underTest.contains(id)).isFalse();
+    }
+
+    @Test
+    void ignoresIdsOfExpiredTokens() {
+        // Given
+        RevokedTokenSet underTest = new RevokedTokenSet(TICK, 60, 5_000);
+
+        // When
+        underTest.add(UUID.randomUUID(), 4_000);
+
+        // Then
+        assertThat(underTest.size()).isZero();
+    }
+
+    @Test
+    void growsAndShrinksWithoutLosingIds() {
+        // Given
+        RevokedTokenSet underTest = new RevokedTokenSet(TICK, 60, 0);
+        List<UUID> shortLived = new ArrayList<>();
+        List<UUID> longLived = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            UUID id = UUID.randomUUID();
+            underTest.add(id, 1_000 + i % 30 * TICK);
+            shortLived.add(id);
+        }
+        for (int i = 0; i < 50; i++) {
+            UUID id = UUID.randomUUID();
+            underTest.add(id, 50_000);
+            longLived.add(id);
+        }
+
+        // When
+        underTest.advance(40_000);
+
+        // Then
+        assertThat(underTest.size()).isEqualTo(longLived.size());
+        assertThat(longLived).allMatch(underTest::contains);
+        assertThat(shortLived).noneMatch(underTest::contains);
+    }
+
+    @Test
+    void clearDropsEverything() {
+        // Given
+        RevokedTokenSet underTest = new RevokedTokenSet(TICK, 60, 0);
+        UUID id = UUID.randomUUID();
+        underTest.add(id, 30_000);
+
+        // When
+        underTest.clear();
+
+        // Then
+        assertThat(underTest.contains(id)).isFalse();
+        assertThat(underTest.size()).isZero();
+    }
+}
@@ -0,0 +1,111 @@
+package com.amigoscode.jwt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenRevocationServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
+
+    @Mock
+    private RevokedTokenDao revokedTokenDao;
+    private TokenRevocationService underTest;
+    private AutoCloseable autoCloseable;
+
+    @BeforeEach
+    void setUp() {
+        autoCloseable = MockitoAnnotations.openMocks(this);
+        underTest = new TokenRevocationService(revokedTokenDao,
+                Duration.ofSeconds(1), Duration.ofMinutes(15), Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        autoCloseable.close();
+    }
+
+    @Test
+    void revokeStoresAndRejectsTheToken() {
+        // Given
+        String jti = UUID.randomUUID().toString();
+        Instant expiresAt = NOW.plusSeconds(60);
+
+        // When
+        underTest.revoke(jti, expiresAt);
+
+        // Then
+        Mockito.verify(revokedTokenDao)
+                .insertRevokedToken(new RevokedToken(UUID.fromString(jti), expiresAt));
+        assertThat(underTest.isRevoked(jti)).isTrue();
+        assertThat(underTest.isRevoked(UUID.randomUUID().toString())).isFalse();
+    }
+
+    @Test
+    void tokensWithoutUuidJtiAreNotRevoked() {
+        // Given
+        underTest.revoke(UUID.randomUUID().toString(), NOW.plusSeconds(60));
+
+        // When
+        // Then
+        assertThat(underTest.isRevoked(null)).isFalse();
+        assertThat(underTest.isRevoked("not-a-uuid")).isFalse();
+    }
+
+    @Test
+    void notificationsRevokeTokensOfOtherNodes() {
+        // Given
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        long expiresAt = NOW.plusSeconds(60).toEpochMilli();
+
+        // When
+        underTest.onNotification(first + ":" + expiresAt + "," + second + ":" + expiresAt);
+
+        // Then
+        assertThat(underTest.isRevoked(first.toString())).isTrue();
+        assertThat(underTest.isRevoked(second.toString())).isTrue();
+    }
+
+    @Test
+    void listenerResetReloadsRevokedTokens() {
+        // Given
+        UUID jti = UUID.randomUUID();
+        Mockito.when(revokedTokenDao.selectRevokedTokens(NOW))
+                .thenReturn(List.of(new RevokedToken(jti, NOW.plusSeconds(60))));
+
+        // When
+        underTest.onListenerReset();
+
+        // Then
+        assertThat(underTest.isRevoked(jti.toString())).isTrue();
+    }
+
+    @Test
+    void listenerResetKeepsRevocationsWhenReloadFails() {
+        // Given
+        String jti = UUID.randomUUID().toString();
+        underTest.revoke(jti, NOW.plusSeconds(60));
+        Mockito.when(revokedTokenDao.selectRevokedTokens(NOW))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        // When
+        underTest.onListenerReset();
+
+        // Then
+        assertThat(underTest.isRevoked(jti)).isTrue();
+    }
+}
@@ -0,0 +1,105 @@
+package com.amigoscode.notify;
+
+import com.amigoscode.AbstractTestcontainers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PgNotificationListenerTest extends AbstractTestcontainers {
+
+    private final BlockingQueue<String> payloads = new LinkedBlockingQueue<>();
+    private final JdbcTemplate jdbcTemplate = getJdbcTemplate();
+    private PgNotificationListener underTest;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        RecordingHandler handler = new RecordingHandler();
+        underTest = new PgNotificationListener(
+                postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(),
+                postgreSQLContainer.getPassword(),
+                List.of(handler)
+        );
+        underTest.start();
+        assertThat(handler.resets.poll(10, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.stop();
+    }
+
+    @Test
+    void receivesUpdatedCustomerIds() throws InterruptedException {
+        // Given
+        Integer id = insertCustomer();
+
+        // When
+        jdbcTemplate.update("UPDATE customer SET age = 30 WHERE id = ?", id);
+
+        // Then
+        assertThat(payloads.poll(10, TimeUnit.SECONDS)).isEqualTo(id.toString());
+    }
+
+    @Test
+    void batchesBulkWritesIntoFewNotifications() throws InterruptedException {
+        // Given
+        for (int i = 0; i < 600; i++) {
+            insertCustomer();
+        }
+
+        // When
+        int updated = jdbcTemplate.update("UPDATE customer SET age = age + 1");
+
+        // Then
+        int received = 0;
+        int notifications = 0;
+        String payload;
+        while (received < updated &&
+                (payload = payloads.poll(10, TimeUnit.SECONDS)) != null) {
+            received += payload.split(",").length;
+            notifications++;
+        }
+        assertThat(received).isEqualTo(updated);
+        assertThat(notifications).isEqualTo((updated + 499) / 500);
+    }
+
+    private Integer insertCustomer() {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO customer(name, email, password, age, gender)
+                VALUES (?, ?, 'password', 20, 'MALE')
+                RETURNING id
+                """,
+                Integer.class,
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID());
+    }
+
+    private class RecordingHandler implements PgNotificationHandler {
+        private final BlockingQueue<Boolean> resets = new LinkedBlockingQueue<>();
+
+        @Override
+        public String channel() {
+            return "customer_changed";
+        }
+
+        @Override
+        public void onNotification(String payload) {
+            payloads.add(payload);
+        }
+
+        @Override
+        public void onListenerReset() {
+            resets.add(true);
+        }
+    }
+}
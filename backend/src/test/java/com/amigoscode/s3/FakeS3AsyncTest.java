@@ -0,0 +1,84 @@
+package com.amigoscode.s3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FakeS3AsyncTest {
+
+    private static final String BUCKET = "customer";
+    private static final String KEY = "profile-images/1/foo";
+    private static final byte[] DATA = "Hello World".getBytes();
+
+    @TempDir
+    private Path root;
+    private FakeS3Async underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new FakeS3Async(new FakeS3(root));
+        underTest.putObject(
+                PutObjectRequest.builder().bucket(BUCKET).key(KEY).build(),
+                AsyncRequestBody.fromBytes(DATA)
+        ).join();
+    }
+
+    @AfterEach
+    void tearDown() {
+        underTest.close();
+    }
+
+    @Test
+    void canGetObjectAsBlockingInputStream() throws IOException {
+        // When
+        ResponseInputStream<GetObjectResponse> actual = underTest.getObject(
+                request(KEY, "bytes=6-"),
+                AsyncResponseTransformer.toBlockingInputStream()
+        ).join();
+
+        // Then
+        assertThat(new String(actual.readAllBytes())).isEqualTo("World");
+        assertThat(actual.response().contentRange()).isEqualTo("bytes 6-10/11");
+    }
+
+    @Test
+    void canGetObjectAsBytes() {
+        assertThat(underTest.getObject(
+                request(KEY, null),
+                AsyncResponseTransformer.toBytes()
+        ).join().asByteArray()).isEqualTo(DATA);
+    }
+
+    @Test
+    void completesExceptionallyWhenKeyDoesNotExist() {
+        assertThatThrownBy(() -> underTest.getObject(
+                request("missing", null),
+                AsyncResponseTransformer.toBlockingInputStream()
+        ).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(NoSuchKeyException.class);
+    }
+
+    private static GetObjectRequest request(String key, String range) {
+        return GetObjectRequest.builder()
+                .bucket(BUCKET)
+                .key(key)
+                .range(range)
+                .build();
+    }
+}
@@ -0,0 +1,209 @@
+package com.amigoscode.s3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FakeS3ControllerTest {
+
+    private static final String BUCKET = "customer";
+    private static final String KEY = "profile-images/1/foo bar";
+
+    private final FakeS3PresignedUrls presignedUrls = new FakeS3PresignedUrls(
+            AwsBasicCredentials.create("fake", "secret"),
+            Region.CA_CENTRAL_1,
+            URI.create("http://localhost:8080/fake-s3"));
+    private final S3Presigner s3Presigner = presigner(presignedUrls.credentialsProvider());
+
+    @Test
+    void canPutAndGetThroughPresignedUrls(@TempDir Path root) throws IOException {
+        // Given
+        FakeS3 s3Client = new FakeS3(root);
+        FakeS3Controller underTest = new FakeS3Controller(s3Client, presignedUrls);
+        byte[] data = "Hello World".getBytes();
+
+        URL putUrl = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofMinutes(10))
+                .putObjectRequest(PutObjectRequest.builder().bucket(BUCKET).key(KEY).build())
+                .build()).url();
+        MockHttpServletRequest put = request("PUT", putUrl);
+        put.setContent(data);
+
+        URL getUrl = s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofMinutes(10))
+                .getObjectRequest(GetObjectRequest.builder().bucket(BUCKET).key(KEY).build())
+                .build()).url();
+
+        // When
+        ResponseEntity<Void> putResponse = underTest.putObject(BUCKET, put);
+        ResponseEntity<StreamingResponseBody> getResponse =
+                underTest.getObject(BUCKET, null, request("GET", getUrl));
+
+        // Then
+        assertThat(putResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(getResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        getResponse.getBody().writeTo(body);
+        assertThat(body.toByteArray()).isEqualTo(data);
+    }
+
+    @Test
+    void rejectsExpiredUrl(@TempDir Path root) {
+        // Given
+        Clock later = Clock.fixed(Instant.now().plus(Duration.ofMinutes(11)), ZoneOffset.UTC);
+        FakeS3Controller underTest = new FakeS3Controller(new FakeS3(root), presignedUrls, later);
+        URL getUrl = s3Presigner.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofMinutes(10))
+                .getObjectRequest(GetObjectRequest.builder().bucket(BUCKET).key(KEY).build())
+                .build()).url();
+
+        // When
+        ResponseEntity<StreamingResponseBody> actual =
+                underTest.getObject(BUCKET, null, request("GET", getUrl));
+
+        // Then
+        assertThat(actual.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void rejectsUnsignedRequest(@TempDir Path root) {
+        // Given
+        FakeS3Controller underTest = new FakeS3Controller(new FakeS3(root), presignedUrls);
+        MockHttpServletRequest request = new MockHttpServletRequest(
+                "GET", "/fake-s3/customer/profile-images/1/foo");
+
+        // When
+        ResponseEntity<StreamingResponseBody> actual = underTest.getObject(BUCKET, null, request);
+
+        // Then
+        assertThat(actual.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void rejectsUrlWithAnotherKey(@TempDir Path root) {
+        // Given
+        FakeS3Controller underTest = new FakeS3Controller(new FakeS3(root), presignedUrls);
+        URL getUrl = presignGet(s3Presigner);
+        MockHttpServletRequest request = request("GET", getUrl);
+        request.setRequestURI("/fake-s3/customer/profile-images/2/foo%20bar");
+
+        // When
+        ResponseEntity<StreamingResponseBody> actual = underTest.getObject(BUCKET, null, request);
+
+        // Then
+        assertThat(actual.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void rejectsDownloadUrlUsedForUpload(@TempDir Path root) throws IOException {
+        // Given
+        FakeS3Controller underTest = new FakeS3Controller(new FakeS3(root), presignedUrls);
+        MockHttpServletRequest put = request("PUT", presignGet(s3Presigner));
+        put.setContent("Hello World".getBytes());
+
+        // When
+        ResponseEntity<Void> actual = underTest.putObject(BUCKET, put);
+
+        // Then
+        assertThat(actual.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void rejectsUrlSignedWithOtherCredentials(@TempDir Path root) {
+        // Given
+        FakeS3Controller underTest = new FakeS3Controller(new FakeS3(root), presignedUrls);
+        S3Presigner forger = presigner(StaticCredentialsProvider.create(
+                AwsBasicCredentials.create("fake", "fake")));
+
+        // When
+        ResponseEntity<StreamingResponseBody> actual =
+                underTest.getObject(BUCKET, null, request("GET", presignGet(forger)));
+
+        // Then
+        assertThat(actual.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    void checksSignedHeadersOfUpload(@TempDir Path root) throws IOException {
+        // Given
+        FakeS3Controller underTest = new FakeS3Controller(new FakeS3(root), presignedUrls);
+        PresignedPutObjectRequest presigned = s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofMinutes(10))
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(BUCKET)
+                        .key(KEY)
+                        .contentType("image/png")
+                        .build())
+                .build());
+        MockHttpServletRequest signed = request("PUT", presigned.url());
+        signed.addHeader("Content-Type", "image/png");
+        signed.setContent("image".getBytes());
+        MockHttpServletRequest altered = request("PUT", presigned.url());
+        altered.addHeader("Content-Type", "text/html");
+        altered.setContent("<script>".getBytes());
+
+        // When
+        ResponseEntity<Void> signedResponse = underTest.putObject(BUCKET, signed);
+        ResponseEntity<Void> alteredResponse = underTest.putObject(BUCKET, altered);
+
+        // Then
+        assertThat(signedResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(alteredResponse.getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    private static S3Presigner presigner(AwsCredentialsProvider credentialsProvider) {
+        return S3Presigner.builder()
+                .region(Region.CA_CENTRAL_1)
+                .credentialsProvider(credentialsProvider)
+                .endpointOverride(URI.create("http://localhost:8080/fake-s3"))
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(true)
+                        .build())
+                .build();
+    }
+
+    private static URL presignGet(S3Presigner presigner) {
+        return presigner.presignGetObject(GetObjectPresignRequest.builder()
+                .signatureDuration(Duration.ofMinutes(10))
+                .getObjectRequest(GetObjectRequest.builder().bucket(BUCKET).key(KEY).build())
+                .build()).url();
+    }
+
+    private static MockHttpServletRequest request(String method, URL url) {
+        UriComponents uri = UriComponentsBuilder.fromUriString(url.toString()).build();
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri.getPath());
+        uri.getQueryParams().forEach((name, values) -> values.forEach(value ->
+                request.addParameter(name, UriUtils.decode(value, StandardCharsets.UTF_8))));
+        return request;
+    }
+}
@@ -0,0 +1,116 @@
+package com.amigoscode.s3;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class FakeS3FaultsTest {
+
+    @Test
+    void latencyMatchesConfiguredMedianAndTail() {
+        // Given
+        FakeS3Faults underTest = new FakeS3Faults(
+                Duration.ofMillis(20), Duration.ofMillis(200), Duration.ofMillis(400), 0, 0, 42L);
+
+        // When
+        long[] samples = LongStream.range(0, 20_000)
+                .map(i -> underTest.sampleLatencyNanos())
+                .sorted()
+                .toArray();
+
+        // Then
+        double median = samples[samples.length / 2];
+        double p99 = samples[(int) (samples.length * 0.99)];
+        assertThat(median).isCloseTo(TimeUnit.MILLISECONDS.toNanos(20), within(2e6));
+        assertThat(p99).isCloseTo(TimeUnit.MILLISECONDS.toNanos(200), within(30e6));
+        assertThat(Arrays.stream(samples).max().getAsLong())
+                .isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(400));
+    }
+
+    @Test
+    void sameSeedGivesSameLatencies() {
+        // Given
+        FakeS3Faults first = new FakeS3Faults(
+                Duration.ofMillis(20), Duration.ofMillis(200), null, 0, 0, 7L);
+        FakeS3Faults second = new FakeS3Faults(
+                Duration.ofMillis(20), Duration.ofMillis(200), null, 0, 0, 7L);
+
+        // When
+        // Then
+        for (int i = 0; i < 100; i++) {
+            assertThat(first.sampleLatencyNanos()).isEqualTo(second.sampleLatencyNanos());
+        }
+    }
+
+    @Test
+    void failsRequestsWithS3StyleErrors(@TempDir Path root) {
+        // Given
+        FakeS3 underTest = new FakeS3(root, new FakeS3Faults(null, null, null, 0, 1, 1L));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.putObject(
+                PutObjectRequest.builder().bucket("customer").key("foo").build(),
+                RequestBody.fromBytes("Hello World".getBytes())))
+                .isInstanceOfSatisfying(S3Exception.class, e -> {
+                    assertThat(e.statusCode()).isIn(500, 503);
+                    assertThat(e.awsErrorDetails().errorCode()).isIn("InternalError", "SlowDown");
+                });
+    }
+
+    @Test
+    void throttlesBandwidth() throws IOException {
+        // Given
+        FakeS3Faults underTest = new FakeS3Faults(null, null, null, 10_000, 0, null);
+        byte[] data = new byte[2_000];
+
+        // When
+        long start = System.nanoTime();
+        try (InputStream inputStream = underTest.throttle(new ByteArrayInputStream(data))) {
+            assertThat(inputStream.readAllBytes()).hasSize(data.length);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // Then
+        assertThat(elapsed).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(190));
+    }
+
+    @Test
+    void explicitPropertiesOverrideProfile() {
+        // Given
+        FakeS3Properties properties = new FakeS3Properties();
+        properties.setProfile(FakeS3Properties.Profile.SLOW);
+        properties.setErrorRate(0.5);
+        properties.setBandwidth(DataSize.ofKilobytes(64));
+
+        // When
+        // Then
+        assertThat(properties.effectiveLatencyMedian()).isEqualTo(Duration.ofMillis(80));
+        assertThat(properties.effectiveErrorRate()).isEqualTo(0.5);
+        assertThat(properties.effectiveBandwidth()).isEqualTo(DataSize.ofKilobytes(64));
+    }
+
+    @Test
+    void rejectsTailBelowMedian() {
+        assertThatThrownBy(() -> new FakeS3Faults(
+                Duration.ofMillis(200), Duration.ofMillis(20), null, 0, 0, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("latency p99 must not be below the median");
+    }
+}
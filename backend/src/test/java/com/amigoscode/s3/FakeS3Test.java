@@ -0,0 +1,297 @@
+package com.amigoscode.s3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FakeS3Test {
+
+    private static final String BUCKET = "customer";
+    private static final String KEY = "profile-images/1/foo";
+    private static final byte[] DATA = "Hello World".getBytes();
+
+    @TempDir
+    private Path root;
+    private FakeS3 underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new FakeS3(root);
+        underTest.putObject(
+                PutObjectRequest.builder().bucket(BUCKET).key(KEY).build(),
+                RequestBody.fromBytes(DATA)
+        );
+    }
+
+    @Test
+    void canPutAndGetObject() throws IOException {
+        // When
+        ResponseInputStream<GetObjectResponse> actual = underTest.getObject(request(null));
+
+        // Then
+        assertThat(actual.readAllBytes()).isEqualTo(DATA);
+        assertThat(actual.response().contentLength()).isEqualTo(DATA.length);
+        assertThat(actual.response().contentRange()).isNull();
+        assertThat(actual.response().eTag()).isEqualTo("\"b10a8db164e0754105b7a99be72e3fe5\"");
+    }
+
+    @Test
+    void canHeadObject() {
+        // Given
+        underTest.putObject(
+                PutObjectRequest.builder().bucket(BUCKET).key("a b/ü?.png").contentType("image/png").build(),
+                RequestBody.fromBytes(DATA)
+        );
+
+        // When
+        HeadObjectResponse actual = underTest.headObject(
+                HeadObjectRequest.builder().bucket(BUCKET).key("a b/ü?.png").build());
+
+        // Then
+        assertThat(actual.contentLength()).isEqualTo(DATA.length);
+        assertThat(actual.contentType()).isEqualTo("image/png");
+        assertThat(actual.eTag()).isEqualTo("\"b10a8db164e0754105b7a99be72e3fe5\"");
+        assertThat(actual.lastModified()).isNotNull();
+    }
+
+    @Test
+    void keepsObjectsAcrossRestarts() throws IOException {
+        // Given
+        underTest.putObject(
+                PutObjectRequest.builder().bucket(BUCKET).key("a b/ü?.png").contentType("image/png").build(),
+                RequestBody.fromBytes(DATA)
+        );
+        underTest.deleteObject(DeleteObjectRequest.builder().bucket(BUCKET).key(KEY).build());
+
+        // When
+        FakeS3 restarted = new FakeS3(root);
+
+        // Then
+        assertThat(restarted.listObjectsV2(ListObjectsV2Request.builder().bucket(BUCKET).build())
+                .contents())
+                .extracting(S3Object::key)
+                .containsExactly("a b/ü?.png");
+        assertThat(restarted.headObject(HeadObjectRequest.builder()
+                .bucket(BUCKET).key("a b/ü?.png").build()).contentType())
+                .isEqualTo("image/png");
+        try (var objects = restarted.getObject(GetObjectRequest.builder()
+                .bucket(BUCKET).key("a b/ü?.png").build())) {
+            assertThat(objects.readAllBytes()).isEqualTo(DATA);
+        }
+    }
+
+    @Test
+    void readersSeeWholeVersionsUnderConcurrentWrites() throws Exception {
+        // Given
+        byte[] other = "Goodbye World, longer".getBytes();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        try {
+            for (int i = 0; i < 200; i++) {
+                byte[] data = i % 2 == 0 ? DATA : other;
+                futures.add(executor.submit(() -> underTest.putObject(
+                        PutObjectRequest.builder().bucket(BUCKET).key(KEY).build(),
+                        RequestBody.fromBytes(data))));
+                futures.add(executor.submit(() -> {
+                    try (var object = underTest.getObject(request(null))) {
+                        byte[] actual = object.readAllBytes();
+                        assertThat(actual).hasSize(object.response().contentLength().intValue());
+                        assertThat(actual).isIn(DATA, other);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then
+        assertThat(underTest.listObjectsV2(ListObjectsV2Request.builder().bucket(BUCKET).build())
+                .contents()).hasSize(1);
+    }
+
+    @Test
+    void canGetRange() throws IOException {
+        // When
+        ResponseInputStream<GetObjectResponse> actual = underTest.getObject(request("bytes=6-9"));
+
+        // Then
+        assertThat(new String(actual.readAllBytes())).isEqualTo("Worl");
+        assertThat(actual.response().contentLength()).isEqualTo(4);
+        assertThat(actual.response().contentRange()).isEqualTo("bytes 6-9/11");
+    }
+
+    @Test
+    void canGetOpenEndedAndSuffixRanges() throws IOException {
+        assertThat(new String(underTest.getObject(request("bytes=6-")).readAllBytes()))
+                .isEqualTo("World");
+        assertThat(new String(underTest.getObject(request("bytes=-3")).readAllBytes()))
+                .isEqualTo("rld");
+        assertThat(new String(underTest.getObject(request("bytes=6-100")).readAllBytes()))
+                .isEqualTo("World");
+    }
+
+    @Test
+    void ignoresInvalidRangeSyntax() throws IOException {
+        assertThat(underTest.getObject(request("bytes=9-6")).readAllBytes()).isEqualTo(DATA);
+        assertThat(underTest.getObject(request("lines=1-2")).readAllBytes()).isEqualTo(DATA);
+    }
+
+    @Test
+    void willThrowWhenRangeNotSatisfiable() {
+        assertThatThrownBy(() -> underTest.getObject(request("bytes=11-")))
+                .isInstanceOf(S3Exception.class)
+                .satisfies(e -> assertThat(((S3Exception) e).statusCode()).isEqualTo(416));
+    }
+
+    @Test
+    void willThrowWhenKeyDoesNotExist() {
+        assertThatThrownBy(() -> underTest.getObject(
+                GetObjectRequest.builder().bucket(BUCKET).key("missing").build()))
+                .isInstanceOf(NoSuchKeyException.class);
+    }
+
+    @Test
+    void canGetRangeIntoFile(@TempDir Path downloads) throws IOException {
+        // Given
+        Path destination = downloads.resolve("foo");
+
+        // When
+        GetObjectResponse actual = underTest.getObject(request("bytes=0-4"), destination);
+
+        // Then
+        assertThat(Files.readString(destination)).isEqualTo("Hello");
+        assertThat(actual.contentLength()).isEqualTo(5);
+    }
+
+    @Test
+    void canGetObjectAsBytes() {
+        assertThat(underTest.getObjectAsBytes(request(null)).asByteArray()).isEqualTo(DATA);
+    }
+
+    @Test
+    void canListObjectsPageByPage() {
+        // Given
+        put("profile-images/2/bar");
+        put("profile-images/content/abc");
+        put("other/baz");
+
+        // When
+        ListObjectsV2Response first = underTest.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(BUCKET).prefix("profile-images/").maxKeys(2).build());
+        ListObjectsV2Response second = underTest.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(BUCKET).prefix("profile-images/").maxKeys(2)
+                .continuationToken(first.nextContinuationToken()).build());
+
+        // Then
+        assertThat(first.contents()).extracting(S3Object::key)
+                .containsExactly("profile-images/1/foo", "profile-images/2/bar");
+        assertThat(first.isTruncated()).isTrue();
+        assertThat(second.contents()).extracting(S3Object::key)
+                .containsExactly("profile-images/content/abc");
+        assertThat(second.isTruncated()).isFalse();
+        assertThat(second.contents().get(0).size()).isEqualTo(DATA.length);
+    }
+
+    @Test
+    void canDeleteObjects() {
+        // Given
+        put("profile-images/2/bar");
+
+        // When
+        DeleteObjectsResponse actual = underTest.deleteObjects(DeleteObjectsRequest.builder()
+                .bucket(BUCKET)
+                .delete(Delete.builder().objects(
+                        ObjectIdentifier.builder().key(KEY).build(),
+                        ObjectIdentifier.builder().key("profile-images/3/missing").build()
+                ).build())
+                .build());
+
+        // Then
+        assertThat(actual.errors()).isEmpty();
+        assertThat(underTest.listObjectsV2(ListObjectsV2Request.builder()
+                .bucket(BUCKET).build()).contents())
+                .extracting(S3Object::key)
+                .containsExactly("profile-images/2/bar");
+    }
+
+    @Test
+    void multipartUploadKeepsContentTypeOfCreateRequest() {
+        // Given
+        String key = "profile-images/2/bar";
+        String uploadId = underTest.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(BUCKET).key(key).contentType("image/png").build()).uploadId();
+        String eTag = underTest.uploadPart(UploadPartRequest.builder()
+                        .bucket(BUCKET).key(key).uploadId(uploadId).partNumber(1).build(),
+                RequestBody.fromBytes(DATA)).eTag();
+
+        // When
+        underTest.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(BUCKET).key(key).uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder()
+                        .parts(CompletedPart.builder().partNumber(1).eTag(eTag).build())
+                        .build())
+                .build());
+
+        // Then
+        HeadObjectResponse actual = underTest.headObject(HeadObjectRequest.builder()
+                .bucket(BUCKET).key(key).build());
+        assertThat(actual.contentType()).isEqualTo("image/png");
+        assertThat(actual.contentLength()).isEqualTo(DATA.length);
+    }
+
+    private void put(String key) {
+        underTest.putObject(
+                PutObjectRequest.builder().bucket(BUCKET).key(key).build(),
+                RequestBody.fromBytes(DATA)
+        );
+    }
+
+    private static GetObjectRequest request(String range) {
+        return GetObjectRequest.builder()
+                .bucket(BUCKET)
+                .key(KEY)
+                .range(range)
+                .build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.amigoscode.s3;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+
+class S3AsyncServiceTest {
+
+    private static final String BUCKET = "customer";
+    private static final String KEY = "profile-images/1/foo";
+
+    private final S3AsyncClient s3AsyncClient = Mockito.mock(S3AsyncClient.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService inputStreamExecutor = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        inputStreamExecutor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void willHedgeSlowRead() throws Exception {
+        // Given
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> slow = new CompletableFuture<>();
+        ResponseInputStream<GetObjectResponse> object = object();
+        stubGetObject(slow, CompletableFuture.completedFuture(object));
+        S3AsyncService underTest = underTest(Duration.ofSeconds(5), hedgingPolicy(1));
+
+        // When
+        ResponseInputStream<GetObjectResponse> actual =
+                underTest.getObjectStream(BUCKET, KEY, null).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(actual).isSameAs(object);
+        assertThat(slow).isCancelled();
+        assertThat(meterRegistry.get("s3.get.hedges").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("s3.get.hedge.wins").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void willNotHedgeBeyondBudget() {
+        // Given
+        stubGetObject(new CompletableFuture<>(), CompletableFuture.completedFuture(object()));
+        S3AsyncService underTest = underTest(Duration.ofMillis(100), hedgingPolicy(0));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getObjectStream(BUCKET, KEY, null).join())
+                .hasCauseInstanceOf(ApiCallTimeoutException.class);
+        Mockito.verify(s3AsyncClient, Mockito.times(1))
+                .getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class));
+        assertThat(meterRegistry.get("s3.get.hedges").counter().count()).isZero();
+        assertThat(meterRegistry.get("s3.get.timeouts").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void willFailFastWhenKeyDoesNotExist() {
+        // Given
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> hedge = new CompletableFuture<>();
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> slowMissing = new CompletableFuture<>();
+        stubGetObject(slowMissing, hedge);
+        S3AsyncService underTest = underTest(Duration.ofSeconds(5), hedgingPolicy(1));
+        CompletableFuture<ResponseInputStream<GetObjectResponse>> actual =
+                underTest.getObjectStream(BUCKET, KEY, null);
+
+        // When
+        Mockito.verify(s3AsyncClient, Mockito.timeout(1_000).times(2))
+                .getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class));
+        slowMissing.completeExceptionally(NoSuchKeyException.builder().statusCode(404).build());
+
+        // Then
+        assertThatThrownBy(actual::join).hasCauseInstanceOf(NoSuchKeyException.class);
+        assertThat(hedge).isCancelled();
+    }
+
+    @Test
+    void willNotHedgeWhenHedgingIsOff() throws Exception {
+        // Given
+        ResponseInputStream<GetObjectResponse> object = object();
+        stubGetObject(CompletableFuture.completedFuture(object), new CompletableFuture<>());
+        S3AsyncService underTest = underTest(Duration.ofSeconds(5), null);
+
+        // When
+        ResponseInputStream<GetObjectResponse> actual =
+                underTest.getObjectStream(BUCKET, KEY, "bytes=0-1").get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(actual).isSameAs(object);
+        assertThat(meterRegistry.get("s3.get.requests").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("s3.get.hedge.delay").gauge()).isNull();
+    }
+
+    private S3AsyncService underTest(Duration readTimeout, S3HedgingPolicy hedgingPolicy) {
+        return new S3AsyncService(s3AsyncClient, meterRegistry, inputStreamExecutor, scheduler,
+                readTimeout, hedgingPolicy);
+    }
+
+    private static S3HedgingPolicy hedgingPolicy(double budget) {
+        return new S3HedgingPolicy(0.95, Duration.ofMillis(1), Duration.ofMillis(20), budget);
+    }
+
+    @SafeVarargs
+    private void stubGetObject(CompletableFuture<ResponseInputStream<GetObjectResponse>>... responses) {
+        Mockito.doReturn(responses[0], (Object[]) Arrays.copyOfRange(responses, 1, responses.length))
+                .when(s3AsyncClient)
+                .getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class));
+    }
+
+    private static ResponseInputStream<GetObjectResponse> object() {
+        return new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength(5L).build(),
+                AbortableInputStream.create(new ByteArrayInputStream("image".getBytes())));
+    }
+}
@@ -0,0 +1,62 @@
+package com.amigoscode.s3;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class S3HedgingPolicyTest {
+
+    @Test
+    void delayFollowsObservedPercentile() {
+        // Given
+        S3HedgingPolicy underTest = new S3HedgingPolicy(
+                0.95, Duration.ofMillis(1), Duration.ofMillis(200), 0.05);
+        long initialDelay = underTest.delayNanos();
+
+        // When
+        for (int i = 1; i <= 1024; i++) {
+            underTest.record(TimeUnit.MILLISECONDS.toNanos(i % 100 + 1));
+        }
+
+        // Then
+        assertThat(initialDelay).isEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(underTest.delayNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(95));
+    }
+
+    @Test
+    void delayIsNeverBelowMinimum() {
+        // Given
+        S3HedgingPolicy underTest = new S3HedgingPolicy(
+                0.95, Duration.ofMillis(10), Duration.ofMillis(200), 0.05);
+
+        // When
+        for (int i = 0; i < 128; i++) {
+            underTest.record(1);
+        }
+
+        // Then
+        assertThat(underTest.delayNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    void hedgesAreLimitedToBudget() {
+        // Given
+        S3HedgingPolicy underTest = new S3HedgingPolicy(
+                0.95, Duration.ofMillis(1), Duration.ofMillis(200), 0.1);
+        int hedges = 0;
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            underTest.onRead();
+            if (underTest.tryAcquireHedge()) {
+                hedges++;
+            }
+        }
+
+        // Then
+        assertThat(hedges).isEqualTo(10);
+    }
+}
@@ -0,0 +1,126 @@
+package com.amigoscode.s3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+
+class S3MultipartUploaderTest {
+
+    private static final String BUCKET = "customer";
+    private static final String KEY = "exports/foo";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void canUploadInConcurrentParts(@TempDir Path root) throws IOException {
+        // Given
+        FakeS3 s3Client = new FakeS3(root);
+        S3MultipartUploader underTest =
+                new S3MultipartUploader(s3Client, 0, 1024, 3, 3, executor);
+        byte[] data = new byte[10_000];
+        new Random(1).nextBytes(data);
+
+        // When
+        underTest.upload(BUCKET, KEY, new ByteArrayInputStream(data), "application/zip");
+
+        // Then
+        byte[] actual = s3Client.getObject(GetObjectRequest.builder()
+                .bucket(BUCKET)
+                .key(KEY)
+                .build()).readAllBytes();
+        assertThat(actual).isEqualTo(data);
+        try (var uploads = Files.list(root.resolve(".multipart"))) {
+            assertThat(uploads).isEmpty();
+        }
+    }
+
+    @Test
+    void retriesFailedParts() {
+        // Given
+        S3Client s3Client = Mockito.mock(S3Client.class);
+        mockCreateMultipartUpload(s3Client);
+        Mockito.when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenThrow(S3Exception.builder().statusCode(503).build())
+                .thenReturn(UploadPartResponse.builder().eTag("etag").build());
+        S3MultipartUploader underTest =
+                new S3MultipartUploader(s3Client, 0, 1024, 2, 3, executor);
+
+        // When
+        underTest.upload(BUCKET, KEY, new ByteArrayInputStream(new byte[100]), null);
+
+        // Then
+        ArgumentCaptor<CompleteMultipartUploadRequest> captor =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        Mockito.verify(s3Client).completeMultipartUpload(captor.capture());
+        assertThat(captor.getValue().multipartUpload().parts())
+                .extracting(CompletedPart::partNumber, CompletedPart::eTag)
+                .containsExactly(tuple(1, "etag"));
+        Mockito.verify(s3Client, Mockito.never()).abortMultipartUpload(
+                any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void abortsUploadWhenPartKeepsFailing() {
+        // Given
+        S3Client s3Client = Mockito.mock(S3Client.class);
+        mockCreateMultipartUpload(s3Client);
+        Mockito.when(s3Client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenThrow(S3Exception.builder().statusCode(500).build());
+        S3MultipartUploader underTest =
+                new S3MultipartUploader(s3Client, 0, 1024, 2, 2, executor);
+
+        // When
+        assertThatThrownBy(() -> underTest.upload(
+                BUCKET, KEY, new ByteArrayInputStream(new byte[5000]), null))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Multipart upload of [%s] failed".formatted(KEY))
+                .hasCauseInstanceOf(S3Exception.class);
+
+        // Then
+        ArgumentCaptor<AbortMultipartUploadRequest> captor =
+                ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        Mockito.verify(s3Client).abortMultipartUpload(captor.capture());
+        assertThat(captor.getValue().uploadId()).isEqualTo("upload-1");
+        Mockito.verify(s3Client, Mockito.never()).completeMultipartUpload(
+                any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void usesThresholdToPickMultipart() {
+        S3MultipartUploader underTest = new S3MultipartUploader(
+                Mockito.mock(S3Client.class), 1024, 1024, 1, 1, executor);
+
+        assertThat(underTest.isMultipart(1023)).isFalse();
+        assertThat(underTest.isMultipart(1024)).isTrue();
+    }
+
+    private static void mockCreateMultipartUpload(S3Client s3Client) {
+        Mockito.when(s3Client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder()
+                        .uploadId("upload-1")
+                        .build());
+    }
+}
@@ -10,14 +10,25 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -29,11 +40,19 @@ import static org.mockito.ArgumentMatchers.eq;
 class S3ServiceTest {
     @Mock
     private S3Client s3Client;
+    @Mock
+    private S3MultipartUploader multipartUploader;
+    // presigning is a local computation, so a real presigner is fine here
+    private final S3Presigner s3Presigner = S3Presigner.builder()
+            .region(Region.CA_CENTRAL_1)
+            .credentialsProvider(StaticCredentialsProvider.create(
+                    AwsBasicCredentials.create("access", "secret")))
+            .build();
     private S3Service underTest;
 
     @BeforeEach
     void setUp() {
-        underTest = new S3Service(s3Client);
+        underTest = new S3Service(s3Client, multipartUploader, s3Presigner);
     }
 
     @Test
@@ -71,6 +90,64 @@ class S3ServiceTest {
         );
     }
 
+    @Test
+    void canPutObjectFromInputStream() throws IOException {
+        // Given
+        String bucket = "customer";
+        String key = "foo";
+        byte[] data = "Hello World".getBytes();
+
+        // When
+        underTest.putObject(
+                bucket, key, new ByteArrayInputStream(data), data.length, "text/plain");
+
+        // Then
+        ArgumentCaptor<PutObjectRequest> putObjectRequestArgumentCaptor =
+                ArgumentCaptor.forClass(PutObjectRequest.class);
+        ArgumentCaptor<RequestBody> requestBodyArgumentCaptor =
+                ArgumentCaptor.forClass(RequestBody.class);
+        Mockito.verify(s3Client).putObject(
+                putObjectRequestArgumentCaptor.capture(),
+                requestBodyArgumentCaptor.capture()
+        );
+
+        PutObjectRequest putObjectRequestArgumentCaptorValue =
+                putObjectRequestArgumentCaptor.getValue();
+
+        assertThat(putObjectRequestArgumentCaptorValue.bucket()).isEqualTo(bucket);
+        assertThat(putObjectRequestArgumentCaptorValue.key()).isEqualTo(key);
+        assertThat(putObjectRequestArgumentCaptorValue.contentLength())
+                .isEqualTo(data.length);
+        assertThat(putObjectRequestArgumentCaptorValue.contentType())
+                .isEqualTo("text/plain");
+
+        RequestBody requestBodyArgumentCaptorValue = requestBodyArgumentCaptor.getValue();
+
+        assertThat(requestBodyArgumentCaptorValue.optionalContentLength())
+                .contains((long) data.length);
+        assertThat(
+                requestBodyArgumentCaptorValue.contentStreamProvider().newStream().readAllBytes()
+        ).isEqualTo(data);
+    }
+
+    @Test
+    void usesMultipartUploadForLargeObjects() {
+        // Given
+        String bucket = "customer";
+        String key = "foo";
+        long contentLength = 64L * 1024 * 1024;
+        InputStream inputStream = new ByteArrayInputStream(new byte[0]);
+
+        Mockito.when(multipartUploader.isMultipart(contentLength)).thenReturn(true);
+
+        // When
+        underTest.putObject(bucket, key, inputStream, contentLength, "video/mp4");
+
+        // Then
+        Mockito.verify(multipartUploader).upload(bucket, key, inputStream, "video/mp4");
+        Mockito.verifyNoInteractions(s3Client);
+    }
+
     @Test
     void canGetObject() throws IOException {
         // Given
@@ -96,6 +173,31 @@ class S3ServiceTest {
         assertThat(bytes).isEqualTo(data);
     }
 
+    @Test
+    void canGetObjectStream() {
+        // Given
+        String bucket = "customer";
+        String key = "foo";
+
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build();
+
+        ResponseInputStream<GetObjectResponse> res
+                = Mockito.mock(ResponseInputStream.class);
+
+        Mockito.when(s3Client.getObject(eq(getObjectRequest))).thenReturn(res);
+
+        // When
+        ResponseInputStream<GetObjectResponse> actual =
+                underTest.getObjectStream(bucket, key);
+
+        // Then
+        assertThat(actual).isSameAs(res);
+        Mockito.verifyNoInteractions(res);
+    }
+
     @Test
     void willThrowWhenGetObject() throws IOException {
         // Given
@@ -124,4 +226,41 @@ class S3ServiceTest {
                 .hasRootCauseInstanceOf(IOException.class);
     }
 
-}
\ No newline at end of file
+    @Test
+    void canPresignPutObject() {
+        // Given
+        String bucket = "customer";
+        String key = "profile-images/1/foo";
+
+        // When
+        PresignedPutObjectRequest actual = underTest.presignPutObject(
+                bucket, key, "image/png", 1024, Duration.ofMinutes(10));
+
+        // Then
+        assertThat(actual.httpRequest().method()).isEqualTo(SdkHttpMethod.PUT);
+        assertThat(actual.url().toString())
+                .contains(key)
+                .containsPattern("X-Amz-Expires=(599|600)");
+        assertThat(actual.signedHeaders())
+                .containsEntry("content-type", List.of("image/png"))
+                .containsEntry("content-length", List.of("1024"));
+    }
+
+    @Test
+    void canPresignGetObject() {
+        // Given
+        String bucket = "customer";
+        String key = "profile-images/1/foo";
+
+        // When
+        PresignedGetObjectRequest actual = underTest.presignGetObject(
+                bucket, key, Duration.ofMinutes(5));
+
+        // Then
+        assertThat(actual.httpRequest().method()).isEqualTo(SdkHttpMethod.GET);
+        assertThat(actual.url().toString())
+                .contains(key)
+                .containsPattern("X-Amz-Expires=(299|300)");
+        Mockito.verifyNoInteractions(s3Client);
+    }
+}
@@ -0,0 +1,73 @@
+package com.amigoscode.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BCryptCalibrationTest {
+
+    @Test
+    void picksHighestStrengthWithinTarget() {
+        // Given
+        // 20ms at strength 10 means 40ms at 11, 80ms at 12 and 160ms at 13
+        long twentyMillis = TimeUnit.MILLISECONDS.toNanos(20);
+
+        // When
+        int actual = BCryptCalibration.strengthFor(
+                Duration.ofMillis(100), 10, 14, strength -> twentyMillis);
+
+        // Then
+        assertThat(actual).isEqualTo(12);
+    }
+
+    @Test
+    void staysWithinBounds() {
+        // When
+        int slowHardware = BCryptCalibration.strengthFor(
+                Duration.ofMillis(100), 10, 14, strength -> TimeUnit.SECONDS.toNanos(1));
+        int fastHardware = BCryptCalibration.strengthFor(
+                Duration.ofMillis(100), 10, 14, strength -> 1);
+
+        // Then
+        assertThat(slowHardware).isEqualTo(10);
+        assertThat(fastHardware).isEqualTo(14);
+    }
+
+    @Test
+    void usesFastestSample() {
+        // Given
+        long[] samples = {
+                TimeUnit.MILLISECONDS.toNanos(90),
+                TimeUnit.MILLISECONDS.toNanos(20),
+                TimeUnit.MILLISECONDS.toNanos(60)
+        };
+        int[] calls = new int[1];
+
+        // When
+        int actual = BCryptCalibration.strengthFor(
+                Duration.ofMillis(100), 10, 14, strength -> samples[calls[0]++]);
+
+        // Then
+        assertThat(actual).isEqualTo(12);
+    }
+
+    @Test
+    void calibratesRealHashes() {
+        // When
+        int actual = BCryptCalibration.strengthFor(Duration.ofMillis(1), 4, 6);
+
+        // Then
+        assertThat(actual).isBetween(4, 6);
+    }
+
+    @Test
+    void rejectsStrengthOutsideBCryptRange() {
+        assertThatThrownBy(() -> BCryptCalibration.strengthFor(Duration.ofMillis(100), 3, 14))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("BCrypt strength must be between 4 and 31");
+    }
+}
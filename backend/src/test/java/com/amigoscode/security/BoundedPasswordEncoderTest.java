@@ -0,0 +1,150 @@
+package com.amigoscode.security;
+
+import com.amigoscode.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private BoundedPasswordEncoder underTest;
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        underTest.shutdown();
+    }
+
+    @Test
+    void encodesAndMatchesOnThePool() {
+        // Given
+        underTest = new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(4), meterRegistry, 1, 1, Duration.ofSeconds(1));
+
+        // When
+        String encoded = underTest.encode("password");
+
+        // Then
+        assertThat(underTest.matches("password", encoded)).isTrue();
+        assertThat(underTest.matches("wrong", encoded)).isFalse();
+        assertThat(meterRegistry.get("password.hash.latency").tag("operation", "encode")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("password.hash.latency").tag("operation", "matches")
+                .timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        underTest = new BoundedPasswordEncoder(
+                blockingEncoder(started, release), meterRegistry, 1, 1, Duration.ofSeconds(2));
+        Future<String> running = callers.submit(() -> underTest.encode("first"));
+        started.await(5, TimeUnit.SECONDS);
+        Future<String> queued = callers.submit(() -> underTest.encode("second"));
+        awaitQueueDepth(1);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.encode("third"))
+                .isInstanceOfSatisfying(TooManyRequestsException.class,
+                        e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(2)));
+        assertThat(meterRegistry.get("password.hash.rejected").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("password.hash.queue.depth").gauge().value()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+    }
+
+    @Test
+    void rethrowsDelegateFailures() {
+        // Given
+        underTest = new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(4), meterRegistry, 1, 1, Duration.ofSeconds(1));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.encode(null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void forwardsUpgradeEncoding() {
+        // Given
+        String weak = new BCryptPasswordEncoder(4).encode("password");
+        underTest = new BoundedPasswordEncoder(
+                new BCryptPasswordEncoder(10), meterRegistry, 1, 1, Duration.ofSeconds(1));
+
+        // When
+        boolean actual = underTest.upgradeEncoding(weak);
+
+        // Then
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void defersUpgradeWhileSignInsAreQueued() throws Exception {
+        // Given
+        String weak = new BCryptPasswordEncoder(4).encode("password");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        underTest = new BoundedPasswordEncoder(
+                blockingEncoder(started, release), meterRegistry, 1, 1, Duration.ofSeconds(1));
+        callers.submit(() -> underTest.encode("first"));
+        started.await(5, TimeUnit.SECONDS);
+        callers.submit(() -> underTest.encode("second"));
+        awaitQueueDepth(1);
+
+        // When
+        boolean actual = underTest.upgradeEncoding(weak);
+
+        // Then
+        assertThat(actual).isFalse();
+        release.countDown();
+    }
+
+    private void awaitQueueDepth(int depth) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (underTest.getQueueDepth() < depth && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static PasswordEncoder blockingEncoder(CountDownLatch started, CountDownLatch release) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return rawPassword.toString().equals(encodedPassword);
+            }
+
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                return true;
+            }
+        };
+    }
+}
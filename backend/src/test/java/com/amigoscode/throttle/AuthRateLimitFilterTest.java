@@ -0,0 +1,318 @@
+package com.amigoscode.throttle;
+
+import com.amigoscode.exception.TooManyRequestsException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.apache.catalina.filters.RemoteIpFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthRateLimitFilterTest {
+
+    private static final String LOGIN_PATH = "/api/v1/auth/login";
+    private static final String INTERNAL_PROXIES = internalProxies();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HandlerExceptionResolver handlerExceptionResolver = (request, response, handler, e) -> {
+        response.setStatus(e.getClass().getAnnotation(ResponseStatus.class).code().value());
+        if (e instanceof TooManyRequestsException tooManyRequests) {
+            response.setHeader("Retry-After",
+                    String.valueOf(tooManyRequests.getRetryAfter().toSeconds()));
+        }
+        return new ModelAndView();
+    };
+    private final long[] now = {0};
+    private final AuthRateLimitFilter underTest = new AuthRateLimitFilter(
+            properties(), new ObjectMapper(), meterRegistry, handlerExceptionResolver, () -> now[0]);
+
+    @Test
+    void rejectsClientIpOverItsLimit() throws Exception {
+        // Given
+        AtomicInteger passed = new AtomicInteger();
+        FilterChain chain = (request, response) -> passed.incrementAndGet();
+        for (int i = 0; i < 3; i++) {
+            underTest.doFilter(login("10.0.0.1", "user" + i + "@amigoscode.com"),
+                    new MockHttpServletResponse(), chain);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        underTest.doFilter(login("10.0.0.1", "other@amigoscode.com"), response, chain);
+
+        // Then
+        assertThat(passed).hasValue(3);
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("20");
+        assertThat(meterRegistry.get("auth.rate-limit.rejected")
+                .tag("key", "ip").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsUsernameOverItsLimitFromAnyIp() throws Exception {
+        // Given
+        AtomicInteger passed = new AtomicInteger();
+        FilterChain chain = (request, response) -> passed.incrementAndGet();
+        underTest.doFilter(login("10.0.0.1", "victim@amigoscode.com"), new MockHttpServletResponse(), chain);
+        underTest.doFilter(login("10.0.0.2", " Victim@AmigosCode.com "), new MockHttpServletResponse(), chain);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        underTest.doFilter(login("10.0.0.3", "victim@amigoscode.com"), response, chain);
+
+        // Then
+        assertThat(passed).hasValue(2);
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(meterRegistry.get("auth.rate-limit.rejected")
+                .tag("key", "username").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void limitsClientsBehindTrustedProxyByForwardedAddress() throws Exception {
+        // Given
+        AtomicInteger passed = new AtomicInteger();
+        FilterChain chain = (request, response) -> passed.incrementAndGet();
+        for (int i = 0; i < 3; i++) {
+            forwarded(login("10.0.0.100", "user" + i + "@amigoscode.com"), "203.0.113.1",
+                    new MockHttpServletResponse(), chain);
+        }
+        MockHttpServletResponse sameClient = new MockHttpServletResponse();
+        MockHttpServletResponse otherClient = new MockHttpServletResponse();
+
+        // When
+        forwarded(login("10.0.0.100", "other@amigoscode.com"), "203.0.113.1", sameClient, chain);
+        forwarded(login("10.0.0.100", "other@amigoscode.com"), "203.0.113.2", otherClient, chain);
+
+        // Then
+        assertThat(passed).hasValue(4);
+        assertThat(sameClient.getStatus()).isEqualTo(429);
+        assertThat(otherClient.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void ignoresForwardedAddressFromUntrustedClient() throws Exception {
+        // Given
+        AtomicInteger passed = new AtomicInteger();
+        FilterChain chain = (request, response) -> passed.incrementAndGet();
+        for (int i = 0; i < 3; i++) {
+            forwarded(login("198.51.100.1", "user" + i + "@amigoscode.com"), "203.0.113." + i,
+                    new MockHttpServletResponse(), chain);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        forwarded(login("198.51.100.1", "other@amigoscode.com"), "203.0.113.3", response, chain);
+
+        // Then
+        assertThat(passed).hasValue(3);
+        assertThat(response.getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void limitsPercentEncodedPathLikeThePathItEncodes() throws Exception {
+        // Given
+        AtomicInteger passed = new AtomicInteger();
+        FilterChain chain = (request, response) -> passed.incrementAndGet();
+        for (int i = 0; i < 3; i++) {
+            underTest.doFilter(login("10.0.0.1", "user" + i + "@amigoscode.com"),
+                    new MockHttpServletResponse(), chain);
+        }
+        MockHttpServletRequest request = login("10.0.0.1", "other@amigoscode.com");
+        request.setRequestURI("/api/v1/auth/%6Cogin");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        underTest.doFilter(request, response, chain);
+
+        // Then
+        assertThat(passed).hasValue(3);
+        assertThat(response.getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void allowsAgainOncePermitsRefill() throws Exception {
+        // Given
+        AtomicInteger passed = new AtomicInteger();
+        FilterChain chain = (request, response) -> passed.incrementAndGet();
+        underTest.doFilter(login("10.0.0.1", "user@amigoscode.com"), new MockHttpServletResponse(), chain);
+        underTest.doFilter(login("10.0.0.1", "user@amigoscode.com"), new MockHttpServletResponse(), chain);
+        underTest.doFilter(login("10.0.0.1", "user@amigoscode.com"), new MockHttpServletResponse(), chain);
+
+        // When
+        now[0] = Duration.ofSeconds(30).toNanos();
+        underTest.doFilter(login("10.0.0.1", "user@amigoscode.com"), new MockHttpServletResponse(), chain);
+
+        // Then
+        assertThat(passed).hasValue(3);
+    }
+
+    @Test
+    void passesBodyOnUnchanged() throws Exception {
+        // Given
+        MockHttpServletRequest request = login("10.0.0.1", "user@amigoscode.com");
+        String[] body = new String[1];
+        FilterChain chain = (req, res) ->
+                body[0] = new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Then
+        assertThat(body[0]).isEqualTo(loginBody("user@amigoscode.com"));
+    }
+
+    @Test
+    void rejectsBodyTooLargeToReadTheUsernameFrom() throws Exception {
+        // Given
+        AtomicInteger passed = new AtomicInteger();
+        FilterChain chain = (request, response) -> passed.incrementAndGet();
+        MockHttpServletRequest request = login("10.0.0.1", "victim@amigoscode.com");
+        request.setContent(("{\"username\":\"victim@amigoscode.com\",\"padding\":\""
+                + "x".repeat(16 * 1024) + "\"}").getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        underTest.doFilter(request, response, chain);
+
+        // Then
+        assertThat(passed).hasValue(0);
+        assertThat(response.getStatus()).isEqualTo(413);
+    }
+
+    @Test
+    void rejectsBodyWithoutUsername() throws Exception {
+        // Given
+        AtomicInteger passed = new AtomicInteger();
+        FilterChain chain = (request, response) -> passed.incrementAndGet();
+        MockHttpServletRequest request = login("10.0.0.1", "victim@amigoscode.com");
+        request.setContent("{\"username\":42,\"password\":\"password\"}"
+                .getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        underTest.doFilter(request, response, chain);
+
+        // Then
+        assertThat(passed).hasValue(0);
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    void replaysBodyToReadListener() throws Exception {
+        // Given
+        MockHttpServletRequest request = login("10.0.0.1", "user@amigoscode.com");
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        AtomicBoolean allDataRead = new AtomicBoolean();
+        FilterChain chain = (req, res) -> {
+            ServletInputStream inputStream = req.getInputStream();
+            inputStream.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[16];
+                    while (inputStream.isReady() && !inputStream.isFinished()) {
+                        body.write(buffer, 0, inputStream.read(buffer));
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allDataRead.set(true);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+            });
+        };
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // Then
+        assertThat(body.toString(StandardCharsets.UTF_8)).isEqualTo(loginBody("user@amigoscode.com"));
+        assertThat(allDataRead).isTrue();
+    }
+
+    @Test
+    void ignoresOtherRoutes() throws Exception {
+        // Given
+        AtomicInteger passed = new AtomicInteger();
+        FilterChain chain = (request, response) -> passed.incrementAndGet();
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", LOGIN_PATH);
+            request.setRemoteAddr("10.0.0.1");
+            underTest.doFilter(request, new MockHttpServletResponse(), chain);
+        }
+
+        // Then
+        assertThat(passed).hasValue(5);
+    }
+
+    /**
+     * Sends the request through X-Forwarded-For handling as configured for
+     * the servlet container in application.yml, then through the filter.
+     */
+    private void forwarded(MockHttpServletRequest request,
+                           String forwardedFor,
+                           MockHttpServletResponse response,
+                           FilterChain chain) throws Exception {
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        RemoteIpFilter remoteIpFilter = new RemoteIpFilter();
+        remoteIpFilter.setInternalProxies(INTERNAL_PROXIES);
+        remoteIpFilter.doFilter(request, response,
+                (resolved, res) -> underTest.doFilter(resolved, res, chain));
+    }
+
+    private static String internalProxies() {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application.yml"));
+        return yaml.getObject().getProperty("server.tomcat.remoteip.internal-proxies");
+    }
+
+    private static MockHttpServletRequest login(String remoteAddr, String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", LOGIN_PATH);
+        request.setRemoteAddr(remoteAddr);
+        request.setContentType("application/json");
+        request.setContent(loginBody(username).getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static String loginBody(String username) {
+        return "{\"username\":\"" + username + "\",\"password\":\"password\"}";
+    }
+
+    private static AuthRateLimitProperties properties() {
+        AuthRateLimitProperties.Limit perIp = new AuthRateLimitProperties.Limit();
+        perIp.setPermits(3);
+        AuthRateLimitProperties.Limit perUsername = new AuthRateLimitProperties.Limit();
+        perUsername.setPermits(2);
+        AuthRateLimitProperties.Route login = new AuthRateLimitProperties.Route();
+        login.setPath(LOGIN_PATH);
+        login.setUsernameField("username");
+        login.setPerIp(perIp);
+        login.setPerUsername(perUsername);
+        AuthRateLimitProperties properties = new AuthRateLimitProperties();
+        properties.getRoutes().put("login", login);
+        return properties;
+    }
+}
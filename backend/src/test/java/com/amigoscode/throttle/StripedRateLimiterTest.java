@@ -0,0 +1,126 @@
+package com.amigoscode.throttle;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedRateLimiterTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void allowsBurstThenReportsWaitUntilNextPermit() {
+        // Given
+        StripedRateLimiter underTest = new StripedRateLimiter(
+                3, Duration.ofSeconds(3), 3, 4, 100);
+
+        // When
+        long first = underTest.tryAcquire("client", 0);
+        long second = underTest.tryAcquire("client", 0);
+        long third = underTest.tryAcquire("client", 0);
+        long fourth = underTest.tryAcquire("client", 0);
+
+        // Then
+        assertThat(first).isZero();
+        assertThat(second).isZero();
+        assertThat(third).isZero();
+        assertThat(fourth).isEqualTo(SECOND);
+    }
+
+    @Test
+    void refillsOnePermitPerEmissionInterval() {
+        // Given
+        StripedRateLimiter underTest = new StripedRateLimiter(
+                2, Duration.ofSeconds(2), 2, 4, 100);
+        underTest.tryAcquire("client", 0);
+        underTest.tryAcquire("client", 0);
+
+        // When
+        long afterOneSecond = underTest.tryAcquire("client", SECOND);
+        long againRightAway = underTest.tryAcquire("client", SECOND);
+
+        // Then
+        assertThat(afterOneSecond).isZero();
+        assertThat(againRightAway).isEqualTo(SECOND);
+    }
+
+    @Test
+    void keysAreLimitedIndependently() {
+        // Given
+        StripedRateLimiter underTest = new StripedRateLimiter(
+                1, Duration.ofSeconds(1), 1, 4, 100);
+        underTest.tryAcquire("first", 0);
+
+        // When
+        long other = underTest.tryAcquire("second", 0);
+
+        // Then
+        assertThat(underTest.tryAcquire("first", 0)).isPositive();
+        assertThat(other).isZero();
+    }
+
+    @Test
+    void evictsOnlyKeysWhoseBucketIsFullAgain() {
+        // Given
+        StripedRateLimiter underTest = new StripedRateLimiter(
+                1, Duration.ofSeconds(1), 1, 4, 100);
+        underTest.tryAcquire("idle", 0);
+        underTest.tryAcquire("busy", 2 * SECOND);
+
+        // When
+        underTest.evictIdle(2 * SECOND);
+
+        // Then
+        assertThat(underTest.size()).isEqualTo(1);
+        assertThat(underTest.tryAcquire("busy", 2 * SECOND)).isPositive();
+        assertThat(underTest.tryAcquire("idle", 2 * SECOND)).isZero();
+    }
+
+    @Test
+    void newKeyTakesThePlaceOfIdleKeyInFullStripe() {
+        // Given
+        StripedRateLimiter underTest = new StripedRateLimiter(
+                1, Duration.ofSeconds(1), 1, 1, 2);
+        underTest.tryAcquire("idle", 0);
+        underTest.tryAcquire("busy", 2 * SECOND);
+
+        // When
+        long first = underTest.tryAcquire("new", 2 * SECOND);
+
+        // Then
+        assertThat(underTest.size()).isEqualTo(2);
+        assertThat(first).isZero();
+        assertThat(underTest.tryAcquire("new", 2 * SECOND)).isPositive();
+        assertThat(underTest.tryAcquire("busy", 2 * SECOND)).isPositive();
+    }
+
+    @Test
+    void newKeyTakesThePlaceOfKeyClosestToIdleWhenNoneIsIdle() {
+        // Given
+        StripedRateLimiter underTest = new StripedRateLimiter(
+                1, Duration.ofSeconds(1), 1, 1, 2);
+        underTest.tryAcquire("older", 0);
+        underTest.tryAcquire("newer", SECOND / 2);
+
+        // When
+        long first = underTest.tryAcquire("new", SECOND / 2);
+
+        // Then
+        assertThat(first).isZero();
+        assertThat(underTest.size()).isEqualTo(2);
+        assertThat(underTest.tryAcquire("newer", SECOND / 2)).isPositive();
+        assertThat(underTest.tryAcquire("new", SECOND / 2)).isPositive();
+    }
+
+    @Test
+    void rejectsNonPositivePermits() {
+        // When
+        // Then
+        assertThatThrownBy(() -> new StripedRateLimiter(0, Duration.ofSeconds(1), 1, 4, 100))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("rate limit permits and burst must be positive");
+    }
+}
@@ -0,0 +1,196 @@
+package com.amigoscode.throttle;
+
+import com.amigoscode.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UploadAdmissionFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HandlerExceptionResolver handlerExceptionResolver = (request, response, handler, e) -> {
+        response.setStatus(429);
+        response.setHeader("Retry-After",
+                String.valueOf(((TooManyRequestsException) e).getRetryAfter().toSeconds()));
+        return new ModelAndView();
+    };
+    private final UploadAdmissionFilter underTest = new UploadAdmissionFilter(
+            meterRegistry, handlerExceptionResolver, 10 * 1024, 8 * 1024, 1, Duration.ofSeconds(2));
+
+    @Test
+    void admitsUploadWithinBudgetAndReleasesItAfterwards() throws Exception {
+        // Given
+        long[] inFlightDuringUpload = new long[1];
+        FilterChain chain = (request, response) ->
+                inFlightDuringUpload[0] = underTest.getInFlightBytes();
+
+        // When
+        underTest.doFilter(upload(6 * 1024), new MockHttpServletResponse(), chain);
+
+        // Then
+        assertThat(inFlightDuringUpload[0]).isEqualTo(6 * 1024);
+        assertThat(underTest.getInFlightBytes()).isZero();
+        assertThat(meterRegistry.get("upload.admission.admitted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsUploadOnceBudgetIsSpent() throws Exception {
+        // Given
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        FilterChain chain = (request, response) ->
+                underTest.doFilter(upload(6 * 1024), rejected, (req, res) -> {
+                    throw new AssertionError("second upload must not run");
+                });
+
+        // When
+        underTest.doFilter(upload(6 * 1024), new MockHttpServletResponse(), chain);
+
+        // Then
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(meterRegistry.get("upload.admission.rejected").counter().count()).isEqualTo(1);
+        assertThat(underTest.getInFlightBytes()).isZero();
+    }
+
+    @Test
+    void holdsBudgetUntilAsyncUploadCompletes() throws Exception {
+        // Given
+        MockHttpServletRequest request = upload(6 * 1024);
+        request.setAsyncSupported(true);
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> req.startAsync());
+        long inFlightWhileProcessing = underTest.getInFlightBytes();
+        request.getAsyncContext().complete();
+
+        // Then
+        assertThat(inFlightWhileProcessing).isEqualTo(6 * 1024);
+        assertThat(underTest.getInFlightBytes()).isZero();
+    }
+
+    @Test
+    void chargesUploadsOfUnknownLengthTheMaxRequestSize() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/customers/1/profile-image");
+        request.setContentType("multipart/form-data; boundary=foo");
+        long[] inFlightDuringUpload = new long[1];
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> inFlightDuringUpload[0] = underTest.getInFlightBytes());
+
+        // Then
+        assertThat(inFlightDuringUpload[0]).isEqualTo(8 * 1024);
+    }
+
+    @Test
+    void admitsUploadsWhileLargeImportRuns() throws Exception {
+        // Given
+        long[] inFlightDuringUpload = new long[1];
+        FilterChain chain = (request, response) ->
+                underTest.doFilter(upload(6 * 1024), new MockHttpServletResponse(),
+                        (req, res) -> inFlightDuringUpload[0] = underTest.getInFlightBytes());
+
+        // When
+        underTest.doFilter(importArchive(100 * 1024), new MockHttpServletResponse(), chain);
+
+        // Then
+        assertThat(inFlightDuringUpload[0]).isEqualTo(6 * 1024);
+        assertThat(underTest.getInFlightBytes()).isZero();
+    }
+
+    @Test
+    void rejectsImportOnceImportBudgetIsSpent() throws Exception {
+        // Given
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        FilterChain chain = (request, response) ->
+                underTest.doFilter(importArchive(1024), rejected, (req, res) -> {
+                    throw new AssertionError("second import must not run");
+                });
+
+        // When
+        underTest.doFilter(importArchive(1024), new MockHttpServletResponse(), chain);
+
+        // Then
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(meterRegistry.get("upload.admission.in-flight.imports").gauge().value()).isZero();
+    }
+
+    @Test
+    void chargesResumableUploadChunksWhateverTheirContentType() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest(
+                "PUT", "/api/v1/customers/1/profile-image/uploads/abc");
+        request.setContentType("image/png");
+        request.setContent(new byte[6 * 1024]);
+        long[] inFlightDuringUpload = new long[1];
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> inFlightDuringUpload[0] = underTest.getInFlightBytes());
+
+        // Then
+        assertThat(inFlightDuringUpload[0]).isEqualTo(6 * 1024);
+        assertThat(underTest.getInFlightBytes()).isZero();
+    }
+
+    @Test
+    void rejectsResumableUploadChunkOnceBudgetIsSpent() throws Exception {
+        // Given
+        MockHttpServletRequest chunk = new MockHttpServletRequest(
+                "PUT", "/api/v1/customers/1/profile-image/uploads/abc");
+        chunk.setContent(new byte[6 * 1024]);
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        FilterChain chain = (request, response) ->
+                underTest.doFilter(chunk, rejected, (req, res) -> {
+                    throw new AssertionError("chunk over budget must not run");
+                });
+
+        // When
+        underTest.doFilter(upload(6 * 1024), new MockHttpServletResponse(), chain);
+
+        // Then
+        assertThat(rejected.getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void ignoresRequestsThatAreNotMultipart() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/v1/customers/1");
+        request.setContentType("application/json");
+        request.setContent(new byte[20 * 1024]);
+        boolean[] ran = new boolean[1];
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(), (req, res) -> ran[0] = true);
+
+        // Then
+        assertThat(ran[0]).isTrue();
+        assertThat(meterRegistry.get("upload.admission.admitted").counter().count()).isZero();
+    }
+
+    private static MockHttpServletRequest importArchive(int bytes) {
+        MockHttpServletRequest request = new MockHttpServletRequest(
+                "POST", "/api/v1/customers/profile-images/import");
+        request.setContentType("application/zip");
+        request.setContent(new byte[bytes]);
+        return request;
+    }
+
+    private static MockHttpServletRequest upload(int bytes) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/customers/1/profile-image");
+        request.setContentType("multipart/form-data; boundary=foo");
+        request.setContent(new byte[bytes]);
+        return request;
+    }
+}
@@ -4,7 +4,10 @@ import {
     useEffect,
     useState
 } from "react";
-import {login as performLogin} from "../../services/client.js";
+import {
+    login as performLogin,
+    logout as performLogout
+} from "../../services/client.js";
 import jwtDecode from "jwt-decode";
 
 const AuthContext = createContext({});
@@ -32,6 +35,7 @@ const AuthProvider = ({children}) => {
             performLogin(usernameAndPassword).then(res => {
                 const jwtToken = res.headers["authorization"];
                 localStorage.setItem("access_token", jwtToken);
+                localStorage.setItem("refresh_token", res.data.refreshToken);
                 console.log(jwtToken);
 
                 const decodedToken = jwtDecode(jwtToken);
@@ -47,7 +51,13 @@ const AuthProvider = ({children}) => {
     }
 
     const logOut = () => {
+        const refreshToken = localStorage.getItem("refresh_token");
+        if (refreshToken) {
+            // ends the session on the server too, the token may have expired already
+            performLogout(refreshToken).catch(() => {})
+        }
         localStorage.removeItem("access_token")
+        localStorage.removeItem("refresh_token")
         setCustomer(null)
     }
 
@@ -57,7 +67,8 @@ const AuthProvider = ({children}) => {
             return false;
         }
         const { exp: expiration } = jwtDecode(token);
-        if(Date.now() > expiration * 1000) {
+        // an expired token is refreshed by the next request while the refresh token lasts
+        if(Date.now() > expiration * 1000 && !localStorage.getItem("refresh_token")) {
             logOut()
             return false;
         }
@@ -83,7 +83,7 @@ const CreateCustomerForm = ({ onSuccess }) => {
                                 "Customer saved",
                                 `${customer.name} was successfully saved`
                             )
-                            onSuccess(res.headers["authorization"]);
+                            onSuccess(res.headers["authorization"], res.data.refreshToken);
                         }).catch(err => {
                             console.log(err);
                             errorNotification(
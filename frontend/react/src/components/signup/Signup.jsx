@@ -25,8 +25,9 @@ const Signup = () => {
                         alignSelf={"center"}
                     />
                     <Heading fontSize={'2xl'} mb={15}>Register for an account</Heading>
-                    <CreateCustomerForm onSuccess={(token) => {
+                    <CreateCustomerForm onSuccess={(token, refreshToken) => {
                         localStorage.setItem("access_token", token)
+                        localStorage.setItem("refresh_token", refreshToken)
                         setCustomerFromToken()
                         navigate("/dashboard")
                     }}/>
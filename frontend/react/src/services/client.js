@@ -6,6 +6,47 @@ const getAuthConfig = () => ({
     }
 })
 
+let refreshing = null;
+
+// shared by requests that fail together, as each refresh token can only be used once
+const refreshAccessToken = () => {
+    if (!refreshing) {
+        refreshing = axios.post(
+            `${import.meta.env.VITE_API_BASE_URL}/api/v1/auth/refresh`,
+            {refreshToken: localStorage.getItem("refresh_token")}
+        ).then(res => {
+            localStorage.setItem("access_token", res.data.token);
+            localStorage.setItem("refresh_token", res.data.refreshToken);
+            return res.data.token;
+        }).catch(e => {
+            localStorage.removeItem("access_token");
+            localStorage.removeItem("refresh_token");
+            throw e;
+        }).finally(() => {
+            refreshing = null;
+        });
+    }
+    return refreshing;
+}
+
+// an expired access token is refreshed once and the request sent again
+axios.interceptors.response.use(
+    response => response,
+    async error => {
+        const request = error.config;
+        if (error.response?.status !== 401
+            || request._retried
+            || request.url.includes("/api/v1/auth/")
+            || !localStorage.getItem("refresh_token")) {
+            throw error;
+        }
+        request._retried = true;
+        const token = await refreshAccessToken();
+        request.headers.Authorization = `Bearer ${token}`;
+        return axios(request);
+    }
+)
+
 export const getCustomers = async() => {
     try {
         return await axios.get(
@@ -62,6 +103,18 @@ export const login = async(usernameAndPassword) => {
     }
 }
 
+export const logout = async(refreshToken) => {
+    try {
+        return await axios.post(
+            `${import.meta.env.VITE_API_BASE_URL}/api/v1/auth/logout`,
+            {refreshToken},
+            getAuthConfig()
+        )
+    } catch (e) {
+        throw e;
+    }
+}
+
 export const uploadCustomerProfilePicture = async (id, formData) => {
     try {
         return axios.post(